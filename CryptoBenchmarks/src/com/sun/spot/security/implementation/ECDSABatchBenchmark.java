@@ -0,0 +1,130 @@
+/*
+ * Copyright 2005-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.spot.security.Signature;
+import com.sun.spot.security.implementation.ecc.ECCurve;
+
+/**
+ * Benchmarks verification of a batch of ECDSA signatures from a few keys,
+ * with one Signature.verify call per signature and with
+ * ECDSABatchVerifier. With one thread both take about the same time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ECDSABatchBenchmark {
+
+    @Param({"secp160r1", "secp256r1"})
+    public String curve;
+
+    @Param({"64"})
+    public int size;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private static final int KEYS = 4;
+
+    private ECPublicKeyImpl[] keys;
+    private byte[][] messages;
+    private byte[][] signatures;
+    private Signature verifier;
+    private ECDSABatchVerifier batch;
+
+    @Setup
+    public void setup() throws Exception {
+        int curveId = curve.equals("secp160r1") ? ECCurve.SECP160R1 : ECCurve.SECP256R1;
+        ECPublicKeyImpl[] publicKeys = new ECPublicKeyImpl[KEYS];
+        ECPrivateKeyImpl[] privateKeys = new ECPrivateKeyImpl[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            publicKeys[i] = new ECPublicKeyImpl(curveId);
+            privateKeys[i] = new ECPrivateKeyImpl(curveId);
+        }
+        ECKeyImpl.genKeyPairs(publicKeys, privateKeys);
+
+        Signature signer = Signature.getInstance("SHA1WITHECDSA");
+        keys = new ECPublicKeyImpl[size];
+        messages = new byte[size][];
+        signatures = new byte[size][];
+        byte[] buf = new byte[128];
+        for (int i = 0; i < size; i++) {
+            keys[i] = publicKeys[i % KEYS];
+            messages[i] = ("sensor record " + i).getBytes();
+            signer.initSign(privateKeys[i % KEYS]);
+            signer.update(messages[i], 0, messages[i].length);
+            int len = signer.sign(buf, 0, buf.length);
+            signatures[i] = new byte[len];
+            System.arraycopy(buf, 0, signatures[i], 0, len);
+        }
+        verifier = Signature.getInstance("SHA1WITHECDSA");
+        batch = new ECDSABatchVerifier("SHA1WITHECDSA");
+    }
+
+    @TearDown
+    public void tearDown() {
+        batch.close();
+    }
+
+    @Benchmark
+    public int sequential() throws Exception {
+        int valid = 0;
+        for (int i = 0; i < size; i++) {
+            verifier.initVerify(keys[i]);
+            verifier.update(messages[i], 0, messages[i].length);
+            if (verifier.verify(signatures[i], 0, signatures[i].length)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public boolean[] batch() throws Exception {
+        for (int i = 0; i < size; i++) {
+            batch.add(keys[i], messages[i], 0, messages[i].length,
+                    signatures[i], 0, signatures[i].length);
+        }
+        return batch.verify(threads);
+    }
+}
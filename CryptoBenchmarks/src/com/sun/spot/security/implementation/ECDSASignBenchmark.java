@@ -0,0 +1,105 @@
+/*
+ * Copyright 2005-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.spot.security.Signature;
+import com.sun.spot.security.implementation.ecc.ECCurve;
+
+/**
+ * Benchmarks the latency of ECDSA signing, with a fresh nonce per
+ * signature and with presignatures from ECPresignaturePool. The pool is
+ * refilled outside of the measurement, so the pooled case shows the cost
+ * left for Signature.sign.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ECDSASignBenchmark {
+
+    @Param({"secp160r1", "secp256r1"})
+    public String curve;
+
+    @Param({"false", "true"})
+    public boolean pooled;
+
+    private static final int DEPTH = 64;
+
+    private ECPrivateKeyImpl privateKey;
+    private Signature signer;
+    private byte[] message = "sensor record".getBytes();
+    private byte[] buf = new byte[128];
+
+    @Setup
+    public void setup() throws Exception {
+        int curveId = curve.equals("secp160r1") ? ECCurve.SECP160R1 : ECCurve.SECP256R1;
+        ECPublicKeyImpl publicKey = new ECPublicKeyImpl(curveId);
+        privateKey = new ECPrivateKeyImpl(curveId);
+        ECKeyImpl.genKeyPair(publicKey, privateKey);
+        signer = Signature.getInstance("SHA1WITHECDSA");
+        signer.initSign(privateKey);
+        if (pooled) {
+            // the background thread only runs for an empty pool, which
+            // refill() never lets happen
+            ECPresignaturePool.enable(DEPTH, 0);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void refill() {
+        if (pooled && (ECPresignaturePool.getCount(privateKey) <= 1)) {
+            ECPresignaturePool.fill(privateKey);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ECPresignaturePool.disable();
+    }
+
+    @Benchmark
+    public int sign() throws Exception {
+        signer.update(message, 0, message.length);
+        return signer.sign(buf, 0, buf.length);
+    }
+}
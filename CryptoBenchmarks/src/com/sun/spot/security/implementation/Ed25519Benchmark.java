@@ -0,0 +1,118 @@
+/*
+ * Copyright 2005-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.spot.security.Signature;
+
+/**
+ * Benchmarks Ed25519 signing, verification with one Signature.verify
+ * call per signature, and verification of the same signatures with
+ * Ed25519BatchVerifier.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Ed25519Benchmark {
+
+    private static final int SIZE = 64;
+    private static final int KEYS = 4;
+
+    private Ed25519PrivateKeyImpl privateKey;
+    private Ed25519PublicKeyImpl[] keys;
+    private byte[][] messages;
+    private byte[][] signatures;
+    private Signature signer;
+    private Signature verifier;
+    private Ed25519BatchVerifier batch;
+    private final byte[] buf = new byte[Ed25519Signature.SIGNATURE_SIZE];
+
+    @Setup
+    public void setup() throws Exception {
+        Ed25519PublicKeyImpl[] publicKeys = new Ed25519PublicKeyImpl[KEYS];
+        Ed25519PrivateKeyImpl[] privateKeys = new Ed25519PrivateKeyImpl[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            publicKeys[i] = new Ed25519PublicKeyImpl();
+            privateKeys[i] = new Ed25519PrivateKeyImpl();
+            Ed25519KeyImpl.genKeyPair(publicKeys[i], privateKeys[i]);
+        }
+        privateKey = privateKeys[0];
+
+        signer = Signature.getInstance("Ed25519");
+        keys = new Ed25519PublicKeyImpl[SIZE];
+        messages = new byte[SIZE][];
+        signatures = new byte[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = publicKeys[i % KEYS];
+            messages[i] = ("sensor record " + i).getBytes();
+            signer.initSign(privateKeys[i % KEYS]);
+            signer.update(messages[i], 0, messages[i].length);
+            signatures[i] = new byte[Ed25519Signature.SIGNATURE_SIZE];
+            signer.sign(signatures[i]);
+        }
+        signer.initSign(privateKey);
+        verifier = Signature.getInstance("Ed25519");
+        batch = new Ed25519BatchVerifier();
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        signer.update(messages[0], 0, messages[0].length);
+        signer.sign(buf);
+        return buf;
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        verifier.initVerify(keys[0]);
+        verifier.update(messages[0], 0, messages[0].length);
+        return verifier.verify(signatures[0]);
+    }
+
+    // SIZE signatures per invocation
+    @Benchmark
+    public boolean[] batch() throws Exception {
+        for (int i = 0; i < SIZE; i++) {
+            batch.add(keys[i], messages[i], 0, messages[i].length,
+                    signatures[i], 0, signatures[i].length);
+        }
+        return batch.verify();
+    }
+}
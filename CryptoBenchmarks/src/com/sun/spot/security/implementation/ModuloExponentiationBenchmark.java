@@ -0,0 +1,120 @@
+/*
+ * Copyright 2005-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of ModuloExponentiation.oddModPow() as used by RSA, with a
+ * full length (private key) exponent and with the usual public exponent
+ * 65537. oddModPowKey repeats the operation with the same RSAKey, which
+ * keeps its Montgomery parameters between calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModuloExponentiationBenchmark {
+
+    @Param({"1024", "2048"})
+    public int bits;
+
+    @Param({"private", "public"})
+    public String exponent;
+
+    private int[] base, exp, mod, result;
+
+    private byte[] baseBytes, resultBytes;
+    private RSAKey key;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(bits);
+        int len = bits / 32;
+        mod = new int[len];
+        base = new int[len];
+        for (int i = 0; i < len; i++) {
+            mod[i] = rnd.nextInt();
+            base[i] = rnd.nextInt();
+        }
+        mod[0] |= 0x80000000;
+        mod[len - 1] |= 1;
+        base[0] &= 0x7fffffff;  // base < mod
+        if (exponent.equals("public")) {
+            exp = new int[] {65537};
+        } else {
+            exp = new int[len];
+            for (int i = 0; i < len; i++) {
+                exp[i] = rnd.nextInt();
+            }
+            exp[0] |= 0x80000000;
+        }
+        result = new int[len];
+
+        baseBytes = toBytes(base);
+        resultBytes = new byte[len * 4];
+        byte[] modBytes = toBytes(mod);
+        byte[] expBytes = toBytes(exp);
+        key = new RSAPublicKey(modBytes, expBytes);
+    }
+
+    private static byte[] toBytes(int[] a) {
+        byte[] b = new byte[a.length * 4];
+        for (int i = 0; i < a.length; i++) {
+            b[i * 4] = (byte) (a[i] >> 24);
+            b[i * 4 + 1] = (byte) (a[i] >> 16);
+            b[i * 4 + 2] = (byte) (a[i] >> 8);
+            b[i * 4 + 3] = (byte) a[i];
+        }
+        return b;
+    }
+
+    @Benchmark
+    public int[] oddModPow() {
+        ModuloExponentiation.oddModPow(result, base, exp, mod);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] oddModPowKey() {
+        ModuloExponentiation.oddModPow(resultBytes, baseBytes, key);
+        return resultBytes;
+    }
+}
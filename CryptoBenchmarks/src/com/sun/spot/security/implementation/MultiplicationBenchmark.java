@@ -0,0 +1,93 @@
+/*
+ * Copyright 2005-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the multiplication in ModuloExponentiation, schoolbook
+ * against one level of Karatsuba, by operand length in ints. The length
+ * from which karatsubaOneLevel is faster is the crossover point that
+ * ModuloExponentiation.KARATSUBA_THRESHOLD is set to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiplicationBenchmark {
+
+    @Param({"16", "24", "32", "48", "64", "96", "128"})
+    public int ints;
+
+    private int[] x, y, z, scratch;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(ints);
+        x = new int[ints];
+        y = new int[ints];
+        z = new int[2 * ints];
+        scratch = new int[ModuloExponentiation.karatsubaScratch(ints, 4)];
+        for (int i = 0; i < ints; i++) {
+            x[i] = rnd.nextInt();
+            y[i] = rnd.nextInt();
+        }
+    }
+
+    @Benchmark
+    public int[] schoolbook() {
+        ModuloExponentiation.schoolbook(x, 0, ints, y, 0, ints, z, 0);
+        return z;
+    }
+
+    @Benchmark
+    public int[] karatsubaOneLevel() {
+        // the halves are shorter than the threshold
+        ModuloExponentiation.karatsuba(x, 0, y, 0, ints, z, 0, ints, scratch, 0);
+        return z;
+    }
+
+    @Benchmark
+    public int[] karatsuba() {
+        ModuloExponentiation.karatsuba(x, 0, y, 0, ints, z, 0,
+                ModuloExponentiation.KARATSUBA_THRESHOLD, scratch, 0);
+        return z;
+    }
+}
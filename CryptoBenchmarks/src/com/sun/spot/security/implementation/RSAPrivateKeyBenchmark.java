@@ -0,0 +1,123 @@
+/*
+ * Copyright 2005-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the RSA private key operation, with the full modulus and
+ * exponent (ModuloExponentiation.oddModPow()) and with the CRT parameters
+ * of the key (ModuloExponentiation.crtModPow()), the latter also with a
+ * workspace that is kept between operations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RSAPrivateKeyBenchmark {
+
+    @Param({"1024", "2048"})
+    public int bits;
+
+    private byte[] base, exp, mod, result;
+    private RSAPrivateCrtKey key;
+    private ModuloExponentiation.Workspace workspace;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(bits);
+        BigInteger e = BigInteger.valueOf(65537);
+        BigInteger p, q, phi;
+        do {
+            p = BigInteger.probablePrime(bits / 2, rnd);
+            q = BigInteger.probablePrime(bits / 2, rnd);
+            phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+        } while (p.equals(q) || !e.gcd(phi).equals(BigInteger.ONE)
+                || p.multiply(q).bitLength() != bits);
+        BigInteger n = p.multiply(q);
+        BigInteger d = e.modInverse(phi);
+
+        mod = toBytes(n);
+        exp = toBytes(d);
+        base = toBytes(new BigInteger(bits - 1, rnd));
+        result = new byte[mod.length];
+        key = new RSAPrivateCrtKey(mod, e.toByteArray(), exp, p.toByteArray(), q.toByteArray(),
+                d.mod(p.subtract(BigInteger.ONE)).toByteArray(),
+                d.mod(q.subtract(BigInteger.ONE)).toByteArray(),
+                q.modInverse(p).toByteArray());
+        workspace = new ModuloExponentiation.Workspace();
+    }
+
+    private byte[] toBytes(BigInteger x) {
+        byte[] b = x.toByteArray();
+        byte[] out = new byte[bits / 8];
+        int len = Math.min(b.length, out.length);
+        System.arraycopy(b, b.length - len, out, out.length - len, len);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] oddModPow() {
+        ModuloExponentiation.oddModPow(result, base, exp, mod);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] crtModPow() {
+        key.setParallel(false);
+        ModuloExponentiation.crtModPow(result, base, key);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] crtModPowWorkspace() {
+        key.setParallel(false);
+        ModuloExponentiation.crtModPow(result, base, key, workspace);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] crtModPowParallel() {
+        key.setParallel(true);
+        ModuloExponentiation.crtModPow(result, base, key);
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+import java.util.Random;
+
+/**
+ * Helpers shared by the benchmarks: maps curve names used as JMH
+ * parameters to curve ids and creates reproducible random operands.
+ */
+final class BenchmarkCurves {
+
+    private BenchmarkCurves() {}
+
+    static int curveId(String name) {
+        if (name.equals("secp160r1")) return ECCurve.SECP160R1;
+        if (name.equals("secp192r1")) return ECCurve.SECP192R1;
+        if (name.equals("secp224r1")) return ECCurve.SECP224R1;
+        if (name.equals("secp256r1")) return ECCurve.SECP256R1;
+        if (name.equals("secp384r1")) return ECCurve.SECP384R1;
+        throw new IllegalArgumentException("Unknown curve: " + name);
+    }
+
+    static ECCurve curve(String name) {
+        return ECCurve.getInstance(curveId(name));
+    }
+
+    // name as above, backend "28" or "32" as in ECCurve.FFA_28/FFA_32
+    static ECCurve curve(String name, String backend) {
+        return ECCurve.getInstance(curveId(name), Integer.parseInt(backend));
+    }
+
+    static FFA ffa(int bits, String backend) {
+        return backend.equals("32") ? new FFA32(bits) : new FFA(bits);
+    }
+
+    // returns a random value in the range [1..m-1]
+    static int[] randomBelow(FFA ffa, int[] m, Random rnd) {
+        byte[] buf = new byte[ffa.getByteSize()];
+        int[] r = ffa.acquireVar();
+        do {
+            rnd.nextBytes(buf);
+            ffa.from(r, buf, 0, buf.length);
+            ffa.mod(r, m);
+        } while (ffa.is(r, 0));
+        return r;
+    }
+
+    // returns a random value with exactly 'bits' bits
+    static int[] random(FFA ffa, int bits, Random rnd) {
+        byte[] buf = new byte[(bits + 7) / 8];
+        rnd.nextBytes(buf);
+        int extra = buf.length * 8 - bits;
+        buf[0] &= (byte)(0xff >>> extra);
+        buf[0] |= (byte)(0x80 >>> extra);
+        return ffa.from(ffa.acquireVar(), buf, 0, buf.length);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the FFA big-integer primitives.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FFABenchmark {
+
+    @Param({"160", "192", "224", "256", "1024"})
+    public int bits;
+
+    @Param({"28", "32"})
+    public String backend;
+
+    private FFA ffa;
+    private int[] a, b, m, e;
+    private int[] r, wide, wideSrc;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(bits);
+        ffa = BenchmarkCurves.ffa(bits, backend);
+        a = BenchmarkCurves.random(ffa, bits, rnd);
+        b = BenchmarkCurves.random(ffa, bits, rnd);
+        m = BenchmarkCurves.random(ffa, bits - 1, rnd);
+        e = BenchmarkCurves.random(ffa, bits, rnd);
+        r = ffa.acquireVar();
+        wide = ffa.acquireDoubleVar();
+        wideSrc = ffa.acquireDoubleVar();
+        ffa.mul(wideSrc, a, b);
+    }
+
+    @Benchmark
+    public int[] mul() {
+        ffa.mul(wide, a, b);
+        return wide;
+    }
+
+    @Benchmark
+    public int[] sqr() {
+        ffa.sqr(wide, a);
+        return wide;
+    }
+
+    @Benchmark
+    public int[] mod() {
+        // 'mod' works in place, so reduce a fresh copy of a double length value
+        ffa.copy(wide, wideSrc);
+        ffa.mod(wide, m);
+        return wide;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 1)
+    @Measurement(iterations = 3, time = 2)
+    public int[] modPow() {
+        ffa.modPow(r, a, e, m);
+        return r;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+
+package com.sun.spot.security.implementation.ecc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the shared secret computation of a key agreement: the
+ * X25519 Montgomery ladder against k * Q on secp256r1, with the wNAF
+ * method that ECDHKeyAgreement uses by default and with the co-Z ladder
+ * of its constant-time mode, without decoding and validating the peer
+ * point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyAgreementBenchmark {
+
+    @Param({"28", "32"})
+    public String backend;
+
+    private Curve25519 curve25519;
+    private byte[] k;
+    private byte[] u;
+    private byte[] secret;
+
+    private ECCurve ecCurve;
+    private int[] s;
+    private ECPoint q;
+    private ECPoint r;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(25519);
+        curve25519 = Curve25519.getInstance(Integer.parseInt(backend));
+        k = new byte[Curve25519.KEY_SIZE];
+        rnd.nextBytes(k);
+        Curve25519.clamp(k, 0);
+        byte[] k2 = new byte[Curve25519.KEY_SIZE];
+        rnd.nextBytes(k2);
+        u = new byte[Curve25519.KEY_SIZE];
+        curve25519.multiplyBasePoint(u, 0, k2, 0);
+        secret = new byte[Curve25519.KEY_SIZE];
+
+        ecCurve = BenchmarkCurves.curve("secp256r1", backend);
+        FFA ffa = ecCurve.getOrder().getFFA();
+        s = BenchmarkCurves.randomBelow(ffa, ecCurve.getOrder().getP(), rnd);
+        q = new ECPoint(ecCurve);
+        ecCurve.multiplyGenerator(q, BenchmarkCurves.randomBelow(ffa, ecCurve.getOrder().getP(), rnd));
+        r = new ECPoint(ecCurve);
+    }
+
+    @Benchmark
+    public byte[] x25519() {
+        curve25519.multiply(secret, 0, k, 0, u, 0);
+        return secret;
+    }
+
+    @Benchmark
+    public ECPoint secp256r1() {
+        ecCurve.copy(r, q);
+        ecCurve.multiply(r, s);
+        return r;
+    }
+
+    @Benchmark
+    public ECPoint secp256r1Ladder() {
+        ecCurve.copy(r, q);
+        ecCurve.multiplyLadder(r, s);
+        return r;
+    }
+}
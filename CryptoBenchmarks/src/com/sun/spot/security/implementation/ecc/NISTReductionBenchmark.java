@@ -0,0 +1,88 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the reduction step alone, i.e. PrimeField.reduce() of a
+ * double length product, for each NIST prime field and for the generic
+ * reduction over the same prime.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NISTReductionBenchmark {
+
+    @Param({"secp160r1", "secp192r1", "secp224r1", "secp256r1", "secp384r1"})
+    public String curve;
+
+    @Param({"nist", "generic"})
+    public String impl;
+
+    @Param({"28", "32"})
+    public String backend;
+
+    private PrimeField field;
+    private int[] product, wide, r;
+
+    @Setup
+    public void setup() {
+        PrimeField nist = (PrimeField)BenchmarkCurves.curve(curve, backend).getField();
+        FFA ffa = nist.getFFA();
+        field = impl.equals("nist") ? nist : new PrimeField(ffa, nist.getP());
+        Random rnd = new Random(ffa.getBitSize());
+        int[] a = BenchmarkCurves.randomBelow(ffa, field.getP(), rnd);
+        int[] b = BenchmarkCurves.randomBelow(ffa, field.getP(), rnd);
+        product = ffa.acquireDoubleVar();
+        wide = ffa.acquireDoubleVar();
+        ffa.mul(product, a, b);
+        r = ffa.acquireVar();
+    }
+
+    @Benchmark
+    public int[] reduce() {
+        // reduce() may destroy its input, so work on a copy
+        System.arraycopy(product, 0, wide, 0, product.length);
+        field.reduce(r, wide);
+        return r;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of point multiplication on each curve: k * G with the
+ * variable-base method, with the Montgomery ladder and with the
+ * fixed-base comb, and the
+ * k1 * G + k2 * Q of ECDSA verification with Shamir's trick and with
+ * interleaved wNAFs, with and without a precomputed table for Q, and
+ * the computation of that table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointMultiplyBenchmark {
+
+    @Param({"secp160r1", "secp192r1", "secp224r1", "secp256r1", "secp384r1"})
+    public String curve;
+
+    @Param({"28", "32"})
+    public String backend;
+
+    private ECCurve ecCurve;
+    private ECPoint r;
+    private int[] k;
+    private int[] k2;
+    private ECPoint q;
+    private ECPoint[] multiples;
+
+    @Setup
+    public void setup() {
+        ecCurve = BenchmarkCurves.curve(curve, backend);
+        FFA ffa = ecCurve.getOrder().getFFA();
+        Random rnd = new Random(ffa.getBitSize());
+        k = BenchmarkCurves.randomBelow(ffa, ecCurve.getOrder().getP(), rnd);
+        k2 = BenchmarkCurves.randomBelow(ffa, ecCurve.getOrder().getP(), rnd);
+        r = new ECPoint(ecCurve);
+        q = new ECPoint(ecCurve);
+        ecCurve.multiplyGenerator(q, k2);
+        multiples = ecCurve.precomputeMultiples(q);
+        // build the generator tables outside of the measurement
+        ecCurve.multiplyGenerator(r, k);
+        ecCurve.multiplyGeneratorSum(r, k, q, k2);
+    }
+
+    @Benchmark
+    public ECPoint multiply() {
+        ecCurve.copy(r, ecCurve.getGenerator());
+        ecCurve.multiply(r, k);
+        return r;
+    }
+
+    @Benchmark
+    public ECPoint multiplyLadder() {
+        ecCurve.copy(r, ecCurve.getGenerator());
+        ecCurve.multiplyLadder(r, k);
+        return r;
+    }
+
+    @Benchmark
+    public ECPoint multiplyGenerator() {
+        ecCurve.multiplyGenerator(r, k);
+        return r;
+    }
+
+    @Benchmark
+    public ECPoint multiplySum() {
+        ecCurve.copy(r, ecCurve.getGenerator());
+        ecCurve.multiplySum(r, k, q, k2);
+        return r;
+    }
+
+    @Benchmark
+    public ECPoint multiplyGeneratorSum() {
+        ecCurve.multiplyGeneratorSum(r, k, q, k2);
+        return r;
+    }
+
+    @Benchmark
+    public ECPoint multiplyGeneratorSumPrecomputed() {
+        ecCurve.multiplyGeneratorSum(r, k, multiples, k2);
+        return r;
+    }
+
+    @Benchmark
+    public ECPoint[] precomputeMultiples() {
+        return ecCurve.precomputeMultiples(q);
+    }
+}
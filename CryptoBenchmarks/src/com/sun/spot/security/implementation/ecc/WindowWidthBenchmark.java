@@ -0,0 +1,79 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of variable-base point multiplication with each window
+ * width, used to choose the default width of ECCurveFp.multiply for
+ * each curve size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WindowWidthBenchmark {
+
+    @Param({"secp160r1", "secp192r1", "secp224r1", "secp256r1", "secp384r1"})
+    public String curve;
+
+    @Param({"2", "3", "4", "5", "6"})
+    public int width;
+
+    private ECCurveFp ecCurve;
+    private ECPoint r;
+    private int[] k;
+
+    @Setup
+    public void setup() {
+        ecCurve = (ECCurveFp)BenchmarkCurves.curve(curve);
+        FFA ffa = ecCurve.getOrder().getFFA();
+        k = BenchmarkCurves.randomBelow(ffa, ecCurve.getOrder().getP(), new Random(ffa.getBitSize()));
+        r = new ECPoint(ecCurve);
+    }
+
+    @Benchmark
+    public ECPoint multiply() {
+        ecCurve.copy(r, ecCurve.getGenerator());
+        ecCurve.multiply(r, k, width);
+        return r;
+    }
+}
@@ -32,6 +32,10 @@ import com.sun.spot.security.Key;
 import com.sun.spot.security.implementation.RSAPublicKey;
 import com.sun.spot.security.implementation.ECPublicKeyImpl;
 import com.sun.spot.security.implementation.ECPrivateKeyImpl;
+import com.sun.spot.security.implementation.Ed25519KeyImpl;
+import com.sun.spot.security.implementation.Ed25519PrivateKeyImpl;
+import com.sun.spot.security.implementation.Ed25519PublicKeyImpl;
+import com.sun.spot.security.implementation.ecc.Ed25519;
 import com.sun.spot.util.Utils;
 import java.io.IOException;
 
@@ -48,6 +52,8 @@ public class KeySerializer {
     private static final int RSA_PUBLIC_KEY = 0;
     private static final int ECDSA_PUBLIC_KEY = 1;
     private static final int ECDSA_PRIVATE_KEY = 2;
+    private static final int ED25519_PUBLIC_KEY = 3;
+    private static final int ED25519_PRIVATE_KEY = 4;
        
     /* Serialization offsets */
     private static final int VERSION_OFFSET = 0; // byte
@@ -77,6 +83,10 @@ public class KeySerializer {
                                                         offset + KEY_OFFSET);
                 case ECDSA_PRIVATE_KEY: return parseECPrivateKeyImpl(rawKey,
                                                         offset + KEY_OFFSET);
+                case ED25519_PUBLIC_KEY: return parseEd25519Key(
+                        new Ed25519PublicKeyImpl(), rawKey, offset + KEY_OFFSET);
+                case ED25519_PRIVATE_KEY: return parseEd25519Key(
+                        new Ed25519PrivateKeyImpl(), rawKey, offset + KEY_OFFSET);
                 default: throw new IOException("Unrecognized key type");
             }
         }
@@ -99,9 +109,16 @@ public class KeySerializer {
         } else if (clas == ECPrivateKeyImpl.class) {
             rawKey = serializeECPrivateKey((ECPrivateKeyImpl)key, KEY_OFFSET);
             keyType = ECDSA_PRIVATE_KEY;        
+        } else if (clas == Ed25519PublicKeyImpl.class) {
+            rawKey = serializeEd25519Key((Ed25519KeyImpl)key, KEY_OFFSET);
+            keyType = ED25519_PUBLIC_KEY;
+        } else if (clas == Ed25519PrivateKeyImpl.class) {
+            rawKey = serializeEd25519Key((Ed25519KeyImpl)key, KEY_OFFSET);
+            keyType = ED25519_PRIVATE_KEY;
         } else {
-            throw new InvalidAlgorithmParameterException("Only RSA public and " +
-                    "ECDSA public/private keys are supported");
+            throw new InvalidAlgorithmParameterException("Only RSA public, " +
+                    "ECDSA public/private and Ed25519 public/private keys " +
+                    "are supported");
         }
         rawKey[VERSION_OFFSET] = CURRENT_VERSION;
         rawKey[KEY_TYPE_OFFSET] = keyType;
@@ -137,7 +154,7 @@ public class KeySerializer {
         int curveId = rawKey[strAddr];
         strAddr ++;
         ECPublicKeyImpl key = new ECPublicKeyImpl(curveId);
-        int wlen = rawKey[strAddr];
+        int wlen = rawKey[strAddr] & 0xff;
         strAddr ++;     
         byte[] w = new byte[wlen];
         System.arraycopy(rawKey, strAddr, w, 0, w.length);
@@ -155,7 +172,7 @@ public class KeySerializer {
         int curveId = rawKey[strAddr];
         strAddr ++;
         ECPrivateKeyImpl key = new ECPrivateKeyImpl(curveId);
-        int slen = rawKey[strAddr];
+        int slen = rawKey[strAddr] & 0xff;
         strAddr ++;     
         byte[] s = new byte[slen];
         System.arraycopy(rawKey, strAddr, s, 0, s.length);
@@ -163,6 +180,20 @@ public class KeySerializer {
         return key;
     }
     
+    /** Parses Ed25519 public and private keys
+     * @param key the key to set
+     * @param rawKey the raw key to deserialize
+     * @param offset where to start parsing
+     */
+    private static Ed25519KeyImpl parseEd25519Key(Ed25519KeyImpl key,
+            byte[] rawKey, int offset) throws GeneralSecurityException {
+        int strAddr = offset;
+        int len = rawKey[strAddr] & 0xff;
+        strAddr ++;
+        key.setKey(rawKey, strAddr, len);
+        return key;
+    }
+    
     /** Serializes RSAPublicKeys into the following format
      * [modLen][mod][expLen][exp]
      */
@@ -236,6 +267,19 @@ public class KeySerializer {
         return rawKey;
     }
     
+    /** Serializes Ed25519 public keys and the seeds of private keys into
+     * the following format [length][key]
+     */
+    private static byte[] serializeEd25519Key(Ed25519KeyImpl key,
+            int headerSize) throws KeyException {
+        byte[] rawKey = new byte[headerSize + 1 + Ed25519.KEY_SIZE];
+        int strAddr = headerSize;
+        rawKey[strAddr] = (byte)Ed25519.KEY_SIZE;
+        strAddr ++;
+        key.getKey(rawKey, strAddr);
+        return rawKey;
+    }
+    
     private void msg(String s) {
         System.out.println("[KeySerializer] " + s);
     }
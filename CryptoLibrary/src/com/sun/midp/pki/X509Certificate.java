@@ -44,6 +44,7 @@ import com.sun.spot.security.Signature;
 import com.sun.spot.security.implementation.RSAPublicKey;
 import com.sun.spot.security.implementation.ecc.ECCurve;
 import com.sun.spot.security.implementation.ECPublicKeyImpl;
+import com.sun.spot.security.implementation.Ed25519PublicKeyImpl;
 //import com.sun.spotx.crypto.Cipher;
 
 /**
@@ -224,6 +225,11 @@ public class X509Certificate implements Certificate {
         (byte) 0x2a, (byte) 0x86, (byte) 0x48, (byte) 0xce,
         (byte) 0x3d, (byte) 0x02, (byte) 0x01  // ANSI_X962_OID, 0x02, 0x01
     };
+
+    /* Ed25519 OID (RFC 8410), both the key and the signature algorithm */
+    private static final byte[] Ed25519OID = {
+        (byte) 0x2b, (byte) 0x65, (byte) 0x70  // 1.3.101.112
+    };
     
     /* SECG OID */
     private static final byte[] SECGOID = {
@@ -262,6 +268,7 @@ public class X509Certificate implements Certificate {
      */
     private static final byte EC_PUBLIC_KEY = 0x10;
     private static final byte ECDSA_WITH_SHA1 = 0x11;
+    private static final byte ED25519 = 0x12;
 
     /**
      * Expected prefix in decrypted value when MD2 hash is used for signing
@@ -580,6 +587,10 @@ public class X509Certificate implements Certificate {
                 match(ECDSAwithSHA1OID);
                 return ECDSA_WITH_SHA1;
             }
+            if (len == Ed25519OID.length) {
+                match(Ed25519OID);
+                return ED25519;
+            }
             idx = idxSaved;
             if (len == PKCS1OID.length + 1) {
                 match(PKCS1OID);
@@ -927,22 +938,40 @@ public class X509Certificate implements Certificate {
             match(PKCS1OID);
             id = enc[idx++];
             match(NullSeq);
+        } else if (size == Ed25519OID.length) {
+            match(Ed25519OID);
+            id = ED25519;
         } else {
             match(ECpublicKeyOID);
             id = EC_PUBLIC_KEY;
             size = getLen(OID_TYPE);
-            // TODO: convert curve OID to curve number
             if (size == SECGOID.length + 1) {
                 match(SECGOID);
-                if (enc[idx++] == 0x08) 
+                switch (enc[idx++]) {
+                case 0x08:
                     curveType = ECCurve.SECP160R1;
-                else
+                    break;
+                case 0x21:
+                    curveType = ECCurve.SECP224R1;
+                    break;
+                case 0x22:
+                    curveType = ECCurve.SECP384R1;
+                    break;
+                default:
                     throw new IOException("Unsupported SECG curve");
+                }
             } else if (size == ANSIX962GFpOID.length + 1) {
                 match(ANSIX962GFpOID);
-                throw new IOException("Unsupported ANSI X9.62 GFp curve");
-                // if (enc[idx++] == 0x07) 
-                //    curveType = ECCurve.NISTP256;
+                switch (enc[idx++]) {
+                case 0x01:
+                    curveType = ECCurve.SECP192R1;
+                    break;
+                case 0x07:
+                    curveType = ECCurve.SECP256R1;
+                    break;
+                default:
+                    throw new IOException("Unsupported ANSI X9.62 GFp curve");
+                }
             }
         }
 
@@ -1013,6 +1042,19 @@ public class X509Certificate implements Certificate {
             idx += size;
             break;
 
+        case ED25519:
+            size = getLen(BITSTRING_TYPE);
+            if (enc[idx++] != 0x00) {
+                throw new IOException("Bitstring error while parsing public " +
+                                      "key information");
+            }
+            size--;
+
+            pubKey = new Ed25519PublicKeyImpl();
+            ((Ed25519PublicKeyImpl) pubKey).setKey(enc, idx, size);
+            idx += size;
+            break;
+
         default:
             pubKey = null;
             break;
@@ -1251,7 +1293,7 @@ public class X509Certificate implements Certificate {
              * XXX this is getting hackish. We ought to reuse the Signature class
              * for RSA verification too (instead of using Cipher). 
              */
-            if (res.sigAlg == ECDSA_WITH_SHA1) 
+            if ((res.sigAlg == ECDSA_WITH_SHA1) || (res.sigAlg == ED25519))
                 sigLen = (size - 1);
             res.signature = new byte[sigLen];
             System.arraycopy(res.enc, res.idx, res.signature, 
@@ -1804,6 +1846,8 @@ public class X509Certificate implements Certificate {
             return ("MD4withRSA");
         else if (sigAlg == ECDSA_WITH_SHA1)
             return ("SHA1withECDSA");
+        else if (sigAlg == ED25519)
+            return ("Ed25519");
         else
             return ("Unknown (" + sigAlg + ")");
     }
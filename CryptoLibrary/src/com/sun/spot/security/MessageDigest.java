@@ -78,6 +78,8 @@ public abstract class MessageDigest {
                 sigClass = Class.forName("com.sun.spot.security.implementation.MD5");
             } else if (algorithm.equals("SHA-1") || (algorithm.equals("SHA"))) {
                 sigClass = Class.forName("com.sun.spot.security.implementation.SHA");             	
+            } else if (algorithm.equals("SHA-512")) {
+                sigClass = Class.forName("com.sun.spot.security.implementation.SHA512");
             } else {
                 throw new NoSuchAlgorithmException(algorithm+ " not supported.");
             }                
@@ -30,7 +30,7 @@ package com.sun.spot.security;
  * are used for authentication and integrity assurance of digital data.
  *
  * <p> For this implementation, the signature algorithm can be one of
- * MD5WITHRSA, SHA1WITHRSA, MD5WITHECDSA or SHA1WITHECDSA. The algorithm name
+ * MD5WITHRSA, SHA1WITHRSA, MD5WITHECDSA, SHA1WITHECDSA or ED25519. The algorithm name
  * must be specified in the <code>getInstance()</code> method as there is no
  * default. Specifying an unsupported algorithm will cause a
  * <code>NoSuchAlgorithmException</code> exception to be thrown.
@@ -105,6 +105,8 @@ public abstract class Signature {
                 sigClass = Class.forName("com.sun.spot.security.implementation.ECDSAWithMD5Signature");
             } else if (algorithm.equals("SHA1WITHECDSA"))  {
                 sigClass = Class.forName("com.sun.spot.security.implementation.ECDSAWithSHA1Signature");
+            } else if (algorithm.equals("ED25519"))  {
+                sigClass = Class.forName("com.sun.spot.security.implementation.Ed25519Signature");
         	
             } else {
                 throw new NoSuchAlgorithmException();
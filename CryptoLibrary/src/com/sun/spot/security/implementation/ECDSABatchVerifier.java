@@ -0,0 +1,422 @@
+/*
+ * Copyright 2000-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import com.sun.spot.security.DigestException;
+import com.sun.spot.security.InvalidKeyException;
+import com.sun.spot.security.MessageDigest;
+import com.sun.spot.security.NoSuchAlgorithmException;
+import com.sun.spot.security.PublicKey;
+import com.sun.spot.security.SignatureException;
+import com.sun.spot.security.implementation.ecc.ECCurve;
+import com.sun.spot.security.implementation.ecc.ECPoint;
+import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.PrimeField;
+
+/**
+ * Verifies a batch of ECDSA signatures, each with its own key and message,
+ * and returns a result for every signature.
+ * <p>
+ * Work that <code>Signature.verify</code> repeats for every signature is
+ * shared by the batch: the values s^-1 of all signatures on a curve are
+ * computed with a single inversion, keys that occur several times in the
+ * batch get one table of precomputed multiples, and the x-coordinates are
+ * compared without inversion. The signatures can be checked by several
+ * threads.
+ * <p>
+ * Each signature is still checked on its own with u1 * G + u2 * Q, which
+ * is nearly all of the work. A batch is therefore about as fast as one
+ * <code>Signature.verify</code> call per signature, and only several
+ * threads on several cores make it faster. On a single core, use
+ * <code>verify()</code>, which starts no threads.
+ * <p>
+ * The threads of <code>verify(int)</code> are started when a batch first
+ * asks for them and are reused by the following batches until
+ * <code>close()</code> is called.
+ * <p>
+ * <b>Warning</b>: This class is not part of the Security and Trust Services
+ * API (SATSA) 1.0 specification.
+ */
+public final class ECDSABatchVerifier {
+    
+    private final MessageDigest digest;
+    private final Vector items = new Vector();
+    
+    // the threads of verify(int), see close()
+    private Worker[] workers = new Worker[0];
+    
+    // the digest as a variable of the order FFA of the last item, see
+    // digestVar()
+    private int[] digestVar;
+    private FFA digestFFA;
+    
+    // one signature of the batch
+    private static final class Item {
+        ECPublicKeyImpl key;
+        byte[] digest;
+        byte[] signature;
+        
+        // values of the order field, 'r' is null if the signature is invalid
+        int[] r;
+        int[] s;
+        int[] e;
+        ECPoint[] multiples;
+        boolean verified;
+    }
+    
+    /**
+     * Creates a batch verifier.
+     *
+     * @param algorithm "SHA1WITHECDSA" or "MD5WITHECDSA"
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     */
+    public ECDSABatchVerifier(String algorithm) throws NoSuchAlgorithmException {
+        if (algorithm == null) {
+            throw new NoSuchAlgorithmException();
+        }
+        algorithm = algorithm.toUpperCase();
+        if (algorithm.equals("SHA1WITHECDSA")) {
+            digest = MessageDigest.getInstance("SHA-1");
+        } else if (algorithm.equals("MD5WITHECDSA")) {
+            digest = MessageDigest.getInstance("MD5");
+        } else {
+            throw new NoSuchAlgorithmException();
+        }
+    }
+    
+    /**
+     * Adds a signature to the batch.
+     *
+     * @param key the public key of the signer
+     * @param message buffer with the signed data
+     * @param msgOffset offset of the signed data
+     * @param msgLength length of the signed data
+     * @param signature buffer with the signature
+     * @param sigOffset offset of the signature
+     * @param sigLength length of the signature
+     * @throws InvalidKeyException if the key is not an initialized EC key
+     * @throws SignatureException if the message cannot be hashed
+     */
+    public void add(PublicKey key, byte[] message, int msgOffset, int msgLength,
+            byte[] signature, int sigOffset, int sigLength)
+            throws InvalidKeyException, SignatureException {
+        
+        if (!(key instanceof ECPublicKeyImpl)) {
+            throw new InvalidKeyException();
+        }
+        if (!((ECPublicKeyImpl)key).isInitialized()) {
+            throw new InvalidKeyException("Key not initialized.");
+        }
+        
+        Item item = new Item();
+        item.key = (ECPublicKeyImpl)key;
+        item.digest = new byte[digest.getDigestLength()];
+        digest.update(message, msgOffset, msgLength);
+        try {
+            digest.digest(item.digest, 0, item.digest.length);
+        } catch (DigestException e) {
+            throw new SignatureException(e.getMessage());
+        }
+        item.signature = new byte[sigLength];
+        System.arraycopy(signature, sigOffset, item.signature, 0, sigLength);
+        items.addElement(item);
+    }
+    
+    /**
+     * Returns the number of signatures in the batch.
+     */
+    public int size() {
+        return items.size();
+    }
+    
+    /**
+     * Verifies all signatures of the batch in the current thread and
+     * empties the batch.
+     *
+     * @return the result of each signature, in the order they were added
+     */
+    public boolean[] verify() {
+        return verify(1);
+    }
+    
+    /**
+     * Verifies all signatures of the batch and empties the batch.
+     *
+     * @param threads number of threads that check the signatures, including
+     *   the current thread
+     * @return the result of each signature, in the order they were added
+     */
+    public boolean[] verify(int threads) {
+        Item[] batch = new Item[items.size()];
+        items.copyInto(batch);
+        items.removeAllElements();
+        
+        Hashtable tables = prepare(batch);
+        
+        // split the batch into one range per thread
+        threads = Math.max(1, Math.min(threads, batch.length));
+        startWorkers(threads - 1);
+        for (int i = 0; i < threads - 1; i++) {
+            workers[i].start(batch, (i + 1) * batch.length / threads,
+                    (i + 2) * batch.length / threads);
+        }
+        check(batch, 0, batch.length / threads);
+        for (int i = 0; i < threads - 1; i++) {
+            workers[i].await();
+        }
+        
+        boolean[] results = new boolean[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            Item item = batch[i];
+            results[i] = item.verified;
+            if (item.r != null) {
+                FFA ffa = item.key.getECCurve().getOrder().getFFA();
+                ffa.releaseVar(item.r);
+                ffa.releaseVar(item.s);
+                ffa.releaseVar(item.e);
+            }
+        }
+        
+        // release the tables that were computed for this batch only
+        for (Enumeration e = tables.elements(); e.hasMoreElements(); ) {
+            ECPoint[] table = (ECPoint[])e.nextElement();
+            for (int i = 0; i < table.length; i++) {
+                table[i].release();
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Stops the threads that <code>verify(int)</code> started. A later
+     * call starts new ones if it needs them.
+     */
+    public void close() {
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].close();
+        }
+        workers = new Worker[0];
+    }
+    
+    // makes sure that there are at least 'count' workers
+    private void startWorkers(int count) {
+        if (workers.length >= count) {
+            return;
+        }
+        Worker[] started = new Worker[count];
+        System.arraycopy(workers, 0, started, 0, workers.length);
+        for (int i = workers.length; i < count; i++) {
+            started[i] = new Worker();
+            new Thread(started[i]).start();
+        }
+        workers = started;
+    }
+    
+    /*
+     * Decodes the signatures and computes everything that the items share.
+     * Returns the tables of multiples that were computed for this batch.
+     */
+    private Hashtable prepare(Item[] batch) {
+        // decode the signatures and compute e = H(m) mod n
+        for (int i = 0; i < batch.length; i++) {
+            Item item = batch[i];
+            PrimeField field = item.key.getECCurve().getOrder();
+            FFA ffa = field.getFFA();
+            int[] r = ffa.acquireVar();
+            int[] s = ffa.acquireVar();
+            if (!ECDSASignature.decodeSignature(field, item.signature, 0,
+                    item.signature.length, r, s)) {
+                ffa.releaseVar(r);
+                ffa.releaseVar(s);
+                continue;
+            }
+            item.e = ffa.acquireVar();
+            field.trim(item.e, digestVar(ffa, item.digest));
+            item.r = r;
+            item.s = s;
+        }
+        
+        // s = s^-1 (mod n), with one inversion for all items of a curve
+        boolean[] inverted = new boolean[batch.length];
+        int[][] values = new int[batch.length][];
+        for (int i = 0; i < batch.length; i++) {
+            if ((batch[i].r == null) || inverted[i]) {
+                continue;
+            }
+            ECCurve curve = batch[i].key.getECCurve();
+            int count = 0;
+            for (int j = i; j < batch.length; j++) {
+                if ((batch[j].r != null) && (batch[j].key.getECCurve() == curve)) {
+                    values[count++] = batch[j].s;
+                    inverted[j] = true;
+                }
+            }
+            curve.getOrder().invert(values, 0, count);
+        }
+        
+        // count how often each key is used
+        Hashtable uses = new Hashtable();
+        for (int i = 0; i < batch.length; i++) {
+            if (batch[i].r != null) {
+                Integer n = (Integer)uses.get(batch[i].key);
+                uses.put(batch[i].key, new Integer((n == null) ? 1 : n.intValue() + 1));
+            }
+        }
+        
+        // keys with a cached table use it, other keys that are used more
+        // than once get a table for this batch
+        Hashtable tables = new Hashtable();
+        for (Enumeration e = uses.keys(); e.hasMoreElements(); ) {
+            ECPublicKeyImpl key = (ECPublicKeyImpl)e.nextElement();
+            ECPoint[] table = ECPrecomputationCache.lookup(key);
+            if (table == null) {
+                if (((Integer)uses.get(key)).intValue() == 1) {
+                    continue;
+                }
+                table = key.getECCurve().precomputeMultiples(key.keyData);
+                tables.put(key, table);
+            }
+            for (int i = 0; i < batch.length; i++) {
+                if ((batch[i].r != null) && (batch[i].key == key)) {
+                    batch[i].multiples = table;
+                }
+            }
+        }
+        
+        return tables;
+    }
+    
+    /*
+     * Returns 'digest' as a variable of 'ffa'. The variable is longer than
+     * those of the pool, it is kept for the next item with the same FFA.
+     */
+    private int[] digestVar(FFA ffa, byte[] digest) {
+        if (digestFFA != ffa) {
+            digestVar = ffa.acquireVar(digest.length * 8);
+            digestFFA = ffa;
+        }
+        return ffa.from(digestVar, digest, 0, digest.length);
+    }
+    
+    // checks the items in the range [from..to-1]
+    private static void check(Item[] batch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Item item = batch[i];
+            if (item.r == null) {
+                continue;
+            }
+            ECCurve curve = item.key.getECCurve();
+            PrimeField field = curve.getOrder();
+            FFA ffa = field.getFFA();
+            
+            int[] u1 = ffa.acquireVar();
+            int[] u2 = ffa.acquireVar();
+            field.multiply(u1, item.e, item.s);     // u1 = (e * s^-1) mod n
+            field.multiply(u2, item.r, item.s);     // u2 = (r * s^-1) mod n
+            
+            // G = u1 * G + u2 * Q;
+            ECPoint G = curve.acquirePoint();
+            if (item.multiples != null) {
+                curve.multiplyGeneratorSumJacobian(G, u1, item.multiples, u2);
+            } else {
+                curve.multiplyGeneratorSumJacobian(G, u1, item.key.keyData, u2);
+            }
+            
+            item.verified = ECDSASignature.hasX(curve, G, item.r);
+            
+            ffa.releaseVar(u1);
+            ffa.releaseVar(u2);
+            curve.releasePoint(G);
+        }
+    }
+    
+    // a thread that checks one range of a batch at a time, until closed
+    private static final class Worker implements Runnable {
+        private Item[] batch;
+        private int from;
+        private int to;
+        private boolean closed;
+        
+        // hands the range [from..to-1] of 'batch' to the thread
+        synchronized void start(Item[] batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            notifyAll();
+        }
+        
+        // waits until the range has been checked
+        synchronized void await() {
+            while (batch != null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // keep waiting, the results are needed
+                }
+            }
+        }
+        
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+        
+        public void run() {
+            while (true) {
+                Item[] items;
+                int first;
+                int end;
+                synchronized (this) {
+                    while ((batch == null) && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            // wait for the next range
+                        }
+                    }
+                    if (batch == null) {
+                        return;
+                    }
+                    items = batch;
+                    first = from;
+                    end = to;
+                }
+                try {
+                    check(items, first, end);
+                } finally {
+                    synchronized (this) {
+                        batch = null;
+                        notifyAll();
+                    }
+                }
+            }
+        }
+    }
+}
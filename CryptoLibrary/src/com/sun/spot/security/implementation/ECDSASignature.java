@@ -26,7 +26,6 @@ package com.sun.spot.security.implementation;
 
 
 import com.sun.spot.security.DigestException;
-import com.sun.spot.security.GeneralSecurityException;
 import com.sun.spot.security.InvalidKeyException;
 import com.sun.spot.security.MessageDigest;
 import com.sun.spot.security.NoSuchAlgorithmException;
@@ -49,6 +48,15 @@ public class ECDSASignature extends Signature {
     private ECPublicKeyImpl verifyKey;
     private byte[] digestBuf;
     
+    // the digest as a variable of the order, reused by all signatures with
+    // keys of the same FFA, see digestVar()
+    private int[] digestVar;
+    private FFA digestFFA;
+    
+    // the random numbers 'k' of sign() and their byte buffer
+    private SecureRandom random;
+    private byte[] nonceBuf;
+    
     // Some ASN.1 Syntax and Encoding Info:
     // ECDSA-Sig-Value ::= SEQUENCE {
     //     r INTEGER,
@@ -122,31 +130,60 @@ public class ECDSASignature extends Signature {
         // We can use the PrimeField class to do all the (mod n) computations
         PrimeField field = key.getECCurve().getOrder();
         FFA ffa = field.getFFA();        
-        try {
-            ECPublicKeyImpl publicKey =new ECPublicKeyImpl(key.getCurve());
-            ECPrivateKeyImpl privateKey = new ECPrivateKeyImpl(key.getCurve());
         
+        // with a presignature (k^-1, r) from the pool, only s is left
+        ECPresignaturePool.Presignature pre = ECPresignaturePool.take(signKey);
+        if (pre != null) {
+            int[] s = ffa.acquireVar();
+            int[] e = ffa.acquireVar();
+            field.trim(e, digestVar(ffa));      // e = e mod n
+            int[] d = signKey.keyData;
+            
+            field.multiply(s, d, pre.r);        // s = d*r (mod n)
+            field.add(s, s, e);                 // s = e + d*r (mod n)
+            field.multiply(s, s, pre.kInv);     // s = k^-1 * (e + d*r) (mod n)
+            
+            int len = 0;
+            if (!ffa.is(s, 0)) {
+                len = encodeSignature(ffa, outbuf, offset, pre.r, s);
+            }
+            ECPresignaturePool.wipe(signKey, pre);
+            ffa.set(s, 0);
+            ffa.releaseVar(s);
+            ffa.releaseVar(e);
+            if (len > 0) {
+                return len;
+            }
+            // s = 0, sign with a fresh k below
+        }
+        
+        if (random == null) {
+            try {
+                random = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
+            } catch (NoSuchAlgorithmException e1) {
+                throw new SignatureException(e1.getMessage());
+            }
+        }
+        int nonceLen = (field.getBitSize() + 7) >> 3;
+        if ((nonceBuf == null) || (nonceBuf.length < nonceLen)) {
+            nonceBuf = new byte[nonceLen];
+        }
+        
+        ECCurve curve = key.getECCurve();
+        ECPoint R = curve.acquirePoint();
         int[] r = ffa.acquireVar();
         int[] s = ffa.acquireVar();
-        
         int[] e = ffa.acquireVar();
-        int[] tmp, k, d;
+        int[] k = ffa.acquireVar();
+        int[] d = signKey.keyData;
         
         do {
-            // Generate a key pair to get the random number 'k' (private key)
-            // and the x-coordinate of k*G (public key)
-            try {
-        	ECKeyImpl.genKeyPair(publicKey, privateKey);        	
-	    } catch (NoSuchAlgorithmException e1) {		
-		throw new SignatureException(e1.getMessage());
- 	    }
-	    tmp = publicKey.getECPoint().x;
-            field.trim(r, tmp);         // r = x1 mod n
+            // the random number 'k' and the x-coordinate of k*G
+            ECKeyImpl.randomScalar(curve, k, random, nonceBuf);
+            curve.multiplyGenerator(R, k);
+            field.trim(r, R.x);         // r = x1 mod n
 
-            tmp = ffa.from(ffa.acquireVar(digestBuf.length * 8), digestBuf, 0, digestBuf.length);
-            field.trim(e, tmp);         // e = e mod n
-            k = ffa.adjustLength((privateKey).getKeyData());
-            d = ffa.adjustLength(signKey.getKeyData());
+            field.trim(e, digestVar(ffa));  // e = e mod n
 
             field.multiply(s, d, r);    // s = d*r (mod n)
             field.add(s, s, e);         // s = e + d*r (mod n)
@@ -156,6 +193,36 @@ public class ECDSASignature extends Signature {
         } while (ffa.is(r, 0) || ffa.is(s, 0));
         
         
+        int len = encodeSignature(ffa, outbuf, offset, r, s);
+        
+        ffa.set(k, 0);
+        ffa.releaseVar(r);
+        ffa.releaseVar(s);
+        ffa.releaseVar(e);
+        ffa.releaseVar(k);
+        curve.releasePoint(R);
+        
+        return len;
+    }
+    
+    /*
+     * Returns the digest in 'digestBuf' as a variable of 'ffa'. The
+     * variable is kept for the following calls, as it is usually longer
+     * than the pooled variables of the FFA.
+     */
+    private int[] digestVar(FFA ffa) {
+        if (digestFFA != ffa) {
+            digestVar = ffa.acquireVar(digestBuf.length * 8);
+            digestFFA = ffa;
+        }
+        return ffa.from(digestVar, digestBuf, 0, digestBuf.length);
+    }
+    
+    /*
+     * Writes the DER encoding of the signature (r, s) to 'outbuf' and
+     * returns its length.
+     */
+    private static int encodeSignature(FFA ffa, byte[] outbuf, int offset, int[] r, int[] s) {
         int rLen = (ffa.bitLength(r) >> 3) + 1;
         int sLen = (ffa.bitLength(s) >> 3) + 1;
         int sequenceLen = 4 + rLen + sLen;
@@ -178,16 +245,7 @@ public class ECDSASignature extends Signature {
         outbuf[offset++] = (byte)(sLen);
         ffa.toByteArray(outbuf, offset, sLen, s);
         
-        ffa.releaseVar(r);
-        ffa.releaseVar(s);
-        ffa.releaseVar(e);
-        
-        
         return (sequenceLen + 2);
-        } catch (GeneralSecurityException e) {
-            throw new SignatureException(e.getMessage());
-        }
-        
     }
     
     public void update(byte[] inBuff, int inOffset, int inLength) {
@@ -218,6 +276,52 @@ public class ECDSASignature extends Signature {
         PrimeField field = curve.getOrder();
         FFA ffa = field.getFFA();
         
+        int[] r = ffa.acquireVar();
+        int[] s = ffa.acquireVar();
+        if (!decodeSignature(field, outbuf, offset, length, r, s)) {
+            ffa.releaseVar(r);
+            ffa.releaseVar(s);
+            return false;
+        }
+        
+        int[] u1 = ffa.acquireVar();
+        int[] u2 = ffa.acquireVar();
+        
+        field.trim(u1, digestVar(ffa)); // u1 = e mod n
+        
+        field.invert(s, s);
+        field.multiply(u1, u1, s);  // u1 = (e * s^-1) mod n
+        field.multiply(u2, r, s);   // u2 = (r * s^-1) mod n
+        
+        ECPoint G = curve.acquirePoint();
+        ECPoint[] multiples = ECPrecomputationCache.lookup(verifyKey);
+        
+        // G = u1 * G + u2 * Q; Q itself is only read
+        if (multiples != null) {
+            curve.multiplyGeneratorSumJacobian(G, u1, multiples, u2);
+        } else {
+            curve.multiplyGeneratorSumJacobian(G, u1, verifyKey.keyData, u2);
+        }
+        
+        boolean verified = hasX(curve, G, r);   // x1 == r (mod n)
+        
+        ffa.releaseVar(r);
+        ffa.releaseVar(s);
+        ffa.releaseVar(u1);
+        ffa.releaseVar(u2);
+        curve.releasePoint(G);
+        
+        return verified;
+    }
+    
+    /*
+     * Reads the DER encoded signature into 'r' and 's'. Returns false if the
+     * encoding is invalid or if 'r' or 's' is not in the interval [1..n-1].
+     */
+    static boolean decodeSignature(PrimeField field, byte[] outbuf, int offset, int length,
+            int[] r, int[] s) {
+        FFA ffa = field.getFFA();
+        
         // check the sequence header
         if ((length < 6) || (outbuf[offset++] != (ASN_CONSTRUCTED | ASN_SEQUENCE))) return false;
         int sequenceLen = (int)outbuf[offset++];
@@ -228,14 +332,14 @@ public class ECDSASignature extends Signature {
         int len = (int)outbuf[offset++];
         sequenceLen -= (2 + len);
         if (sequenceLen < 2) return false;
-        int[] r = ffa.from(outbuf, offset, len); offset += len;
+        ffa.from(r, outbuf, offset, len); offset += len;
         
         // read the second integer: 's'
         if (outbuf[offset++] != ASN_INTEGER) return false;
         len = (int)outbuf[offset++];
         sequenceLen -= (2 + len);
         if (sequenceLen != 0) return false;
-        int[] s = ffa.from(outbuf, offset, len);
+        ffa.from(s, outbuf, offset, len);
         
         // 'r' and 's' must be in the interval [1..n-1]
         int[] n = field.getP();
@@ -243,33 +347,41 @@ public class ECDSASignature extends Signature {
             || (ffa.cmp(s, n) >= 0)) {
             return false;
         }
+        return true;
+    }
+    
+    /*
+     * Returns true if the affine x-coordinate of the jacobian point 'R' is
+     * congruent to 'r' modulo n. As x < p, the only candidates are r and
+     * r + n. Comparing them with X / Z^2 saves the inversion of Z.
+     */
+    static boolean hasX(ECCurve curve, ECPoint R, int[] r) {
+        FFA ffa = curve.getField().getFFA();
+        int[] p = curve.getField().getP();
+        int[] n = curve.getN();
+        
+        if (ffa.cmp(r, p) >= 0) {
+            return false;
+        }
         
-        int[] u1 = ffa.acquireVar();
-        int[] u2 = ffa.acquireVar();
-        
-        int[] tmp = ffa.from(ffa.acquireVar(digestBuf.length * 8), digestBuf, 0, digestBuf.length);
-        field.trim(u1, tmp);        // u1 = e mod n
-        
-        field.invert(s, s);
-        field.multiply(u1, u1, s);  // u1 = (e * s^-1) mod n
-        field.multiply(u2, r, s);   // u2 = (r * s^-1) mod n
-        
-        ECPoint G = curve.getGenerator().clonePoint();
-        ECPoint Q = verifyKey.getECPoint();
-        
-        curve.multiplySum(G, u1, Q, u2);    // G = u1 * G + u2 * Q;
-        
-        field.trim(s, G.x);         // s = x1 mod n
-        
-        boolean verified = (ffa.cmp(r, s) == 0);
-        
-        ffa.releaseVar(r);
-        ffa.releaseVar(s);
-        ffa.releaseVar(u1);
-        ffa.releaseVar(u2);
-        G.release();
-        Q.release();
+        int[] x = ffa.acquireVar();
+        ffa.copy(x, r);
+        boolean verified = curve.hasAffineX(R, x);
+        
+        if (!verified && (ffa.cmp(n, p) < 0)) {
+            // r + n < p  <=>  r < p - n
+            int[] t = ffa.acquireVar();
+            ffa.copy(t, n);
+            ffa.sub(t, p, t);
+            if (ffa.cmp(r, t) < 0) {
+                ffa.copy(t, n);
+                ffa.add(x, x, t);
+                verified = curve.hasAffineX(R, x);
+            }
+            ffa.releaseVar(t);
+        }
         
+        ffa.releaseVar(x);
         return verified;
     }
 
@@ -29,6 +29,7 @@ import com.sun.spot.security.InvalidKeyException;
 import com.sun.spot.security.Key;
 import com.sun.spot.security.NoSuchAlgorithmException;
 import com.sun.spot.security.implementation.ecc.ECCurve;
+import com.sun.spot.security.implementation.ecc.ECPoint;
 import com.sun.spot.security.implementation.ecc.FFA;
 
 public abstract class ECKeyImpl implements Key {
@@ -47,6 +48,16 @@ public abstract class ECKeyImpl implements Key {
      */
     public static final int SECP224R1 = 3;
 
+    /**
+     * Named Elliptic Curve over a Prime Field: "<code>secp256r1</code>"
+     */
+    public static final int SECP256R1 = 2;
+
+    /**
+     * Named Elliptic Curve over a Prime Field: "<code>secp384r1</code>"
+     */
+    public static final int SECP384R1 = 4;
+
     /** Key size in bits, e.g. for RSA, this is modulus size. */
     protected int bitsize; 
     protected int bytesize;
@@ -84,6 +95,18 @@ public abstract class ECKeyImpl implements Key {
         return curve;
     }
     
+    // the SECG name of the curve, used by toString()
+    static String getCurveName(int curveid) {
+        switch (curveid) {
+            case SECP160R1: return "secp160r1";
+            case SECP192R1: return "secp192r1";
+            case SECP224R1: return "secp224r1";
+            case SECP256R1: return "secp256r1";
+            case SECP384R1: return "secp384r1";
+        }
+        return String.valueOf(curveid);
+    }
+    
     private static int[] mask = {0x01, 0x03, 0x07, 0x0F, 0x1F, 0x3F, 0x7F, 0xFF};
     
     public static void genKeyPair(ECPublicKeyImpl publicKey, ECPrivateKeyImpl privateKey)
@@ -94,34 +117,95 @@ public abstract class ECKeyImpl implements Key {
             throw new InvalidKeyException();
         }
         ECCurve curve = privateKey.curve;
-        FFA ffa = curve.getOrder().getFFA();
         publicKey.clearKey();
+        SecureRandom random = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
+        genPrivateKey(privateKey, random);
+        
+        // generate the public key
+        curve.multiplyGenerator(publicKey.keyData, privateKey.keyData);
+        
+        // both keys are initialized by now
+        privateKey.initOk = true;
+        publicKey.initOk = true;
+    }
+    
+    /**
+     * Generates several key pairs at once. This is faster than calling
+     * <code>genKeyPair</code> for each pair, because the public keys share
+     * a single field inversion.
+     */
+    public static void genKeyPairs(ECPublicKeyImpl[] publicKeys, ECPrivateKeyImpl[] privateKeys)
+            throws InvalidKeyException, NoSuchAlgorithmException {
+        
+        // all keys must be initialized with the same curve
+        int count = publicKeys.length;
+        if (privateKeys.length != count) {
+            throw new InvalidKeyException();
+        }
+        if (count == 0) {
+            return;
+        }
+        int curveid = privateKeys[0].curveid;
+        for (int i = 0; i < count; i++) {
+            if ((publicKeys[i].curveid != curveid) || (privateKeys[i].curveid != curveid)) {
+                throw new InvalidKeyException();
+            }
+        }
+        ECCurve curve = privateKeys[0].curve;
+        SecureRandom random = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
+        
+        ECPoint[] points = new ECPoint[count];
+        int[][] scalars = new int[count][];
+        for (int i = 0; i < count; i++) {
+            publicKeys[i].clearKey();
+            genPrivateKey(privateKeys[i], random);
+            points[i] = publicKeys[i].keyData;
+            scalars[i] = privateKeys[i].keyData;
+        }
+        
+        // generate the public keys
+        curve.multiplyGenerator(points, scalars);
+        
+        for (int i = 0; i < count; i++) {
+            privateKeys[i].initOk = true;
+            publicKeys[i].initOk = true;
+        }
+    }
+    
+    private static void genPrivateKey(ECPrivateKeyImpl privateKey, SecureRandom random) {
+        FFA ffa = privateKey.curve.getOrder().getFFA();
         privateKey.clearKey();
+        randomScalar(privateKey.curve, privateKey.keyData, random);
+        privateKey.keyLength = (ffa.bitLength(privateKey.keyData) + 7) >>> 3;        
+    }
+
+    // sets 'k' to a random number in the range 0 < k < n
+    static void randomScalar(ECCurve curve, int[] k, SecureRandom random) {
+        randomScalar(curve, k, random, new byte[(curve.getOrder().getBitSize() + 7) >> 3]);
+    }
+    
+    // randomScalar() with a buffer of at least (t + 7) / 8 bytes for an
+    // order of t bits. The buffer is cleared afterwards.
+    static void randomScalar(ECCurve curve, int[] k, SecureRandom random, byte[] priv) {
+        FFA ffa = curve.getOrder().getFFA();
         
         // generate a random number in the range: 0 < x < field.prime
-        SecureRandom random = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
         int lastBit = curve.getOrder().getBitSize() - 1;
-        byte[] priv = new byte[(lastBit >> 3) + 1];
+        int len = (lastBit >> 3) + 1;
         
         do {
-            random.generateData(priv, 0, priv.length);
+            random.generateData(priv, 0, len);
             priv[0] &= (byte)mask[lastBit % 8];
             // now 'priv' contains our random number, where bit positions
             // beginning at the bit length of the prime are masked out.
-            ffa.from(privateKey.keyData, priv, 0, priv.length);
+            ffa.from(k, priv, 0, len);
             // loop until the generated random number is in the desired range.
             // the worst case probability that this loops is 50%
-        } while ((ffa.cmp(privateKey.keyData, curve.getN()) >= 0) ||
-                 (ffa.is(privateKey.keyData, 0)));
-        
-        // generate the public key
-        curve.copy(publicKey.keyData, curve.getGenerator());
-        curve.multiply(publicKey.keyData, privateKey.keyData);
-        privateKey.keyLength = (ffa.bitLength(privateKey.keyData) + 7) >>> 3;        
+        } while ((ffa.cmp(k, curve.getN()) >= 0) || (ffa.is(k, 0)));
         
-        // both keys are initialized by now
-        privateKey.initOk = true;
-        publicKey.initOk = true;
+        for (int i = 0; i < len; i++) {
+            priv[i] = 0;
+        }
     }
 
     
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2000-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.Vector;
+
+import com.sun.spot.security.implementation.ecc.ECPoint;
+
+/**
+ * Keeps precomputed multiples of frequently used EC public keys, so that
+ * signature verification with these keys needs fewer point additions and
+ * no per-call table.
+ * <p>
+ * The cache is disabled by default. Once enabled, a table is attached to an
+ * <code>ECPublicKeyImpl</code> when the key is used for its N-th
+ * verification. All tables together stay within a memory budget; when a new
+ * table does not fit, the tables of the least recently used keys are
+ * dropped.
+ * <p>
+ * <b>Warning</b>: This class is not part of the Security and Trust Services
+ * API (SATSA) 1.0 specification.
+ */
+public final class ECPrecomputationCache {
+    
+    // number of verifications before a key gets a table, 0 if disabled.
+    // Read without the lock by lookup().
+    private static volatile int threshold;
+    
+    // memory budget and current usage in bytes
+    private static int budget;
+    private static int used;
+    
+    // keys with a table, in no particular order
+    private static final Vector keys = new Vector();
+    
+    // generation counter, a key with a table stores it on every use.
+    // Updated without the lock, so that two keys may share a generation.
+    private static volatile long clock;
+    
+    private ECPrecomputationCache() {}
+    
+    /**
+     * Enables the cache. Keys that have been used for <code>uses</code>
+     * verifications get a table of precomputed multiples. If the cache was
+     * enabled before, tables which no longer fit into the new budget are
+     * dropped.
+     *
+     * @param uses number of verifications after which a key gets a table,
+     *   at least 1
+     * @param maxBytes memory budget for all tables
+     */
+    public static synchronized void enable(int uses, int maxBytes) {
+        if ((uses < 1) || (maxBytes < 0)) {
+            throw new IllegalArgumentException();
+        }
+        threshold = uses;
+        budget = maxBytes;
+        evict(0);
+    }
+    
+    /**
+     * Disables the cache and drops all tables.
+     */
+    public static synchronized void disable() {
+        threshold = 0;
+        budget = 0;
+        evict(0);
+    }
+    
+    /**
+     * Returns the number of bytes used by the cached tables.
+     */
+    public static synchronized int getUsedBytes() {
+        return used;
+    }
+    
+    /**
+     * Returns the number of keys that currently have a table.
+     */
+    public static synchronized int getKeyCount() {
+        return keys.size();
+    }
+    
+    // Counts a verification with 'key' and returns its table, or null if the
+    // key has none (yet). Hits and counting take no lock; a use lost to a
+    // concurrent update only delays the table. The table is built outside
+    // of the lock, so that verifications with other keys are not held up
+    // meanwhile.
+    static ECPoint[] lookup(ECPublicKeyImpl key) {
+        if (threshold == 0) {
+            return null;
+        }
+        ECPoint[] multiples = key.multiples;
+        if (multiples != null) {
+            // mark as most recently used
+            key.lastUse = ++clock;
+            return multiples;
+        }
+        if (++key.uses < threshold) {
+            return null;
+        }
+        
+        ECPoint[] table = key.curve.precomputeMultiples(key.keyData);
+        int size = sizeOf(key, table);
+        
+        synchronized (ECPrecomputationCache.class) {
+            if (key.multiples != null) {
+                // another thread was faster
+                return key.multiples;
+            }
+            if ((threshold == 0) || (key.uses < threshold) || (size > budget)) {
+                // disabled, key changed or table too large: use the table
+                // only for this verification
+                if (size > budget) {
+                    key.uses = 0;
+                }
+                return table;
+            }
+            evict(budget - size);
+            key.lastUse = ++clock;
+            key.multiples = table;
+            keys.addElement(key);
+            used += size;
+            return table;
+        }
+    }
+    
+    // drops the table of 'key' and resets its use count
+    static synchronized void remove(ECPublicKeyImpl key) {
+        key.uses = 0;
+        if (key.multiples != null) {
+            used -= sizeOf(key, key.multiples);
+            key.multiples = null;
+            keys.removeElement(key);
+        }
+    }
+    
+    // drops least recently used tables until at most 'maxBytes' are used.
+    // The variables of dropped tables are not returned to the FFA because
+    // another thread may still be verifying with them.
+    private static void evict(int maxBytes) {
+        while (used > maxBytes) {
+            int oldest = 0;
+            for (int i = 1; i < keys.size(); i++) {
+                if (((ECPublicKeyImpl)keys.elementAt(i)).lastUse
+                        < ((ECPublicKeyImpl)keys.elementAt(oldest)).lastUse) {
+                    oldest = i;
+                }
+            }
+            ECPublicKeyImpl key = (ECPublicKeyImpl)keys.elementAt(oldest);
+            keys.removeElementAt(oldest);
+            used -= sizeOf(key, key.multiples);
+            key.multiples = null;
+            key.uses = 0;
+        }
+    }
+    
+    // every point consists of three variables
+    private static int sizeOf(ECPublicKeyImpl key, ECPoint[] table) {
+        return table.length * 3 * key.ffa.getIntSize() * 4;
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2000-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.Vector;
+
+import com.sun.spot.security.NoSuchAlgorithmException;
+import com.sun.spot.security.implementation.ecc.ECCurve;
+import com.sun.spot.security.implementation.ecc.ECPoint;
+import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.PrimeField;
+
+/**
+ * Keeps precomputed ECDSA presignatures (k^-1 mod n, r) for signing keys,
+ * so that <code>Signature.sign</code> only needs a few multiplications
+ * modulo n instead of a generator multiplication and an inversion.
+ * <p>
+ * The pool is disabled by default. Once enabled, a private key gets a pool
+ * when <code>fill</code> is called for it; signing alone does not register
+ * a key. A background thread of minimum priority refills every pool that
+ * has dropped to the refill level back to the pool depth, a few entries at
+ * a time, so that the work is done when the device is otherwise idle. When
+ * a key has no pool or its pool is empty, signing computes the nonce as
+ * usual.
+ * <p>
+ * Each entry is handed out exactly once and wiped after use. All entries
+ * of a key are wiped, and the key is no longer refilled, when the key is
+ * set or cleared, or when the pool is disabled. A key that is no longer
+ * needed should be cleared, otherwise the background thread keeps its
+ * pool filled.
+ * <p>
+ * <b>Warning</b>: This class is not part of the Security and Trust Services
+ * API (SATSA) 1.0 specification.
+ */
+public final class ECPresignaturePool {
+
+    // entries per key and the level at which a pool is refilled, 0 if
+    // disabled. 'depth' is read without the lock by take().
+    private static volatile int depth;
+    private static int refillLevel;
+
+    // keys that have a pool
+    private static final Vector keys = new Vector();
+
+    private static SecureRandom random;
+    private static Thread filler;
+
+    // entries computed together, they share the inversions
+    private static final int CHUNK = 4;
+
+    // one presignature, both values are of the size of the order field's
+    // variables. They are not taken from the FFA pool, as they are kept
+    // for a long time.
+    static final class Presignature {
+        int[] kInv;
+        int[] r;
+    }
+
+    private ECPresignaturePool() {}
+
+    /**
+     * Enables the pool and starts the background thread. If the pool was
+     * enabled before, pools with more than <code>depth</code> entries are
+     * shrunk.
+     *
+     * @param depth number of presignatures kept per key, at least 1
+     * @param refillLevel number of remaining presignatures at which a pool
+     *   is refilled, in the range 0 to depth - 1
+     * @throws NoSuchAlgorithmException if there is no secure random number
+     *   generator
+     */
+    public static void enable(int depth, int refillLevel) throws NoSuchAlgorithmException {
+        if ((depth < 1) || (refillLevel < 0) || (refillLevel >= depth)) {
+            throw new IllegalArgumentException();
+        }
+        SecureRandom rnd = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
+        synchronized (ECPresignaturePool.class) {
+            ECPresignaturePool.depth = depth;
+            ECPresignaturePool.refillLevel = refillLevel;
+            random = rnd;
+            for (int i = 0; i < keys.size(); i++) {
+                Vector entries = ((ECPrivateKeyImpl)keys.elementAt(i)).presignatures;
+                while (entries.size() > depth) {
+                    wipe((ECPrivateKeyImpl)keys.elementAt(i),
+                            (Presignature)entries.lastElement());
+                    entries.removeElementAt(entries.size() - 1);
+                }
+            }
+            if (filler == null) {
+                filler = new Thread(new Filler());
+                filler.setPriority(Thread.MIN_PRIORITY);
+                filler.start();
+            }
+            ECPresignaturePool.class.notifyAll();
+        }
+    }
+
+    /**
+     * Disables the pool, wipes all presignatures and stops the background
+     * thread.
+     */
+    public static void disable() {
+        Thread t;
+        synchronized (ECPresignaturePool.class) {
+            depth = 0;
+            refillLevel = 0;
+            while (!keys.isEmpty()) {
+                remove((ECPrivateKeyImpl)keys.lastElement());
+            }
+            t = filler;
+            filler = null;
+            ECPresignaturePool.class.notifyAll();
+        }
+        if ((t != null) && (t != Thread.currentThread())) {
+            while (t.isAlive()) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    // keep waiting, the thread may still use a key
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the pool of the key to its depth in the current thread, e.g.
+     * right after the key was generated.
+     *
+     * @param key an initialized private key
+     */
+    public static void fill(ECPrivateKeyImpl key) {
+        int generation;
+        synchronized (ECPresignaturePool.class) {
+            if ((depth == 0) || !key.isInitialized()) {
+                return;
+            }
+            // the key is registered with its first entries, so that the
+            // background thread does not fill it at the same time
+            generation = key.presignatureGeneration;
+        }
+        while (compute(key, generation)) {
+            // until the pool is full
+        }
+    }
+
+    /**
+     * Returns the number of keys that have a pool.
+     */
+    public static synchronized int getKeyCount() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the number of presignatures available for the key.
+     */
+    public static synchronized int getCount(ECPrivateKeyImpl key) {
+        return (key.presignatures == null) ? 0 : key.presignatures.size();
+    }
+
+    // Takes a presignature of 'key' out of its pool, or returns null if
+    // there is none. The caller must wipe it after use.
+    static Presignature take(ECPrivateKeyImpl key) {
+        if (depth == 0) {
+            return null;
+        }
+        synchronized (ECPresignaturePool.class) {
+            Vector entries = key.presignatures;
+            if (entries == null) {
+                return null;
+            }
+            Presignature p = null;
+            if (!entries.isEmpty()) {
+                p = (Presignature)entries.elementAt(0);
+                entries.removeElementAt(0);
+            }
+            if (entries.size() <= refillLevel) {
+                ECPresignaturePool.class.notifyAll();
+            }
+            return p;
+        }
+    }
+
+    // wipes all presignatures of 'key'; entries that are being computed
+    // for the key are discarded when they are done
+    static synchronized void remove(ECPrivateKeyImpl key) {
+        key.presignatureGeneration++;
+        if (key.presignatures != null) {
+            for (int i = 0; i < key.presignatures.size(); i++) {
+                wipe(key, (Presignature)key.presignatures.elementAt(i));
+            }
+            key.presignatures = null;
+            keys.removeElement(key);
+        }
+    }
+
+    // clears the values of 'p'
+    static void wipe(ECPrivateKeyImpl key, Presignature p) {
+        FFA ffa = key.getECCurve().getOrder().getFFA();
+        ffa.set(p.kInv, 0);
+        ffa.set(p.r, 0);
+    }
+
+    private static void register(ECPrivateKeyImpl key) {
+        if (key.presignatures == null) {
+            key.presignatures = new Vector();
+            keys.addElement(key);
+        }
+    }
+
+    /*
+     * Computes up to CHUNK presignatures for 'key' and adds them to its
+     * pool, unless the key was changed since 'generation'. Returns true if
+     * the pool is not full yet.
+     */
+    private static boolean compute(ECPrivateKeyImpl key, int generation) {
+        int count;
+        SecureRandom rnd;
+        synchronized (ECPresignaturePool.class) {
+            if ((depth == 0) || (key.presignatureGeneration != generation)) {
+                return false;
+            }
+            count = Math.min(CHUNK, depth - getCount(key));
+            rnd = random;
+        }
+        if (count <= 0) {
+            return false;
+        }
+
+        ECCurve curve = key.getECCurve();
+        PrimeField field = curve.getOrder();
+        FFA ffa = field.getFFA();
+
+        // R = k * G for random k, with a single inversion for all points
+        int[][] k = new int[count][];
+        ECPoint[] R = new ECPoint[count];
+        synchronized (rnd) {
+            for (int i = 0; i < count; i++) {
+                k[i] = new int[ffa.getIntSize()];
+                ECKeyImpl.randomScalar(curve, k[i], rnd);
+                R[i] = curve.acquirePoint();
+            }
+        }
+        curve.multiplyGenerator(R, k);
+        field.invert(k, 0, count);
+
+        Presignature[] entries = new Presignature[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = new Presignature();
+            entries[i].kInv = k[i];
+            entries[i].r = new int[ffa.getIntSize()];
+            field.trim(entries[i].r, R[i].x);   // r = x1 mod n
+            curve.releasePoint(R[i]);
+        }
+
+        synchronized (ECPresignaturePool.class) {
+            boolean valid = (depth > 0) && (key.presignatureGeneration == generation);
+            if (valid) {
+                register(key);
+            }
+            for (int i = 0; i < count; i++) {
+                // r = 0 is no use for a signature
+                if (valid && !ffa.is(entries[i].r, 0)
+                        && (key.presignatures.size() < depth)) {
+                    key.presignatures.addElement(entries[i]);
+                } else {
+                    wipe(key, entries[i]);
+                }
+            }
+            return valid && (key.presignatures.size() < depth);
+        }
+    }
+
+    // refills the pools that have dropped to the refill level
+    private static final class Filler implements Runnable {
+        public void run() {
+            while (true) {
+                ECPrivateKeyImpl key = null;
+                int generation = 0;
+                synchronized (ECPresignaturePool.class) {
+                    if (filler != Thread.currentThread()) {
+                        return;
+                    }
+                    for (int i = 0; i < keys.size(); i++) {
+                        ECPrivateKeyImpl k = (ECPrivateKeyImpl)keys.elementAt(i);
+                        if (k.isInitialized() && (k.presignatures.size() <= refillLevel)) {
+                            key = k;
+                            generation = k.presignatureGeneration;
+                            break;
+                        }
+                    }
+                    if (key == null) {
+                        try {
+                            ECPresignaturePool.class.wait();
+                        } catch (InterruptedException e) {
+                            // look for work again
+                        }
+                        continue;
+                    }
+                }
+
+                // fill the pool up to its depth, giving way to other
+                // threads after each chunk
+                while (compute(key, generation)) {
+                    Thread.yield();
+                }
+                Thread.yield();
+            }
+        }
+    }
+}
@@ -24,6 +24,8 @@
 
 package com.sun.spot.security.implementation;
 
+import java.util.Vector;
+
 import com.sun.spot.security.GeneralSecurityException;
 import com.sun.spot.security.KeyException;
 import com.sun.spot.security.PrivateKey;
@@ -33,6 +35,10 @@ public final class ECPrivateKeyImpl extends ECKeyImpl implements PrivateKey {
     
     int[] keyData;  
     int keyLength;  // actual length of the key (current data)
+    
+    // maintained by ECPresignaturePool
+    Vector presignatures;
+    int presignatureGeneration;
 
     public ECPrivateKeyImpl(int curveid) {
         super(curveid, true);
@@ -41,6 +47,7 @@ public final class ECPrivateKeyImpl extends ECKeyImpl implements PrivateKey {
     
     public void setS(byte[] buffer, int offset, int length) throws GeneralSecurityException {
 	initOk = false;
+        ECPresignaturePool.remove(this);
         ffa.from(keyData, buffer, offset, length);
         if ((ffa.is(keyData, 0)) || (ffa.cmp(keyData, curve.getOrder().getP()) >= 0)) {
             throw new GeneralSecurityException("Illegal Value");
@@ -59,6 +66,7 @@ public final class ECPrivateKeyImpl extends ECKeyImpl implements PrivateKey {
 
     public void clearKey() {
 	initOk = false;
+        ECPresignaturePool.remove(this);
         for (int i = keyData.length - 1; i >= 0; i--) {
             keyData[i] = 0;
         }
@@ -70,19 +78,19 @@ public final class ECPrivateKeyImpl extends ECKeyImpl implements PrivateKey {
 	return returnValue;
     }
     
+    /**
+     * Copies the key data into 'r', a variable of the FFA of the curve
+     * order. Unlike getKeyData(), this does not allocate a new array.
+     */
+    public void getKeyData(int[] r) {
+        ffa.copy(r, keyData);
+    }
+    
     public String toString() {
         String val = "ECPrivateKey: (";
         try {
             int curveId = this.getCurve();
-            val += "CurveId: ";
-            if (curveId == 0)
-                val += "secp160r1";
-            if (curveId == 1)
-                val += "secp192r1";
-            if (curveId == 3)
-                val += "secp224r1";
-            else
-                val += curveId;
+            val += "CurveId: " + getCurveName(curveId);
             byte[] sval = new byte[((this.getSize() + 7) >>> 3) + 3];
             int len = this.getS(sval, 0);
             if (len <= sval.length) {
@@ -33,6 +33,11 @@ import com.sun.spot.security.implementation.Util;
 public final class ECPublicKeyImpl extends ECKeyImpl implements PublicKey {
     
     protected ECPoint keyData;
+    
+    // maintained by ECPrecomputationCache, read and counted without its lock
+    volatile int uses;
+    volatile long lastUse;
+    volatile ECPoint[] multiples;
 
     public ECPublicKeyImpl(int curveid) {
         super(curveid, false);
@@ -41,6 +46,7 @@ public final class ECPublicKeyImpl extends ECKeyImpl implements PublicKey {
     
     public void setW(byte[] buffer, int offset, int length) throws GeneralSecurityException {
         initOk = false;
+        ECPrecomputationCache.remove(this);
         boolean ok = curve.decodePoint(keyData, buffer, offset, length);
         if ((!ok) || (!curve.isOnCurve(keyData))) {
             throw new GeneralSecurityException("Illegal Value");
@@ -55,12 +61,25 @@ public final class ECPublicKeyImpl extends ECKeyImpl implements PublicKey {
         }
         return curve.encodePoint(keyData, buffer, offset);
     }
+
+    /**
+     * Like getW(byte[], int), but writes the compressed point if
+     * <code>compressed</code> is true. It is about half as long. setW()
+     * accepts both forms.
+     */
+    public int getW(byte[] buffer, int offset, boolean compressed) throws InvalidKeyException {
+        if (!initOk) {
+            throw new InvalidKeyException("Not initialized");
+        }
+        return curve.encodePoint(keyData, buffer, offset, compressed);
+    }
      	
     public ECPoint getECPoint() {
 	return keyData.clonePoint();
     }
     
     public void clearKey() {
+        ECPrecomputationCache.remove(this);
         ffa.set(keyData.x, 0);
         ffa.set(keyData.y, 0);
         ffa.set(keyData.z, 0);
@@ -72,11 +91,7 @@ public final class ECPublicKeyImpl extends ECKeyImpl implements PublicKey {
         String val = "ECPublicKey: (";
         try {
             int curveId = this.getCurve();
-            val += "CurveId: ";
-             if (curveId == 0) 
-                val += "secp160r1";
-            else
-                val += curveId;
+            val += "CurveId: " + getCurveName(curveId);
             byte[] wval = new byte[((this.getSize() + 7) >>> 3) * 2 + 3];
             int len = this.getW(wval, 0);
             if (len <= wval.length) {
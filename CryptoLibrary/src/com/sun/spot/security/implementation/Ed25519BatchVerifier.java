@@ -0,0 +1,273 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+import com.sun.spot.security.InvalidKeyException;
+import com.sun.spot.security.MessageDigest;
+import com.sun.spot.security.NoSuchAlgorithmException;
+import com.sun.spot.security.PublicKey;
+import com.sun.spot.security.SignatureException;
+import com.sun.spot.security.implementation.ecc.Ed25519;
+import com.sun.spot.security.implementation.ecc.EdPoint;
+import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.PrimeField;
+
+/**
+ * Verifies a batch of Ed25519 signatures, each with its own key and
+ * message, and returns a result for every signature.
+ * <p>
+ * With random 128 bit factors z_i the whole batch is checked with a
+ * single multi-scalar multiplication,
+ *     [8]((sum z_i S_i) B - sum z_i R_i - sum (z_i k_i) A_i) = 0,
+ * where the terms of keys that occur several times in the batch are
+ * combined. Only if this fails, the signatures are checked one by one to
+ * find the invalid ones. Like Ed25519Signature the check is cofactored,
+ * so both give the same results.
+ * <p>
+ * <b>Warning</b>: This class is not part of the Security and Trust Services
+ * API (SATSA) 1.0 specification.
+ */
+public final class Ed25519BatchVerifier {
+
+    private final MessageDigest digest;
+    private final SecureRandom random;
+    private final Vector items = new Vector();
+
+    // one signature of the batch
+    private static final class Item {
+        Ed25519PublicKeyImpl key;
+        byte[] signature;
+        // k = H(R || A || M) mod L, null if the signature is invalid
+        int[] k;
+        EdPoint R;
+        int[] S;
+        boolean verified;
+    }
+
+    /**
+     * Creates a batch verifier.
+     *
+     * @throws NoSuchAlgorithmException if SHA-512 or the random number
+     *   generator is not available
+     */
+    public Ed25519BatchVerifier() throws NoSuchAlgorithmException {
+        digest = MessageDigest.getInstance("SHA-512");
+        random = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
+    }
+
+    /**
+     * Adds a signature to the batch.
+     *
+     * @param key the public key of the signer
+     * @param message buffer with the signed data
+     * @param msgOffset offset of the signed data
+     * @param msgLength length of the signed data
+     * @param signature buffer with the signature
+     * @param sigOffset offset of the signature
+     * @param sigLength length of the signature
+     * @throws InvalidKeyException if the key is not an initialized Ed25519 key
+     * @throws SignatureException if the message cannot be hashed
+     */
+    public void add(PublicKey key, byte[] message, int msgOffset, int msgLength,
+            byte[] signature, int sigOffset, int sigLength)
+            throws InvalidKeyException, SignatureException {
+
+        if (!(key instanceof Ed25519PublicKeyImpl)) {
+            throw new InvalidKeyException();
+        }
+        if (!((Ed25519PublicKeyImpl)key).isInitialized()) {
+            throw new InvalidKeyException("Key not initialized.");
+        }
+
+        Item item = new Item();
+        item.key = (Ed25519PublicKeyImpl)key;
+        if (sigLength == Ed25519Signature.SIGNATURE_SIZE) {
+            item.signature = new byte[sigLength];
+            System.arraycopy(signature, sigOffset, item.signature, 0, sigLength);
+            item.k = Ed25519Signature.challenge(item.key.getEd25519(), digest,
+                    item.signature, 0, item.key.keyData, message, msgOffset, msgLength);
+        }
+        items.addElement(item);
+    }
+
+    /**
+     * Returns the number of signatures in the batch.
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Verifies all signatures of the batch and empties the batch.
+     *
+     * @return the result of each signature, in the order they were added
+     */
+    public boolean[] verify() {
+        Item[] batch = new Item[items.size()];
+        items.copyInto(batch);
+        items.removeAllElements();
+
+        // decode R and S, the signatures of other curve instances are
+        // checked on their own
+        Ed25519 curve = null;
+        int count = 0;
+        for (int i = 0; i < batch.length; i++) {
+            Item item = batch[i];
+            if (item.k == null) {
+                continue;
+            }
+            Ed25519 c = item.key.getEd25519();
+            item.S = c.decodeScalar(item.signature, 32);
+            item.R = new EdPoint(c);
+            if ((item.S == null) || !c.decodePoint(item.R, item.signature, 0)) {
+                release(item);
+                continue;
+            }
+            if (curve == null) {
+                curve = c;
+            }
+            if (c == curve) {
+                count++;
+            } else {
+                checkSingle(item);
+            }
+        }
+
+        if ((count > 1) && checkBatch(curve, batch, count)) {
+            for (int i = 0; i < batch.length; i++) {
+                if ((batch[i].k != null) && (batch[i].key.getEd25519() == curve)) {
+                    batch[i].verified = true;
+                }
+            }
+        } else {
+            for (int i = 0; i < batch.length; i++) {
+                if ((batch[i].k != null) && (batch[i].key.getEd25519() == curve)) {
+                    checkSingle(batch[i]);
+                }
+            }
+        }
+
+        boolean[] results = new boolean[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            results[i] = batch[i].verified;
+            release(batch[i]);
+        }
+        return results;
+    }
+
+    /*
+     * Checks the combined equation for the count decoded items of the
+     * curve.
+     */
+    private boolean checkBatch(Ed25519 curve, Item[] batch, int count) {
+        PrimeField field = curve.getOrder();
+        FFA ffa = field.getFFA();
+
+        // the points are R_1 ... R_count followed by the distinct keys
+        EdPoint[] points = new EdPoint[2 * count];
+        int[][] scalars = new int[2 * count][];
+        Hashtable keys = new Hashtable();
+        int[] sB = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+        ffa.set(sB, 0);
+
+        byte[] buf = new byte[16];
+        int n = 0;
+        int m = count;
+        for (int i = 0; i < batch.length; i++) {
+            Item item = batch[i];
+            if ((item.k == null) || (item.key.getEd25519() != curve)) {
+                continue;
+            }
+
+            random.generateData(buf, 0, buf.length);
+            int[] z = curve.reduceScalar(buf, 0, buf.length);
+            if (ffa.is(z, 0)) {
+                ffa.set(z, 1);
+            }
+
+            field.multiply(t, z, item.S);
+            field.add(sB, sB, t);
+
+            field.multiply(t, z, item.k);
+            Integer index = (Integer)keys.get(item.key);
+            if (index == null) {
+                index = new Integer(m++);
+                keys.put(item.key, index);
+                points[index.intValue()] = item.key.getEdPoint();
+                scalars[index.intValue()] = ffa.acquireVar();
+                ffa.copy(scalars[index.intValue()], t);
+            } else {
+                int[] sum = scalars[index.intValue()];
+                field.add(sum, sum, t);
+            }
+
+            points[n] = item.R;
+            scalars[n++] = z;
+        }
+
+        // the R and A terms are subtracted
+        for (int i = 0; i < m; i++) {
+            Ed25519Signature.negate(field, scalars[i], scalars[i]);
+        }
+
+        EdPoint X = new EdPoint(curve);
+        curve.multiplySum(X, sB, points, scalars, m);
+        boolean verified = Ed25519Signature.isSmallOrder(curve, X);
+
+        X.release();
+        for (int i = 0; i < m; i++) {
+            ffa.releaseVar(scalars[i]);
+        }
+        ffa.releaseVar(sB);
+        ffa.releaseVar(t);
+        return verified;
+    }
+
+    private static void checkSingle(Item item) {
+        item.verified = Ed25519Signature.check(item.key.getEd25519(),
+                item.key.getEdPoint(), item.R, item.S, item.k);
+    }
+
+    private static void release(Item item) {
+        if (item.k == null) {
+            return;
+        }
+        FFA ffa = item.key.getEd25519().getOrder().getFFA();
+        ffa.releaseVar(item.k);
+        item.k = null;
+        if (item.S != null) {
+            ffa.releaseVar(item.S);
+            item.S = null;
+        }
+        if (item.R != null) {
+            item.R.release();
+            item.R = null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+
+import com.sun.spot.security.GeneralSecurityException;
+import com.sun.spot.security.InvalidKeyException;
+import com.sun.spot.security.Key;
+import com.sun.spot.security.KeyException;
+import com.sun.spot.security.NoSuchAlgorithmException;
+import com.sun.spot.security.implementation.ecc.Ed25519;
+
+/**
+ * Keys of the Ed25519 signature scheme (RFC 8032). The private key is the
+ * 32 byte seed that the signing scalar and the nonce prefix are derived
+ * from, the public key is the 32 byte encoding of a point.
+ */
+public abstract class Ed25519KeyImpl implements Key {
+
+    protected final byte[] keyData = new byte[Ed25519.KEY_SIZE];
+    /** Flag indicating if the key has been initialized. */
+    protected boolean initOk;
+    protected Ed25519 curve;
+
+    protected Ed25519KeyImpl() {
+        curve = Ed25519.getInstance();
+    }
+
+    public int getSize() {
+        return 255;
+    }
+
+    public boolean isInitialized() {
+        return initOk;
+    }
+
+    public Ed25519 getEd25519() {
+        return curve;
+    }
+
+    /**
+     * Sets the key from its 32 byte encoding.
+     */
+    public void setKey(byte[] buffer, int offset, int length) throws GeneralSecurityException {
+        clearKey();
+        if (length != Ed25519.KEY_SIZE) {
+            throw new GeneralSecurityException("Illegal Value");
+        }
+        System.arraycopy(buffer, offset, keyData, 0, length);
+        initOk = true;
+    }
+
+    /**
+     * Writes the 32 byte encoding of the key to buffer.
+     *
+     * @return the length of the key
+     */
+    public int getKey(byte[] buffer, int offset) throws KeyException {
+        if (!initOk) {
+            throw new KeyException("Key not initialized");
+        }
+        System.arraycopy(keyData, 0, buffer, offset, keyData.length);
+        return keyData.length;
+    }
+
+    public void clearKey() {
+        initOk = false;
+        for (int i = keyData.length - 1; i >= 0; i--) {
+            keyData[i] = 0;
+        }
+    }
+
+    public static void genKeyPair(Ed25519PublicKeyImpl publicKey, Ed25519PrivateKeyImpl privateKey)
+            throws InvalidKeyException, NoSuchAlgorithmException {
+
+        byte[] seed = new byte[Ed25519.KEY_SIZE];
+        SecureRandom random = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
+        random.generateData(seed, 0, seed.length);
+        try {
+            privateKey.setKey(seed, 0, seed.length);
+            publicKey.setKey(privateKey.getPublicKeyData(), 0, Ed25519.KEY_SIZE);
+        } catch (GeneralSecurityException e) {
+            throw new InvalidKeyException(e.getMessage());
+        }
+    }
+
+    public String getAlgorithm() {
+        return "Ed25519";
+    }
+
+    public byte[] getEncoded() {
+        return null;
+    }
+
+    public String getFormat() {
+        return "RAW";
+    }
+
+    protected String toString(String name) {
+        String val = name + ": (";
+        if (initOk) {
+            val += Util.hexEncode(keyData, keyData.length);
+        }
+        return val + ")";
+    }
+}
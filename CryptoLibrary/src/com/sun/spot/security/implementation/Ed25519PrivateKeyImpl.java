@@ -0,0 +1,105 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import com.sun.spot.security.DigestException;
+import com.sun.spot.security.GeneralSecurityException;
+import com.sun.spot.security.MessageDigest;
+import com.sun.spot.security.PrivateKey;
+import com.sun.spot.security.implementation.ecc.EdPoint;
+
+
+public final class Ed25519PrivateKeyImpl extends Ed25519KeyImpl implements PrivateKey {
+
+    // derived from the seed when the key is set: the signing scalar
+    // s mod L, the nonce prefix and the encoded public key
+    private final byte[] scalar = new byte[32];
+    private final byte[] prefix = new byte[32];
+    private final byte[] publicKey = new byte[32];
+
+    public Ed25519PrivateKeyImpl() {
+    }
+
+    /**
+     * Sets the key from its 32 byte seed and derives the signing scalar,
+     * the nonce prefix and the public key (RFC 8032, Section 5.1.5).
+     */
+    public void setKey(byte[] buffer, int offset, int length) throws GeneralSecurityException {
+        super.setKey(buffer, offset, length);
+
+        byte[] h = new byte[64];
+        MessageDigest sha = MessageDigest.getInstance("SHA-512");
+        sha.update(keyData, 0, keyData.length);
+        try {
+            sha.digest(h, 0, h.length);
+        } catch (DigestException e) {
+            clearKey();
+            throw e;
+        }
+
+        h[0] &= (byte)0xf8;
+        h[31] &= (byte)0x7f;
+        h[31] |= (byte)0x40;
+        int[] s = curve.reduceScalar(h, 0, 32);
+        curve.encodeScalar(scalar, 0, s);
+        System.arraycopy(h, 32, prefix, 0, prefix.length);
+
+        EdPoint A = new EdPoint(curve);
+        curve.multiplyBase(A, s);
+        curve.encodePoint(publicKey, 0, A);
+        A.release();
+        curve.getOrder().getFFA().releaseVar(s);
+        for (int i = h.length - 1; i >= 0; i--) {
+            h[i] = 0;
+        }
+    }
+
+    public void clearKey() {
+        super.clearKey();
+        for (int i = 31; i >= 0; i--) {
+            scalar[i] = 0;
+            prefix[i] = 0;
+            publicKey[i] = 0;
+        }
+    }
+
+    // the signing scalar s mod L, little-endian
+    byte[] getScalar() {
+        return scalar;
+    }
+
+    byte[] getPrefix() {
+        return prefix;
+    }
+
+    // the encoding of the public key
+    byte[] getPublicKeyData() {
+        return publicKey;
+    }
+
+    public String toString() {
+        return toString("Ed25519PrivateKey");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+import com.sun.spot.security.GeneralSecurityException;
+import com.sun.spot.security.PublicKey;
+import com.sun.spot.security.implementation.ecc.EdPoint;
+
+
+public final class Ed25519PublicKeyImpl extends Ed25519KeyImpl implements PublicKey {
+
+    // the decoded key, kept for verification
+    private EdPoint point;
+
+    public Ed25519PublicKeyImpl() {
+    }
+
+    /**
+     * Sets the key from its 32 byte encoding, which must be a point of
+     * the curve.
+     */
+    public void setKey(byte[] buffer, int offset, int length) throws GeneralSecurityException {
+        super.setKey(buffer, offset, length);
+        EdPoint P = new EdPoint(curve);
+        if (!curve.decodePoint(P, keyData, 0)) {
+            P.release();
+            clearKey();
+            throw new GeneralSecurityException("Illegal Value");
+        }
+        point = P;
+    }
+
+    public void clearKey() {
+        super.clearKey();
+        if (point != null) {
+            point.release();
+            point = null;
+        }
+    }
+
+    /**
+     * Returns the decoded point of the key. It is shared, do not modify or
+     * release it.
+     */
+    public EdPoint getEdPoint() {
+        return point;
+    }
+
+    public String toString() {
+        return toString("Ed25519PublicKey");
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+
+import java.io.ByteArrayOutputStream;
+
+import com.sun.spot.security.DigestException;
+import com.sun.spot.security.InvalidKeyException;
+import com.sun.spot.security.MessageDigest;
+import com.sun.spot.security.NoSuchAlgorithmException;
+import com.sun.spot.security.PrivateKey;
+import com.sun.spot.security.PublicKey;
+import com.sun.spot.security.Signature;
+import com.sun.spot.security.SignatureException;
+import com.sun.spot.security.implementation.ecc.Ed25519;
+import com.sun.spot.security.implementation.ecc.EdPoint;
+import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.PrimeField;
+
+/**
+ * Ed25519 signatures as specified in RFC 8032, Section 5.1.
+ * <p>
+ * The nonce is derived from the private key and the message, so signing
+ * needs no random numbers, and R = r * B is computed with the fixed-base
+ * comb of the curve. Ed25519 hashes the message twice when signing, so
+ * the data passed to <code>update</code> is buffered until
+ * <code>sign</code> or <code>verify</code>.
+ * <p>
+ * Verification checks the cofactored equation [8][S]B = [8]R + [8][k]A,
+ * which gives the same results as Ed25519BatchVerifier.
+ */
+public final class Ed25519Signature extends Signature {
+
+    /** The byte length of a signature. */
+    public static final int SIGNATURE_SIZE = 64;
+
+    private final MessageDigest digest;
+    private final ByteArrayOutputStream message = new ByteArrayOutputStream();
+    private Ed25519KeyImpl key;
+    private Ed25519PrivateKeyImpl signKey;
+    private Ed25519PublicKeyImpl verifyKey;
+
+    public Ed25519Signature() throws NoSuchAlgorithmException {
+        digest = MessageDigest.getInstance("SHA-512");
+    }
+
+    public String getAlgorithm() {
+        return "Ed25519";
+    }
+
+    public int getLength() {
+        if ((key == null) || !key.isInitialized()) {
+            return 0;
+        }
+        return SIGNATURE_SIZE;
+    }
+
+    public void initSign(PrivateKey theKey) throws InvalidKeyException {
+        try {
+            signKey = (Ed25519PrivateKeyImpl)theKey;
+            verifyKey = null;
+        } catch (ClassCastException e) {
+            throw new InvalidKeyException();
+        }
+        key = signKey;
+        message.reset();
+    }
+
+    public void initVerify(PublicKey theKey) throws InvalidKeyException {
+        try {
+            verifyKey = (Ed25519PublicKeyImpl)theKey;
+            signKey = null;
+        } catch (ClassCastException e) {
+            throw new InvalidKeyException();
+        }
+        key = verifyKey;
+        message.reset();
+    }
+
+    public void update(byte[] inBuff, int inOffset, int inLength) {
+        message.write(inBuff, inOffset, inLength);
+    }
+
+    public int sign(byte[] outbuf, int offset, int length) throws SignatureException {
+        // See: RFC 8032, 5.1.6 Sign
+
+        if (signKey == null) {
+            throw new SignatureException("Not initialized.");
+        }
+        if (!signKey.isInitialized()) {
+            throw new SignatureException("Key not initialized.");
+        }
+        if (length < SIGNATURE_SIZE) {
+            throw new SignatureException("Buffer too small.");
+        }
+
+        byte[] msg = message.toByteArray();
+        message.reset();
+
+        Ed25519 curve = signKey.getEd25519();
+        PrimeField field = curve.getOrder();
+        FFA ffa = field.getFFA();
+
+        // r = H(prefix || M) mod L, R = r * B
+        byte[] h = new byte[64];
+        digest.update(signKey.getPrefix(), 0, 32);
+        digest.update(msg, 0, msg.length);
+        doDigest(h);
+        int[] r = curve.reduceScalar(h, 0, h.length);
+        EdPoint R = new EdPoint(curve);
+        curve.multiplyBase(R, r);
+        curve.encodePoint(outbuf, offset, R);
+        R.release();
+
+        // S = (r + k * s) mod L
+        int[] k = challenge(curve, digest, outbuf, offset,
+                signKey.getPublicKeyData(), msg, 0, msg.length);
+        int[] s = curve.reduceScalar(signKey.getScalar(), 0, 32);
+        field.multiply(k, k, s);
+        field.add(k, k, r);
+        curve.encodeScalar(outbuf, offset + 32, k);
+
+        ffa.releaseVar(r);
+        ffa.releaseVar(k);
+        ffa.releaseVar(s);
+        return SIGNATURE_SIZE;
+    }
+
+    public boolean verify(byte[] outbuf, int offset, int length)
+            throws SignatureException {
+        // See: RFC 8032, 5.1.7 Verify
+
+        if (verifyKey == null) {
+            throw new SignatureException("Not initialized.");
+        }
+        if (!verifyKey.isInitialized()) {
+            throw new SignatureException("Key not initialized.");
+        }
+
+        byte[] msg = message.toByteArray();
+        message.reset();
+        if (length != SIGNATURE_SIZE) {
+            return false;
+        }
+
+        Ed25519 curve = verifyKey.getEd25519();
+        FFA ffa = curve.getOrder().getFFA();
+        EdPoint R = new EdPoint(curve);
+        int[] S = curve.decodeScalar(outbuf, offset + 32);
+        boolean verified = false;
+        if ((S != null) && curve.decodePoint(R, outbuf, offset)) {
+            int[] k = challenge(curve, digest, outbuf, offset,
+                    verifyKey.keyData, msg, 0, msg.length);
+            verified = check(curve, verifyKey.getEdPoint(), R, S, k);
+            ffa.releaseVar(k);
+        }
+        if (S != null) {
+            ffa.releaseVar(S);
+        }
+        R.release();
+        return verified;
+    }
+
+    private void doDigest(byte[] h) throws SignatureException {
+        try {
+            digest.digest(h, 0, h.length);
+        } catch (DigestException e) {
+            throw new SignatureException(e.getMessage());
+        }
+    }
+
+    /*
+     * Returns k = H(R || A || M) mod L, where R is the first half of the
+     * signature and A the encoded public key.
+     */
+    static int[] challenge(Ed25519 curve, MessageDigest digest, byte[] sig, int sigOffset,
+            byte[] publicKey, byte[] msg, int msgOffset, int msgLength)
+            throws SignatureException {
+        byte[] h = new byte[64];
+        digest.update(sig, sigOffset, 32);
+        digest.update(publicKey, 0, 32);
+        digest.update(msg, msgOffset, msgLength);
+        try {
+            digest.digest(h, 0, h.length);
+        } catch (DigestException e) {
+            throw new SignatureException(e.getMessage());
+        }
+        return curve.reduceScalar(h, 0, h.length);
+    }
+
+    /*
+     * Returns true if [8](S * B - k * A - R) is the identity. R is
+     * modified.
+     */
+    static boolean check(Ed25519 curve, EdPoint A, EdPoint R, int[] S, int[] k) {
+        PrimeField field = curve.getOrder();
+        FFA ffa = field.getFFA();
+
+        int[] kn = ffa.acquireVar();
+        negate(field, kn, k);
+
+        EdPoint X = new EdPoint(curve);
+        curve.multiplySum(X, S, new EdPoint[] { A }, new int[][] { kn }, 1);
+        curve.negate(R);
+        curve.add(X, R);
+        boolean verified = isSmallOrder(curve, X);
+
+        X.release();
+        ffa.releaseVar(kn);
+        return verified;
+    }
+
+    // r = -a (mod L), which keeps zero below L
+    static void negate(PrimeField field, int[] r, int[] a) {
+        if (field.getFFA().is(a, 0)) {
+            field.getFFA().set(r, 0);
+        } else {
+            field.negate(r, a);
+        }
+    }
+
+    // returns true if 8 * X is the identity, X is modified
+    static boolean isSmallOrder(Ed25519 curve, EdPoint X) {
+        curve.twice(X);
+        curve.twice(X);
+        curve.twice(X);
+        return curve.isIdentity(X);
+    }
+}
@@ -707,22 +707,6 @@ public final class ModuloExponentiation {
 	
 	int modLen = mod.length; 
 
-	// Select an appropriate window size
-	int wbits = 0;
-
-	int ebits = ModuloExponentiation.bitLength(exp, exp.length);
-
-	while (ebits > bnExpModThreshTable[wbits])
-	    wbits++;
-
-	// Calculate appropriate table size
-	int tblmask = 1 << wbits;
-
-	// Allocate table for precomputed odd powers of base in Montgomery form
-	int[][] table = new int[tblmask][];
-	for (int i = 0; i < tblmask; i++)
-	    table[i] = new int[modLen];
-
 	// Compute the modular inverse
 	int inv = -ModuloExponentiation.inverseMod32(mod[modLen - 1]);
 
@@ -734,30 +718,111 @@ public final class ModuloExponentiation {
 		new MutableBigInteger(mod);
 
 	a2.divide(b2, q, r);
-	table[0] = r.toIntArray();
+	int[] montBase = r.toIntArray();
 
-	// Pad table[0] with leading zeros so its length is at least modLen
-	if (table[0].length < modLen) {
-	    int offset = modLen - table[0].length;
+	// Pad montBase with leading zeros so its length is at least modLen
+	if (montBase.length < modLen) {
+	    int offset = modLen - montBase.length;
 	    int[] t2 = new int[modLen];
-	    for (int i = 0; i < table[0].length; i++)
-		t2[i + offset] = table[0][i];
-	    table[0] = t2;
+	    for (int i = 0; i < montBase.length; i++)
+		t2[i + offset] = montBase[i];
+	    montBase = t2;
 	}
 
+	montModPow(result, montBase, exp, mod, inv, new Workspace());
+	return result.length;
+    }
+
+    /**
+     * Computes base^exp mod n for the exponent and modulus of the key.
+     * The Montgomery parameters are taken from the key, which computes
+     * them once, so repeated operations with the same key do not convert
+     * the key or compute the inverse of the modulus again. The base must
+     * be smaller than the modulus.
+     *
+     * @param result buffer for the result, its length must be a multiple
+     *   of four
+     * @param base the base
+     * @param key the RSA key
+     * @return the length of the result in bytes
+     */
+    public static int oddModPow(byte[] result, byte[] base, RSAKey key) {
+	return oddModPow(result, base, key, new Workspace());
+    }
+
+    /**
+     * Computes base^exp mod n for the exponent and modulus of the key,
+     * like oddModPow(byte[], byte[], RSAKey), with the buffers of the
+     * workspace. Once the workspace has been used with a modulus of this
+     * size the call does not allocate.
+     *
+     * @param result buffer for the result, its length must be a multiple
+     *   of four
+     * @param base the base
+     * @param key the RSA key
+     * @param ws the workspace, used by one thread at a time
+     * @return the length of the result in bytes
+     */
+    public static int oddModPow(byte[] result, byte[] base, RSAKey key,
+	    Workspace ws) {
+	if (result.length % 4 != 0)
+	    throw new IllegalArgumentException("Length of result buffer must be a multiple of four.");
+	MontgomeryContext context = key.getMontgomeryContext();
+	int[] mod = context.mod;
+	int modLen = mod.length;
+	int[] x = ws.get(Workspace.BASE, modLen);
+	if (!toInts(base, x, modLen))
+	    throw new IllegalArgumentException("Base too long");
+
+	// Convert base to Montgomery form: base * R^2 / R mod n
+	int[] montBase = ws.table(1, modLen)[0];
+	montMultiply(montBase, x, context.rSquared, context, ws);
+
+	int[] r = ws.get(Workspace.RESULT, modLen);
+	montModPow(r, montBase, context.exp, mod, context.inv, ws);
+	toBytes(r, modLen, result);
+	return result.length;
+    }
+
+    /**
+     * The sliding window exponentiation, with the base already in
+     * Montgomery form and inv = -mod^-1 mod 2^32. All buffers are taken
+     * from the workspace. The first mod.length ints of result are set.
+     */
+    private static void montModPow(int[] result, int[] montBase, int[] exp,
+	    int[] mod, int inv, Workspace ws) {
+	int modLen = mod.length;
+	int[] a = ws.get(Workspace.A, modLen << 1);
+
+	// Select an appropriate window size
+	int wbits = 0;
+
+	int ebits = ModuloExponentiation.bitLength(exp, exp.length);
+
+	while (ebits > bnExpModThreshTable[wbits])
+	    wbits++;
+
+	// Calculate appropriate table size
+	int tblmask = 1 << wbits;
+
+	// Table for precomputed odd powers of base in Montgomery form
+	int[][] table = ws.table(tblmask, modLen);
+	if (montBase != table[0])
+	    System.arraycopy(montBase, 0, table[0], 0, modLen);
+
 	// Set b to the square of the base
-	int[] b = squareToLen(table[0], modLen, null);
+	int[] b = squareToLen(table[0], modLen, ws.get(Workspace.B, modLen << 1));
 	b = montReduce(b, mod, modLen, inv);
 
 	// Set t to high half of b
-	int[] t = new int[modLen];
+	int[] t = ws.get(Workspace.T, modLen);
 	for (int i = 0; i < modLen; i++)
 	    t[i] = b[i];
 
 	// Fill in the table with odd powers of the base
 	for (int i = 1; i < tblmask; i++) {
-	    int[] prod = multiplyToLen(t, modLen, table[i - 1], modLen, null);
-	    table[i] = montReduce(prod, mod, modLen, inv);
+	    multiplyToLen(t, modLen, table[i - 1], modLen, table[i], ws);
+	    montReduce(table[i], mod, modLen, inv);
 	}
 
 	// Pre load the window that slides over the exponent
@@ -824,15 +889,12 @@ public final class ModuloExponentiation {
 	    // Perform multiply
 	    if (ebits == multpos) {
 		if (isone) {
-		    // b = (int[])mult.clone();
-		    b = new int[mult.length];
-
-		    System.arraycopy(mult, 0, b, 0, mult.length);
+		    System.arraycopy(mult, 0, b, 0, modLen);
 
 		    isone = false;
 		} else {
 		    t = b;
-		    a = multiplyToLen(t, modLen, mult, modLen, a);
+		    a = multiplyToLen(t, modLen, mult, modLen, a, ws);
 		    a = montReduce(a, mod, modLen, inv);
 		    t = a;
 		    a = b;
@@ -855,32 +917,423 @@ public final class ModuloExponentiation {
 	    }
 	}
 
-	// Convert result out of Montgomery form and return
-	int[] t2 = new int[2 * modLen];
-	for (int i = 0; i < modLen; i++)
-	    t2[i + modLen] = b[i];
+	// Convert result out of Montgomery form
+	for (int i = 0; i < modLen; i++) {
+	    a[i] = 0;
+	    a[i + modLen] = b[i];
+	}
 
-	b = montReduce(t2, mod, modLen, inv);
+	b = montReduce(a, mod, modLen, inv);
 
 	for (int i = 0; i < modLen; i++)
 	    result[i] = b[i];
-	return result.length;
-	
+    }
+
+    /**
+     * Computes base^d mod n for the private key using the Chinese
+     * Remainder Theorem: m1 = base^dP mod p, m2 = base^dQ mod q,
+     * h = qInv * (m1 - m2) mod p and the result is m2 + h * q. The two
+     * exponentiations run in parallel if the key asks for it, see
+     * RSAPrivateCrtKey.setParallel().
+     * <p>
+     * A fault in one of the two exponentiations would make the result
+     * reveal a factor of n. The result is therefore raised to the public
+     * exponent and compared with the base before it is returned.
+     *
+     * @param result buffer for the result, its length must be a multiple
+     *   of four and at least the length of the modulus
+     * @param base the base, must be smaller than the modulus
+     * @param key the private CRT key
+     * @return the length of the result in bytes
+     * @exception IllegalStateException if the result does not match the
+     *   base under the public exponent
+     */
+    public static int crtModPow(byte[] result, byte[] base, RSAPrivateCrtKey key) {
+        return crtModPow(result, base, key, new Workspace());
+    }
+
+    /**
+     * Computes base^d mod n for the private key using the Chinese
+     * Remainder Theorem, like crtModPow(byte[], byte[], RSAPrivateCrtKey),
+     * with the buffers of the workspace. Once the workspace has been used
+     * with a key of this size the call does not allocate, unless the
+     * exponentiations run in parallel.
+     *
+     * @param result buffer for the result, its length must be a multiple
+     *   of four and at least the length of the modulus
+     * @param base the base, must be smaller than the modulus
+     * @param key the private CRT key
+     * @param ws the workspace, used by one thread at a time
+     * @return the length of the result in bytes
+     * @exception IllegalStateException if the result does not match the
+     *   base under the public exponent
+     */
+    public static int crtModPow(byte[] result, byte[] base,
+            RSAPrivateCrtKey key, Workspace ws) {
+        if (result.length % 4 != 0)
+            throw new IllegalArgumentException("Length of result buffer must be a multiple of four.");
+        MontgomeryContext contextP = key.getContextP();
+        MontgomeryContext contextQ = key.getContextQ();
+        int[] p = key.p, q = key.q;
+        int pLen = p.length, qLen = q.length;
+        int cLen = (base.length + 3) / 4;
+        int[] c = ws.get(Workspace.BASE, cLen);
+        toInts(base, c, cLen);
+
+        // base mod p and base mod q, in Montgomery form
+        int[] xp = ws.get(Workspace.XP, pLen);
+        int[] xq = ws.get(Workspace.XQ, Math.max(pLen, qLen));
+        toMontgomery(c, cLen, contextP, xp, ws);
+        toMontgomery(c, cLen, contextQ, xq, ws);
+
+        int[] m1 = ws.get(Workspace.M1, pLen);
+        int[] m2 = ws.get(Workspace.M2, qLen);
+        if (key.isParallel()) {
+            CrtHalf half = new CrtHalf(m2, xq, contextQ, ws.getSecond());
+            Thread thread = new Thread(half);
+            thread.start();
+            montModPow(m1, xp, contextP.exp, p, contextP.inv, ws);
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    // keep waiting, the result is needed
+                }
+            }
+            if (half.failure != null)
+                throw half.failure;
+        } else {
+            montModPow(m1, xp, contextP.exp, p, contextP.inv, ws);
+            montModPow(m2, xq, contextQ.exp, q, contextQ.inv, ws);
+        }
+
+        // h = qInv * (m1 - m2) mod p, computed as
+        // ((m1 R - m2 R) mod p) * qInv / R mod p
+        toMontgomery(m1, pLen, contextP, xp, ws);
+        toMontgomery(m2, qLen, contextP, xq, ws);
+        if (subN(xp, xq, pLen) != 0)
+            addN(xp, p, pLen);
+        int[] h = ws.get(Workspace.PRODUCT, pLen << 1);
+        montMultiply(h, xp, key.qInv, contextP, ws);
+
+        // m = m2 + h * q
+        int[] m = ws.get(Workspace.RESULT, pLen + qLen);
+        multiplyToLen(q, qLen, h, pLen, m, ws);
+        addTo(m, pLen + qLen, m2, qLen);
+
+        // m^e mod n must be the base again
+        MontgomeryContext contextE = key.getContextE();
+        int nLen = contextE.mod.length;
+        int[] x = ws.get(Workspace.CHECK_BASE, nLen);
+        int[] y = ws.get(Workspace.CHECK, nLen);
+        toMontgomery(m, pLen + qLen, contextE, x, ws);
+        montModPow(y, x, contextE.exp, contextE.mod, contextE.inv, ws);
+        if (!equal(y, nLen, c, cLen))
+            throw new IllegalStateException("CRT result check failed");
+
+        toBytes(m, pLen + qLen, result);
+        return result.length;
+    }
+
+    /**
+     * Returns true if the first aLen ints of a and the first bLen ints of
+     * b have the same value.
+     */
+    private static boolean equal(int[] a, int aLen, int[] b, int bLen) {
+        int diff = 0;
+        for (int i = aLen - 1, j = bLen - 1; i >= 0 || j >= 0; i--, j--)
+            diff |= ((i >= 0) ? a[i] : 0) ^ ((j >= 0) ? b[j] : 0);
+        return diff == 0;
+    }
+
+    /**
+     * One of the two exponentiations of a CRT private key operation, so
+     * it can be run by a second thread.
+     */
+    private static final class CrtHalf implements Runnable {
+        private final int[] result;
+        private final int[] montBase;
+        private final MontgomeryContext context;
+        private final Workspace ws;
+        private RuntimeException failure;
+
+        private CrtHalf(int[] result, int[] montBase,
+                MontgomeryContext context, Workspace ws) {
+            this.result = result;
+            this.montBase = montBase;
+            this.context = context;
+            this.ws = ws;
+        }
+
+        public void run() {
+            try {
+                montModPow(result, montBase, context.exp, context.mod,
+                        context.inv, ws);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Reusable buffers for the exponentiation. A workspace grows to the
+     * largest modulus it has been used with, after that operations with
+     * it do not allocate. It must not be used by two threads at the same
+     * time, callers keep one per thread or per key.
+     */
+    public static final class Workspace {
+        static final int A = 0;
+        static final int B = 1;
+        static final int T = 2;
+        static final int BASE = 3;
+        static final int RESULT = 4;
+        static final int SCRATCH = 5;
+        static final int PRODUCT = 6;
+        static final int CHUNK = 7;
+        static final int XP = 8;
+        static final int XQ = 9;
+        static final int M1 = 10;
+        static final int M2 = 11;
+        static final int CHECK_BASE = 12;
+        static final int CHECK = 13;
+
+        private final int[][] buffers = new int[14][];
+
+        /** Odd powers of the base, each 2 * modLen ints. */
+        private final int[][] table = new int[1 << (bnExpModThreshTable.length - 1)][];
+
+        /** Workspace of the second thread of a parallel CRT operation. */
+        private Workspace second;
+
+        /**
+         * Creates an empty workspace. The buffers are allocated by the
+         * first operation.
+         */
+        public Workspace() {
+        }
+
+        /**
+         * Gets a buffer of at least len ints. Its contents are undefined.
+         */
+        int[] get(int index, int len) {
+            int[] buffer = buffers[index];
+            if (buffer == null || buffer.length < len) {
+                buffer = new int[len];
+                buffers[index] = buffer;
+            }
+            return buffer;
+        }
+
+        /**
+         * Gets the table with at least count entries of 2 * modLen ints.
+         */
+        int[][] table(int count, int modLen) {
+            for (int i = 0; i < count; i++) {
+                if (table[i] == null || table[i].length < (modLen << 1)) {
+                    table[i] = new int[modLen << 1];
+                }
+            }
+            return table;
+        }
+
+        /**
+         * Gets the workspace for the second thread of a parallel CRT
+         * operation.
+         */
+        synchronized Workspace getSecond() {
+            if (second == null) {
+                second = new Workspace();
+            }
+            return second;
+        }
+    }
+
+    /**
+     * Montgomery multiplication z = x * y / R mod n for the context. x and
+     * y have mod.length ints and their product must be smaller than n * R.
+     * z needs 2 * mod.length ints and must not be x or y; the result is in
+     * the first mod.length ints.
+     */
+    private static void montMultiply(int[] z, int[] x, int[] y,
+            MontgomeryContext context, Workspace ws) {
+        int modLen = context.mod.length;
+        multiplyToLen(x, modLen, y, modLen, z, ws);
+        montReduce(z, context.mod, modLen, context.inv);
+    }
+
+    /**
+     * Sets x to c * R mod n, the Montgomery form of c for the context,
+     * without a division. With c split into chunks c_i of mod.length ints
+     * the value is built Horner style as x = x * R + c_i * R, where each
+     * product with R is a Montgomery multiplication by R^2.
+     */
+    private static void toMontgomery(int[] c, int cLen,
+            MontgomeryContext context, int[] x, Workspace ws) {
+        int[] mod = context.mod;
+        int modLen = mod.length;
+        int[] chunk = ws.get(Workspace.CHUNK, modLen);
+        int[] product = ws.get(Workspace.PRODUCT, modLen << 1);
+        for (int i = 0; i < modLen; i++)
+            x[i] = 0;
+
+        for (int end = (cLen - 1) % modLen + 1; end <= cLen; end += modLen) {
+            // x = x * R mod n
+            montMultiply(product, x, context.rSquared, context, ws);
+            System.arraycopy(product, 0, x, 0, modLen);
+
+            // x = x + c_i * R mod n
+            int start = Math.max(0, end - modLen);
+            for (int i = 0; i < modLen - (end - start); i++)
+                chunk[i] = 0;
+            System.arraycopy(c, start, chunk, modLen - (end - start), end - start);
+            montMultiply(product, chunk, context.rSquared, context, ws);
+            if (addN(x, product, modLen) != 0
+                    || intArrayCmpToLen(x, mod, modLen) >= 0)
+                subN(x, mod, modLen);
+        }
+    }
+
+    /**
+     * Sets the first len ints of out to the value of the bytes in big
+     * endian order, returning false if the value does not fit.
+     */
+    private static boolean toInts(byte[] in, int[] out, int len) {
+        int b = in.length - 1;
+        for (int i = len - 1; i >= 0; i--) {
+            int v = 0;
+            for (int shift = 0; shift < 32 && b >= 0; shift += 8)
+                v |= (in[b--] & 0xff) << shift;
+            out[i] = v;
+        }
+        for (; b >= 0; b--) {
+            if (in[b] != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the first len ints of in to out as big endian bytes, aligned
+     * to the end of out and padded with zeros.
+     *
+     * @exception IllegalArgumentException if the value does not fit
+     */
+    private static void toBytes(int[] in, int len, byte[] out) {
+        int outLen = out.length / 4;
+        for (int i = 0; i < len - outLen; i++) {
+            if (in[i] != 0)
+                throw new IllegalArgumentException("Result buffer too short");
+        }
+        for (int i = 0; i < outLen; i++) {
+            int j = i - outLen + len;
+            int v = (j >= 0) ? in[j] : 0;
+            out[i * 4] = (byte) (v >> 24 & 0xff);
+            out[i * 4 + 1] = (byte) (v >> 16 & 0xff);
+            out[i * 4 + 2] = (byte) (v >> 8 & 0xff);
+            out[i * 4 + 3] = (byte) (v & 0xff);
+        }
+    }
+
+    /**
+     * The Montgomery parameters of a modulus, together with the exponent
+     * that is used with it. A context does not change once it is built,
+     * so keys share it between threads.
+     */
+    static final class MontgomeryContext {
+        /** The modulus. */
+        final int[] mod;
+
+        /** The exponent. */
+        final int[] exp;
+
+        /** -mod^-1 mod 2^32. */
+        final int inv;
+
+        /** R^2 mod n with R = 2^(32 * mod.length). */
+        final int[] rSquared;
+
+        /**
+         * Builds the context. Both values are big endian without leading
+         * zeros.
+         *
+         * @param mod the modulus
+         * @param exp the exponent
+         * @exception IllegalArgumentException if the modulus is even
+         */
+        MontgomeryContext(int[] mod, int[] exp) {
+            if ((mod.length == 0) || ((mod[mod.length - 1] & 1) == 0)) {
+                throw new IllegalArgumentException("Modulus must be odd");
+            }
+            this.mod = mod;
+            this.exp = exp;
+            inv = -inverseMod32(mod[mod.length - 1]);
+            int[] r2 = new int[2 * mod.length + 1];
+            r2[0] = 1;
+            rSquared = remainder(r2, mod);
+        }
+    }
+
+    /**
+     * Returns a mod m, padded with leading zeros to the length of m.
+     */
+    private static int[] remainder(int[] a, int[] m) {
+        MutableBigInteger q = new MutableBigInteger(), r =
+                new MutableBigInteger(), a2 = new MutableBigInteger(a), b2 =
+                new MutableBigInteger(m);
+        a2.normalize();
+        a2.divide(b2, q, r);
+        r.normalize();
+        int[] result = new int[m.length];
+        System.arraycopy(r.value, r.offset, result, m.length - r.intLen, r.intLen);
+        return result;
+    }
+
+    /**
+     * Adds the first bLen ints of b to the first aLen ints of a, aligning
+     * the least significant words. The carry out of a is dropped.
+     */
+    private static void addTo(int[] a, int aLen, int[] b, int bLen) {
+        long sum = 0;
+        int i = aLen - 1;
+        for (int j = bLen - 1; j >= 0; i--, j--) {
+            sum = (a[i] & MutableBigInteger.LONG_MASK) + (b[j] & MutableBigInteger.LONG_MASK) + (sum >>> 32);
+            a[i] = (int) sum;
+        }
+        for (; i >= 0 && (sum >>> 32) != 0; i--) {
+            sum = (a[i] & MutableBigInteger.LONG_MASK) + (sum >>> 32);
+            a[i] = (int) sum;
+        }
+    }
+
+    /**
+     * Adds two numbers of same length, returning the carry.
+     */
+    private static int addN(int[] a, int[] b, int len) {
+        long sum = 0;
+
+        while (--len >= 0) {
+            sum = (a[len] & MutableBigInteger.LONG_MASK) + (b[len] & MutableBigInteger.LONG_MASK) + (sum >>> 32);
+            a[len] = (int) sum;
+        }
+
+        return (int) (sum >>> 32);
     }
 
     /**
          * Montgomery reduce n, modulo mod. This reduces modulo mod and divides
-         * by 2^(32*mlen). Adapted from Colin Plumb's C library.
+         * by 2^(32*mlen). Adapted from Colin Plumb's C library. n holds
+         * 2*mlen ints, it may be a longer buffer.
          */
     private static int[] montReduce(int[] n, int[] mod, int mlen, int inv) {
 	int c = 0;
 	int len = mlen;
 	int offset = 0;
+	int nlen = mlen << 1;
 
 	do {
-	    int nEnd = n[n.length - 1 - offset];
-	    int carry = mulAdd(n, mod, offset, mlen, inv * nEnd);
-	    c += addOne(n, offset, mlen, carry);
+	    int nEnd = n[nlen - 1 - offset];
+	    int carry = mulAdd(n, nlen, mod, offset, mlen, inv * nEnd);
+	    c += addOne(n, nlen, offset, mlen, carry);
 	    offset++;
 	} while (--len > 0);
 
@@ -950,13 +1403,14 @@ public final class ModuloExponentiation {
 	    { 7, 25, 81, 241, 673, 1793, Integer.MAX_VALUE }; // Sentinel
 
     /**
-         * Multiply an array by one word k and add to result, return the carry
+         * Multiply an array by one word k and add to result, return the carry.
+         * The result is the first outLen ints of out.
          */
-    private static int mulAdd(int[] out, int[] in, int offset, int len, int k) {
+    private static int mulAdd(int[] out, int outLen, int[] in, int offset, int len, int k) {
 	long kLong = k & MutableBigInteger.LONG_MASK;
 	long carry = 0;
 
-	offset = out.length - offset - 1;
+	offset = outLen - offset - 1;
 	for (int j = len - 1; j >= 0; j--) {
 	    long product =
 		    (in[j] & MutableBigInteger.LONG_MASK) * kLong + (out[offset] & MutableBigInteger.LONG_MASK)
@@ -969,10 +1423,10 @@ public final class ModuloExponentiation {
 
     /**
          * Add one word to the number a mlen words into a. Return the resulting
-         * carry.
+         * carry. The number is the first aLen ints of a.
          */
-    private static int addOne(int[] a, int offset, int mlen, int carry) {
-	offset = a.length - 1 - mlen - offset;
+    private static int addOne(int[] a, int aLen, int offset, int mlen, int carry) {
+	offset = aLen - 1 - mlen - offset;
 	long t = (a[offset] & MutableBigInteger.LONG_MASK) + (carry & MutableBigInteger.LONG_MASK);
 
 	a[offset] = (int) t;
@@ -1034,8 +1488,8 @@ public final class ModuloExponentiation {
 	// Add in off-diagonal sums
 	for (int i = len, offset = 1; i > 0; i--, offset += 2) {
 	    int t = x[i - 1];
-	    t = mulAdd(z, x, offset, i - 1, t);
-	    addOne(z, offset - 1, i, t);
+	    t = mulAdd(z, zlen, x, offset, i - 1, t);
+	    addOne(z, zlen, offset - 1, i, t);
 	}
 
 	// Shift back up and set low bit
@@ -1100,38 +1554,179 @@ public final class ModuloExponentiation {
 	a[len - 1] <<= n;
     }
 
+    /**
+     * Operand length in ints from which multiplyToLen uses Karatsuba
+     * multiplication. Below it the schoolbook method is faster.
+     * MultiplicationBenchmark measures the crossover.
+     */
+    static final int KARATSUBA_THRESHOLD = 64;
+
     /**
          * Multiplies int arrays x and y to the specified lengths and places the
          * result into z.
          */
     private static int[] multiplyToLen(int[] x, int xlen, int[] y, int ylen,
 	    int[] z) {
-	int xstart = xlen - 1;
-	int ystart = ylen - 1;
+	return multiplyToLen(x, xlen, y, ylen, z, null);
+    }
 
-	if (z == null || z.length < (xlen + ylen))
-	    z = new int[xlen + ylen];
+    /**
+     * Multiplies int arrays x and y to the specified lengths and places the
+     * result into z, taking the Karatsuba scratch space from the workspace
+     * if one is given.
+     */
+    private static int[] multiplyToLen(int[] x, int xlen, int[] y, int ylen,
+            int[] z, Workspace ws) {
+        if (z == null || z.length < (xlen + ylen))
+            z = new int[xlen + ylen];
+
+        if (xlen == ylen && xlen >= KARATSUBA_THRESHOLD) {
+            int len = karatsubaScratch(xlen, KARATSUBA_THRESHOLD);
+            int[] scratch = (ws == null) ? new int[len]
+                    : ws.get(Workspace.SCRATCH, len);
+            karatsuba(x, 0, y, 0, xlen, z, 0, KARATSUBA_THRESHOLD, scratch, 0);
+        } else {
+            schoolbook(x, 0, xlen, y, 0, ylen, z, 0);
+        }
+        return z;
+    }
 
-	long carry = 0;
-	for (int j = ystart, k = ystart + 1 + xstart; j >= 0; j--, k--) {
-	    long product = (y[j] & MutableBigInteger.LONG_MASK) * (x[xstart] & MutableBigInteger.LONG_MASK) + carry;
-	    z[k] = (int) product;
-	    carry = product >>> 32;
-	}
-	z[xstart] = (int) carry;
-
-	for (int i = xstart - 1; i >= 0; i--) {
-	    carry = 0;
-	    for (int j = ystart, k = ystart + 1 + i; j >= 0; j--, k--) {
-		long product =
-			(y[j] & MutableBigInteger.LONG_MASK) * (x[i] & MutableBigInteger.LONG_MASK)
-				+ (z[k] & MutableBigInteger.LONG_MASK) + carry;
-		z[k] = (int) product;
-		carry = product >>> 32;
-	    }
-	    z[i] = (int) carry;
-	}
-	return z;
+    /**
+     * Schoolbook multiplication: z[zOff .. zOff + xlen + ylen) is set to
+     * x[xOff .. xOff + xlen) * y[yOff .. yOff + ylen).
+     */
+    static void schoolbook(int[] x, int xOff, int xlen, int[] y, int yOff,
+            int ylen, int[] z, int zOff) {
+        // x[i] is kept in a local, as z may alias x the compiler has to
+        // reload it in every iteration otherwise
+        long xi = x[xOff + xlen - 1] & MutableBigInteger.LONG_MASK;
+        long carry = 0;
+        for (int j = ylen - 1, k = zOff + ylen + xlen - 1; j >= 0; j--, k--) {
+            long product = (y[yOff + j] & MutableBigInteger.LONG_MASK) * xi + carry;
+            z[k] = (int) product;
+            carry = product >>> 32;
+        }
+        z[zOff + xlen - 1] = (int) carry;
+
+        for (int i = xlen - 2; i >= 0; i--) {
+            xi = x[xOff + i] & MutableBigInteger.LONG_MASK;
+            carry = 0;
+            for (int j = ylen - 1, k = zOff + ylen + i; j >= 0; j--, k--) {
+                long product = (y[yOff + j] & MutableBigInteger.LONG_MASK) * xi
+                        + (z[k] & MutableBigInteger.LONG_MASK) + carry;
+                z[k] = (int) product;
+                carry = product >>> 32;
+            }
+            z[zOff + i] = (int) carry;
+        }
+    }
+
+    /**
+     * Karatsuba multiplication of two n int numbers: z[zOff .. zOff + 2n)
+     * is set to x[xOff .. xOff + n) * y[yOff .. yOff + n). With x = xh B + xl
+     * and y = yh B + yl the product is
+     * xh yh B^2 + ((xh + xl)(yh + yl) - xh yh - xl yl) B + xl yl,
+     * which takes three half size multiplications instead of four.
+     * Operands shorter than threshold ints, and at least up to 4 ints,
+     * are multiplied with the schoolbook method. The half sums and the
+     * middle product are kept in scratch from sOff on, which needs
+     * karatsubaScratch(n, threshold) ints.
+     */
+    static void karatsuba(int[] x, int xOff, int[] y, int yOff, int n,
+            int[] z, int zOff, int threshold, int[] scratch, int sOff) {
+        if (n < threshold || n < 4) {
+            schoolbook(x, xOff, n, y, yOff, n, z, zOff);
+            return;
+        }
+        // the arrays are big endian, the high halves come first
+        int m = n / 2;
+        int h = n - m;
+        karatsuba(x, xOff, y, yOff, h, z, zOff, threshold, scratch, sOff);
+        karatsuba(x, xOff + h, y, yOff + h, m, z, zOff + 2 * h, threshold,
+                scratch, sOff);
+
+        int xs = sOff;
+        int ys = xs + h + 1;
+        int mid = ys + h + 1;
+        int midLen = 2 * h + 2;
+        addHalves(x, xOff, h, m, scratch, xs);
+        addHalves(y, yOff, h, m, scratch, ys);
+        karatsuba(scratch, xs, scratch, ys, h + 1, scratch, mid, threshold,
+                scratch, mid + midLen);
+        subtractFrom(scratch, mid, midLen, z, zOff, 2 * h);
+        subtractFrom(scratch, mid, midLen, z, zOff + 2 * h, 2 * m);
+
+        // add the middle term at B = 2^(32 m)
+        long carry = 0;
+        int k = zOff + 2 * n - m - 1;
+        for (int j = mid + midLen - 1; j >= mid; j--, k--) {
+            carry += (z[k] & MutableBigInteger.LONG_MASK) + (scratch[j] & MutableBigInteger.LONG_MASK);
+            z[k] = (int) carry;
+            carry >>>= 32;
+        }
+        for (; carry != 0 && k >= zOff; k--) {
+            carry += z[k] & MutableBigInteger.LONG_MASK;
+            z[k] = (int) carry;
+            carry >>>= 32;
+        }
+    }
+
+    /**
+     * The number of scratch ints karatsuba needs for n int operands. Only
+     * the middle product recurses while the scratch of a level is in use,
+     * so it is the sum over the chain of middle products.
+     */
+    static int karatsubaScratch(int n, int threshold) {
+        int len = 0;
+        while (n >= threshold && n >= 4) {
+            int h = n - n / 2;
+            len += 4 * h + 4;
+            n = h + 1;
+        }
+        return len;
+    }
+
+    /**
+     * Sets sum[sOff .. sOff + h + 1) to the sum of the high h ints and the
+     * low m ints of x[xOff .. xOff + h + m).
+     */
+    private static void addHalves(int[] x, int xOff, int h, int m, int[] sum,
+            int sOff) {
+        long carry = 0;
+        int i = h - 1;
+        for (int j = m - 1; j >= 0; j--, i--) {
+            carry += (x[xOff + i] & MutableBigInteger.LONG_MASK)
+                    + (x[xOff + h + j] & MutableBigInteger.LONG_MASK);
+            sum[sOff + i + 1] = (int) carry;
+            carry >>>= 32;
+        }
+        for (; i >= 0; i--) {
+            carry += x[xOff + i] & MutableBigInteger.LONG_MASK;
+            sum[sOff + i + 1] = (int) carry;
+            carry >>>= 32;
+        }
+        sum[sOff] = (int) carry;
+    }
+
+    /**
+     * Subtracts b[bOff .. bOff + blen) from a[aOff .. aOff + alen),
+     * aligning the least significant words. The difference must not be
+     * negative.
+     */
+    private static void subtractFrom(int[] a, int aOff, int alen, int[] b,
+            int bOff, int blen) {
+        long diff = 0;
+        int i = aOff + alen - 1;
+        for (int j = blen - 1; j >= 0; j--, i--) {
+            diff += (a[i] & MutableBigInteger.LONG_MASK) - (b[bOff + j] & MutableBigInteger.LONG_MASK);
+            a[i] = (int) diff;
+            diff >>= 32;
+        }
+        for (; diff != 0 && i >= aOff; i--) {
+            diff += a[i] & MutableBigInteger.LONG_MASK;
+            a[i] = (int) diff;
+            diff >>= 32;
+        }
     }
 
     /**
@@ -1151,7 +1746,7 @@ public final class ModuloExponentiation {
     /**
      * Returns a copy of the input array stripped of any leading zero bytes.
      */
-    private static int[] stripLeadingZeroBytes(byte a[]) {
+    static int[] stripLeadingZeroBytes(byte a[]) {
 	int byteLength = a.length;
 	int keep;
 
@@ -41,6 +41,9 @@ public class RSAKey implements Key {
      */
     byte[] mod = null; 
 
+    /** Montgomery context of the modulus and exponent, built on first use. */
+    private ModuloExponentiation.MontgomeryContext context = null;
+
     /**
      * Constructor for RSA public key.
      *
@@ -168,6 +171,21 @@ public class RSAKey implements Key {
 	return ((short) mod.length);
     }    
 
+    /**
+     * Gets the Montgomery context of the modulus and exponent. It is built
+     * on the first call and shared by all operations with this key.
+     *
+     * @return the context
+     */
+    synchronized ModuloExponentiation.MontgomeryContext getMontgomeryContext() {
+        if (context == null) {
+            context = new ModuloExponentiation.MontgomeryContext(
+                    ModuloExponentiation.stripLeadingZeroBytes(mod),
+                    ModuloExponentiation.stripLeadingZeroBytes(exp));
+        }
+        return context;
+    }
+
     /**
      * Set the exponent for the key.
      * @param buf input buffer which hold the exponent
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+/**
+ * An RSA private key that also holds the prime factors of the modulus and
+ * the Chinese Remainder Theorem (CRT) exponents. Private key operations
+ * with such a key run two exponentiations with half size moduli and
+ * exponents instead of one full size exponentiation, which is about three
+ * to four times faster.
+ */
+public final class RSAPrivateCrtKey extends RSAPrivateKey {
+    /** The prime p. */
+    int[] p;
+
+    /** The prime q. */
+    int[] q;
+
+    /** The exponent d mod (p - 1). */
+    int[] dP;
+
+    /** The exponent d mod (q - 1). */
+    int[] dQ;
+
+    /** The CRT coefficient q^-1 mod p, padded to the length of p. */
+    int[] qInv;
+
+    /** The public exponent e, to check the results. */
+    int[] e;
+
+    /** Whether the exponentiations modulo p and q run in two threads. */
+    private volatile boolean parallel;
+
+    /** Montgomery context of p and dP, built on first use. */
+    private ModuloExponentiation.MontgomeryContext contextP;
+
+    /** Montgomery context of q and dQ, built on first use. */
+    private ModuloExponentiation.MontgomeryContext contextQ;
+
+    /** Montgomery context of n and e, built on first use. */
+    private ModuloExponentiation.MontgomeryContext contextE;
+
+    /**
+     * Constructor for RSA private CRT key. All values are unsigned big
+     * endian numbers.
+     *
+     * @param modulus modulus of the key, n = p * q
+     * @param publicExponent public exponent e, with which the results
+     *   are checked
+     * @param exponent private exponent d of the key
+     * @param primeP the prime p
+     * @param primeQ the prime q
+     * @param exponentP the exponent d mod (p - 1)
+     * @param exponentQ the exponent d mod (q - 1)
+     * @param coefficient the CRT coefficient q^-1 mod p
+     * @exception IllegalArgumentException if a prime is even or a value
+     *   is zero
+     */
+    public RSAPrivateCrtKey(byte[] modulus, byte[] publicExponent,
+                            byte[] exponent, byte[] primeP, byte[] primeQ,
+                            byte[] exponentP, byte[] exponentQ,
+                            byte[] coefficient) {
+        super(modulus, 0, modulus.length, exponent, 0, exponent.length);
+        p = ModuloExponentiation.stripLeadingZeroBytes(primeP);
+        q = ModuloExponentiation.stripLeadingZeroBytes(primeQ);
+        dP = ModuloExponentiation.stripLeadingZeroBytes(exponentP);
+        dQ = ModuloExponentiation.stripLeadingZeroBytes(exponentQ);
+        qInv = ModuloExponentiation.stripLeadingZeroBytes(coefficient);
+        e = ModuloExponentiation.stripLeadingZeroBytes(publicExponent);
+        if (p.length == 0 || (p[p.length - 1] & 1) == 0
+                || q.length == 0 || (q[q.length - 1] & 1) == 0) {
+            throw new IllegalArgumentException("Primes must be odd");
+        }
+        if (dP.length == 0 || dQ.length == 0 || qInv.length == 0
+                || e.length == 0) {
+            throw new IllegalArgumentException("Invalid CRT parameters");
+        }
+        if (qInv.length > p.length) {
+            throw new IllegalArgumentException("Invalid CRT parameters");
+        }
+        int[] padded = new int[p.length];
+        System.arraycopy(qInv, 0, padded, p.length - qInv.length, qInv.length);
+        qInv = padded;
+    }
+
+    /**
+     * Enables or disables running the two half size exponentiations of
+     * the private key operations in parallel. This only pays off if more
+     * than one processor is available. It is disabled by default.
+     *
+     * @param parallel true to use a second thread for the exponentiation
+     *   modulo q
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns whether the exponentiations modulo p and q run in parallel.
+     *
+     * @return true if a second thread is used
+     */
+    boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Gets the Montgomery context of p and dP.
+     *
+     * @return the context
+     */
+    synchronized ModuloExponentiation.MontgomeryContext getContextP() {
+        if (contextP == null) {
+            contextP = new ModuloExponentiation.MontgomeryContext(p, dP);
+        }
+        return contextP;
+    }
+
+    /**
+     * Gets the Montgomery context of q and dQ.
+     *
+     * @return the context
+     */
+    synchronized ModuloExponentiation.MontgomeryContext getContextQ() {
+        if (contextQ == null) {
+            contextQ = new ModuloExponentiation.MontgomeryContext(q, dQ);
+        }
+        return contextQ;
+    }
+
+    /**
+     * Gets the Montgomery context of n and e.
+     *
+     * @return the context
+     */
+    synchronized ModuloExponentiation.MontgomeryContext getContextE() {
+        if (contextE == null) {
+            contextE = new ModuloExponentiation.MontgomeryContext(
+                    ModuloExponentiation.stripLeadingZeroBytes(mod), e);
+        }
+        return contextE;
+    }
+}
@@ -30,7 +30,7 @@ import com.sun.spot.security.PrivateKey;
  * Specifies the RSA private key interface. An RSA key is not ready for
  * use until both the modulus and exponent have been set.
  */ 
-public final class RSAPrivateKey extends RSAKey implements PrivateKey {
+public class RSAPrivateKey extends RSAKey implements PrivateKey {
     /**
      * Constructor for RSA public key.
      *
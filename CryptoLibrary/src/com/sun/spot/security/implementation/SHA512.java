@@ -0,0 +1,221 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+
+package com.sun.spot.security.implementation;
+
+import com.sun.spot.security.DigestException;
+import com.sun.spot.security.MessageDigest;
+
+
+/**
+ * Implements the SHA-512 hashing algorithm of FIPS 180-2. It is the hash
+ * function of Ed25519.
+ */
+public final class SHA512 extends MessageDigest {
+
+    private static final long[] K = {
+        0x428a2f98d728ae22L, 0x7137449123ef65cdL, 0xb5c0fbcfec4d3b2fL, 0xe9b5dba58189dbbcL,
+        0x3956c25bf348b538L, 0x59f111f1b605d019L, 0x923f82a4af194f9bL, 0xab1c5ed5da6d8118L,
+        0xd807aa98a3030242L, 0x12835b0145706fbeL, 0x243185be4ee4b28cL, 0x550c7dc3d5ffb4e2L,
+        0x72be5d74f27b896fL, 0x80deb1fe3b1696b1L, 0x9bdc06a725c71235L, 0xc19bf174cf692694L,
+        0xe49b69c19ef14ad2L, 0xefbe4786384f25e3L, 0x0fc19dc68b8cd5b5L, 0x240ca1cc77ac9c65L,
+        0x2de92c6f592b0275L, 0x4a7484aa6ea6e483L, 0x5cb0a9dcbd41fbd4L, 0x76f988da831153b5L,
+        0x983e5152ee66dfabL, 0xa831c66d2db43210L, 0xb00327c898fb213fL, 0xbf597fc7beef0ee4L,
+        0xc6e00bf33da88fc2L, 0xd5a79147930aa725L, 0x06ca6351e003826fL, 0x142929670a0e6e70L,
+        0x27b70a8546d22ffcL, 0x2e1b21385c26c926L, 0x4d2c6dfc5ac42aedL, 0x53380d139d95b3dfL,
+        0x650a73548baf63deL, 0x766a0abb3c77b2a8L, 0x81c2c92e47edaee6L, 0x92722c851482353bL,
+        0xa2bfe8a14cf10364L, 0xa81a664bbc423001L, 0xc24b8b70d0f89791L, 0xc76c51a30654be30L,
+        0xd192e819d6ef5218L, 0xd69906245565a910L, 0xf40e35855771202aL, 0x106aa07032bbd1b8L,
+        0x19a4c116b8d2d0c8L, 0x1e376c085141ab53L, 0x2748774cdf8eeb99L, 0x34b0bcb5e19b48a8L,
+        0x391c0cb3c5c95a63L, 0x4ed8aa4ae3418acbL, 0x5b9cca4f7763e373L, 0x682e6ff3d6b2b8a3L,
+        0x748f82ee5defb2fcL, 0x78a5636f43172f60L, 0x84c87814a1f0ab72L, 0x8cc702081a6439ecL,
+        0x90befffa23631e28L, 0xa4506cebde82bde9L, 0xbef9a3f7b2c67915L, 0xc67178f2e372532bL,
+        0xca273eceea26619cL, 0xd186b8c721c0c207L, 0xeada7dd6cde0eb1eL, 0xf57d4f7fee6ed178L,
+        0x06f067aa72176fbaL, 0x0a637dc5a2c898a6L, 0x113f9804bef90daeL, 0x1b710b35131c471bL,
+        0x28db77f523047d84L, 0x32caab7b40c72493L, 0x3c9ebe0a15c9bebcL, 0x431d67c49c100d4cL,
+        0x4cc5d4becb3e42b6L, 0x597f299cfc657e2aL, 0x5fcb6fab3ad6faecL, 0x6c44198c4a475817L
+    };
+
+    /*
+     * Update puts bytes into this buffer and transform adds full blocks
+     * into the state of the digest.
+     */
+    private byte[] buffer = new byte[128];
+    private long[] w = new long[80];
+    private int index;
+    private long[] state = new long[8];
+    private long count;
+
+    public SHA512() {
+        reset();
+    }
+
+    public String getAlgorithm() {
+        return "SHA-512";
+    }
+
+    public int getDigestLength() {
+        return 64;
+    }
+
+    public void reset() {
+        state[0] = 0x6a09e667f3bcc908L;
+        state[1] = 0xbb67ae8584caa73bL;
+        state[2] = 0x3c6ef372fe94f82bL;
+        state[3] = 0xa54ff53a5f1d36f1L;
+        state[4] = 0x510e527fade682d1L;
+        state[5] = 0x9b05688c2b3e6c1fL;
+        state[6] = 0x1f83d9abfb41bd6bL;
+        state[7] = 0x5be0cd19137e2179L;
+        count = 0;
+        index = 0;
+        /* overwrite sensitive data */
+        for (int i = 127; i >= 0; i--) buffer[i] = (byte)0;
+        for (int i = 79; i >= 0; i--) w[i] = 0;
+    }
+
+    private void transform(byte[] buf, int offset) {
+        for (int i = 0; i < 16; i++) {
+            long v = 0;
+            for (int j = 0; j < 8; j++) {
+                v = (v << 8) | (buf[offset++] & 0xff);
+            }
+            w[i] = v;
+        }
+        for (int i = 16; i < 80; i++) {
+            long s0 = w[i - 15];
+            s0 = ((s0 >>> 1) | (s0 << 63)) ^ ((s0 >>> 8) | (s0 << 56)) ^ (s0 >>> 7);
+            long s1 = w[i - 2];
+            s1 = ((s1 >>> 19) | (s1 << 45)) ^ ((s1 >>> 61) | (s1 << 3)) ^ (s1 >>> 6);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+
+        long a = state[0], b = state[1], c = state[2], d = state[3];
+        long e = state[4], f = state[5], g = state[6], h = state[7];
+        for (int i = 0; i < 80; i++) {
+            long t1 = h + (((e >>> 14) | (e << 50)) ^ ((e >>> 18) | (e << 46)) ^ ((e >>> 41) | (e << 23)))
+                    + ((e & f) ^ (~e & g)) + K[i] + w[i];
+            long t2 = (((a >>> 28) | (a << 36)) ^ ((a >>> 34) | (a << 30)) ^ ((a >>> 39) | (a << 25)))
+                    + ((a & b) ^ (a & c) ^ (b & c));
+            h = g; g = f; f = e; e = d + t1;
+            d = c; c = b; b = a; a = t1 + t2;
+        }
+
+        /* Add the working vars back into the state */
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+
+    public void update(byte[] input, int offset, int len) {
+        int partLen;
+
+        // Update number of bits
+        count += ((long)len << 3);
+
+        // If there is already something in the buffer, append the new data.
+        if (index > 0) {
+            partLen = 128 - index;
+            if (partLen > len) partLen = len;
+            System.arraycopy(input, offset, buffer, index, partLen);
+            offset += partLen;
+            len -= partLen;
+            index += partLen;
+            if (index == 128) {
+                transform(buffer, 0);
+                index = 0;
+            }
+        }
+
+        // Process complete blocks directly from the input-array as long as
+        // possible.
+        while (len >= 128) {
+            transform(input, offset);
+            offset += 128;
+            len -= 128;
+        }
+
+        // If there is some unprocessed data left, copy it to the buffer.
+        if (len > 0) {
+            System.arraycopy(input, offset, buffer, 0, len);
+            index = len;
+        }
+    }
+
+    /**
+     * Complete processing on the message digest.
+     */
+    public int digest(byte[] outBuf, int outOff, int len) throws DigestException {
+        int i = index;
+
+        int cnt = (outBuf.length > outOff) ? (outBuf.length - outOff) : 0;
+        if (cnt > len) cnt = len;
+        if (cnt == 0) return 0;
+        if (cnt > 64) cnt = 64;
+
+        buffer[i++] = (byte)128;
+
+        if (i > 112) {
+            while (i < 128) {
+                buffer[i++] = (byte)0;
+            }
+            transform(buffer, 0);
+            i = 0;
+        }
+        // the bit count is 128 bits, its upper half is always zero here
+        while (i < 120) {
+            buffer[i++] = (byte)0;
+        }
+        for (int j = 0; j < 8; j++) {
+            buffer[120 + j] = (byte)(count >>> (56 - 8 * j));
+        }
+        transform(buffer, 0);
+
+        for (i = 0; i < cnt; i++) {
+            outBuf[outOff++] = (byte)(state[i >> 3] >>> (56 - 8 * (i & 7)));
+        }
+        this.reset();
+        return cnt;
+    }
+
+    /**
+     * Clones the MessageDigest object.
+     * @return a clone of this object
+     */
+    public Object clone() {
+        SHA512 cpy = new SHA512();
+
+        System.arraycopy(this.state, 0, cpy.state, 0, this.state.length);
+        cpy.count = count;
+        cpy.index = index;
+        System.arraycopy(this.buffer, 0, cpy.buffer, 0, this.buffer.length);
+        return cpy;
+    }
+}
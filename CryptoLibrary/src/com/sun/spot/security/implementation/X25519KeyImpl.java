@@ -0,0 +1,131 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation;
+
+
+import com.sun.spot.security.GeneralSecurityException;
+import com.sun.spot.security.InvalidKeyException;
+import com.sun.spot.security.Key;
+import com.sun.spot.security.KeyException;
+import com.sun.spot.security.NoSuchAlgorithmException;
+import com.sun.spot.security.implementation.ecc.Curve25519;
+
+/**
+ * Keys of the X25519 key agreement (RFC 7748). Both the private scalar
+ * and the public u-coordinate are 32 byte little-endian strings, which
+ * are kept as they are set.
+ */
+public abstract class X25519KeyImpl implements Key {
+
+    protected final byte[] keyData = new byte[Curve25519.KEY_SIZE];
+    /** Flag indicating if the key has been initialized. */
+    protected boolean initOk;
+    protected Curve25519 curve;
+
+    protected X25519KeyImpl() {
+        curve = Curve25519.getInstance();
+    }
+
+    public int getSize() {
+        return 255;
+    }
+
+    public boolean isInitialized() {
+        return initOk;
+    }
+
+    public Curve25519 getCurve25519() {
+        return curve;
+    }
+
+    /**
+     * Sets the key from its 32 byte encoding.
+     */
+    public void setKey(byte[] buffer, int offset, int length) throws GeneralSecurityException {
+        initOk = false;
+        if (length != Curve25519.KEY_SIZE) {
+            throw new GeneralSecurityException("Illegal Value");
+        }
+        System.arraycopy(buffer, offset, keyData, 0, length);
+        initOk = true;
+    }
+
+    /**
+     * Writes the 32 byte encoding of the key to buffer.
+     *
+     * @return the length of the key
+     */
+    public int getKey(byte[] buffer, int offset) throws KeyException {
+        if (!initOk) {
+            throw new KeyException("Key not initialized");
+        }
+        System.arraycopy(keyData, 0, buffer, offset, keyData.length);
+        return keyData.length;
+    }
+
+    public void clearKey() {
+        initOk = false;
+        for (int i = keyData.length - 1; i >= 0; i--) {
+            keyData[i] = 0;
+        }
+    }
+
+    public static void genKeyPair(X25519PublicKeyImpl publicKey, X25519PrivateKeyImpl privateKey)
+            throws InvalidKeyException, NoSuchAlgorithmException {
+
+        publicKey.clearKey();
+        privateKey.clearKey();
+        SecureRandom random = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
+        random.generateData(privateKey.keyData, 0, privateKey.keyData.length);
+        Curve25519.clamp(privateKey.keyData, 0);
+
+        // generate the public key
+        privateKey.curve.multiplyBasePoint(publicKey.keyData, 0, privateKey.keyData, 0);
+
+        // both keys are initialized by now
+        privateKey.initOk = true;
+        publicKey.initOk = true;
+    }
+
+    public String getAlgorithm() {
+        return "X25519";
+    }
+
+    public byte[] getEncoded() {
+        return null;
+    }
+
+    public String getFormat() {
+        return "RAW";
+    }
+
+    protected String toString(String name) {
+        String val = name + ": (";
+        if (initOk) {
+            val += Util.hexEncode(keyData, keyData.length);
+        }
+        return val + ")";
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+
+/**
+ * The Montgomery curve Curve25519, v^2 = u^3 + 486662 u^2 + u over the
+ * field of Curve25519PrimeField, with the X25519 function of RFC 7748.
+ * <p>
+ * X25519 works on the u-coordinate only, with the Montgomery ladder.
+ * Every 32 byte string is a valid input, so there is no point
+ * validation; a peer key of small order gives an all zero result.
+ * Scalars and coordinates are little-endian, unlike everywhere else in
+ * this library.
+ */
+public final class Curve25519 {
+
+    /** The byte length of scalars and u-coordinates. */
+    public static final int KEY_SIZE = 32;
+
+    // (A - 2) / 4 for A = 486662
+    private static final int A24 = 121665;
+
+    private final PrimeField field;
+    private final FFA ffa;
+    private final int[] a24;
+    private final byte[] basePoint;
+
+    private static Curve25519 instance;
+    private static Curve25519 instance32;
+
+    private Curve25519(PrimeField field) {
+        this.field = field;
+        ffa = field.getFFA();
+        a24 = ffa.acquireVar();
+        ffa.set(a24, A24);
+        basePoint = new byte[KEY_SIZE];
+        basePoint[0] = 9;
+    }
+
+    /**
+     * Returns the curve with the default FFA backend, see
+     * ECCurve.getInstance(int).
+     */
+    public static Curve25519 getInstance() {
+        return getInstance(ECCurve.defaultBackend);
+    }
+
+    /**
+     * Returns the curve with the given FFA backend, ECCurve.FFA_28 or
+     * ECCurve.FFA_32.
+     */
+    synchronized public static Curve25519 getInstance(int backend) {
+        if (backend == ECCurve.FFA_32) {
+            if (instance32 == null) {
+                instance32 = new Curve25519(new Curve25519PrimeField(new FFA32(255)));
+            }
+            return instance32;
+        } else if (backend == ECCurve.FFA_28) {
+            if (instance == null) {
+                instance = new Curve25519(new Curve25519PrimeField(new FFA(255)));
+            }
+            return instance;
+        }
+        throw new IllegalArgumentException("Unknown FFA backend");
+    }
+
+    public PrimeField getField() {
+        return field;
+    }
+
+    /**
+     * Clamps a random 32 byte string to an X25519 private key as in
+     * RFC 7748, Section 5.
+     */
+    public static void clamp(byte[] k, int kOfs) {
+        k[kOfs] &= (byte)0xf8;
+        k[kOfs + 31] &= (byte)0x7f;
+        k[kOfs + 31] |= (byte)0x40;
+    }
+
+    /**
+     * r = X25519(k, 9), the public key of the private key k.
+     */
+    public void multiplyBasePoint(byte[] r, int rOfs, byte[] k, int kOfs) {
+        multiply(r, rOfs, k, kOfs, basePoint, 0);
+    }
+
+    /**
+     * r = X25519(k, u). The scalar is clamped on the fly, k itself is not
+     * modified. r may overlap neither k nor u.
+     *
+     * @return false if the result is zero, that is if u has small order
+     */
+    public boolean multiply(byte[] r, int rOfs, byte[] k, int kOfs,
+            byte[] u, int uOfs) {
+        // decode u, ignoring the most significant bit. values of p and
+        // above are reduced.
+        byte[] buf = new byte[KEY_SIZE];
+        for (int i = 0; i < KEY_SIZE; i++) {
+            buf[i] = u[uOfs + KEY_SIZE - 1 - i];
+        }
+        buf[0] &= 0x7f;
+        int[] x1 = ffa.from(buf, 0, KEY_SIZE);
+        int[] p = field.getP();
+        if (ffa.cmp(x1, p) >= 0) {
+            ffa.sub(x1, x1, p);
+        }
+
+        int[] x2 = ffa.acquireVar();
+        int[] z2 = ffa.acquireVar();
+        int[] x3 = ffa.acquireVar();
+        int[] z3 = ffa.acquireVar();
+        int[] t0 = ffa.acquireVar();
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        int[] t3 = ffa.acquireVar();
+
+        ffa.set(x2, 1);
+        ffa.set(z2, 0);
+        ffa.copy(x3, x1);
+        ffa.set(z3, 1);
+
+        // RFC 7748, Section 5, with the clamped bits of k
+        int swap = 0;
+        for (int i = 254; i >= 0; i--) {
+            int bit;
+            if (i == 254) {
+                bit = 1;
+            } else if (i < 3) {
+                bit = 0;
+            } else {
+                bit = (k[kOfs + (i >> 3)] >> (i & 7)) & 1;
+            }
+            swap ^= bit;
+            ffa.cswap(swap, x2, x3);
+            ffa.cswap(swap, z2, z3);
+            swap = bit;
+
+            field.add(t0, x2, z2);          // A
+            field.subtract(t1, x2, z2);     // B
+            field.add(t2, x3, z3);          // C
+            field.subtract(t3, x3, z3);     // D
+            field.multiply(t3, t3, t0);     // DA
+            field.multiply(t2, t2, t1);     // CB
+            field.add(x3, t3, t2);
+            field.square(x3, x3);           // (DA + CB)^2
+            field.subtract(z3, t3, t2);
+            field.square(z3, z3);
+            field.multiply(z3, z3, x1);     // x1 * (DA - CB)^2
+            field.square(t0, t0);           // AA
+            field.square(t1, t1);           // BB
+            field.multiply(x2, t0, t1);     // AA * BB
+            field.subtract(t1, t0, t1);     // E = AA - BB
+            field.multiply(z2, t1, a24);
+            field.add(z2, z2, t0);
+            field.multiply(z2, z2, t1);     // E * (AA + a24 * E)
+        }
+        ffa.cswap(swap, x2, x3);
+        ffa.cswap(swap, z2, z3);
+
+        // u = x2 / z2, where z2 = 0 gives 0
+        field.invert(z2, z2);
+        field.multiply(x2, x2, z2);
+        boolean nonZero = !ffa.is(x2, 0);
+
+        ffa.toByteArray(buf, 0, KEY_SIZE, x2);
+        for (int i = 0; i < KEY_SIZE; i++) {
+            r[rOfs + i] = buf[KEY_SIZE - 1 - i];
+        }
+
+        ffa.releaseVar(x1);
+        ffa.releaseVar(x2);
+        ffa.releaseVar(z2);
+        ffa.releaseVar(x3);
+        ffa.releaseVar(z3);
+        ffa.releaseVar(t0);
+        ffa.releaseVar(t1);
+        ffa.releaseVar(t2);
+        ffa.releaseVar(t3);
+        return nonZero;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+
+/**
+ * This Curve25519PrimeField class implements efficient reduction for
+ * the prime field with modulus p = 2^255 - 19. It is used by Curve25519
+ * (X25519) and by the twisted Edwards curve edwards25519.
+ *
+ */
+public final class Curve25519PrimeField extends PrimeField {
+
+    private static final long LMASK = 0xffffffffL;
+
+    private static final int[] p_const =
+        {0x7FFFFFFF,0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFFF,
+         0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFED};
+
+    // the words of a variable hold n * bitsPerWord >= 255 bits, so
+    // 2^(n * bitsPerWord) = 19 * 2^(n * bitsPerWord - 255) (mod p) is
+    // the factor to fold the high half of a product with. the top
+    // word holds topBits bits below 2^255.
+    private final int bitsPerWord;
+    private final long wordMask;
+    private final long fold;
+    private final int topBits;
+
+    public Curve25519PrimeField(FFA ffa) {
+        super(ffa, ffa.from(p_const));
+        bitsPerWord = ffa.getBitsPerWord();
+        wordMask = (1L << bitsPerWord) - 1;
+        int n = ffa.getIntSize();
+        fold = 19L << (n * bitsPerWord - 255);
+        topBits = 255 - (n - 1) * bitsPerWord;
+    }
+
+    /**
+     * Inversion by Fermat's little theorem, r = a^(p-2), with the addition
+     * chain for p - 2 = 2^255 - 21 from the Curve25519 paper.
+     */
+    public void invert(int[] r, int[] a) {
+        int[] z11 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        pow250(t, z11, a);
+
+        // p - 2 = x250 01011 in binary
+        squareMultiply(r, t, 5, z11);
+
+        ffa.releaseVar(z11);
+        ffa.releaseVar(t);
+    }
+
+    /**
+     * r = a^((p-5)/8) = a^(2^252 - 3), the exponentiation of the square
+     * root in the point decoding of Ed25519 (RFC 8032, Section 5.1.3).
+     */
+    public void powP58(int[] r, int[] a) {
+        int[] z11 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        pow250(t, z11, a);
+
+        // (p - 5) / 8 = x250 01 in binary
+        squareMultiply(t, t, 2, a);
+        ffa.copy(r, t);
+
+        ffa.releaseVar(z11);
+        ffa.releaseVar(t);
+    }
+
+    /*
+     * x250 = a^(2^250 - 1) and z11 = a^11, the common part of the chains
+     * of invert() and powP58(). x_k stands for a^(2^k - 1).
+     */
+    private void pow250(int[] x250, int[] z11, int[] a) {
+        int[] x10 = ffa.acquireVar();
+        int[] x50 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+        int[] u = x250;
+
+        square(t, a);                     // a^2
+        squareMultiply(u, t, 2, a);       // a^9
+        multiply(z11, u, t);              // a^11
+        squareMultiply(t, z11, 1, u);     // x5
+        squareMultiply(x10, t, 5, t);
+        squareMultiply(t, x10, 10, x10);  // x20
+        squareMultiply(u, t, 20, t);      // x40
+        squareMultiply(x50, u, 10, x10);
+        squareMultiply(t, x50, 50, x50);  // x100
+        squareMultiply(u, t, 100, t);     // x200
+        squareMultiply(u, u, 50, x50);    // x250
+
+        ffa.releaseVar(x10);
+        ffa.releaseVar(x50);
+        ffa.releaseVar(t);
+    }
+
+    /**
+     * Works for both FFA backends: a holds 2n words of bitsPerWord bits.
+     * p = 2^255 - 19
+     */
+    protected void reduce(int[] r, int[] a) {
+        int n = r.length;
+        long m = 0;
+
+        // lo = lo + hi * 2^(n * bitsPerWord)
+        for (int i = 0; i < n; i++) {
+            m += (a[i] & LMASK) + fold * (a[i + n] & LMASK);
+            r[i] = (int)(m & wordMask);
+            m >>>= bitsPerWord;
+        }
+
+        // the carry and the bits of the top word above 2^255 are
+        // below 2^60, fold them once more with 2^255 = 19 (mod p)
+        long t = ((r[n - 1] & LMASK) >>> topBits) + (m << (bitsPerWord - topBits));
+        r[n - 1] &= (1 << topBits) - 1;
+        m = 19 * t;
+        for (int i = 0; i < n; i++) {
+            m += r[i] & LMASK;
+            r[i] = (int)(m & wordMask);
+            m >>>= bitsPerWord;
+        }
+
+        while (ffa.cmp(r, p) >= 0) {
+            ffa.sub(r, r, p);
+        }
+    }
+}
@@ -42,6 +42,33 @@ public abstract class ECCurve {
     
     protected final FFA ffa;
     
+    // encodings of SEC 1, Section 2.3.3: 0x04 x y, or 0x02 x for an even
+    // y and 0x03 x for an odd y
+    private static final byte POINT_UNCOMPRESSED = 0x04;
+    private static final byte POINT_COMPRESSED_EVEN = 0x02;
+    private static final byte POINT_COMPRESSED_ODD = 0x03;
+    
+    // recently decompressed points, most recently used first. Peers send
+    // the same keys again and again, and each decompression costs a
+    // square root.
+    private static final int DECOMPRESSED_POINTS = 4;
+    private final byte[][] decompressedKeys = new byte[DECOMPRESSED_POINTS][];
+    private final int[][] decompressedX = new int[DECOMPRESSED_POINTS][];
+    private final int[][] decompressedY = new int[DECOMPRESSED_POINTS][];
+    
+    // released points and workspaces are kept for reuse, like the
+    // variables of FFA
+    private static final int POOLED_POINTS = 8;
+    private static final int POOLED_WORKSPACES = 4;
+    private final ECPoint[] points = new ECPoint[POOLED_POINTS];
+    private int pointsCount;
+    private final ECPointWorkspace[] workspaces = new ECPointWorkspace[POOLED_WORKSPACES];
+    private int workspacesCount;
+    
+    // number of points and workspaces that had to be created
+    private long pointMisses;
+    private long workspaceMisses;
+    
     protected ECCurve(FiniteField field, int[] a, int[] b, int[] genX, int[] genY, PrimeField order, int h) {
         this.field = field;
         this.ffa = field.getFFA();
@@ -80,10 +107,97 @@ public abstract class ECCurve {
         return generator;
     }
     
+    /**
+     * Returns a point of this curve with uninitialized coordinates.
+     * Release it with releasePoint() after use.
+     */
+    public ECPoint acquirePoint() {
+        synchronized (points) {
+            if (pointsCount > 0) {
+                ECPoint p = points[--pointsCount];
+                points[pointsCount] = null;
+                return p;
+            }
+            pointMisses++;
+        }
+        return new ECPoint(this);
+    }
+    
+    /**
+     * Releases a point of acquirePoint() for reuse.
+     */
+    public void releasePoint(ECPoint p) {
+        synchronized (points) {
+            if (pointsCount < POOLED_POINTS) {
+                points[pointsCount++] = p;
+                return;
+            }
+        }
+        p.release();
+    }
+    
+    // returns a workspace for one point multiplication, release it after use
+    ECPointWorkspace acquireWorkspace() {
+        synchronized (workspaces) {
+            if (workspacesCount > 0) {
+                ECPointWorkspace ws = workspaces[--workspacesCount];
+                workspaces[workspacesCount] = null;
+                return ws;
+            }
+            workspaceMisses++;
+        }
+        return createWorkspace();
+    }
+    
+    void releaseWorkspace(ECPointWorkspace ws) {
+        synchronized (workspaces) {
+            if (workspacesCount < POOLED_WORKSPACES) {
+                workspaces[workspacesCount++] = ws;
+            }
+        }
+    }
+    
+    // returns a new workspace sized for the point multiplications of this
+    // curve
+    abstract ECPointWorkspace createWorkspace();
+    
+    /**
+     * Returns the number of points and workspaces that could not be taken
+     * from the pool since the last call to resetPoolStatistics().
+     */
+    public long getPoolMisses() {
+        long misses;
+        synchronized (points) {
+            misses = pointMisses;
+        }
+        synchronized (workspaces) {
+            misses += workspaceMisses;
+        }
+        return misses;
+    }
+    
+    public void resetPoolStatistics() {
+        synchronized (points) {
+            pointMisses = 0;
+        }
+        synchronized (workspaces) {
+            workspaceMisses = 0;
+        }
+    }
+    
+    /**
+     * Decodes an uncompressed or a compressed point. A compressed point
+     * that is not on the curve is rejected, uncompressed points still
+     * have to be checked with isOnCurve().
+     */
     public boolean decodePoint(ECPoint point, byte[] data, int offset, int length) {
         int numLen = ffa.getByteSize();
+        if ((length == numLen + 1) && ((data[offset] == POINT_COMPRESSED_EVEN)
+                || (data[offset] == POINT_COMPRESSED_ODD))) {
+            return decodeCompressedPoint(point, data, offset, length);
+        }
         int totalLen = 2 * numLen + 1;
-        if ((length != totalLen) || (data[offset] != 0x04)) {
+        if ((length != totalLen) || (data[offset] != POINT_UNCOMPRESSED)) {
             return false;
         }
         int[] x = ffa.from(point.x, data, offset + 1, numLen);
@@ -92,18 +206,91 @@ public abstract class ECCurve {
         return true;
     }
     
+    private boolean decodeCompressedPoint(ECPoint point, byte[] data, int offset, int length) {
+        synchronized (decompressedKeys) {
+            for (int i = 0; (i < DECOMPRESSED_POINTS) && (decompressedKeys[i] != null); i++) {
+                if (equals(decompressedKeys[i], data, offset, length)) {
+                    ffa.copy(point.x, decompressedX[i]);
+                    ffa.copy(point.y, decompressedY[i]);
+                    ffa.set(point.z, 1);
+                    moveToFront(i);
+                    return true;
+                }
+            }
+        }
+        
+        ffa.from(point.x, data, offset + 1, length - 1);
+        if ((ffa.cmp(point.x, field.getP()) >= 0)
+                || !decompress(point, data[offset] == POINT_COMPRESSED_ODD)) {
+            return false;
+        }
+        
+        synchronized (decompressedKeys) {
+            // reuse the least recently used entry
+            int last = DECOMPRESSED_POINTS - 1;
+            if (decompressedKeys[last] == null) {
+                decompressedKeys[last] = new byte[length];
+                decompressedX[last] = ffa.acquireVar();
+                decompressedY[last] = ffa.acquireVar();
+            }
+            System.arraycopy(data, offset, decompressedKeys[last], 0, length);
+            ffa.copy(decompressedX[last], point.x);
+            ffa.copy(decompressedY[last], point.y);
+            moveToFront(last);
+        }
+        return true;
+    }
+    
+    private void moveToFront(int i) {
+        byte[] key = decompressedKeys[i];
+        int[] x = decompressedX[i];
+        int[] y = decompressedY[i];
+        for (; i > 0; i--) {
+            decompressedKeys[i] = decompressedKeys[i - 1];
+            decompressedX[i] = decompressedX[i - 1];
+            decompressedY[i] = decompressedY[i - 1];
+        }
+        decompressedKeys[0] = key;
+        decompressedX[0] = x;
+        decompressedY[0] = y;
+    }
+    
+    private static boolean equals(byte[] key, byte[] data, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != data[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     public int encodePoint(ECPoint point, byte[] data, int offset) {
+        return encodePoint(point, data, offset, false);
+    }
+    
+    /**
+     * Encodes the point uncompressed, as 0x04 x y, or compressed, as 0x02 x
+     * or 0x03 x. Returns 0 if the buffer is too short.
+     */
+    public int encodePoint(ECPoint point, byte[] data, int offset, boolean compressed) {
         int numLen = ffa.getByteSize();
-        int totalLen = 2 * numLen + 1;
+        int totalLen = compressed ? (numLen + 1) : (2 * numLen + 1);
         if ((data.length - offset) < totalLen) {
             return 0;
         }
         if (!ffa.is(point.z, 1)) {
             makeAffine(point);
         }
-        data[offset] = 0x04;
         ffa.toByteArray(data, offset + 1, numLen, point.x);
-        ffa.toByteArray(data, offset + numLen + 1, numLen, point.y);
+        if (compressed) {
+            data[offset] = ffa.isOdd(point.y) ? POINT_COMPRESSED_ODD : POINT_COMPRESSED_EVEN;
+        } else {
+            data[offset] = POINT_UNCOMPRESSED;
+            ffa.toByteArray(data, offset + numLen + 1, numLen, point.y);
+        }
         return totalLen;
     }
     
@@ -115,9 +302,57 @@ public abstract class ECCurve {
     protected abstract void twice(ECPoint o1);
     protected abstract void makeAffine(ECPoint o1);
     
+    // sets the y-coordinate of the affine point 'p' with the given parity
+    // for its x-coordinate. Returns false if there is no such point.
+    protected abstract boolean decompress(ECPoint p, boolean odd);
+    
+    // converts points[offset] ... points[offset + count - 1] to affine
+    // coordinates with a single field inversion. None of the points may
+    // be the point at infinity.
+    public abstract void makeAffine(ECPoint[] points, int offset, int count);
+    
+    // p = k * p, where 'p' must be affine. 'k' is treated as secret: the
+    // z-coordinate of the result is inverted with
+    // FiniteField.invertConstantTime().
     public abstract void multiply(ECPoint p, int[] k);
+    
+    // p = k * p with a Montgomery ladder, where 'p' must be affine and 'k'
+    // in the range [1..n-1]. Every bit of 'k' costs the same point
+    // operations, which suits secret scalars like in key agreement. It is
+    // slower than multiply(), so callers opt into it, like
+    // ECDHKeyAgreement.setConstantTime().
+    public abstract void multiplyLadder(ECPoint p, int[] k);
+    
+    // p = k * G, where G is the generator of this curve. 'k' must be in
+    // the range [1..n-1]. The previous content of 'p' is ignored. Like
+    // multiply(), it treats 'k' as secret.
+    public abstract void multiplyGenerator(ECPoint p, int[] k);
+    
+    // p[i] = k[i] * G for all i, sharing a single field inversion
+    public abstract void multiplyGenerator(ECPoint[] p, int[][] k);
+    
     public abstract void multiplySum(ECPoint p1, int[] k1, ECPoint p2, int[] k2);
     
+    // p = k1 * G + k2 * q, where G is the generator of this curve and 'q'
+    // is affine. The previous content of 'p' is ignored.
+    public abstract void multiplyGeneratorSum(ECPoint p, int[] k1, ECPoint q, int[] k2);
+    
+    // returns a table of multiples of the affine point 'q' that can be kept
+    // and passed to multiplyGeneratorSum() instead of 'q'. The table does
+    // not share any variables with 'q'.
+    public abstract ECPoint[] precomputeMultiples(ECPoint q);
+    public abstract void multiplyGeneratorSum(ECPoint p, int[] k1, ECPoint[] multiples, int[] k2);
+    
+    // same as multiplyGeneratorSum(), but 'p' is left in jacobian
+    // coordinates. The point at infinity is returned with z = 0.
+    public abstract void multiplyGeneratorSumJacobian(ECPoint p, int[] k1, ECPoint q, int[] k2);
+    public abstract void multiplyGeneratorSumJacobian(ECPoint p, int[] k1, ECPoint[] multiples, int[] k2);
+    
+    // returns true if the point 'p', which may be in jacobian coordinates,
+    // is not the point at infinity and has the affine x-coordinate 'x'.
+    // This is cheaper than making 'p' affine.
+    public abstract boolean hasAffineX(ECPoint p, int[] x);
+    
     public abstract boolean isOnCurve(ECPoint o1);
     
     public void copy(ECPoint dst, ECPoint src) {
@@ -135,91 +370,139 @@ public abstract class ECCurve {
     public static final int SECP192R1 = 1;
     public static final int SECP256R1 = 2;
     public static final int SECP224R1 = 3;
+    public static final int SECP384R1 = 4;
     
 
-    private static final int MAX_CURVES = 4;
+    /**
+     * FFA backends, named by the number of bits per word. FFA_28 suits
+     * the Squawk VM, FFA_32 (FFA32) JVMs with fast 64 bit arithmetic.
+     */
+    public static final int FFA_28 = 28;
+    public static final int FFA_32 = 32;
+
+    private static final int MAX_CURVES = 5;
     private static ECCurve[] instances = new ECCurve[MAX_CURVES];
+    private static ECCurve[] instances32 = new ECCurve[MAX_CURVES];
+    
+    // one lock per curve, so that curves can be set up in parallel, e.g.
+    // one by preload() in the background while another is in use
+    private static final Object[] locks = new Object[MAX_CURVES];
+    static {
+        for (int i = 0; i < MAX_CURVES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    // the backend of getInstance(int) and Curve25519.getInstance(), FFA_28
+    // unless the system property "spot.security.ffa" is set to "32"
+    static final int defaultBackend =
+            "32".equals(System.getProperty("spot.security.ffa")) ? FFA_32 : FFA_28;
+    
+    /**
+     * Returns the curve with the default FFA backend. The keys of the
+     * library get their curves from here.
+     */
+    public static ECCurve getInstance(int curveId) {
+        return getInstance(curveId, defaultBackend);
+    }
     
-    synchronized public static ECCurve getInstance(int curveId) {
+    /**
+     * Returns the curve with the given FFA backend, FFA_28 or FFA_32.
+     * Curves of different backends compute the same results, but their
+     * variables and points can not be mixed.
+     */
+    public static ECCurve getInstance(int curveId, int backend) {
         if ((curveId < 0) || (curveId >= MAX_CURVES)) {
             throw new IllegalArgumentException("Unknown Elliptic Curve");
         }
-        
-        if (instances[curveId] != null) {
-            return instances[curveId];
+        if ((backend != FFA_28) && (backend != FFA_32)) {
+            throw new IllegalArgumentException("Unknown FFA backend");
         }
         
-        FFA ffa;
-        ECCurve curve = null;
-        PrimeField order;
-        
+        ECCurve[] cache = (backend == FFA_32) ? instances32 : instances;
+        synchronized (locks[curveId]) {
+            if (cache[curveId] == null) {
+                cache[curveId] = createCurve(curveId, backend);
+            }
+            return cache[curveId];
+        }
+    }
+    
+    /**
+     * Sets up the curve with the default FFA backend and its tables for
+     * the generator now rather than at the first key generation, signature
+     * or key agreement. This can be called in a background thread at
+     * start-up; it only blocks users of the same curve.
+     */
+    public static void preload(int curveId) {
+        getInstance(curveId).precompute();
+    }
+    
+    // computes any tables that are otherwise built on first use
+    public abstract void precompute();
+    
+    private static ECCurve createCurve(int curveId, int backend) {
         switch (curveId) {
             case SECP160R1: {
-                ffa = new FFA(160);
-                FFA orderFFA = new FFA(161);
-                order = new PrimeField(orderFFA, orderFFA.from("100000000000000000001F4C8F927AED3CA752257"));
-       	        curve = new ECCurveFp(
-       	                        new NIST160PrimeField(ffa),
-       	                        //new PrimeField(ffa,ffa.from("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF7FFFFFFF")),
-             	           
-       	                        ffa.from( "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF7FFFFFFC"),
-       	                        ffa.from( "1C97BEFC54BD7A8B65ACF89F81D4D4ADC565FA45"),
-       	                        ffa.from( "4A96B5688EF573284664698968C38BB913CBFC82"),
-       	                        ffa.from( "23A628553168947D59DCC912042351377AC5FB32"),
-                                order, 1
-       	                    );
-                break;
+                FFA ffa = newFFA(160, backend);
+                FFA orderFFA = newFFA(161, backend);
+                return createCurve(new NIST160PrimeField(ffa),
+                        ECCurveConstants.Secp160r1.A, ECCurveConstants.Secp160r1.B,
+                        ECCurveConstants.Secp160r1.GX, ECCurveConstants.Secp160r1.GY,
+                        new PrimeField(orderFFA, orderFFA.from(ECCurveConstants.Secp160r1.N)),
+                        ECCurveConstants.Secp160r1.COMB, ECCurveConstants.Secp160r1.ODD_MULTIPLES);
             }
             case SECP192R1: {
-                ffa = new FFA(192);
-                FFA orderFFA = new FFA(192);
-                order = new PrimeField(orderFFA, orderFFA.from("FFFFFFFFFFFFFFFFFFFFFFFF99DEF836146BC9B1B4D22831"));
-       	        curve = new ECCurveFp(
-       	                        //new PrimeField(ffa,ffa.from("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFFFFFFFFFFFF")),
-       	                        new NIST192PrimeField(ffa),
-       	                        ffa.from( "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFFFFFFFFFFFC"),
-       	                        ffa.from( "64210519E59C80E70FA7E9AB72243049FEB8DEECC146B9B1"),
-       	                        ffa.from( "188DA80EB03090F67CBF20EB43A18800F4FF0AFD82FF1012"),
-       	                        ffa.from( "07192B95FFC8DA78631011ED6B24CDD573F977A11E794811"),
-                                order, 1
-       	                    );
-                break;
+                FFA ffa = newFFA(192, backend);
+                FFA orderFFA = newFFA(192, backend);
+                return createCurve(new NIST192PrimeField(ffa),
+                        ECCurveConstants.Secp192r1.A, ECCurveConstants.Secp192r1.B,
+                        ECCurveConstants.Secp192r1.GX, ECCurveConstants.Secp192r1.GY,
+                        new PrimeField(orderFFA, orderFFA.from(ECCurveConstants.Secp192r1.N)),
+                        ECCurveConstants.Secp192r1.COMB, ECCurveConstants.Secp192r1.ODD_MULTIPLES);
             }
             case SECP224R1: {
-                ffa = new FFA(224);
-                FFA orderFFA = new FFA(224);
-                order = new PrimeField(orderFFA, orderFFA.from("FFFFFFFFFFFFFFFFFFFFFFFFFFFF16A2E0B8F03E13DD29455C5C2A3D"));
-       	        curve = new ECCurveFp(
-       	                        new NIST224PrimeField(ffa),
-       	                        //new PrimeField(ffa,ffa.from("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF000000000000000000000001")),
-       	                        ffa.from( "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFFFFFFFFFFFFFFFFFFFE"),
-       	                        ffa.from( "B4050A850C04B3ABF54132565044B0B7D7BFD8BA270B39432355FFB4"),
-       	                        ffa.from( "B70E0CBD6BB4BF7F321390B94A03C1D356C21122343280D6115C1D21"),
-       	                        ffa.from( "BD376388B5F723FB4C22DFE6CD4375A05A07476444D5819985007E34"),
-                                order, 1
-       	                    );
-                break;
+                FFA ffa = newFFA(224, backend);
+                FFA orderFFA = newFFA(224, backend);
+                return createCurve(new NIST224PrimeField(ffa),
+                        ECCurveConstants.Secp224r1.A, ECCurveConstants.Secp224r1.B,
+                        ECCurveConstants.Secp224r1.GX, ECCurveConstants.Secp224r1.GY,
+                        new PrimeField(orderFFA, orderFFA.from(ECCurveConstants.Secp224r1.N)),
+                        ECCurveConstants.Secp224r1.COMB, ECCurveConstants.Secp224r1.ODD_MULTIPLES);
             }
             case SECP256R1: {
-                ffa = new FFA(256);
-                FFA orderFFA = new FFA(256);//?
-                
-                order = new PrimeField(orderFFA, orderFFA.from("FFFFFFFF00000000FFFFFFFFFFFFFFFFBCE6FAADA7179E84F3B9CAC2FC632551"));
-       	        curve = new ECCurveFp(
-       	                        new NIST256PrimeField(ffa),       	                        			       
-       	                        //new PrimeField(ffa,ffa.from("FFFFFFFF00000001000000000000000000000000FFFFFFFFFFFFFFFFFFFFFFFF")), //P
-       	                        ffa.from( "FFFFFFFF00000001000000000000000000000000FFFFFFFFFFFFFFFFFFFFFFFC"),
-       	                        ffa.from( "5AC635D8AA3A93E7B3EBBD55769886BC651D06B0CC53B0F63BCE3C3E27D2604B"),
-       	                        ffa.from( "6B17D1F2E12C4247F8BCE6E563A440F277037D812DEB33A0F4A13945D898C296"),
-       	                        ffa.from( "4FE342E2FE1A7F9B8EE7EB4A7C0F9E162BCE33576B315ECECBB6406837BF51F5"),
-                                order, 1
-       	                    );
-                break;
+                FFA ffa = newFFA(256, backend);
+                FFA orderFFA = newFFA(256, backend);
+                return createCurve(new NIST256PrimeField(ffa),
+                        ECCurveConstants.Secp256r1.A, ECCurveConstants.Secp256r1.B,
+                        ECCurveConstants.Secp256r1.GX, ECCurveConstants.Secp256r1.GY,
+                        new PrimeField(orderFFA, orderFFA.from(ECCurveConstants.Secp256r1.N)),
+                        ECCurveConstants.Secp256r1.COMB, ECCurveConstants.Secp256r1.ODD_MULTIPLES);
+            }
+            case SECP384R1: {
+                FFA ffa = newFFA(384, backend);
+                FFA orderFFA = newFFA(384, backend);
+                return createCurve(new NIST384PrimeField(ffa),
+                        ECCurveConstants.Secp384r1.A, ECCurveConstants.Secp384r1.B,
+                        ECCurveConstants.Secp384r1.GX, ECCurveConstants.Secp384r1.GY,
+                        new PrimeField(orderFFA, orderFFA.from(ECCurveConstants.Secp384r1.N)),
+                        ECCurveConstants.Secp384r1.COMB, ECCurveConstants.Secp384r1.ODD_MULTIPLES);
             }
         }
-        
-        instances[curveId] = curve;
+        return null;
+    }
+    
+    private static ECCurve createCurve(PrimeField field, int[] a, int[] b, int[] genX,
+            int[] genY, PrimeField order, int[] comb, int[] oddMultiples) {
+        FFA ffa = field.getFFA();
+        ECCurveFp curve = new ECCurveFp(field, ffa.from(a), ffa.from(b),
+                ffa.from(genX), ffa.from(genY), order, 1);
+        curve.setGeneratorTables(comb, oddMultiples);
         return curve;
     }
+    
+    private static FFA newFFA(int bitLength, int backend) {
+        return (backend == FFA_32) ? new FFA32(bitLength) : new FFA(bitLength);
+    }
      
 }
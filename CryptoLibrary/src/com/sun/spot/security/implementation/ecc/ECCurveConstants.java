@@ -0,0 +1,521 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+
+/**
+ * The domain parameters of the SEC 2 curves of ECCurve.getInstance() as 32
+ * bit words, most significant word first (see FFA.from(int[])), so that a
+ * curve is set up without parsing hex strings.
+ * <p>
+ * Each curve also has the precomputed multiples of its generator that
+ * ECCurveFp would otherwise compute at the first point multiplication,
+ * all in affine coordinates, x before y:
+ * <ul>
+ * <li>COMB: entry i for 1 <= i < 2^w of the fixed-base comb table, the sum
+ *     of 2^(jd) G over the set bits j of i, for w = 4 and d = ceil(t / w)
+ *     where t is the bit size of the order FFA.
+ * <li>ODD_MULTIPLES: G, 3G, ..., (2^(w-1) - 1) G for the wNAF of width
+ *     w = 6.
+ * </ul>
+ * The constants of a curve are in a class of its own, so only the curves
+ * in use are loaded.
+ */
+final class ECCurveConstants {
+
+    private ECCurveConstants() {}
+
+    static final class Secp160r1 {
+        static final int[] N = {
+            0x00000001, 0x00000000, 0x00000000, 0x0001F4C8, 0xF927AED3, 0xCA752257};
+        static final int[] A = {
+            0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0x7FFFFFFC};
+        static final int[] B = {
+            0x1C97BEFC, 0x54BD7A8B, 0x65ACF89F, 0x81D4D4AD, 0xC565FA45};
+        static final int[] GX = {
+            0x4A96B568, 0x8EF57328, 0x46646989, 0x68C38BB9, 0x13CBFC82};
+        static final int[] GY = {
+            0x23A62855, 0x3168947D, 0x59DCC912, 0x04235137, 0x7AC5FB32};
+
+        // comb table, entries 1 to 15, d = 41
+        static final int[] COMB = {
+            0x4A96B568, 0x8EF57328, 0x46646989, 0x68C38BB9, 0x13CBFC82,
+            0x23A62855, 0x3168947D, 0x59DCC912, 0x04235137, 0x7AC5FB32,
+            0xF4048D94, 0xBA71E1AF, 0x10D9B537, 0xC99A8E7A, 0xC3CF6F48,
+            0x8B3DEF9C, 0x03DA8631, 0x9B9CB104, 0x49922605, 0xF83CD79E,
+            0x2F6A3817, 0xAB0EBD52, 0x470E028F, 0xA4E02AC7, 0xC2516C47,
+            0x227C7C5D, 0x52B9B351, 0x0ADFB528, 0xA83D6FC7, 0x88C00C3C,
+            0x70D9320A, 0x67C9B5FE, 0xF3DD7BFB, 0x4EA5209B, 0xEA5EC72A,
+            0x4286746F, 0xA77731A7, 0x40922BFC, 0x0AB7248D, 0x3F9B980F,
+            0x427D0651, 0x89166238, 0x415703E9, 0x30E30C70, 0x5700EE2D,
+            0x3393D0C7, 0x8D42551E, 0xE759DD56, 0x524A0471, 0x455A4FEB,
+            0x389EF791, 0xA8D3E68B, 0xB291D096, 0x38471EF6, 0xAA7CEBB7,
+            0xE95E4DB4, 0x971348EC, 0xB8C603FD, 0x638D738E, 0x0E8A9AF2,
+            0x9486EC45, 0x5D9DCF49, 0x457479B3, 0xE958740C, 0x2020CEDB,
+            0xFDA7F286, 0xB5996F67, 0x38A890D1, 0xCC1CC3FA, 0x1CB7AB89,
+            0x564C6B9B, 0x7CB31462, 0x1EE1333B, 0xD029A0A4, 0xA15BEC63,
+            0xAA10CC2C, 0x61E34C64, 0xA7F8A8F2, 0xDF77D921, 0xBC77C92C,
+            0x5410563C, 0xC5FC4197, 0xC74743B7, 0x702B5A2A, 0xCDB38439,
+            0x07925507, 0xFE35798B, 0x93649638, 0x7D8B6225, 0x6D1506D3,
+            0xC04206F6, 0x2B7D45C9, 0x5DC288EF, 0xE3E0F8A1, 0xD6FA8413,
+            0x4E663698, 0x70830D0A, 0x6DE83B6E, 0x897A8B8F, 0xF220BEAF,
+            0x58B62ED5, 0x97C4D489, 0xD702E33E, 0x078E6EF6, 0xE6E00491,
+            0x28746F41, 0x1F9FEE7B, 0xE295D1BA, 0x4E2D4E54, 0x124D36E9,
+            0x07EDD945, 0x7F070AFD, 0x2FF23DC1, 0xC68877BF, 0x76F241DE,
+            0x82A27513, 0x64E38DA6, 0x86A36097, 0x78BF9E65, 0x6CF0165F,
+            0xEC64DA15, 0x88545773, 0x4EB4218A, 0x5200483D, 0x59C94408,
+            0x22AD5CFF, 0xEB345ADA, 0x8457788A, 0xDC80DD6B, 0x9911EE64,
+            0xFC0EC574, 0x242F49AE, 0x4B47E142, 0xB764EAB8, 0xD4BFD6D6,
+            0x7E10DCF6, 0x650876FA, 0xCF9B755D, 0x80F64866, 0x002EC6C0,
+            0xD369A563, 0xDCEF16CD, 0x1F6D65A2, 0x0E938275, 0x5FD84B5B,
+            0xB5D10718, 0xBA1D0D71, 0x6A5F0C3D, 0xEEFD5CE0, 0xAD704C48};
+
+        // G, 3G, 5G, ..., 31G
+        static final int[] ODD_MULTIPLES = {
+            0x4A96B568, 0x8EF57328, 0x46646989, 0x68C38BB9, 0x13CBFC82,
+            0x23A62855, 0x3168947D, 0x59DCC912, 0x04235137, 0x7AC5FB32,
+            0x7B76FF54, 0x1EF363F2, 0xDF13DE16, 0x50BD48DA, 0xA958BC59,
+            0xC915CA79, 0x0D8C8877, 0xB55BE007, 0x9D12854F, 0xFE9F6F5A,
+            0xE705B180, 0xE41192ED, 0x772D1E2D, 0x424C1713, 0x03AD6C4E,
+            0x933FBE35, 0x078C8C01, 0x465DBF40, 0xA12B5833, 0x64B2A59C,
+            0x7A7F99D5, 0x6472F619, 0x577C4E8C, 0x9B3A35E9, 0x61472188,
+            0x8955C17A, 0x4AA7B3CA, 0x673C6D55, 0xEE00FAE6, 0x2552E356,
+            0x025393E4, 0x8E2B7B5D, 0xF8142CF7, 0x31E3F006, 0x64D93BBB,
+            0xE75DE5DF, 0x76185C0D, 0x233F23A2, 0xE7B973A9, 0x54694156,
+            0x919A63E6, 0xD6319896, 0x330549CC, 0xE0386972, 0x9C4E8282,
+            0x7EF14D9E, 0xDE750423, 0xD7ECD3BD, 0xA6BDF008, 0x946EFE31,
+            0x205B91A2, 0x06F4AC25, 0xAEF9708E, 0x89F5AEA0, 0xEAEB1EFC,
+            0xC7C429AA, 0xBC6FD424, 0x64431374, 0x9527C953, 0x98CC9351,
+            0x7DA67EE8, 0x3FB143EA, 0xDD34165E, 0x830D92CF, 0x98012168,
+            0x8BD0120A, 0xEE4F1E62, 0xD28493C3, 0xC064C54F, 0x5A47DF72,
+            0xF5E59728, 0x842FA97F, 0x4CC8271D, 0x49BC8442, 0x1F06A403,
+            0x62D1705F, 0x63B3AE69, 0x24C23D7F, 0x8EA188BE, 0x4CC31FFC,
+            0x78B0FEBF, 0xE280A19E, 0x995DFBA6, 0x1815042A, 0xD0C006BC,
+            0xE3124401, 0x5FF35E78, 0xD9A4BA76, 0x05A24CF5, 0xB6840856,
+            0x703A8DFF, 0x60EF4322, 0x16343B27, 0xCCA6AF68, 0x9D572781,
+            0x192DBC48, 0x90B7167A, 0xC2762D4A, 0xB89DAEF0, 0x446C9013,
+            0xE4BF4F9A, 0xDD50CC45, 0x00BFC02D, 0x2BAC4841, 0xE774F01B,
+            0xC0BD487C, 0xEAE0A37B, 0x1A083D01, 0x47BEC2B9, 0xF5838EFA,
+            0xAE6A150C, 0x5912E308, 0x67CE4843, 0xD25457B4, 0x84C33C83,
+            0xEF362CDA, 0x3AF2A33B, 0x15CD512E, 0x4BF5C1EB, 0xC41CEC11,
+            0xA3E33AEB, 0x16B8B30F, 0x28BE00A5, 0x4ED1D127, 0x8EF7E4C3,
+            0xEA331BAB, 0xC1F9C850, 0xCB6FE00C, 0x6E8D595A, 0x2F0A526A,
+            0x6B16C8C9, 0x7B9019C8, 0xE292BAD7, 0x9845523E, 0xD5884A21,
+            0x188CFE9F, 0xCA59BBBB, 0x2E10AA4E, 0x5FB53BE4, 0x54D0AF4A,
+            0x8A183D51, 0x43D21D51, 0x4A90E061, 0xD049816D, 0x6F13C4D3,
+            0xC238E12C, 0x2A46D82F, 0xADFB883D, 0xF46BDC28, 0x484F7CF2};
+    }
+
+    static final class Secp192r1 {
+        static final int[] N = {
+            0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0x99DEF836, 0x146BC9B1, 0xB4D22831};
+        static final int[] A = {
+            0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFE, 0xFFFFFFFF, 0xFFFFFFFC};
+        static final int[] B = {
+            0x64210519, 0xE59C80E7, 0x0FA7E9AB, 0x72243049, 0xFEB8DEEC, 0xC146B9B1};
+        static final int[] GX = {
+            0x188DA80E, 0xB03090F6, 0x7CBF20EB, 0x43A18800, 0xF4FF0AFD, 0x82FF1012};
+        static final int[] GY = {
+            0x07192B95, 0xFFC8DA78, 0x631011ED, 0x6B24CDD5, 0x73F977A1, 0x1E794811};
+
+        // comb table, entries 1 to 15, d = 48
+        static final int[] COMB = {
+            0x188DA80E, 0xB03090F6, 0x7CBF20EB, 0x43A18800, 0xF4FF0AFD, 0x82FF1012,
+            0x07192B95, 0xFFC8DA78, 0x631011ED, 0x6B24CDD5, 0x73F977A1, 0x1E794811,
+            0x67E30CBD, 0xCBA671FB, 0xEB2CDFAE, 0x5A927C35, 0xC39649C5, 0x5D7C48D8,
+            0xA93549C4, 0x5810F5C3, 0xCE32D03C, 0x06301577, 0x7A83CEE1, 0xECBFBE7D,
+            0xCE216BB8, 0x452006E0, 0xF29E6FEA, 0xDFC9BF1A, 0x6F5EF889, 0x66E3EAD3,
+            0xD98A2EE2, 0x5AAEC958, 0x1D0AEB4B, 0xB5B80A20, 0x46B9092D, 0x927B3779,
+            0x51A581D9, 0x184AC737, 0x4730D4F4, 0x80D1090B, 0xB19963D8, 0xC0A1E340,
+            0x5BD81EE2, 0xE0BB9F6E, 0x7CDFCEA0, 0x2F683F16, 0xECC56731, 0xE69912A5,
+            0x0C730691, 0xD0F8DC24, 0x0757EEA7, 0xF292C341, 0xE4B15A2D, 0xD4F43374,
+            0x31B24C31, 0x9354DE3E, 0x008A9E83, 0xE9DE8708, 0xDF797890, 0xBBF45E00,
+            0xF0F40883, 0x61D24416, 0xC94C21D9, 0xF84F41E1, 0xCB5EC043, 0xDDF63ABA,
+            0x27853C1A, 0xE13EA488, 0xE5DE3B5B, 0x16BCD0CA, 0xF37585B0, 0x406495F7,
+            0x0611DEA3, 0x9716469F, 0x749E528E, 0xEE29F7A9, 0xD074232A, 0x8E8AE68F,
+            0xF9546052, 0x8338BDC9, 0x6A654654, 0x3A727DE6, 0x66B867DD, 0x0D8043CC,
+            0x04BC1F71, 0x951F7513, 0x1C245C02, 0xB904B596, 0xB6EB7193, 0x0C5D8F50,
+            0x150096E7, 0xFD69F8D0, 0x8BEC948A, 0x8C21962A, 0xA4D0916E, 0xBE34803D,
+            0x9F56D96C, 0xECA3BA2A, 0x7D69A0B0, 0x4322D065, 0xBD44FFE8, 0xE71AAC0C,
+            0xA4E07FB3, 0x35DE73D9, 0x837D62DD, 0xC3F4575A, 0xEE59F0D1, 0x25A59DCE,
+            0xE95AD210, 0xF3185C11, 0xFF549832, 0xA33D44B0, 0xEC76760C, 0x1CF46AE2,
+            0xA5EA86F6, 0x8F3A27C8, 0x51D39136, 0xB0AB1169, 0x273E5EC5, 0x38ED372E,
+            0x0DA65E86, 0x285C120C, 0x953636EE, 0x56338E9B, 0x291237EA, 0x74D2D7D5,
+            0x26D65C2E, 0x3AA06272, 0xFC898AB9, 0x978391B2, 0x1302F04C, 0xF13C3233,
+            0x91F199F2, 0xE5BBE86D, 0x45DB23AE, 0xFE113C6C, 0xD50947A8, 0x18C5EFE6,
+            0xECCD57E8, 0xAC8D8A19, 0x387343E9, 0x475DAEA4, 0x376881B6, 0x60FEC064,
+            0x2298F204, 0xCE6A83F9, 0x374C0A4C, 0x192EBCD6, 0xC9FEF5B9, 0x5B510228,
+            0xE713A400, 0x10C3C949, 0x06D58644, 0xEFEB2CC0, 0x46E4B820, 0xF4C574D0,
+            0xD873CED7, 0x6CB7BE1F, 0x27AF7D5E, 0xB85E1F99, 0x6178CB0E, 0x2D64EEDF,
+            0xFC599808, 0xDC41F8E2, 0xA3D7B957, 0x6004D9AD, 0xEFC9129C, 0x52A67F9C,
+            0xFAA9E432, 0x154E061C, 0xAD167EF0, 0xD7F93BF4, 0xBB6C6B59, 0x7FDF928A,
+            0xD877CDDD, 0xD6AE3CF3, 0x6101B2BE, 0xD5F7E08F, 0x0C3D0D63, 0xD52C8F3F};
+
+        // G, 3G, 5G, ..., 31G
+        static final int[] ODD_MULTIPLES = {
+            0x188DA80E, 0xB03090F6, 0x7CBF20EB, 0x43A18800, 0xF4FF0AFD, 0x82FF1012,
+            0x07192B95, 0xFFC8DA78, 0x631011ED, 0x6B24CDD5, 0x73F977A1, 0x1E794811,
+            0x76E32A25, 0x57599E6E, 0xDCD28320, 0x1FB2B9AA, 0xDFD0D359, 0xCBB263DA,
+            0x782C37E3, 0x72BA4520, 0xAA62E0FE, 0xD121D49E, 0xF3B54366, 0x0CFD05FD,
+            0x10BB8E98, 0x40049B18, 0x3E078D9C, 0x300E1605, 0x590118EB, 0xDD7FF590,
+            0x31361008, 0x476F917B, 0xADC9F836, 0xE62762BE, 0x312B7254, 0x3CCEAEA1,
+            0x8DA75A1F, 0x75DDCD76, 0x60F92324, 0x3060EDCE, 0x5DE37F00, 0x7011FCFD,
+            0x57CB5FCF, 0x6860B354, 0x18240DB8, 0xFDB3C01D, 0xD4B702F9, 0x6409FFB5,
+            0x818A4D30, 0x8B1CABB7, 0x4E9E8F2B, 0xA8D27C9E, 0x1D9D375A, 0xB980388F,
+            0x01D1AA5E, 0x208D87CD, 0x7C292F7C, 0xBB457CDF, 0x30EA5421, 0x76C8E739,
+            0x1C995995, 0xEB76324F, 0x1844F716, 0x4D22B652, 0x28094037, 0x0628A2AA,
+            0xEF1765CE, 0x37E9EB73, 0x029F5564, 0x00FA77BD, 0xB34CB861, 0x1AAA9C04,
+            0x112AF141, 0xD33EFB9F, 0x2F68821E, 0x051E4EA0, 0x04144A36, 0x3C4A090A,
+            0x6E0CBE3B, 0xFC5293F7, 0x2A2C1726, 0xE081E09E, 0x7F10A094, 0x432B1C1E,
+            0x8C9595E6, 0x3B56B633, 0xBA3546B2, 0xB5414DE7, 0x36DE4A9E, 0x7578B1E7,
+            0x266B762A, 0x934F00C1, 0x7CF38799, 0x3AA566B6, 0xAD7537CD, 0xD98FC7B1,
+            0x44275CD2, 0xE1F46DC3, 0xF9F57636, 0xC2B4213B, 0x8BB44593, 0x0510FF8A,
+            0xEFAD8348, 0xFDE30C87, 0xDE438612, 0xA818E98D, 0x9B76A67A, 0xD25DDFD0,
+            0xC0626BCF, 0x247DE5D3, 0x07FD8392, 0x38D72688, 0x774FC97A, 0x1CF8AD1B,
+            0x9CDC99D7, 0x53973DC1, 0x97E12778, 0xE829C804, 0xEC1A6B4E, 0x71FAA20A,
+            0xE080B24C, 0x0B653A48, 0x67FE6887, 0x3CF5E52C, 0x29209B3D, 0xBC50E857,
+            0x0D0FCB85, 0x6066EF97, 0xFD38E0C4, 0x82865EAA, 0x58F4E600, 0x97125604,
+            0x8F9D61C0, 0x41CF588A, 0xED22D19C, 0x184FAA9E, 0xE980559F, 0x4BA764CE,
+            0x0875DE0F, 0xF4E0C92F, 0x1FAD57AB, 0x09F23EAD, 0xA33E82A3, 0xCA2251D4,
+            0xA530C136, 0x6AA0723D, 0xA40C6670, 0xBE0F11FE, 0x9CFA98E3, 0x55390164,
+            0x3BAA652F, 0x61EA88A6, 0xF46AC407, 0x7C9A8B37, 0xCA8B49E6, 0xC5E66E62,
+            0x1C0A5585, 0x49162FE7, 0xC5D7274A, 0x730E9F58, 0xCE960BC9, 0x958D3288,
+            0x618AEECD, 0x7C6D796F, 0x0FA9BA33, 0x12490CDB, 0xFA0F3488, 0xF2FCD59A,
+            0xC013B8CB, 0x3620F448, 0x2F9E82FD, 0xE0AE9EEE, 0xF53CCFA0, 0xF05B46F3,
+            0x2D1B8F08, 0x91E05DE2, 0x879B6240, 0x217AFB4F, 0xC778CB2C, 0x717D0EFB,
+            0x2B003CB1, 0xE24D4B79, 0x445E2E3C, 0x461CDC69, 0x7A545AA0, 0xDF5AF1F8,
+            0xFF5D8E60, 0x96E2A487, 0x7EFAE76A, 0x3EC5DEAF, 0x9A71402C, 0xE619C94C};
+    }
+
+    static final class Secp224r1 {
+        static final int[] N = {
+            0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFF16A2, 0xE0B8F03E, 0x13DD2945, 0x5C5C2A3D};
+        static final int[] A = {
+            0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFE, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFE};
+        static final int[] B = {
+            0xB4050A85, 0x0C04B3AB, 0xF5413256, 0x5044B0B7, 0xD7BFD8BA, 0x270B3943, 0x2355FFB4};
+        static final int[] GX = {
+            0xB70E0CBD, 0x6BB4BF7F, 0x321390B9, 0x4A03C1D3, 0x56C21122, 0x343280D6, 0x115C1D21};
+        static final int[] GY = {
+            0xBD376388, 0xB5F723FB, 0x4C22DFE6, 0xCD4375A0, 0x5A074764, 0x44D58199, 0x85007E34};
+
+        // comb table, entries 1 to 15, d = 56
+        static final int[] COMB = {
+            0xB70E0CBD, 0x6BB4BF7F, 0x321390B9, 0x4A03C1D3, 0x56C21122, 0x343280D6, 0x115C1D21,
+            0xBD376388, 0xB5F723FB, 0x4C22DFE6, 0xCD4375A0, 0x5A074764, 0x44D58199, 0x85007E34,
+            0x1F49BBB0, 0xF99BC522, 0x42DF8D8A, 0x2A43BCA7, 0x664D40CE, 0x5EFD9675, 0x666EBBE9,
+            0x9812DD4E, 0xB8D321DC, 0x858F1853, 0x10D0ECE8, 0x608436E6, 0x6229E0B8, 0x92DC9C43,
+            0xEEDCCCD8, 0xC2A74816, 0xE9A3BBCE, 0x8A3F559E, 0xED1CB362, 0xF16D3E67, 0x8D5D8EB8,
+            0x5CB379BA, 0x910A1731, 0x3865468F, 0xAFECABF2, 0xB4BF65F9, 0xDFF19F90, 0xED50266D,
+            0x0499AA8A, 0x5F8EBEEF, 0xEC27A4E1, 0x3A0B91FB, 0x2991FAB0, 0xA0064196, 0x6CAB26E3,
+            0x6916F6D4, 0x338C5B81, 0xD77AAE82, 0xF70684D9, 0x29610D54, 0x50751040, 0x7766AF5D,
+            0x932B56BE, 0x7685A3DD, 0x323AE4D1, 0xC8B10860, 0x00905E82, 0xD4EA95AC, 0x3B1F15C6,
+            0x523E80F0, 0x19062AFD, 0xEC76DBE2, 0xA8A74166, 0x5960F390, 0xF09EF93D, 0xEA25DBBF,
+            0xC391B45C, 0x84725C36, 0x3F37347C, 0x1BA4A01C, 0x83531B5D, 0x0F822FDD, 0x26732C73,
+            0x1EFB7890, 0xEDE244C3, 0x93DA7E22, 0x2A7FDDFB, 0xCDE19DFA, 0xECBBD5E1, 0xB2D6AD24,
+            0x2610B394, 0x09F849FF, 0x8D33C2C9, 0x8B7CD11B, 0xECA79159, 0xBB4C9E90, 0xCA217DA1,
+            0xFE67E4E8, 0x20B11296, 0x6C079B75, 0x3C89CDBB, 0x7B2C46B4, 0xFB44D135, 0x2AC64DA0,
+            0x05C73240, 0x899B4779, 0xB7619A3E, 0x7C4CC71B, 0x61D16F5C, 0x6EE28CAE, 0x2DF5312D,
+            0x72855882, 0xB0839464, 0x1FAB2116, 0xFD561861, 0x5165C56B, 0xDA9F7F63, 0x82C73E3A,
+            0x41C98768, 0xFB0C1DB8, 0x9DA93489, 0xA3E074A9, 0x8CA8D00F, 0xB5046918, 0x2F161C09,
+            0x0E5E0340, 0x8738A71C, 0xFE2D3FBF, 0x59E63DCE, 0x9FFBCA68, 0x55E5EA05, 0xFB32DA81,
+            0xCB0C5D0D, 0xC34F24E0, 0x3AB9F738, 0xBEB84430, 0x137A5DD2, 0xF6DAB22B, 0x2333E87F,
+            0xC40331DF, 0x89388192, 0x81D688BC, 0xBE50185B, 0xA5C3FA20, 0x44764A7D, 0xF0C8FDA5,
+            0x1765BF22, 0xA5A9841A, 0x0C83FB48, 0x84DAADE9, 0x2BD26909, 0xA3B89530, 0x796F0F60,
+            0xE2A215D9, 0x6113694C, 0x1EDBA8B1, 0x4E2F23BC, 0x6C67CEC1, 0x6F772A9E, 0xE75DB09E,
+            0x6C7E4BE8, 0x3BBDE3C8, 0xAE85FADA, 0x74FEADE8, 0x86964105, 0x52571E50, 0x9FB5EFB3,
+            0x286D2DB3, 0xEE9A60A2, 0x946C53B5, 0x82F4B47C, 0xE2495A65, 0x39FF9F51, 0x160F4652,
+            0x215619E9, 0xCC0057BC, 0xEFBA6F47, 0xF6D00995, 0x183B1392, 0x6C40BBD5, 0x081A44AF,
+            0xE7E3F4B0, 0x982DB986, 0x31B93CDF, 0xE8B5F11C, 0x54A3694F, 0x6F8BC94D, 0x3B0DF45E,
+            0xC813132F, 0x4C07E91C, 0x29819435, 0xD2C6AC38, 0xF36FF8A1, 0xD8B17048, 0xAB3E1C7B,
+            0x1E28EBF1, 0x8562BCF5, 0x426BA5CC, 0x96740878, 0x1030579F, 0xEA289142, 0x5503B11F,
+            0xF1AEF351, 0x497C58FF, 0x17036691, 0xA97306CD, 0x91D28B5E, 0x4C9F3199, 0x7CC864EB,
+            0xEEA7471F, 0x96255874, 0xA684435B, 0xD693DEAD, 0x073B1402, 0xDBDD1F2D, 0x600564FF};
+
+        // G, 3G, 5G, ..., 31G
+        static final int[] ODD_MULTIPLES = {
+            0xB70E0CBD, 0x6BB4BF7F, 0x321390B9, 0x4A03C1D3, 0x56C21122, 0x343280D6, 0x115C1D21,
+            0xBD376388, 0xB5F723FB, 0x4C22DFE6, 0xCD4375A0, 0x5A074764, 0x44D58199, 0x85007E34,
+            0xDF1B1D66, 0xA551D0D3, 0x1EFF8225, 0x58B9D2CC, 0x75C21802, 0x79FE0D08, 0xFD896D04,
+            0xA3F7F03C, 0xADD0BE44, 0x4C0AA568, 0x30130DDF, 0x77D31734, 0x4E1AF359, 0x1981A925,
+            0x31C49AE7, 0x5BCE7807, 0xCDFF2205, 0x5D94EE90, 0x21FEDBB5, 0xAB51C575, 0x26F011AA,
+            0x27E8BFF1, 0x745635EC, 0x5BA0C9F1, 0xC2EDE154, 0x14C6507D, 0x29FFE37E, 0x790A079B,
+            0xDB2F6BE6, 0x30E246A5, 0xCF7D99B8, 0x5194B123, 0xD487E2D4, 0x66B94B24, 0xA03C3E28,
+            0x0F3A3008, 0x5497F2F6, 0x11EE2517, 0xB163EF8C, 0x53B715D1, 0x8BB4E480, 0x8D02B963,
+            0x2FDCCCFE, 0xE720A77E, 0xF6CB3BFB, 0xB447F938, 0x3117E3DA, 0xA4A07E36, 0xED15F78D,
+            0x371732E4, 0xF41BF4F7, 0x883035E6, 0xA79FCEDC, 0x0E196EB0, 0x7B481716, 0x97517463,
+            0xEF53B629, 0x4ACA431F, 0x0F3C22DC, 0x82EB9050, 0x324F1D88, 0xD377E716, 0x448E507C,
+            0x20B51000, 0x4092E966, 0x36CFB7E3, 0x2EFDED82, 0x65C266DF, 0xB754FA6D, 0x6491A6DA,
+            0x34E8E17A, 0x430E4328, 0x9793C383, 0xFAC97742, 0x47B40E9E, 0xBD336698, 0x1FCFAECA,
+            0x252819F7, 0x1C7FB7FB, 0xCB159BE3, 0x37D37D33, 0x36D7FEB9, 0x63724FDF, 0xB0ECB767,
+            0xBAA4D863, 0x5511A7D2, 0x88AEBEED, 0xD12CE529, 0xFF102C91, 0xF97F867E, 0x21916BF9,
+            0x979A5F47, 0x59F80F4F, 0xB4EC2E34, 0xF5566D59, 0x5680A117, 0x35E7B610, 0x46127989,
+            0xB8357C3A, 0x6CEEF288, 0x310E17B8, 0xBFEFF920, 0x0846CA8C, 0x1942497C, 0x484403BC,
+            0xFF149EFA, 0x6606A6BD, 0x20EF7D1B, 0x06BD92F6, 0x904639DC, 0xE5174DB6, 0xCC554A26,
+            0xA1E81C04, 0xF30CE201, 0xC7C9ACE7, 0x85ED44CC, 0x33B455A0, 0x22F2ACDB, 0xC6CAE83C,
+            0xDCF1F6C3, 0xDB09C70A, 0xCC25391D, 0x492FE25B, 0x4A180BAB, 0xD6CEA356, 0xC04719CD,
+            0xA3D482C3, 0xE7EEC18C, 0x534D4CEB, 0x1C9B8CEF, 0xECB369A6, 0x8A85A4E8, 0x26165174,
+            0x64EE0059, 0x83EFAA9E, 0x4CB63478, 0xDBF72022, 0x72506F8E, 0x5C6263C7, 0x01167BF9,
+            0x2DA9B6B6, 0xEC26E646, 0xCEEF802C, 0x56078202, 0x6DA04BF2, 0xF2D196F4, 0xBCA2D074,
+            0xA7290CC0, 0x6600DC16, 0xD375FBC4, 0xB8499516, 0x6082CFD7, 0x64CA4E95, 0x1569C69B,
+            0xF1A7AE36, 0x4DBA054B, 0x51DFF5D5, 0xCE16FB28, 0x965FB377, 0x7DCA1CE3, 0xC1AD6AD0,
+            0x4EA00597, 0xEAC6DBAB, 0xA4C68CCE, 0xC78311FC, 0x0793680A, 0xE04B2D75, 0xE8D246A4,
+            0x1989153B, 0x5F6636B6, 0x10854BCC, 0x50AFC929, 0xE914C03D, 0xA51A4A82, 0x39F4865B,
+            0xB9381E6D, 0xC79B58E0, 0x443CDB00, 0x9164837A, 0xD450A68C, 0x19192F12, 0x6542796C,
+            0xF63F9D85, 0x5262E9B6, 0x91F9BB84, 0x8C788595, 0x08A8C1E6, 0xFB324621, 0x2E146E5C,
+            0x08A2A248, 0x78404A34, 0xE667D74E, 0xFBF18331, 0x65DF2E67, 0x2607D57E, 0xFFE3061D,
+            0x0ECF1B60, 0x836E92B7, 0xAF968BCC, 0xD69FF830, 0x0D55A42B, 0x0E855A4F, 0xF3546EAB,
+            0xB42895C4, 0xF2E16A4F, 0x9C2DD076, 0xF3971401, 0xDCD81C50, 0xED9EE370, 0x9943E2E0};
+    }
+
+    static final class Secp256r1 {
+        static final int[] N = {
+            0xFFFFFFFF, 0x00000000, 0xFFFFFFFF, 0xFFFFFFFF, 0xBCE6FAAD, 0xA7179E84, 0xF3B9CAC2, 0xFC632551};
+        static final int[] A = {
+            0xFFFFFFFF, 0x00000001, 0x00000000, 0x00000000, 0x00000000, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFC};
+        static final int[] B = {
+            0x5AC635D8, 0xAA3A93E7, 0xB3EBBD55, 0x769886BC, 0x651D06B0, 0xCC53B0F6, 0x3BCE3C3E, 0x27D2604B};
+        static final int[] GX = {
+            0x6B17D1F2, 0xE12C4247, 0xF8BCE6E5, 0x63A440F2, 0x77037D81, 0x2DEB33A0, 0xF4A13945, 0xD898C296};
+        static final int[] GY = {
+            0x4FE342E2, 0xFE1A7F9B, 0x8EE7EB4A, 0x7C0F9E16, 0x2BCE3357, 0x6B315ECE, 0xCBB64068, 0x37BF51F5};
+
+        // comb table, entries 1 to 15, d = 64
+        static final int[] COMB = {
+            0x6B17D1F2, 0xE12C4247, 0xF8BCE6E5, 0x63A440F2, 0x77037D81, 0x2DEB33A0, 0xF4A13945, 0xD898C296,
+            0x4FE342E2, 0xFE1A7F9B, 0x8EE7EB4A, 0x7C0F9E16, 0x2BCE3357, 0x6B315ECE, 0xCBB64068, 0x37BF51F5,
+            0x0FA822BC, 0x2811AAA5, 0x8492592E, 0x326E25DE, 0x29493BAA, 0xAD651F7E, 0x90E75CB4, 0x8E14DB63,
+            0xBFF44AE8, 0xF5DBA80D, 0x6F4AD4BC, 0xB3DF188B, 0x34B1A650, 0x50FE82F5, 0xE4112454, 0x5F462EE7,
+            0x300A4BBC, 0x89D6726F, 0xB257C0DE, 0x95E02789, 0xE96C98FD, 0x0D35F1FA, 0x93391CE2, 0x097992AF,
+            0x72AAC7E0, 0xD09B4644, 0x7F1DDB25, 0xFF1E3C6F, 0x5BB1EEAD, 0xA9D806A5, 0xAA54A291, 0xC08127A0,
+            0x447D739B, 0xEEDB5E67, 0xFB982FD5, 0x88C6766E, 0xFC35FF7D, 0xC297EAC3, 0x57C84FC9, 0xD789BD85,
+            0x2D4825AB, 0x834131EE, 0xE12E9D95, 0x3A4AAFF7, 0x3D349B95, 0xA7FAE500, 0x0C7E33C9, 0x72E25B32,
+            0xEF951932, 0x8A9C72FF, 0xDDC6068B, 0xB91DFC60, 0xEF7FBD2B, 0x1A0A11B7, 0x13949C93, 0x2A1D367F,
+            0x611E9FC3, 0x7DBB2C9B, 0xC1EE9807, 0x022C219C, 0x23183B08, 0x95CA1740, 0x196035A7, 0x7376D8A8,
+            0x55066379, 0x7B51F5D8, 0x7DEA6482, 0xE11238BF, 0x2936DF5E, 0xC6C9BC36, 0xCAE2B192, 0x0B57F4BC,
+            0x15716484, 0x8AECB851, 0x0AFA4001, 0x8D9D50E5, 0x9FB3D576, 0xDBDEFBE1, 0x44FFE216, 0x348A964C,
+            0xEB5D7745, 0xB21141EA, 0xA2E8F483, 0xF43E4391, 0x7CCD84E7, 0x0D715F26, 0xE48ECAFF, 0xFC5CDE01,
+            0xEAFD72EB, 0xDBECC17B, 0x0990E6A1, 0x58006CEE, 0x85F22CFE, 0x2844B645, 0xCAC917E2, 0x731A3479,
+            0xA6D39677, 0xA7849276, 0x2736FF83, 0x44315FC5, 0x96439591, 0xA3C6B94A, 0x6CF20FFB, 0x313728BE,
+            0x674F8474, 0x9B0B8816, 0x66B8BABD, 0x2D27ECDF, 0x824A920C, 0x2284059B, 0xF2BAB833, 0xC357F5F4,
+            0x4E769E76, 0x72C9DDAD, 0x31855F7D, 0xB8C7FEDB, 0x74E02F08, 0x0203A56B, 0x2DF48C04, 0x677C8A3E,
+            0x42B99082, 0xDE830663, 0x1EC00572, 0x06947281, 0xFB9AE16F, 0x3B9122A5, 0xA4C36165, 0xB824BBB0,
+            0x78878EF6, 0x1C6CE04D, 0x7FDC1CA0, 0x08A1C478, 0xD1F89E79, 0x9C0CE131, 0x6EF95150, 0xDDA868B9,
+            0xB6CB3F5D, 0x7B72C321, 0xDE53142C, 0x12309DEF, 0x6ACE570E, 0xBDE08D4F, 0x9C62B912, 0x1FE0D976,
+            0x0C88BC4D, 0x716B1287, 0x595C5220, 0x812FFCAE, 0x5B82DD5B, 0xD54FB496, 0x7F991ED2, 0xC31A3573,
+            0xDD5DDEA3, 0xF3901DC6, 0x18D1B5B3, 0x9C04E6AA, 0x7C8181F4, 0xDF2564F3, 0x3A57BF63, 0x5F48ACA8,
+            0x68F344AF, 0x6B317466, 0xEFE0A423, 0x083E49F3, 0x43A0A28C, 0x42BA792F, 0xE96A79FB, 0x3E72AD0C,
+            0x31B9C405, 0xF8540A20, 0x604ED93C, 0x24D67FF3, 0x668BFC22, 0x71F5C626, 0xCDFE17DB, 0x3FB24D4A,
+            0x4052BF4B, 0x6F461DB9, 0x663C62C3, 0xEDBAD7A0, 0x0D1A1014, 0x4EC39C28, 0xD36B4789, 0xA2582E7F,
+            0xFECF4D51, 0x90B0FC61, 0x862BE6BD, 0x71D70CC8, 0xE724F339, 0x99BFCC5B, 0x235A27C3, 0x188D25EB,
+            0x1EDDBAE2, 0xC802E41A, 0x123202A8, 0xF62BFF7A, 0xAFDF5CC0, 0x8526A7A4, 0x74346C10, 0xA1D4CFAC,
+            0x43104D86, 0x560EBCFC, 0x0C45F452, 0x73DB33A0, 0x36E06B7E, 0x4C701917, 0x8FA0AF2D, 0xD603F844,
+            0xB48E26B4, 0x84F7A21C, 0x0A4A46FB, 0x6AAF363A, 0x66B0DE32, 0x25C4744B, 0x9615B511, 0x0D1D78E5,
+            0xFAC01540, 0x4D4D3DAB, 0x64131BCD, 0xFED6F668, 0xC004E404, 0x8B7B0F98, 0x06EBB0F6, 0x21A01B2D};
+
+        // G, 3G, 5G, ..., 31G
+        static final int[] ODD_MULTIPLES = {
+            0x6B17D1F2, 0xE12C4247, 0xF8BCE6E5, 0x63A440F2, 0x77037D81, 0x2DEB33A0, 0xF4A13945, 0xD898C296,
+            0x4FE342E2, 0xFE1A7F9B, 0x8EE7EB4A, 0x7C0F9E16, 0x2BCE3357, 0x6B315ECE, 0xCBB64068, 0x37BF51F5,
+            0x5ECBE4D1, 0xA6330A44, 0xC8F7EF95, 0x1D4BF165, 0xE6C6B721, 0xEFADA985, 0xFB41661B, 0xC6E7FD6C,
+            0x8734640C, 0x4998FF7E, 0x374B06CE, 0x1A64A2EC, 0xD82AB036, 0x384FB83D, 0x9A79B127, 0xA27D5032,
+            0x51590B7A, 0x515140D2, 0xD784C856, 0x08668FDF, 0xEF8C82FD, 0x1F5BE524, 0x21554A0D, 0xC3D033ED,
+            0xE0C17DA8, 0x904A727D, 0x8AE1BF36, 0xBF8A7926, 0x0D012F00, 0xD4D80888, 0xD1D0BB44, 0xFDA16DA4,
+            0x8E533B6F, 0xA0BF7B46, 0x25BB3066, 0x7C01FB60, 0x7EF9F8B8, 0xA80FEF5B, 0x30062870, 0x3187B2A3,
+            0x73EB1DBD, 0xE0331836, 0x6D069F83, 0xA6F59000, 0x53C73633, 0xCB041B21, 0xC55E1A86, 0xC1F400B4,
+            0xEA68D7B6, 0xFEDF0B71, 0x878938D5, 0x1D71F872, 0x9E0ACB8C, 0x2C6DF8B3, 0xD79E8A4B, 0x90949EE0,
+            0x2A2744C9, 0x72C9FCE7, 0x87014A96, 0x4A8EA0C8, 0x4D714FEA, 0xA4DE823F, 0xE85A224A, 0x4DD048FA,
+            0x3ED113B7, 0x883B4C59, 0x0638379D, 0xB0C21CDA, 0x16742ED0, 0x255048BF, 0x433391D3, 0x74BC21D1,
+            0x9099209A, 0xCCC4C8A2, 0x24C843AF, 0xA4F4C68A, 0x090D04DA, 0x5E9889DA, 0xE2F8EEFC, 0xE82A3740,
+            0x177C837A, 0xE0AC495A, 0x61805DF2, 0xD85EE2FC, 0x792E284B, 0x65EAD58A, 0x98E15D9D, 0x46072C01,
+            0x63BB58CD, 0x4EBEA558, 0xA24091AD, 0xB40F4E72, 0x26EE14C3, 0xA1FB4DF3, 0x9C43BBE2, 0xEFC7BFD8,
+            0xF0454DC6, 0x971ABAE7, 0xADFB3789, 0x99888265, 0xAE03AF92, 0xDE3A0EF1, 0x63668C63, 0xE59B9D5F,
+            0xB5B93EE3, 0x592E2D1F, 0x4E6594E5, 0x1F9643E6, 0x2A3B21CE, 0x75B5FA3F, 0x47E59CDE, 0x0D034F36,
+            0x47776904, 0xC0F1CC3A, 0x9C0984B6, 0x6F75301A, 0x5FA68678, 0xF0D64AF8, 0xBA1ABCE3, 0x4738A73E,
+            0xAA005EE6, 0xB5B95728, 0x62318565, 0x77648E83, 0x81B28044, 0x28D5733F, 0x32F787FF, 0x71F1FCDC,
+            0xCB6D2861, 0x102C0C25, 0xCE39B7C1, 0x7108C507, 0x782C4522, 0x57884895, 0xC1FC7B74, 0xAB03ED83,
+            0x58D7614B, 0x24D9EF51, 0x5C35E710, 0x0D6D6CE4, 0xA496716E, 0x30FA3E03, 0xE3915075, 0x2BCECDAA,
+            0x3250FCF6, 0x86637C7B, 0x2E4AC86E, 0xB473BCA5, 0x3A582139, 0xF42B1523, 0xFD76364E, 0x67399E83,
+            0x42E7C342, 0x667D3593, 0x97B3090D, 0x1D7EB88C, 0x897CD3C3, 0x3B566A82, 0x15DE24A0, 0x71D48C09,
+            0x0E91C723, 0x9C2640D7, 0xD28A3E39, 0xD4583FA6, 0x3C0BC0A5, 0xDF64A4FE, 0x672E5730, 0x45CA7896,
+            0x5DF65C3B, 0x550DBA22, 0x1A22733B, 0xB8E0BD6D, 0x7E688335, 0x75E7A5AE, 0x13804654, 0x3140AD55,
+            0x3A67E255, 0x4B0C0BB6, 0x85F4F52D, 0x8C07FA84, 0x41652FC5, 0xB76F1B24, 0x84A4DC45, 0xF200D687,
+            0x27D0F187, 0x2F1FCF43, 0x26DAF267, 0x163AFB0D, 0x8C188AF7, 0x35A7618A, 0xA9ED16B3, 0x02F79324,
+            0x184FFA58, 0x19D80D51, 0xDEBA2FAC, 0x4611F378, 0x576355BD, 0x683E54AB, 0xF2E20117, 0x3B0883D1,
+            0xC0A66E27, 0x6688F359, 0xA4C6D908, 0x26CB9995, 0x45BDECCC, 0x63F04916, 0x20D242C2, 0x60906E6F,
+            0xD6D33ADE, 0xFA195B07, 0xA7C36DA0, 0x90853B8C, 0xFD8CD1C6, 0x88B58A41, 0xDEDD693D, 0x1C784DEF,
+            0x84AABA16, 0xEE195D7E, 0x3F78245F, 0x558A5DCB, 0x09A166AB, 0x4B95EDED, 0x550C1245, 0x93D1BCA6,
+            0x301D9E50, 0x2DC7E05D, 0xA85DA026, 0xA7AE9AA0, 0xFAC9DB7D, 0x52A95B3E, 0x3E3F9AA0, 0xA1B45B8B,
+            0x6551B6F6, 0xB3061223, 0xE0D23C02, 0x6B017D72, 0x298D9AE4, 0x6887CA61, 0xD58DB6AE, 0xA17EE267};
+    }
+
+    static final class Secp384r1 {
+        static final int[] N = {
+            0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF,
+            0xC7634D81, 0xF4372DDF, 0x581A0DB2, 0x48B0A77A, 0xECEC196A, 0xCCC52973};
+        static final int[] A = {
+            0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF,
+            0xFFFFFFFF, 0xFFFFFFFE, 0xFFFFFFFF, 0x00000000, 0x00000000, 0xFFFFFFFC};
+        static final int[] B = {
+            0xB3312FA7, 0xE23EE7E4, 0x988E056B, 0xE3F82D19, 0x181D9C6E, 0xFE814112,
+            0x0314088F, 0x5013875A, 0xC656398D, 0x8A2ED19D, 0x2A85C8ED, 0xD3EC2AEF};
+        static final int[] GX = {
+            0xAA87CA22, 0xBE8B0537, 0x8EB1C71E, 0xF320AD74, 0x6E1D3B62, 0x8BA79B98,
+            0x59F741E0, 0x82542A38, 0x5502F25D, 0xBF55296C, 0x3A545E38, 0x72760AB7};
+        static final int[] GY = {
+            0x3617DE4A, 0x96262C6F, 0x5D9E98BF, 0x9292DC29, 0xF8F41DBD, 0x289A147C,
+            0xE9DA3113, 0xB5F0B8C0, 0x0A60B1CE, 0x1D7E819D, 0x7A431D7C, 0x90EA0E5F};
+
+        // comb table, entries 1 to 15, d = 96
+        static final int[] COMB = {
+            0xAA87CA22, 0xBE8B0537, 0x8EB1C71E, 0xF320AD74, 0x6E1D3B62, 0x8BA79B98,
+            0x59F741E0, 0x82542A38, 0x5502F25D, 0xBF55296C, 0x3A545E38, 0x72760AB7,
+            0x3617DE4A, 0x96262C6F, 0x5D9E98BF, 0x9292DC29, 0xF8F41DBD, 0x289A147C,
+            0xE9DA3113, 0xB5F0B8C0, 0x0A60B1CE, 0x1D7E819D, 0x7A431D7C, 0x90EA0E5F,
+            0xF532389A, 0x060CBD1B, 0xD6E98B0D, 0x37CA7ABC, 0x43603909, 0x18141B1A,
+            0x4B58808B, 0x3F8686A9, 0x2C3E0C91, 0x558717DB, 0x39C1B328, 0xD8EE21C9,
+            0xB9D2852C, 0xC3B38E69, 0x6F04CAA2, 0xDE3A82BA, 0xBD22CFB2, 0xA2124163,
+            0xBC40CE5A, 0xBE643603, 0x31EA31B1, 0x085A4E9A, 0x7A7E1839, 0x23D86ECD,
+            0x528EF167, 0x0A5F2CAB, 0xC3DECD0C, 0x86F06145, 0xBBBC4FD0, 0x17A31B22,
+            0xDA9D5483, 0x5FAEFA4F, 0xF8F4BE11, 0x32CDF03C, 0x264E5246, 0xEB09A0E5,
+            0x7B9B1FBE, 0x7BCCF56C, 0x5803EAA1, 0x1A1DCF14, 0xF8B76FDD, 0x631D058D,
+            0xBD60CAB4, 0xC87FED22, 0x550538A8, 0x09CB7524, 0x8A1E9858, 0xC14F0DD6,
+            0xC19E0B4C, 0x800119C4, 0x40F7F9E7, 0x06421279, 0xB42A31AF, 0x8A3E297D,
+            0xDB298789, 0x4D10DDEA, 0xBA065458, 0xA4F52D78, 0xA628B09A, 0xAA03BD53,
+            0x16F3FDBF, 0x0356B301, 0xE5A0191D, 0x1F5B77F6, 0x577A30EA, 0xE3567AF9,
+            0xC1C7CAD1, 0x35F6EBF2, 0xAF68AA6D, 0xE639D858, 0x822D0FC5, 0xE6C88C41,
+            0xAAB8BB9F, 0x0FDC3088, 0x567A6233, 0xCD6CE3A3, 0x9BB183B2, 0x70B375DD,
+            0xD37DE424, 0xB860FAE6, 0x9097DBB1, 0xC6CB0017, 0x30991560, 0xAA133909,
+            0x48942F81, 0x314F6D28, 0xF0AF01D1, 0x282050B5, 0xF6005FC8, 0x15EB04AC,
+            0x6D955BB3, 0xC9747BF3, 0xEBDF73F2, 0xD62FAA44, 0x16C5B981, 0x600AD5A6,
+            0x7334A936, 0xA9A6A052, 0x7022F802, 0xCB367444, 0xCE0FBA30, 0x77C0F03F,
+            0x54BA4599, 0x567D6342, 0x2347D2C8, 0x9EF281C8, 0x20221121, 0x7716605E,
+            0x7FFCEFF7, 0xF632C926, 0x1F7C5C36, 0x7CBD4CCD, 0x8E5D9B89, 0x7D0E017A,
+            0x9E2EEE8F, 0x697A9280, 0x0A64D519, 0xC2BD0EFA, 0xB5461F68, 0xD658A01A,
+            0xDC916C17, 0x960E090E, 0xFAFCE26E, 0x0381EF13, 0xBF88DE7F, 0x4862B954,
+            0x25651D10, 0x5052DD32, 0x451C707A, 0x371A2CA5, 0x300AE2E6, 0x0E758344,
+            0x266E8A40, 0xD69ECA0A, 0xB3D92EA4, 0x701C2952, 0x52D154B8, 0x0BA04A35,
+            0x40896478, 0xCC160697, 0x95C01FF1, 0x9B42441B, 0xED17CC44, 0x026B0889,
+            0xB2D10558, 0x17CBAA12, 0x21190503, 0x5F4972D7, 0x097DA395, 0xA2309686,
+            0x3D8B29DB, 0xD08848C2, 0xF33A450A, 0xD156F761, 0xE4BFC2C0, 0x4905CA71,
+            0x354CD872, 0xC3C6CBD2, 0x237C0DBA, 0x3CFD056B, 0xF82BE8F5, 0x2E6236C0,
+            0x9B475D74, 0x4ECF1A68, 0xE87AB07C, 0x6924666F, 0xDDCEBB55, 0x753EE324,
+            0x00B19AC8, 0xFDFEBFEC, 0x30B0A9E8, 0x611EF638, 0x103DF785, 0x5C201558,
+            0x47FC87FA, 0xF0712210, 0x197D6958, 0x819CF043, 0x8D104D24, 0x708D4CEE,
+            0xA72F9105, 0x9EE36031, 0x1418FE25, 0xE9F6EDC4, 0xCDBB3CD2, 0xE754220D,
+            0x68810282, 0x636164C5, 0xBB7C969C, 0x2228FF5F, 0xD40E8D6F, 0xD201E03E,
+            0x3F9561E0, 0x8BF0B27E, 0x136DF36B, 0x75203A36, 0x17E9411F, 0x685E926D,
+            0xC3B6AC4B, 0xE86C46BD, 0x2CC02451, 0x97D53FFD, 0x64D2C273, 0xB769737A,
+            0x0B06F006, 0x39629587, 0x4B1A5A20, 0x412AB641, 0xCFCED664, 0x6F52E4CB,
+            0xEA088747, 0x8554E014, 0xC34BE586, 0xF9867A60, 0xDD6FF8D5, 0x27E990A7,
+            0x9FD7B010, 0xDF0F66D7, 0x15274E5B, 0x8980F137, 0x539F94AD, 0x522C2931,
+            0xB83A1861, 0x88E95532, 0x325C51E7, 0x785D3EF7, 0x044C0DD2, 0x85651F82,
+            0x321AA9A3, 0xB9260225, 0x795F6FA3, 0xC9739246, 0x929226BD, 0x149033DE,
+            0x0A806B54, 0xBE8A04E3, 0xD44EBA45, 0x25D7D211, 0xE4A7B94A, 0x4064E4C0,
+            0x36A543EE, 0xA87A68F7, 0x2CAEBBD3, 0x16EE3E13, 0xEBD1CFF8, 0x4C6A9964,
+            0x2E4C2956, 0x7D49C780, 0x2901B519, 0x1D928983, 0x49BCC2F5, 0x8B707B8E,
+            0xF277BACD, 0xA50EE41C, 0xD349AB03, 0x78A67847, 0x58EAFF04, 0x8FBD85D1,
+            0x91235072, 0xD4B3394D, 0x1510E7D4, 0x3EF2267E, 0x75B41C29, 0xB569946D,
+            0x026E0DC2, 0xE8CB7AEB, 0xE2B067CA, 0xA08B6A51, 0x3AFCBD79, 0x6D01A5A8,
+            0xEBB31209, 0xDC7C421D, 0xE92CDC5A, 0xB483283D, 0x10B05658, 0x5F863BBD,
+            0xAE8866BA, 0xD8EF24E1, 0x4BE25637, 0x8C7461A5, 0xD68D1FFC, 0x1F3443D8,
+            0x17EA2701, 0x10781E45, 0x64C15FAC, 0xD8C6CF36, 0xD8C35029, 0x02DDE18A,
+            0xB03DFA54, 0xC52AFA2D, 0x14DAFC39, 0x81A73DC7, 0xDF459EA1, 0xC42BF748,
+            0xEF98FDDE, 0x8FD8D817, 0x1A29F8EF, 0x6C8F83D3, 0xAC3A78D0, 0xD265A91C,
+            0x2CE2885A, 0x0E6D85F2, 0xAAFD1FCF, 0xCE6D908A, 0xF5F8A2D1, 0x8ACCF229,
+            0xEF5D9006, 0x78F602DD, 0xCD120B2B, 0x41FD72CA, 0xCC406F6E, 0x6C0D2CE7,
+            0x1264CB33, 0x5766C96A, 0x59CFCA71, 0x55977D23, 0x4BC2FDCF, 0xF983AC6C,
+            0xA8206169, 0xC48B5AB0, 0xC8C12E75, 0x7FFCD01E, 0x89109A0E, 0xC62666DE,
+            0x119EBEEE, 0xA1A1A376, 0xD94AD8FA, 0xC53B4F69, 0xB66717A0, 0x65A5F248,
+            0xCBF7190C, 0xFFB19758, 0x31D28707, 0xE4483EC5, 0x6B691381, 0x2E014B4B};
+
+        // G, 3G, 5G, ..., 31G
+        static final int[] ODD_MULTIPLES = {
+            0xAA87CA22, 0xBE8B0537, 0x8EB1C71E, 0xF320AD74, 0x6E1D3B62, 0x8BA79B98,
+            0x59F741E0, 0x82542A38, 0x5502F25D, 0xBF55296C, 0x3A545E38, 0x72760AB7,
+            0x3617DE4A, 0x96262C6F, 0x5D9E98BF, 0x9292DC29, 0xF8F41DBD, 0x289A147C,
+            0xE9DA3113, 0xB5F0B8C0, 0x0A60B1CE, 0x1D7E819D, 0x7A431D7C, 0x90EA0E5F,
+            0x077A41D4, 0x606FFA14, 0x64793C7E, 0x5FDC7D98, 0xCB9D3910, 0x202DCD06,
+            0xBEA4F240, 0xD3566DA6, 0xB408BBAE, 0x5026580D, 0x02D7E5C7, 0x0500C831,
+            0xC995F7CA, 0x0B0C4283, 0x7D0BBE96, 0x02A9FC99, 0x8520B41C, 0x85115AA5,
+            0xF7684C0E, 0xDC111EAC, 0xC24ABD6B, 0xE4B5D298, 0xB65F2860, 0x0A2F1DF1,
+            0x11DE24A2, 0xC251C777, 0x573CAC5E, 0xA025E467, 0xF208E51D, 0xBFF98FC5,
+            0x4F6661CB, 0xE56583B0, 0x37882F4A, 0x1CA297E6, 0x0ABCDBC3, 0x836D84BC,
+            0x8FA696C7, 0x7440F92D, 0x0F5837E9, 0x0A00E7C5, 0x284B4477, 0x54D5DEE8,
+            0x8C986533, 0xB6901AEB, 0x3177686D, 0x0AE8FB33, 0x184414AB, 0xE6C1713A,
+            0x283C1D73, 0x65CE4788, 0xF29F8EBF, 0x234EDFFE, 0xAD6FE997, 0xFBEA5FFA,
+            0x2D58CC9D, 0xFA7B1C50, 0x8B05526F, 0x55B9EBB2, 0x040F05B4, 0x8FB6D0E1,
+            0x9475C990, 0x61E41B88, 0xBA52EFDB, 0x8C169047, 0x1A61D867, 0xED799729,
+            0xD9C92CD0, 0x1DBD2256, 0x30D84EDE, 0x32A78F9E, 0x64664CDA, 0xC512EF8C,
+            0x8F0A39A4, 0x049BCB3E, 0xF1BF29B8, 0xB025B78F, 0x2216F729, 0x1E6FD3BA,
+            0xC6CB1EE2, 0x85FB6E21, 0xC388528B, 0xFEE2B953, 0x5C55E446, 0x1079118B,
+            0x62C77E14, 0x38B601D6, 0x452C4A53, 0x22C3A979, 0x9A9B3D7C, 0xA3C400C6,
+            0xB7678854, 0xAED9B302, 0x9E743EFE, 0xDFD51B68, 0x262DA4F9, 0xAC664AF8,
+            0x099056E2, 0x7DA7B998, 0xDA1EEEC2, 0x904816C5, 0x7FE935ED, 0x5837C374,
+            0x56C9FD14, 0x892D3F8C, 0x4749B66E, 0x3AFB81D6, 0x26356F3B, 0x55B4DDD8,
+            0x2E4C0C23, 0x4E30AB96, 0x68850554, 0x4AC5E039, 0x6FC4EED8, 0xDFC363FD,
+            0x43FF93F4, 0x1B52A325, 0x5466D512, 0x63AAFF35, 0x7D5DBA81, 0x38C5E0BB,
+            0xA567BA97, 0xB67AEA5B, 0xAFDAF500, 0x2FFCC6AB, 0x9632BFF9, 0xF01F873F,
+            0x6267BCD1, 0xF0F11C13, 0x9EE5F441, 0xABD99F1B, 0xAAF1CA1E, 0x3B5CBCE7,
+            0xDE1B38B3, 0x989F3318, 0x644E4147, 0xAF164ECC, 0x51855950, 0x46932EC0,
+            0x86329BE0, 0x57857D66, 0x776BCB82, 0x72218A7D, 0x6423A127, 0x36F429CC,
+            0xB3D13FC8, 0xB32B0105, 0x8CC15C11, 0xD8135255, 0x22A94156, 0xFFF01C20,
+            0x5B21F9F7, 0xDA7C4E9C, 0xA849557A, 0x10B6383B, 0x4B88701A, 0x9606860B,
+            0x152919E7, 0xDF9162A6, 0x1B049B25, 0x36164B1B, 0xEEBAC4A1, 0x1D749AF4,
+            0x84D11143, 0x73DFBFD9, 0x838D24F8, 0xB284AF50, 0x985D588D, 0x33F7BD62,
+            0x40999522, 0x08B48896, 0x00A5EBBC, 0xB13E1A32, 0x692BEFB0, 0x733B41E6,
+            0xDCC614E4, 0x2E5805F8, 0x17012A99, 0x1AF1F486, 0xCAF3A9AD, 0xD9FFCC03,
+            0x5ECF9477, 0x78330598, 0x39474594, 0xAF603598, 0x163AD3F8, 0x008AD0CD,
+            0x9B797D27, 0x7F2388B3, 0x04DA4D2F, 0xAA9680EC, 0xFA650EF5, 0xE23B09A0,
+            0x8D481DAB, 0x912BC8AB, 0x16858A21, 0x1D750B77, 0xE07DBECC, 0xA86CD9B0,
+            0x12390B43, 0x0467AABF, 0x59C86510, 0x60801C0E, 0x9599E687, 0x13F5D41B,
+            0xA1592FF0, 0x12146085, 0x7BE99F2A, 0x60669050, 0xB2291B68, 0xA1039AA0,
+            0x594B32FD, 0x7ADC0E8C, 0x11FFBA56, 0x08004E64, 0x6995B07E, 0x75E52245,
+            0x27935DF4, 0xE25C6F47, 0xC7817121, 0x057D46E1, 0x60629098, 0x5F8283F5,
+            0xF9936136, 0xBF42CDB7, 0x46A37313, 0xDF88FD64, 0x626B4C17, 0x5EB77422,
+            0x380A1A3B, 0x4898D4CD, 0x9AB1A379, 0x8D1E3524, 0xA4F2D4AE, 0xC079C6B7,
+            0x585D9C4E, 0x6C615B53, 0x2B6F8D98, 0x38EF0C13, 0x9D5606EB, 0x10C69F84,
+            0x3CB647A5, 0xDF014C23, 0xE741A4A8, 0x000D5EB8, 0x22C0102F, 0xD4293A78,
+            0xA68749C3, 0x0C7F9AA4, 0x84A900A9, 0x1F7C4AB5, 0x1E555EBC, 0x684AAC81,
+            0x28300479, 0xA8F88DD0, 0x4966F85E, 0xBDC18CB4, 0x6103C7B0, 0x218BC837,
+            0x7AFBF055, 0x7EAD6368, 0x09BE21F6, 0x414B9BE2, 0x79B65FEA, 0x0D5A2B14,
+            0xE4C6D5CB, 0x9183A670, 0x9EE9EB52, 0x67946762, 0x07C4D76F, 0xAB5CE0A3,
+            0x555746BD, 0x28FDA974, 0x31A8A58B, 0x3DCB2CA4, 0x46F41BE8, 0x3716BE9A,
+            0xA3724552, 0x3AA57845, 0xC0027F16, 0x5DD74CA9, 0x5942E18D, 0x15922F20,
+            0x6280B8AF, 0xE5D6A5A2, 0x09A957BB, 0xAC49722C, 0xFFAF54D7, 0xE6AAC897,
+            0x9C5FA2C1, 0x3F418E62, 0x3C316D5A, 0x82C8B705, 0x08E3ACAA, 0x2B4A8D3A,
+            0x4ACB49C0, 0xD7BA04E2, 0x20761BC1, 0x5898E1B0, 0x6B4EEDFA, 0x23E2E546,
+            0xF641DE0C, 0xB075851A, 0x5AFE8150, 0x3CB7BF61, 0x94FDF1B7, 0xDA9E5955,
+            0x6F015651, 0xBD9218E3, 0x0EF2C4B2, 0x213F519B, 0x529FB564, 0x79F48752,
+            0xF1BC35F9, 0x656C6EEA, 0xD7B75810, 0xCE554EE5, 0x6E0AF4F4, 0x1CBCDE50,
+            0xFA46D04F, 0x4D4DFCA2, 0xAD69E407, 0xF57B1E27, 0x977BB83B, 0x1EB1A373,
+            0x2458497A, 0x559BCDCC, 0xF733C547, 0xC0F2B3DC, 0x8D7AEC77, 0x6D94FC70,
+            0x531F7096, 0x0A30E838, 0x3FFE8F51, 0x47848A0E, 0x53E0D05E, 0xF28FAF29,
+            0xF2E6F06F, 0x0EA533E8, 0x04FCFA12, 0xC087D446, 0xC73E3336, 0x394C98C5,
+            0x9D399312, 0x4D374E62, 0x061FA485, 0xBD1B8A65, 0x0C8361DB, 0xA9EB28B9,
+            0x8F86E464, 0xC200BC46, 0xF9E44261, 0x2FCFFBD1, 0x4A041A86, 0x51780D31,
+            0x3FB0B9AC, 0x114251CD, 0x3E8802C6, 0xD2FC9EBF, 0x3152F5BA, 0x7852680C};
+    }
+}
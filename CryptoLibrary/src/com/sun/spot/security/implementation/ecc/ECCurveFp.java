@@ -33,35 +33,80 @@ package com.sun.spot.security.implementation.ecc;
 
 public final class ECCurveFp extends ECCurve {
     
+    // Width of the fixed-base comb used to multiply the generator. The
+    // comb table holds 2^COMB_WIDTH - 1 points in affine coordinates.
+    private static final int COMB_WIDTH = 4;
+    
+    // Largest window width accepted by multiply(). A table for width w
+    // holds 2^(w-1) points, half of them negated.
+    public static final int MAX_WNAF_WIDTH = 6;
+    
+    // Window width for points whose table of 2^(w-1) points is computed
+    // once and then reused, like the generator in multiplyGeneratorSum().
+    private static final int FIXED_WNAF_WIDTH = 6;
+    
     protected final boolean aIsMinus3;
-    protected final int[] t1;
-    protected final int[] t2;
-    protected final int[] t3;
-    protected final int[] t4;
+    
+    // window width used by multiply(ECPoint, int[])
+    private final int wnafWidth;
+    
+    // comb table for the generator, built on first use
+    private ECPoint[] combTable;
+    
+    // wNAF table for the generator, built on first use
+    private ECPoint[] generatorTable;
+    
+    // the affine points of both tables as 32 bit words, if the curve has
+    // them precomputed, see ECCurveConstants
+    private int[] combConstants;
+    private int[] oddMultipleConstants;
     
     public ECCurveFp(PrimeField field, int[] a, int[] b, int[] genX, int[] genY, PrimeField order, int h) {
         super(field, a, b, genX, genY, order, h);
         
         // check if A == -3
         // in this case we can use a slightly faster point doubling algorithm
-        t1 = ffa.acquireVar();
-        t2 = ffa.acquireVar();
-        t3 = ffa.acquireVar();
-        t4 = ffa.acquireVar();
+        int[] t1 = ffa.acquireVar();
         ffa.set(t1, 3);
         field.negate(t1, t1);
         aIsMinus3 = (ffa.cmp(t1, a) == 0);
+        ffa.releaseVar(t1);
+        
+        wnafWidth = getWindowWidth(order.getBitSize());
+    }
+    
+    // returns the window width for multiply() on a curve with an order of
+    // the given bit size (see WindowWidthBenchmark)
+    private static int getWindowWidth(int bits) {
+        if (bits <= 160) {
+            return 4;
+        } else {
+            return 5;
+        }
     }
     
     public void add(ECPoint a, ECPoint b) {
         // Algorithm 3.22
         // D. Hankerson, A. Menezes, S. Vanstone: Guide to Elliptic Curve Cryptography
+        if (ffa.is(a.z, 0)) {
+            // a is the point at infinity
+            copy(a, b);
+            return;
+        }
+        
         int[] x1 = a.x;
         int[] y1 = a.y;
         int[] z1 = a.z;
         int[] x2 = b.x;
         int[] y2 = b.y;
         
+        // temporaries are acquired per call, so that several threads can
+        // use the same curve
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        int[] t3 = ffa.acquireVar();
+        int[] t4 = ffa.acquireVar();
+        
         field.square(t1, z1);
         field.multiply(t2, t1, z1);
         field.multiply(t1, t1, x2);
@@ -71,6 +116,7 @@ public final class ECCurveFp extends ECCurve {
         
         if (ffa.is(t1, 0) && ffa.is(t2, 0)) {
             // A == B, so double A
+            release(t1, t2, t3, t4);
             twice(a);
             return;
         }
@@ -87,6 +133,8 @@ public final class ECCurveFp extends ECCurve {
         field.multiply(t3, t3, t2);
         field.multiply(t4, t4, y1);
         field.subtract(y1, t3, t4);
+        
+        release(t1, t2, t3, t4);
     }
     
     public void negate(ECPoint a) {
@@ -99,6 +147,14 @@ public final class ECCurveFp extends ECCurve {
         int[] x = a.x;
         int[] y = a.y;
         int[] z = a.z;
+        if (ffa.is(z, 0)) {
+            // twice the point at infinity is infinity
+            return;
+        }
+        
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        int[] t3 = ffa.acquireVar();
         
         field.square(t1, z);
         
@@ -133,70 +189,794 @@ public final class ECCurveFp extends ECCurve {
         field.subtract(t1, t3, x);
         field.multiply(t1, t1, t2);
         field.subtract(y, t1, y);
+        
+        ffa.releaseVar(t1);
+        ffa.releaseVar(t2);
+        ffa.releaseVar(t3);
     }
     
     public void makeAffine(ECPoint a) {
-        field.invert(a.z, a.z);
+        makeAffine(a, false);
+    }
+    
+    /*
+     * makeAffine() for the result of a multiplication with a secret scalar.
+     * Its Z reveals information about the scalar, so it is inverted with
+     * the same field operations for every Z if 'secret' is true.
+     */
+    private void makeAffine(ECPoint a, boolean secret) {
+        int[] t1 = ffa.acquireVar();
+        if (secret) {
+            field.invertConstantTime(a.z, a.z);
+        } else {
+            field.invert(a.z, a.z);
+        }
         field.square(t1, a.z);
         field.multiply(a.x, a.x, t1);
         field.multiply(t1, a.z, t1);
         field.multiply(a.y, a.y, t1);
         ffa.set(a.z, 1);
+        ffa.releaseVar(t1);
+    }
+    
+    public void makeAffine(ECPoint[] points, int offset, int count) {
+        if (count > 0) {
+            makeAffine(points, offset, count, new int[count][], false);
+        }
+    }
+    
+    // makeAffine() with the array 'c' of at least 'count' entries for the
+    // partial products, see makeAffine(ECPoint, boolean) for 'secret'
+    private void makeAffine(ECPoint[] points, int offset, int count, int[][] c,
+            boolean secret) {
+        // Montgomery's trick: all points share a single inversion
+        
+        // c[i] = z[0] * z[1] * ... * z[i]
+        c[0] = ffa.acquireVar();
+        ffa.copy(c[0], points[offset].z);
+        for (int i = 1; i < count; i++) {
+            c[i] = ffa.acquireVar();
+            field.multiply(c[i], c[i - 1], points[offset + i].z);
+        }
+        
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        
+        // t1 = (z[0] * z[1] * ... * z[i])^-1
+        if (secret) {
+            field.invertConstantTime(t1, c[count - 1]);
+        } else {
+            field.invert(t1, c[count - 1]);
+        }
+        
+        for (int i = count - 1; i >= 0; i--) {
+            ECPoint a = points[offset + i];
+            
+            // t2 = z[i]^-1
+            if (i > 0) {
+                field.multiply(t2, t1, c[i - 1]);
+                field.multiply(t1, t1, a.z);
+            } else {
+                ffa.copy(t2, t1);
+            }
+            
+            field.square(a.z, t2);
+            field.multiply(a.x, a.x, a.z);
+            field.multiply(a.z, a.z, t2);
+            field.multiply(a.y, a.y, a.z);
+            ffa.set(a.z, 1);
+            
+            ffa.releaseVar(c[i]);
+            c[i] = null;
+        }
+        
+        ffa.releaseVar(t1);
+        ffa.releaseVar(t2);
+    }
+    
+    private void release(int[] t1, int[] t2, int[] t3, int[] t4) {
+        ffa.releaseVar(t1);
+        ffa.releaseVar(t2);
+        ffa.releaseVar(t3);
+        ffa.releaseVar(t4);
     }
     
     public void multiply(ECPoint R, int[] k) {
-        // 'h' can be 2 bits longer than 'k'
-        // therefore use longer int-arrays
-        FFA ffa = order.getFFA();
-        int[] e = ffa.acquireVar(ffa.getBitSize() + 2);
-        int[] h = ffa.acquireVar(ffa.getBitSize() + 2);
-        ffa.copy(e, k);
+        multiply(R, k, wnafWidth);
+    }
+    
+    /*
+     * R = k * R, where 'R' must be affine. Uses the width-w NAF of 'k'
+     * together with a table of the odd multiples R, 3R, ..., (2^(w-1) - 1)R
+     * that is computed for each call. w = 2 is the ordinary NAF method.
+     * The z-coordinate of the result is inverted with
+     * invertConstantTime(), as 'k' is usually secret.
+     */
+    public void multiply(ECPoint R, int[] k, int w) {
+        if ((w < 2) || (w > MAX_WNAF_WIDTH)) {
+            throw new IllegalArgumentException("Invalid window width: " + w);
+        }
         
-        // h = 3*e ^ e;
-        ffa.add(h, e, e);
-        ffa.add(h, h, e);
-        ffa.xor(h, h, e);
+        ECPointWorkspace ws = acquireWorkspace();
+        int[] naf = ws.naf1;
+        int len = wnaf(naf, k, w);
+        if (len == 0) {
+            releaseWorkspace(ws);
+            // k == 0, which is not a valid scalar
+            throw new IllegalArgumentException("Scalar must not be zero");
+        }
+        
+        int n = 1 << (w - 2);
+        ECPoint[] table = ws.table;
+        oddMultiples(R, n, ws);
+        
+        // the most significant digit is always positive
+        copy(R, select(table, n, naf[len - 1]));
+        
+        for (int i = len - 2; i >= 0; i--) {
+            
+            twice(R);
+            
+            if (naf[i] != 0) {
+                add(R, select(table, n, naf[i]));
+            }
+        }
+        
+        releaseWorkspace(ws);
 
-        // P = R;
-        // N = -R;
-        ECPoint P = R.clonePoint();
-        ECPoint N = R.clonePoint();
-        negate(N);
+        makeAffine(R, true);
+    }
+    
+    /*
+     * R = k * R with the co-Z Montgomery ladder, Algorithm 9 of
+     * R. R. Goundar, M. Joye, A. Miyaji, M. Rivain, A. Venelli: Scalar
+     * multiplication on Weierstrass elliptic curves from Co-Z arithmetic.
+     * R0 and R1 share a z-coordinate that is never computed. Each bit
+     * costs one zaddc() and one zadd(), and the z-coordinate of the result
+     * is recovered from the last difference, which is +R or -R. Scalars
+     * for which the ladder meets the point at infinity fall back to
+     * multiply().
+     */
+    public void multiplyLadder(ECPoint R, int[] k) {
+        ECPointWorkspace ws = acquireWorkspace();
+        FFA orderFFA = order.getFFA();
+        int t = order.getBitSize();
+        
+        // k' = k + n or k + 2n, whichever has bit t set, so that the
+        // ladder runs over the same number of bits for every k
+        int[] k1 = ws.e1;
+        int[] k2 = ws.h1;
+        orderFFA.copy(k2, getN());
+        orderFFA.copy(k1, k);
+        orderFFA.add(k1, k1, k2);
+        orderFFA.add(k2, k1, k2);
+        orderFFA.cswap(orderFFA.testBit(k1, t) ? 0 : 1, k1, k2);
+        
+        ECPoint R0 = ws.table[0];
+        ECPoint R1 = ws.table[1];
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        int[] t3 = ffa.acquireVar();
+        int[] t4 = ffa.acquireVar();
+        
+        twiceCoZ(R1, R0, R);
+        
+        boolean infinity = false;
+        int swap = 0;
+        for (int i = t - 1; i >= 0; i--) {
+            int bit = orderFFA.testBit(k1, i) ? 1 : 0;
+            swap ^= bit;
+            cswap(swap, R0, R1);
+            swap = bit;
+            
+            // R1 = R0 + R1 and R0 = R0 - R1, which is -R, or R if swapped
+            infinity |= zaddc(R0, R1);
+            
+            if (i == 0) {
+                // with the common z-coordinate Z, R0 = (xZ^2, +-yZ^3) and
+                // the next zadd() multiplies Z by (X0 - X1), so
+                // 1 / Z = +-y X0 / (x Y0 (X0 - X1))
+                field.subtract(t1, R0.x, R1.x);
+                field.multiply(t1, t1, R0.y);
+                field.multiply(t1, t1, R.x);
+                ffa.copy(t2, R.y);
+                field.negate(t3, R.y);
+                ffa.cswap(1 - bit, t2, t3);
+                field.multiply(t2, t2, R0.x);
+            }
+            
+            // R0 = R1 + R0, which is twice the old R0, and R1 is the old
+            // R0 + R1 at the new z-coordinate
+            infinity |= zadd(R1, R0, null);
+        }
+        cswap(swap, R0, R1);
+        
+        if (infinity || ffa.is(t1, 0)) {
+            ffa.releaseVar(t1);
+            ffa.releaseVar(t2);
+            ffa.releaseVar(t3);
+            ffa.releaseVar(t4);
+            releaseWorkspace(ws);
+            multiply(R, k);
+            return;
+        }
+        
+        // R = (X0 / Z^2, Y0 / Z^3)
+        field.invertConstantTime(t1, t1);
+        field.multiply(t1, t1, t2);
+        field.square(t2, t1);
+        field.multiply(R.x, R0.x, t2);
+        field.multiply(t2, t2, t1);
+        field.multiply(R.y, R0.y, t2);
+        ffa.set(R.z, 1);
+        
+        ffa.releaseVar(t1);
+        ffa.releaseVar(t2);
+        ffa.releaseVar(t3);
+        ffa.releaseVar(t4);
+        releaseWorkspace(ws);
+    }
+    
+    /*
+     * d = 2a and p = a with the common z-coordinate 2y for the affine point
+     * a = (x, y): p = (4xy^2, 8y^4) and d = (M^2 - 2S, M(S - X) - 8y^4)
+     * with M = 3x^2 + a and S = 4xy^2. XYcZ-IDBL of Goundar et al. The
+     * z-coordinates are set, even though the co-Z operations do not use
+     * them.
+     */
+    private void twiceCoZ(ECPoint d, ECPoint p, ECPoint a) {
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        int[] t3 = ffa.acquireVar();
+        int[] t4 = ffa.acquireVar();
+        
+        field.square(t1, a.y);
+        field.multiply(t2, a.x, t1);
+        field.multiply2(t2, t2);
+        field.multiply2(t2, t2);        // S = 4xy^2
+        field.square(t1, t1);
+        field.multiply2(t1, t1);
+        field.multiply2(t1, t1);
+        field.multiply2(t1, t1);        // 8y^4
+        field.square(t3, a.x);
+        field.multiply2(t4, t3);
+        field.add(t3, t4, t3);
+        field.add(t3, t3, this.a);      // M = 3x^2 + a
+        field.multiply2(p.z, a.y);
+        ffa.copy(d.z, p.z);
+        
+        field.square(t4, t3);
+        field.multiply2(d.x, t2);
+        field.subtract(d.x, t4, d.x);   // M^2 - 2S
+        field.subtract(t4, t2, d.x);
+        field.multiply(t4, t3, t4);
+        field.subtract(d.y, t4, t1);    // M(S - X) - 8y^4
+        ffa.copy(p.x, t2);
+        ffa.copy(p.y, t1);
+        
+        release(t1, t2, t3, t4);
+    }
+    
+    /*
+     * (a, b) = (a - b, a + b) for the points 'a' and 'b' with the same
+     * z-coordinate Z, which is multiplied by (Xb - Xa) for both results.
+     * Returns true if Xa == Xb, where a + b or a - b is the point at
+     * infinity. XYcZ-ADDC of Goundar et al., 5M + 3S.
+     */
+    private boolean zaddc(ECPoint a, ECPoint b) {
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        int[] t3 = ffa.acquireVar();
+        int[] t4 = ffa.acquireVar();
+        
+        field.subtract(t1, b.x, a.x);
+        boolean infinity = ffa.is(t1, 0);
+        field.square(t1, t1);
+        field.multiply(a.x, a.x, t1);   // B = Xa (Xb - Xa)^2
+        field.multiply(t1, b.x, t1);    // C = Xb (Xb - Xa)^2
+        field.subtract(t2, b.y, a.y);
+        field.add(t3, b.y, a.y);
+        field.subtract(t4, t1, a.x);
+        field.multiply(a.y, a.y, t4);   // E = Ya (C - B)
+        field.add(t4, t1, a.x);
+        
+        // a + b
+        field.square(b.x, t2);
+        field.subtract(b.x, b.x, t4);
+        field.subtract(t1, a.x, b.x);
+        field.multiply(t1, t2, t1);
+        field.subtract(b.y, t1, a.y);
+        
+        // a - b
+        field.square(t1, t3);
+        field.subtract(t1, t1, t4);
+        field.subtract(t2, t1, a.x);
+        field.multiply(t2, t3, t2);
+        field.subtract(a.y, t2, a.y);
+        ffa.copy(a.x, t1);
+        
+        release(t1, t2, t3, t4);
+        return infinity;
+    }
+    
+    /*
+     * (a, b) = (a, a + b) for the points 'a' and 'b' with the same
+     * z-coordinate Z, which is multiplied by (Xb - Xa) for both results.
+     * If 'z' is not null, it is multiplied by (Xb - Xa) as well. Returns
+     * true if Xa == Xb. XYcZ-ADD of Goundar et al., 4M + 2S.
+     */
+    private boolean zadd(ECPoint a, ECPoint b, int[] z) {
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        int[] t3 = ffa.acquireVar();
+        int[] t4 = ffa.acquireVar();
+        
+        field.subtract(t1, b.x, a.x);
+        boolean infinity = ffa.is(t1, 0);
+        if (z != null) {
+            field.multiply(z, z, t1);
+        }
+        field.square(t1, t1);
+        field.multiply(a.x, a.x, t1);   // B = Xa (Xb - Xa)^2
+        field.multiply(t1, b.x, t1);    // C = Xb (Xb - Xa)^2
+        field.subtract(t2, b.y, a.y);
+        field.subtract(t3, t1, a.x);
+        field.multiply(a.y, a.y, t3);   // E = Ya (C - B)
+        field.add(t4, t1, a.x);
+        
+        field.square(b.x, t2);
+        field.subtract(b.x, b.x, t4);
+        field.subtract(t3, a.x, b.x);
+        field.multiply(t3, t2, t3);
+        field.subtract(b.y, t3, a.y);
+        
+        release(t1, t2, t3, t4);
+        return infinity;
+    }
+    
+    // swaps the affine or co-Z coordinates of 'a' and 'b' if 'swap' is 1
+    private void cswap(int swap, ECPoint a, ECPoint b) {
+        ffa.cswap(swap, a.x, b.x);
+        ffa.cswap(swap, a.y, b.y);
+    }
+    
+    ECPointWorkspace createWorkspace() {
+        return new ECPointWorkspace(this, 1 << (MAX_WNAF_WIDTH - 1));
+    }
+    
+    /*
+     * Returns the affine points P, 3P, ..., (2^(w-1) - 1)P followed by their
+     * negatives, as used with a width-w NAF. 'P' must be affine.
+     */
+    private ECPoint[] oddMultiples(ECPoint P, int w) {
+        ECPointWorkspace ws = acquireWorkspace();
+        int n = 1 << (w - 2);
+        oddMultiples(P, n, ws);
+        ECPoint[] table = new ECPoint[2 * n];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = ws.table[i].clonePoint();
+        }
+        releaseWorkspace(ws);
+        return table;
+    }
+    
+    /*
+     * oddMultiples() for n = 2^(w-2) into the first 2n points of the
+     * table of the workspace. 2P and P start with the common z-coordinate
+     * 2y, and (2i+1)P = 2P + (2i-1)P is a co-Z addition that moves 2P to
+     * the z-coordinate of the sum. This needs neither an affine 2P nor
+     * its inversion, and costs 5M + 2S per point instead of the 8M + 3S
+     * of add(). All points are converted to affine together.
+     */
+    private void oddMultiples(ECPoint P, int n, ECPointWorkspace ws) {
+        ECPoint[] table = ws.table;
+        if (n == 1) {
+            copy(table[0], P);
+        } else {
+            ECPoint P2 = ws.point;
+            twiceCoZ(P2, table[0], P);
+            for (int i = 1; i < n; i++) {
+                copy(table[i], table[i - 1]);
+                zadd(P2, table[i], table[i].z);
+            }
+            makeAffine(table, 0, n, ws.products, false);
+        }
+        negateMultiples(table, n);
+    }
+    
+    // table[n + i] = -table[i] for 0 <= i < n
+    private void negateMultiples(ECPoint[] table, int n) {
+        for (int i = 0; i < n; i++) {
+            if (table[n + i] == null) {
+                table[n + i] = new ECPoint(this);
+            }
+            copy(table[n + i], table[i]);
+            negate(table[n + i]);
+        }
+    }
+    
+    // returns digit * P from a table computed by oddMultiples(), where the
+    // negatives start at index n
+    private static ECPoint select(ECPoint[] table, int n, int digit) {
+        return (digit > 0) ? table[digit >> 1]
+                           : table[n + (-digit >> 1)];
+    }
+    
+    /*
+     * Computes the width-w NAF of 'k' into 'naf' (least significant digit
+     * first) and returns the number of digits. Each nonzero digit is odd,
+     * smaller than 2^(w-1) in absolute value, and at most one of any w
+     * consecutive digits is nonzero.
+     */
+    private int wnaf(int[] naf, int[] k, int w) {
+        int len = naf.length;
+        int digits = 0;
+        int carry = 0;
+        int bit = 0;
         
-        for (int bit = ffa.bitLength(h) - 2; bit > 0; bit--) {
+        for (int i = 0; i < len; i++) {
+            naf[i] = 0;
+        }
+        
+        while (bit < len) {
+            if (testScalarBit(k, bit) == carry) {
+                bit++;
+                continue;
+            }
             
-            twice(R);       
+            // the next w bits plus the carry give an odd word, which is
+            // turned into a negative digit if it is 2^(w-1) or larger
+            int now = Math.min(w, len - bit);
+            int word = carry;
+            for (int i = now - 1; i >= 0; i--) {
+                word += testScalarBit(k, bit + i) << i;
+            }
+            carry = (word >> (w - 1)) & 1;
+            naf[bit] = word - (carry << w);
+            
+            digits = bit + 1;
+            bit += now;
+        }
+        
+        return digits;
+    }
+    
+    // returns bit 'bit' of the scalar 'k', where 0 <= k < 2^t
+    private int testScalarBit(int[] k, int bit) {
+        if (bit >= order.getBitSize()) {
+            return 0;
+        }
+        return order.getFFA().testBit(k, bit) ? 1 : 0;
+    }
 
-            if (ffa.testBit(h, bit)) {
-                if (!ffa.testBit(e, bit)) {
-                    add(R, P);  // add
-                } else {
-                    add(R, N);  // subtract
+    public void multiplyGenerator(ECPoint R, int[] k) {
+        comb(R, k);
+        makeAffine(R, true);
+    }
+    
+    public void multiplyGenerator(ECPoint[] R, int[][] k) {
+        for (int i = 0; i < R.length; i++) {
+            comb(R[i], k[i]);
+        }
+        makeAffine(R, 0, R.length, new int[R.length][], true);
+    }
+    
+    // R = k * G in jacobian coordinates
+    private void comb(ECPoint R, int[] k) {
+        // Algorithm 3.44 - Fixed-base comb method for point multiplication
+        // D. Hankerson, A. Menezes, S. Vanstone: Guide to Elliptic Curve Cryptography
+        ECPoint[] table = getCombTable();
+        FFA ffa = order.getFFA();
+        int bits = order.getBitSize();
+        int d = (bits + COMB_WIDTH - 1) / COMB_WIDTH;
+        
+        // We start with a point at infinity
+        boolean isInfinity = true;
+        
+        for (int i = d - 1; i >= 0; i--) {
+            
+            if (!isInfinity) twice(R);
+            
+            // collect the bits k[i], k[d+i], k[2d+i], ... of this column
+            int index = 0;
+            for (int bit = (COMB_WIDTH - 1) * d + i; bit >= 0; bit -= d) {
+                index <<= 1;
+                if ((bit < bits) && ffa.testBit(k, bit)) {
+                    index |= 1;
                 }
             }
             
+            if (index != 0) {
+                if (isInfinity) {
+                    copy(R, table[index]);
+                    isInfinity = false;
+                } else {
+                    add(R, table[index]);
+                }
+            }
         }
         
-        P.release();
-        N.release();
-        ffa.releaseVar(e);
-        ffa.releaseVar(h);
+        if (isInfinity) {
+            // k == 0, which is not a valid scalar
+            throw new IllegalArgumentException("Scalar must not be zero");
+        }
+    }
+    
+    /*
+     * Returns the comb table for the generator G. With d = ceil(t / w), where
+     * t is the bit length of the order and w = COMB_WIDTH, the entry at index
+     * (a[w-1] ... a[1] a[0]) in binary is the affine point
+     *     a[w-1] * 2^((w-1)d) * G + ... + a[1] * 2^d * G + a[0] * G.
+     * The table is computed once per curve.
+     */
+    private synchronized ECPoint[] getCombTable() {
+        if (combTable != null) {
+            return combTable;
+        }
+        
+        int entries = (1 << COMB_WIDTH) - 1;
+        if (hasConstants(combConstants, entries)) {
+            ECPoint[] table = new ECPoint[entries + 1];
+            loadPoints(combConstants, table, 1, entries);
+            combTable = table;
+            return combTable;
+        }
+        
+        int d = (order.getBitSize() + COMB_WIDTH - 1) / COMB_WIDTH;
+        ECPoint[] table = new ECPoint[1 << COMB_WIDTH];
+        
+        // table[2^j] = 2^(jd) * G
+        ECPoint[] base = new ECPoint[COMB_WIDTH];
+        base[0] = generator.clonePoint();
+        for (int j = 1; j < COMB_WIDTH; j++) {
+            base[j] = base[j - 1].clonePoint();
+            for (int i = 0; i < d; i++) {
+                twice(base[j]);
+            }
+        }
+        makeAffine(base, 1, COMB_WIDTH - 1);
+        for (int j = 0; j < COMB_WIDTH; j++) {
+            table[1 << j] = base[j];
+        }
+        
+        // all other entries are the sum of a smaller entry and a power of
+        // two. Only the latter has to be affine for the addition.
+        ECPoint[] sums = new ECPoint[table.length - COMB_WIDTH - 1];
+        int top = 1;
+        int count = 0;
+        for (int i = 3; i < table.length; i++) {
+            if ((i & (i - 1)) == 0) {
+                top = i;
+                continue;
+            }
+            ECPoint p = table[i ^ top].clonePoint();
+            add(p, table[top]);
+            table[i] = p;
+            sums[count++] = p;
+        }
+        makeAffine(sums, 0, count);
+        
+        combTable = table;
+        return combTable;
+    }
 
+    public void multiplyGeneratorSum(ECPoint R, int[] k1, ECPoint Q, int[] k2) {
+        multiplyGeneratorSumJacobian(R, k1, Q, k2);
+        if (ffa.is(R.z, 0)) {
+            throw new IllegalArgumentException("Result is the point at infinity");
+        }
+        makeAffine(R);
+    }
+    
+    public ECPoint[] precomputeMultiples(ECPoint Q) {
+        return oddMultiples(Q, FIXED_WNAF_WIDTH);
+    }
+    
+    public void multiplyGeneratorSum(ECPoint R, int[] k1, ECPoint[] tableQ, int[] k2) {
+        multiplyGeneratorSumJacobian(R, k1, tableQ, k2);
+        if (ffa.is(R.z, 0)) {
+            throw new IllegalArgumentException("Result is the point at infinity");
+        }
         makeAffine(R);
     }
+    
+    public void multiplyGeneratorSumJacobian(ECPoint R, int[] k1, ECPoint Q, int[] k2) {
+        ECPointWorkspace ws = acquireWorkspace();
+        int n = 1 << (wnafWidth - 2);
+        oddMultiples(Q, n, ws);
+        interleave(R, k1, ws.table, n, k2, ws);
+        releaseWorkspace(ws);
+    }
+    
+    public void multiplyGeneratorSumJacobian(ECPoint R, int[] k1, ECPoint[] tableQ, int[] k2) {
+        ECPointWorkspace ws = acquireWorkspace();
+        interleave(R, k1, tableQ, tableQ.length >> 1, k2, ws);
+        releaseWorkspace(ws);
+    }
+    
+    // R = k1 * G + k2 * Q, where tableQ holds the n odd multiples of Q and
+    // their negatives
+    private void interleave(ECPoint R, int[] k1, ECPoint[] tableQ, int n, int[] k2,
+            ECPointWorkspace ws) {
+        // Interleaving with wNAFs, Algorithm 3.51
+        // D. Hankerson, A. Menezes, S. Vanstone: Guide to Elliptic Curve Cryptography
+        
+        // the generator uses a large cached table
+        ECPoint[] tableG = getGeneratorTable();
+        int nG = tableG.length >> 1;
+        
+        // a table of n = 2^(w-2) points belongs to a width-w NAF
+        int wQ = 2;
+        while ((1 << (wQ - 2)) < n) {
+            wQ++;
+        }
+        
+        int[] naf1 = ws.naf1;
+        int[] naf2 = ws.naf2;
+        int len = Math.max(wnaf(naf1, k1, FIXED_WNAF_WIDTH),
+                           wnaf(naf2, k2, wQ));
+        
+        // We start with a point at infinity. The digits of the two NAFs can
+        // cancel, so R may also become infinity again after an addition.
+        boolean isInfinity = true;
+        
+        for (int i = len - 1; i >= 0; i--) {
+            
+            if (!isInfinity) twice(R);
+            
+            if (naf1[i] != 0) {
+                if (isInfinity) {
+                    copy(R, select(tableG, nG, naf1[i]));
+                    isInfinity = false;
+                } else {
+                    add(R, select(tableG, nG, naf1[i]));
+                    isInfinity = ffa.is(R.z, 0);
+                }
+            }
+            if (naf2[i] != 0) {
+                if (isInfinity) {
+                    copy(R, select(tableQ, n, naf2[i]));
+                    isInfinity = false;
+                } else {
+                    add(R, select(tableQ, n, naf2[i]));
+                    isInfinity = ffa.is(R.z, 0);
+                }
+            }
+        }
+        
+        if (isInfinity) {
+            // k1 * G + k2 * Q is the point at infinity
+            ffa.set(R.x, 1);
+            ffa.set(R.y, 1);
+            ffa.set(R.z, 0);
+        }
+    }
+    
+    public boolean hasAffineX(ECPoint p, int[] x) {
+        if (ffa.is(p.z, 0)) {
+            return false;
+        }
+        // x == X / Z^2  <=>  x * Z^2 == X
+        int[] t1 = ffa.acquireVar();
+        field.square(t1, p.z);
+        field.multiply(t1, t1, x);
+        boolean equal = (ffa.cmp(t1, p.x) == 0);
+        ffa.releaseVar(t1);
+        return equal;
+    }
+    
+    // returns the wNAF table of the generator, computed once per curve
+    private synchronized ECPoint[] getGeneratorTable() {
+        if (generatorTable == null) {
+            int n = 1 << (FIXED_WNAF_WIDTH - 2);
+            if (hasConstants(oddMultipleConstants, n)) {
+                ECPoint[] table = new ECPoint[2 * n];
+                loadPoints(oddMultipleConstants, table, 0, n);
+                negateMultiples(table, n);
+                generatorTable = table;
+            } else {
+                generatorTable = oddMultiples(generator, FIXED_WNAF_WIDTH);
+            }
+        }
+        return generatorTable;
+    }
+    
+    /*
+     * Sets the precomputed generator tables of ECCurveConstants. They are
+     * only used if they have the size that COMB_WIDTH and FIXED_WNAF_WIDTH
+     * ask for, otherwise the tables are computed as usual.
+     */
+    void setGeneratorTables(int[] comb, int[] oddMultiples) {
+        combConstants = comb;
+        oddMultipleConstants = oddMultiples;
+    }
+    
+    public void precompute() {
+        getCombTable();
+        getGeneratorTable();
+    }
+    
+    /**
+     * Returns the comb table and the odd multiples of the generator as 32
+     * bit words in the layout of ECCurveConstants, computing the tables
+     * if needed. The constants were generated with it, and the tests
+     * compare them with tables computed from the curve parameters.
+     */
+    public int[][] getGeneratorTableWords() {
+        int n = 1 << (FIXED_WNAF_WIDTH - 2);
+        return new int[][] {
+            storePoints(getCombTable(), 1, (1 << COMB_WIDTH) - 1),
+            storePoints(getGeneratorTable(), 0, n)
+        };
+    }
+    
+    // true if 'words' holds 'count' points of the words of this field
+    private boolean hasConstants(int[] words, int count) {
+        return (words != null)
+                && (words.length == 2 * count * ((field.getBitSize() + 31) / 32));
+    }
+    
+    // table[offset + i] = the i-th affine point in 'words', x and y as 32
+    // bit words, most significant first
+    private void loadPoints(int[] words, ECPoint[] table, int offset, int count) {
+        int n = words.length / (2 * count);
+        int[] tmp = new int[n];
+        for (int i = 0; i < count; i++) {
+            ECPoint p = new ECPoint(this);
+            System.arraycopy(words, 2 * i * n, tmp, 0, n);
+            ffa.from(p.x, tmp);
+            System.arraycopy(words, (2 * i + 1) * n, tmp, 0, n);
+            ffa.from(p.y, tmp);
+            ffa.set(p.z, 1);
+            table[offset + i] = p;
+        }
+    }
 
+    
+    // the inverse of loadPoints(), the affine points table[offset + i] as
+    // 32 bit words
+    private int[] storePoints(ECPoint[] table, int offset, int count) {
+        int n = (field.getBitSize() + 31) / 32;
+        int[] words = new int[2 * count * n];
+        byte[] tmp = new byte[4 * n];
+        for (int i = 0; i < count; i++) {
+            ECPoint p = table[offset + i];
+            ffa.toByteArray(tmp, 0, tmp.length, p.x);
+            toWords(tmp, words, 2 * i * n);
+            ffa.toByteArray(tmp, 0, tmp.length, p.y);
+            toWords(tmp, words, (2 * i + 1) * n);
+        }
+        return words;
+    }
+    
+    // words[offset ...] = the big-endian bytes of 'bytes'
+    private static void toWords(byte[] bytes, int[] words, int offset) {
+        for (int i = 0; i < bytes.length; i += 4) {
+            words[offset + i / 4] = ((bytes[i] & 0xff) << 24) | ((bytes[i + 1] & 0xff) << 16)
+                    | ((bytes[i + 2] & 0xff) << 8) | (bytes[i + 3] & 0xff);
+        }
+    }
+
+    // Indices into the points of multiplySum(). nagative values mean that
+    // the point in P[abs(Pind)] needs to be subtracted.
+    private static final int[][] SUM_INDICES =
+                       {{ 0,  2, -2},   //  0    ,     P2,    -P2
+                        { 1,  3,  4},   //  P1   ,  P1+P2,  P1-P2
+                        {-1, -4, -3}};  // -P1   , -P1+P2, -P1-P2
+    
     public void multiplySum(ECPoint R1, int[] k1, ECPoint R2, int[] k2) {
         // Algorithm 3.22 with NAF
         // D. Hankerson, A. Menezes, S. Vanstone: Guide to Elliptic Curve Cryptography
         
         // 'h' can be 2 bits longer than 'k'
-        // therefore use longer int-arrays
+        // therefore use the longer int-arrays of the workspace
         FFA ffa = order.getFFA();
         int bitSize = ffa.getBitSize() + 2;
-        int[] e1 = ffa.acquireVar(bitSize);
-        int[] h1 = ffa.acquireVar(bitSize);
-        int[] e2 = ffa.acquireVar(bitSize);
-        int[] h2 = ffa.acquireVar(bitSize);
+        ECPointWorkspace ws = acquireWorkspace();
+        int[] e1 = ws.e1;
+        int[] h1 = ws.h1;
+        int[] e2 = ws.e2;
+        int[] h2 = ws.h2;
         ffa.copy(e1, k1);
         ffa.copy(e2, k2);
         
@@ -211,20 +991,30 @@ public final class ECCurveFp extends ECCurve {
 
         // pre-calculate points:
         // P[0] = null; P[1] = +P1; P[2] = +P2; P[3] = P1+P2; P[4] = P1-P2;
-        ECPoint[] P = {null, R1.clonePoint(), R2, R1.clonePoint(), R1.clonePoint()};
+        ECPoint[] P = ws.sum;
+        P[2] = R2;
+        copy(P[1], R1);
+        copy(P[3], R1);
+        copy(P[4], R1);
         
         add(P[3], P[2]);
-        makeAffine(P[3]);
         negate(P[2]);
         add(P[4], P[2]);
         negate(P[2]);
-        makeAffine(P[4]);
         
-        // Indices into the P array. nagative values mean that the point in
-        // P[abs(Pind)] needs to be subtracted.
-        int[][] Pind = {{ 0,  2, -2},   //  0    ,     P2,    -P2
-                        { 1,  3,  4},   //  P1   ,  P1+P2,  P1-P2
-                        {-1, -4, -3}};  // -P1   , -P1+P2, -P1-P2
+        // P1 + P2 and P1 - P2 share a single inversion, unless one of them
+        // is infinity (P1 = -P2 or P1 = P2). Its Z of zero would spoil the
+        // product, so the other point is normalized on its own.
+        boolean infinity3 = ffa.is(P[3].z, 0);
+        boolean infinity4 = ffa.is(P[4].z, 0);
+        if (infinity3 || infinity4) {
+            if (!infinity3) makeAffine(P[3]);
+            if (!infinity4) makeAffine(P[4]);
+        } else {
+            makeAffine(P, 3, 2, ws.products, false);
+        }
+        
+        int[][] Pind = SUM_INDICES;
         
         // We start with a point at infinity
         boolean isInfinity = true;
@@ -240,30 +1030,62 @@ public final class ECCurveFp extends ECCurve {
                 boolean neg = (point < 0);
                 if (neg) point = -point;
                 ECPoint myP = P[point];
+                if (ffa.is(myP.z, 0)) {
+                    // adding infinity leaves R1 as it is
+                    continue;
+                }
                 if (neg) negate(myP);   // Negate first to subtract
                 if (isInfinity) {
                     // If R1 is still at infinity, copy the selected point
                     copy(R1, myP);
                     isInfinity = false;
                 } else {
-                    // Otherwise add it.
+                    // Otherwise add it. The digits of k1 and k2 can cancel,
+                    // so R1 may become infinity again.
                     add(R1, myP);
+                    isInfinity = ffa.is(R1.z, 0);
                 }
                 if (neg) negate(myP);   // Undo negation
             }
         }
         
-        P[1].release();
-        P[3].release();
-        P[4].release();
-        ffa.releaseVar(e1);
-        ffa.releaseVar(h1);
-        ffa.releaseVar(e2);
-        ffa.releaseVar(h2);
-
+        P[2] = null;
+        releaseWorkspace(ws);
+        
+        if (isInfinity) {
+            throw new IllegalArgumentException("Result is the point at infinity");
+        }
         makeAffine(R1);
     }
 
+    protected boolean decompress(ECPoint p, boolean odd) {
+        // y^2 = x^3 + a*x + b
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        field.square(t1, p.x);
+        field.multiply(t1, t1, p.x);    // t1 = x^3
+        field.multiply(t2, a, p.x);     // t2 = a*x
+        field.add(t1, t1, t2);
+        field.add(t1, t1, b);
+        boolean ok = field.sqrt(p.y, t1);
+        ffa.releaseVar(t1);
+        ffa.releaseVar(t2);
+        if (!ok) {
+            return false;
+        }
+        
+        // of the roots y and p - y, take the one of the right parity. For
+        // y = 0 there is only the even one.
+        if (ffa.isOdd(p.y) != odd) {
+            if (ffa.is(p.y, 0)) {
+                return false;
+            }
+            field.negate(p.y, p.y);
+        }
+        ffa.set(p.z, 1);
+        return true;
+    }
+    
     public boolean isOnCurve(ECPoint o1) {
         // Guide to ECC, Algorithm 4.25
         if ((o1.curve != this) || (ffa.is(o1.z, 0))
@@ -281,13 +1103,20 @@ public final class ECCurveFp extends ECCurve {
         
         // check if the point satisfies the EC equation:
         // y^2 == x^3 + a*x + b
+        int[] t1 = ffa.acquireVar();
+        int[] t2 = ffa.acquireVar();
+        int[] t3 = ffa.acquireVar();
         field.square(t1, o1.y);         // t1 = y^2 = left hand side
         field.square(t2, o1.x);
         field.multiply(t2, t2, o1.x);   // t2 = x^3
         field.multiply(t3, a, o1.x);    // t3 = a*x
         field.add(t2, t2, t3);
         field.add(t2, t2, b);           // t2 = right hand side
-        if (ffa.cmp(t1, t2) != 0) {
+        boolean onCurve = (ffa.cmp(t1, t2) == 0);
+        ffa.releaseVar(t1);
+        ffa.releaseVar(t2);
+        ffa.releaseVar(t3);
+        if (!onCurve) {
             return false;
         }
         
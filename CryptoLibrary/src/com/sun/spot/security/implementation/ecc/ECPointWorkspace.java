@@ -0,0 +1,79 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+
+/**
+ * The temporaries of one point multiplication of ECCurveFp. A workspace
+ * is acquired from the curve for the duration of a call and released
+ * afterwards, so that the points, NAFs and scalars are created once and
+ * then reused by all following calls.
+ */
+final class ECPointWorkspace {
+
+    // the odd multiples of a point and their negatives, see
+    // ECCurveFp.oddMultiples(). Large enough for MAX_WNAF_WIDTH.
+    final ECPoint[] table;
+
+    // an affine point used while the table is computed
+    final ECPoint point;
+
+    // the points of multiplySum(): sum[1] = P1, sum[2] = P2,
+    // sum[3] = P1 + P2, sum[4] = P1 - P2. sum[2] is the caller's point
+    // and is only set during the call.
+    final ECPoint[] sum;
+
+    // the NAFs of both scalars, one digit more than the order has bits
+    final int[] naf1;
+    final int[] naf2;
+
+    // the scalars of multiplySum() and their triples, which can be 2 bits
+    // longer than the order
+    final int[] e1, h1, e2, h2;
+
+    // the partial products of ECCurveFp.makeAffine(ECPoint[], int, int)
+    final int[][] products;
+
+    ECPointWorkspace(ECCurve curve, int tableSize) {
+        table = new ECPoint[tableSize];
+        for (int i = 0; i < tableSize; i++) {
+            table[i] = new ECPoint(curve);
+        }
+        point = new ECPoint(curve);
+        sum = new ECPoint[] {null, table[0], null, table[1], table[2]};
+
+        FFA ffa = curve.getOrder().getFFA();
+        int bits = curve.getOrder().getBitSize();
+        naf1 = new int[bits + 1];
+        naf2 = new int[bits + 1];
+        int len = (ffa.getBitSize() + 2 + ffa.getBitsPerWord() - 1) / ffa.getBitsPerWord();
+        e1 = new int[len];
+        h1 = new int[len];
+        e2 = new int[len];
+        h2 = new int[len];
+
+        products = new int[tableSize >> 1][];
+    }
+}
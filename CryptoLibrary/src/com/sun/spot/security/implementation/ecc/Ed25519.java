@@ -0,0 +1,645 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ *
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ *
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+
+/**
+ * The twisted Edwards curve edwards25519, -x^2 + y^2 = 1 + d x^2 y^2 over
+ * the field of Curve25519PrimeField, with the group operations needed by
+ * Ed25519 (RFC 8032).
+ * <p>
+ * Points are kept in extended coordinates (EdPoint), with the complete
+ * addition and doubling formulas of Hisil, Wong, Carter and Dawson, so
+ * that neither the identity nor equal points need special cases. Points
+ * that are added many times are converted to the cached form
+ * (Y - X, Y + X, 2d T, 2Z) first, which saves a multiplication per
+ * addition, or two if the point is affine.
+ * <p>
+ * Like Curve25519, scalars and encodings are little-endian.
+ */
+public final class Ed25519 {
+
+    /** The byte length of encoded points and scalars. */
+    public static final int KEY_SIZE = 32;
+
+    // the fixed base comb method uses COMB_WIDTH bits per column
+    private static final int COMB_WIDTH = 5;
+
+    // wNAF widths for arbitrary points and for the base point, whose
+    // table is computed once
+    private static final int WNAF_WIDTH = 5;
+    private static final int BASE_WNAF_WIDTH = 7;
+
+    private static final int[] d_const =
+        {0x52036cee,0x2b6ffe73,0x8cc74079,0x7779e898,
+         0x00700a4d,0x4141d8ab,0x75eb4dca,0x135978a3};
+    private static final int[] d2_const =
+        {0x2406d9dc,0x56dffce7,0x198e80f2,0xeef3d130,
+         0x00e0149a,0x8283b156,0xebd69b94,0x26b2f159};
+    private static final int[] sqrtm1_const =
+        {0x2b832480,0x4fc1df0b,0x2b4d0099,0x3dfbd7a7,
+         0x2f431806,0xad2fe478,0xc4ee1b27,0x4a0ea0b0};
+    private static final int[] gx_const =
+        {0x216936d3,0xcd6e53fe,0xc0a4e231,0xfdd6dc5c,
+         0x692cc760,0x9525a7b2,0xc9562d60,0x8f25d51a};
+    private static final int[] gy_const =
+        {0x66666666,0x66666666,0x66666666,0x66666666,
+         0x66666666,0x66666666,0x66666666,0x66666658};
+    private static final int[] n_const =
+        {0x10000000,0x00000000,0x00000000,0x00000000,
+         0x14def9de,0xa2f79cd6,0x5812631a,0x5cf5d3ed};
+
+    private final Curve25519PrimeField field;
+    private final FFA ffa;
+    private final PrimeField order;
+    private final int orderBits;
+    private final int[] d;
+    private final int[] d2;
+    private final int[] sqrtm1;
+    private final EdPoint base;
+
+    // tables for the base point, built on first use
+    private EdPoint[] combTable;
+    private EdPoint[] baseTable;
+
+    private static Ed25519 instance;
+    private static Ed25519 instance32;
+
+    private Ed25519(Curve25519PrimeField field, FFA orderFFA) {
+        this.field = field;
+        ffa = field.getFFA();
+        order = new PrimeField(orderFFA, orderFFA.from(n_const));
+        orderBits = orderFFA.bitLength(order.getP());
+        d = ffa.from(d_const);
+        d2 = ffa.from(d2_const);
+        sqrtm1 = ffa.from(sqrtm1_const);
+
+        base = new EdPoint(this);
+        ffa.from(base.x, gx_const);
+        ffa.from(base.y, gy_const);
+        ffa.set(base.z, 1);
+        field.multiply(base.t, base.x, base.y);
+    }
+
+    /**
+     * Returns the curve with the default FFA backend, see
+     * ECCurve.getInstance(int).
+     */
+    public static Ed25519 getInstance() {
+        return getInstance(ECCurve.defaultBackend);
+    }
+
+    /**
+     * Returns the curve with the given FFA backend, ECCurve.FFA_28 or
+     * ECCurve.FFA_32. The field is shared with Curve25519.
+     */
+    synchronized public static Ed25519 getInstance(int backend) {
+        Curve25519PrimeField field =
+                (Curve25519PrimeField)Curve25519.getInstance(backend).getField();
+        if (backend == ECCurve.FFA_32) {
+            if (instance32 == null) {
+                instance32 = new Ed25519(field, new FFA32(253));
+            }
+            return instance32;
+        } else {
+            if (instance == null) {
+                instance = new Ed25519(field, new FFA(253));
+            }
+            return instance;
+        }
+    }
+
+    public PrimeField getField() {
+        return field;
+    }
+
+    /**
+     * Returns the field of the group order L = 2^252 + 27742317777372353535851937790883648493.
+     */
+    public PrimeField getOrder() {
+        return order;
+    }
+
+    public void setIdentity(EdPoint R) {
+        ffa.set(R.x, 0);
+        ffa.set(R.y, 1);
+        ffa.set(R.z, 1);
+        ffa.set(R.t, 0);
+    }
+
+    public boolean isIdentity(EdPoint P) {
+        return ffa.is(P.x, 0) && (ffa.cmp(P.y, P.z) == 0);
+    }
+
+    public void copy(EdPoint R, EdPoint P) {
+        ffa.copy(R.x, P.x);
+        ffa.copy(R.y, P.y);
+        ffa.copy(R.z, P.z);
+        ffa.copy(R.t, P.t);
+    }
+
+    public void negate(EdPoint R) {
+        negate(R.x, R.x);
+        negate(R.t, R.t);
+    }
+
+    // r = -a (mod p), which keeps zero below p
+    private void negate(int[] r, int[] a) {
+        if (ffa.is(a, 0)) {
+            ffa.set(r, 0);
+        } else {
+            field.negate(r, a);
+        }
+    }
+
+    /*
+     * R = 2R, dbl-2008-hwcd with a = -1, the signs of all four results
+     * flipped.
+     */
+    public void twice(EdPoint R) {
+        int[] a = ffa.acquireVar();
+        int[] b = ffa.acquireVar();
+        int[] c = ffa.acquireVar();
+        int[] e = ffa.acquireVar();
+        int[] h = ffa.acquireVar();
+
+        field.square(a, R.x);
+        field.square(b, R.y);
+        field.square(c, R.z);
+        field.add(c, c, c);             // C = 2 Z^2
+        field.add(e, R.x, R.y);
+        field.square(e, e);
+        field.add(h, a, b);             // H = X^2 + Y^2
+        field.subtract(b, b, a);        // G = Y^2 - X^2
+        field.subtract(e, e, h);        // E = (X + Y)^2 - X^2 - Y^2
+        field.subtract(c, c, b);        // F = C - G
+
+        field.multiply(R.x, e, c);
+        field.multiply(R.y, b, h);
+        field.multiply(R.z, c, b);
+        field.multiply(R.t, e, h);
+
+        ffa.releaseVar(a);
+        ffa.releaseVar(b);
+        ffa.releaseVar(c);
+        ffa.releaseVar(e);
+        ffa.releaseVar(h);
+    }
+
+    /**
+     * R = R + P.
+     */
+    public void add(EdPoint R, EdPoint P) {
+        EdPoint Q = new EdPoint(this);
+        toCached(Q, P);
+        addCached(R, Q, false, false);
+        Q.release();
+    }
+
+    // C = (Y - X, Y + X, 2d T, 2Z) of P, C may be P
+    private void toCached(EdPoint C, EdPoint P) {
+        int[] tmp = ffa.acquireVar();
+        field.subtract(tmp, P.y, P.x);
+        field.add(C.y, P.y, P.x);
+        ffa.copy(C.x, tmp);
+        field.multiply(C.t, P.t, d2);
+        field.add(C.z, P.z, P.z);
+        ffa.releaseVar(tmp);
+    }
+
+    /*
+     * R = R + Q or R = R - Q, where Q is in cached form, add-2008-hwcd-3
+     * with k = 2d. If Q is affine its Z is not used.
+     */
+    private void addCached(EdPoint R, EdPoint Q, boolean affine, boolean subtract) {
+        int[] a = ffa.acquireVar();
+        int[] b = ffa.acquireVar();
+        int[] c = ffa.acquireVar();
+        int[] dd = ffa.acquireVar();
+        int[] e = ffa.acquireVar();
+
+        // -Q = (Y + X, Y - X, -2d T, 2Z)
+        field.subtract(a, R.y, R.x);
+        field.multiply(a, a, subtract ? Q.y : Q.x);
+        field.add(b, R.y, R.x);
+        field.multiply(b, b, subtract ? Q.x : Q.y);
+        field.multiply(c, R.t, Q.t);
+        if (affine) {
+            field.add(dd, R.z, R.z);
+        } else {
+            field.multiply(dd, R.z, Q.z);
+        }
+
+        field.subtract(e, b, a);        // E = B - A
+        field.add(b, b, a);             // H = B + A
+        if (subtract) {
+            field.add(a, dd, c);        // F = D - (-C)
+            field.subtract(dd, dd, c);  // G = D + (-C)
+        } else {
+            field.subtract(a, dd, c);   // F = D - C
+            field.add(dd, dd, c);       // G = D + C
+        }
+
+        field.multiply(R.x, e, a);
+        field.multiply(R.y, dd, b);
+        field.multiply(R.z, a, dd);
+        field.multiply(R.t, e, b);
+
+        ffa.releaseVar(a);
+        ffa.releaseVar(b);
+        ffa.releaseVar(c);
+        ffa.releaseVar(dd);
+        ffa.releaseVar(e);
+    }
+
+    /*
+     * Converts the points to affine cached form with a single inversion,
+     * so that they can be added with addCached(R, Q, true, ...).
+     */
+    private void makeAffineCached(EdPoint[] points, int offset, int count) {
+        int[][] z = new int[count][];
+        for (int i = 0; i < count; i++) {
+            z[i] = points[offset + i].z;
+        }
+        field.invert(z, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            EdPoint P = points[offset + i];
+            field.multiply(P.x, P.x, P.z);
+            field.multiply(P.y, P.y, P.z);
+            ffa.set(P.z, 1);
+            field.multiply(P.t, P.x, P.y);
+            toCached(P, P);
+        }
+    }
+
+    /**
+     * Decodes a point as in RFC 8032, Section 5.1.3.
+     *
+     * @return false if the encoding is not canonical or not on the curve
+     */
+    public boolean decodePoint(EdPoint R, byte[] b, int offset) {
+        byte[] buf = new byte[KEY_SIZE];
+        for (int i = 0; i < KEY_SIZE; i++) {
+            buf[i] = b[offset + KEY_SIZE - 1 - i];
+        }
+        int sign = (buf[0] >> 7) & 1;
+        buf[0] &= 0x7f;
+        ffa.from(R.y, buf, 0, KEY_SIZE);
+        if (ffa.cmp(R.y, field.getP()) >= 0) {
+            return false;
+        }
+
+        int[] u = ffa.acquireVar();
+        int[] v = ffa.acquireVar();
+        int[] v3 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        // u = y^2 - 1, v = d y^2 + 1
+        ffa.set(t, 1);
+        field.square(u, R.y);
+        field.multiply(v, u, d);
+        field.add(v, v, t);
+        field.subtract(u, u, t);
+
+        // x = u v^3 (u v^7)^((p - 5) / 8)
+        field.square(v3, v);
+        field.multiply(v3, v3, v);
+        field.square(t, v3);
+        field.multiply(t, t, v);
+        field.multiply(t, t, u);
+        field.powP58(t, t);
+        field.multiply(t, t, v3);
+        field.multiply(R.x, t, u);
+
+        // v x^2 is u if x is a root, -u if x sqrt(-1) is one
+        boolean valid = true;
+        field.square(t, R.x);
+        field.multiply(t, t, v);
+        if (ffa.cmp(t, u) != 0) {
+            field.add(t, t, u);
+            if (ffa.is(t, 0)) {
+                field.multiply(R.x, R.x, sqrtm1);
+            } else {
+                valid = false;
+            }
+        }
+
+        if (valid && ffa.is(R.x, 0) && (sign == 1)) {
+            valid = false;
+        }
+        if (valid && ((R.x[0] & 1) != sign)) {
+            field.negate(R.x, R.x);
+        }
+        ffa.set(R.z, 1);
+        field.multiply(R.t, R.x, R.y);
+
+        ffa.releaseVar(u);
+        ffa.releaseVar(v);
+        ffa.releaseVar(v3);
+        ffa.releaseVar(t);
+        return valid;
+    }
+
+    /**
+     * Writes the 32 byte encoding of P to b.
+     */
+    public void encodePoint(byte[] b, int offset, EdPoint P) {
+        int[] zi = ffa.acquireVar();
+        int[] x = ffa.acquireVar();
+        int[] y = ffa.acquireVar();
+
+        field.invert(zi, P.z);
+        field.multiply(x, P.x, zi);
+        field.multiply(y, P.y, zi);
+        toLittleEndian(ffa, b, offset, KEY_SIZE, y);
+        if (ffa.isOdd(x)) {
+            b[offset + KEY_SIZE - 1] |= (byte)0x80;
+        }
+
+        ffa.releaseVar(zi);
+        ffa.releaseVar(x);
+        ffa.releaseVar(y);
+    }
+
+    /**
+     * Returns the little-endian number in b reduced modulo L, as a
+     * variable of the order field. Release it after use.
+     */
+    public int[] reduceScalar(byte[] b, int offset, int length) {
+        FFA sffa = order.getFFA();
+        int[] tmp = fromLittleEndian(sffa, sffa.acquireVar(length * 8), b, offset, length);
+        int[] r = sffa.acquireVar();
+        order.trim(r, tmp);
+        sffa.releaseVar(tmp);
+        return r;
+    }
+
+    /**
+     * Returns the 32 byte little-endian scalar in b as a variable of the
+     * order field, or null if it is not below L. Release it after use.
+     */
+    public int[] decodeScalar(byte[] b, int offset) {
+        FFA sffa = order.getFFA();
+        int[] r = fromLittleEndian(sffa, sffa.acquireVar(), b, offset, KEY_SIZE);
+        if (sffa.cmp(r, order.getP()) >= 0) {
+            sffa.releaseVar(r);
+            return null;
+        }
+        return r;
+    }
+
+    /**
+     * Writes the 32 byte little-endian encoding of the scalar k to b.
+     */
+    public void encodeScalar(byte[] b, int offset, int[] k) {
+        toLittleEndian(order.getFFA(), b, offset, KEY_SIZE, k);
+    }
+
+    private static int[] fromLittleEndian(FFA ffa, int[] r, byte[] b, int offset, int length) {
+        byte[] buf = new byte[length];
+        for (int i = 0; i < length; i++) {
+            buf[i] = b[offset + length - 1 - i];
+        }
+        return ffa.from(r, buf, 0, length);
+    }
+
+    private static void toLittleEndian(FFA ffa, byte[] b, int offset, int length, int[] a) {
+        ffa.toByteArray(b, offset, length, a);
+        for (int i = offset, j = offset + length - 1; i < j; i++, j--) {
+            byte t = b[i];
+            b[i] = b[j];
+            b[j] = t;
+        }
+    }
+
+    /**
+     * R = k * B for the base point B and a scalar k below L, with the
+     * fixed-base comb method.
+     */
+    public void multiplyBase(EdPoint R, int[] k) {
+        // Algorithm 3.44 - Fixed-base comb method for point multiplication
+        // D. Hankerson, A. Menezes, S. Vanstone: Guide to Elliptic Curve Cryptography
+        EdPoint[] table = getCombTable();
+        FFA sffa = order.getFFA();
+        int dd = (orderBits + COMB_WIDTH - 1) / COMB_WIDTH;
+
+        setIdentity(R);
+        for (int i = dd - 1; i >= 0; i--) {
+            if (i != dd - 1) {
+                twice(R);
+            }
+
+            // collect the bits k[i], k[d+i], k[2d+i], ... of this column
+            int index = 0;
+            for (int bit = (COMB_WIDTH - 1) * dd + i; bit >= 0; bit -= dd) {
+                index <<= 1;
+                if ((bit < orderBits) && sffa.testBit(k, bit)) {
+                    index |= 1;
+                }
+            }
+
+            if (index != 0) {
+                addCached(R, table[index], true, false);
+            }
+        }
+    }
+
+    /*
+     * Returns the comb table of the base point in affine cached form. With
+     * d = ceil(t / w), the entry at index (a[w-1] ... a[1] a[0]) in binary
+     * is a[w-1] * 2^((w-1)d) * B + ... + a[1] * 2^d * B + a[0] * B.
+     */
+    private synchronized EdPoint[] getCombTable() {
+        if (combTable != null) {
+            return combTable;
+        }
+
+        int dd = (orderBits + COMB_WIDTH - 1) / COMB_WIDTH;
+        EdPoint[] table = new EdPoint[1 << COMB_WIDTH];
+        for (int j = 0; j < COMB_WIDTH; j++) {
+            EdPoint P = new EdPoint(this);
+            if (j == 0) {
+                copy(P, base);
+            } else {
+                copy(P, table[1 << (j - 1)]);
+                for (int i = 0; i < dd; i++) {
+                    twice(P);
+                }
+            }
+            table[1 << j] = P;
+        }
+        int top = 1;
+        for (int i = 3; i < table.length; i++) {
+            if ((i & (i - 1)) == 0) {
+                top = i;
+                continue;
+            }
+            EdPoint P = new EdPoint(this);
+            copy(P, table[i ^ top]);
+            add(P, table[top]);
+            table[i] = P;
+        }
+        makeAffineCached(table, 1, table.length - 1);
+
+        combTable = table;
+        return combTable;
+    }
+
+    // returns the wNAF table of the base point, computed once
+    private synchronized EdPoint[] getBaseTable() {
+        if (baseTable == null) {
+            baseTable = oddMultiples(base, BASE_WNAF_WIDTH, true);
+        }
+        return baseTable;
+    }
+
+    /*
+     * Returns P, 3P, ..., (2^(w-1) - 1)P in cached form, affine if
+     * requested.
+     */
+    private EdPoint[] oddMultiples(EdPoint P, int w, boolean affine) {
+        int n = 1 << (w - 2);
+        EdPoint[] table = new EdPoint[n];
+        table[0] = new EdPoint(this);
+        copy(table[0], P);
+
+        EdPoint P2 = new EdPoint(this);
+        copy(P2, P);
+        twice(P2);
+        toCached(P2, P2);
+        for (int i = 1; i < n; i++) {
+            table[i] = new EdPoint(this);
+            copy(table[i], table[i - 1]);
+            addCached(table[i], P2, false, false);
+        }
+        P2.release();
+
+        if (affine) {
+            makeAffineCached(table, 0, n);
+        } else {
+            for (int i = 0; i < n; i++) {
+                toCached(table[i], table[i]);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * R = kB * B + k[0] * P[0] + ... + k[count-1] * P[count-1], with
+     * interleaved wNAFs (Straus) so that all terms share the doublings.
+     * The scalars are below L, kB may be null.
+     */
+    public void multiplySum(EdPoint R, int[] kB, EdPoint[] P, int[][] k, int count) {
+        int len = orderBits + 1;
+        int top = 0;
+
+        int[] nafB = null;
+        EdPoint[] tableB = null;
+        if (kB != null) {
+            nafB = new int[len];
+            top = wnaf(nafB, kB, BASE_WNAF_WIDTH);
+            tableB = getBaseTable();
+        }
+
+        int[][] naf = new int[count][len];
+        EdPoint[][] tables = new EdPoint[count][];
+        for (int i = 0; i < count; i++) {
+            top = Math.max(top, wnaf(naf[i], k[i], WNAF_WIDTH));
+            tables[i] = oddMultiples(P[i], WNAF_WIDTH, false);
+        }
+
+        setIdentity(R);
+        for (int j = top - 1; j >= 0; j--) {
+            if (j != top - 1) {
+                twice(R);
+            }
+            if ((nafB != null) && (nafB[j] != 0)) {
+                addDigit(R, tableB, nafB[j], true);
+            }
+            for (int i = 0; i < count; i++) {
+                if (naf[i][j] != 0) {
+                    addDigit(R, tables[i], naf[i][j], false);
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < tables[i].length; j++) {
+                tables[i][j].release();
+            }
+        }
+    }
+
+    // R = R + digit * P from a table computed by oddMultiples()
+    private void addDigit(EdPoint R, EdPoint[] table, int digit, boolean affine) {
+        if (digit > 0) {
+            addCached(R, table[digit >> 1], affine, false);
+        } else {
+            addCached(R, table[-digit >> 1], affine, true);
+        }
+    }
+
+    /*
+     * Computes the width-w NAF of the scalar k into naf (least significant
+     * digit first) and returns the number of digits, as in ECCurveFp.
+     */
+    private int wnaf(int[] naf, int[] k, int w) {
+        FFA sffa = order.getFFA();
+        int len = naf.length;
+        int digits = 0;
+        int carry = 0;
+        int bit = 0;
+
+        while (bit < len) {
+            if (scalarBit(sffa, k, bit) == carry) {
+                bit++;
+                continue;
+            }
+
+            // the next w bits plus the carry give an odd word, which is
+            // turned into a negative digit if it is 2^(w-1) or larger
+            int now = Math.min(w, len - bit);
+            int word = carry;
+            for (int i = now - 1; i >= 0; i--) {
+                word += scalarBit(sffa, k, bit + i) << i;
+            }
+            carry = (word >> (w - 1)) & 1;
+            naf[bit] = word - (carry << w);
+
+            digits = bit + 1;
+            bit += now;
+        }
+
+        return digits;
+    }
+
+    private int scalarBit(FFA sffa, int[] k, int bit) {
+        if (bit >= orderBits) {
+            return 0;
+        }
+        return sffa.testBit(k, bit) ? 1 : 0;
+    }
+}
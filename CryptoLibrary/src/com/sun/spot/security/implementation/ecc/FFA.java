@@ -62,64 +62,202 @@ package com.sun.spot.security.implementation.ecc;
  *   <li>a[1] ... bits 55 ~ 28</li>
  *   <li>etc.</li></ul>
  * Bits 31 ~ 28 in each integer are 0.
+ *<p>
+ * The 28 bit words suit the Squawk VM, which has no fast 64 bit
+ * arithmetic. FFA32 is a subclass with 32 bit words for desktop and
+ * server JVMs. Variables of the two classes can not be mixed, and the
+ * NIST prime fields choose their reduction by the word size of their FFA.
  *
  */
 
-public final class FFA {
+public class FFA {
     
     public static final int BITS_PER_WORD = 28;
     public static final int BMASK = 0x0fffffff;
 
-    //vars[][] saves up to 16 int[len] which where released by releaseVar for future reuse
-    private int[][] vars;
+    // Released variables are kept in arenas for reuse. Each thread uses the
+    // arena selected by its hash code, so that threads working with the
+    // same FFA rarely wait for each other's lock.
+    private static final int ARENAS = 8;
+    
+    // number of variables of single and double size kept by each arena.
+    // A per-call point table of width 6 holds 96 single size variables.
+    private static final int ARENA_VARS = 96;
+    private static final int ARENA_DOUBLE_VARS = 8;
     
-    private int varsCount;
+    private final Arena[] arenas;
     
     private int bitLength;
     private int byteLength;
     private int len;
     private int doubleLen;
+    private final int bitsPerWord;
+    
+    private static final class Arena {
+        // vars[0..varsCount-1] were released by releaseVar for future reuse
+        final int[][] vars = new int[ARENA_VARS][];
+        int varsCount;
+        final int[][] doubleVars = new int[ARENA_DOUBLE_VARS][];
+        int doubleVarsCount;
+        
+        // tables[w] holds the variables of a window table of width w
+        // between two exponentiations, see acquireTable()
+        final int[][][] tables = new int[MAX_WINDOW_BITS + 1][][];
+        
+        // number of acquired variables that were reused / newly created
+        long hits;
+        long misses;
+    }
     
     
     // create a new instance of FFA. variables acquired thru this
     // instance are big enough for the given bit length.
     public FFA(int bitLength) {
+        this(bitLength, BITS_PER_WORD);
+    }
+
+    // create a new instance of FFA with the given number of bits per
+    // word. used by subclasses with a different representation.
+    protected FFA(int bitLength, int bitsPerWord) {
         this.bitLength = bitLength;
-        len = (bitLength + 27) / 28;
+        this.bitsPerWord = bitsPerWord;
+        len = (bitLength + bitsPerWord - 1) / bitsPerWord;
         byteLength = (bitLength + 7) / 8;
         doubleLen = 2 * len;
-        vars = new int[16][];
+        arenas = new Arena[ARENAS];
+        for (int i = 0; i < ARENAS; i++) {
+            arenas[i] = new Arena();
+        }
     }
 
     
+    // returns the arena of the current thread
+    private Arena arena() {
+        int h = Thread.currentThread().hashCode();
+        h ^= (h >>> 16);
+        h ^= (h >>> 8);
+        return arenas[h & (ARENAS - 1)];
+    }
+    
     // returns a uninitialized varible of given size.
     public int[] acquireVar(int bits) {
-        int len = (bits + 27) / 28;
+        int len = (bits + bitsPerWord - 1) / bitsPerWord;
         if (len == this.len) {
             return acquireVar();
         } else {
+            Arena arena = arena();
+            synchronized (arena) {
+                arena.misses++;
+            }
             return new int[len];
         }
     }
     
     // returns a uninitialized varible of single size.
     // release it after use.
-    synchronized public int[] acquireVar() {
-        return (varsCount > 0) ? vars[--varsCount] : new int[len];
+    public int[] acquireVar() {
+        Arena arena = arena();
+        synchronized (arena) {
+            if (arena.varsCount > 0) {
+                arena.hits++;
+                return arena.vars[--arena.varsCount];
+            }
+            arena.misses++;
+        }
+        return new int[len];
     }
     
     // returns a uninitialized varible of double size.
     // release it after use.
     public int[] acquireDoubleVar() {
+        Arena arena = arena();
+        synchronized (arena) {
+            if (arena.doubleVarsCount > 0) {
+                arena.hits++;
+                return arena.doubleVars[--arena.doubleVarsCount];
+            }
+            arena.misses++;
+        }
         return new int[doubleLen];
     }
     
     
-    // releases a varible of single size
-    synchronized public void releaseVar(int[] var) {
-        if ((varsCount < vars.length) && (var.length == len)) {
-            vars[varsCount++] = var;
-        } // otherwise let the garbage collector do the rest...
+    // releases a varible of single or double size
+    public void releaseVar(int[] var) {
+        Arena arena = arena();
+        synchronized (arena) {
+            if ((arena.varsCount < ARENA_VARS) && (var.length == len)) {
+                arena.vars[arena.varsCount++] = var;
+            } else if ((arena.doubleVarsCount < ARENA_DOUBLE_VARS) && (var.length == doubleLen)) {
+                arena.doubleVars[arena.doubleVarsCount++] = var;
+            } // otherwise let the garbage collector do the rest...
+        }
+    }
+    
+    // returns a table of 2^(w-1) variables for a window of w bits.
+    // release it with releaseTable() after use.
+    int[][] acquireTable(int w) {
+        Arena arena = arena();
+        synchronized (arena) {
+            int[][] table = arena.tables[w];
+            if (table != null) {
+                arena.tables[w] = null;
+                arena.hits++;
+                return table;
+            }
+            arena.misses++;
+        }
+        int[][] table = new int[1 << (w - 1)][];
+        for (int k = 0; k < table.length; k++) {
+            table[k] = new int[len];
+        }
+        return table;
+    }
+    
+    // keeps a table of acquireTable() for the next exponentiation with the
+    // same window, unless the arena has one already.
+    void releaseTable(int[][] table) {
+        int w = 1;
+        while ((1 << (w - 1)) < table.length) {
+            w++;
+        }
+        Arena arena = arena();
+        synchronized (arena) {
+            if (arena.tables[w] == null) {
+                arena.tables[w] = table;
+            }
+        }
+    }
+    
+    // returns the number of acquired variables that were reused
+    public long getPoolHits() {
+        long hits = 0;
+        for (int i = 0; i < ARENAS; i++) {
+            synchronized (arenas[i]) {
+                hits += arenas[i].hits;
+            }
+        }
+        return hits;
+    }
+    
+    // returns the number of acquired variables that had to be created
+    public long getPoolMisses() {
+        long misses = 0;
+        for (int i = 0; i < ARENAS; i++) {
+            synchronized (arenas[i]) {
+                misses += arenas[i].misses;
+            }
+        }
+        return misses;
+    }
+    
+    public void resetPoolStatistics() {
+        for (int i = 0; i < ARENAS; i++) {
+            synchronized (arenas[i]) {
+                arenas[i].hits = 0;
+                arenas[i].misses = 0;
+            }
+        }
     }
         
     
@@ -135,9 +273,14 @@ public final class FFA {
         return len;
     }
 
+    // returns the number of bits used in each word of a variable
+    public int getBitsPerWord() {
+        return bitsPerWord;
+    }
+
         
     
-    private static char[] hex = {
+    static final char[] hex = {
         '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
     };
     
@@ -493,6 +636,17 @@ public final class FFA {
         }
     }
     
+    // swaps 'a' and 'b' if 'swap' is 1, without branching on it. 'swap'
+    // must be 0 or 1.
+    public void cswap(int swap, int[] a, int[] b) {
+        int mask = -swap;
+        for (int i = a.length - 1; i >= 0; i--) {
+            int t = mask & (a[i] ^ b[i]);
+            a[i] ^= t;
+            b[i] ^= t;
+        }
+    }
+    
     public int[] adjustLength(int[] a) {
         if (a.length != len) {
             int[] r = acquireVar();
@@ -651,34 +805,98 @@ public final class FFA {
     }
     
     
-    // a^e (mod m). 
-    public void modPow(int[] r, int[] a, int[] e,int[] m) {	 
-	
-	int tmp[] = acquireDoubleVar();
-	r[0]=1;	
-	for (int i=1;i<r.length;i++) {
-	    r[i]=0;
-	}
-	
-	//Prescale, 
-	int msbBit=getBitSize()-1;
-	while((msbBit>=0)&&(testBit(e, msbBit)==false)) {
-	    msbBit--;	    
-	}
-	
-	for (int i=msbBit;i>=0;i--) {			
-		sqr(tmp, r);
-		mod(tmp, m);
-		copy(r, tmp);
-		if (testBit(e,i)) {
-		    mul(tmp, r, a);
-		    mod(tmp, m);
-		    copy(r,tmp);
-		}
-	}
-	releaseVar(tmp);		
+    // exponent bit lengths up to which a window of 1, 2, ... bits is used
+    // for exponentiation. Windows are at most 6 bits (32 table entries),
+    // as each entry costs a variable.
+    private static final int[] WINDOW_THRESHOLDS = { 7, 25, 81, 241, 673 };
+    private static final int MAX_WINDOW_BITS = WINDOW_THRESHOLDS.length + 1;
+
+    // returns the window size for an exponent of given bit length.
+    static int windowBits(int bits) {
+        int w = 1;
+        while ((w <= WINDOW_THRESHOLDS.length) && (bits > WINDOW_THRESHOLDS[w - 1])) {
+            w++;
+        }
+        return w;
+    }
+
+    // returns the lowest bit position j > i - w, so that bit j of 'e' is
+    // set. bit i must be set. the window of 'e' is bits i ~ j.
+    int windowEnd(int[] e, int i, int w) {
+        int j = i - w + 1;
+        if (j < 0) j = 0;
+        while (!testBit(e, j)) {
+            j++;
+        }
+        return j;
+    }
+
+    // returns bits i ~ j of 'e' as an integer.
+    int windowValue(int[] e, int i, int j) {
+        int val = 0;
+        for (int k = i; k >= j; k--) {
+            val = (val << 1) | (testBit(e, k) ? 1 : 0);
+        }
+        return val;
+    }
+
+    // a^e (mod m).
+    // uses a sliding window over the exponent: the odd powers a, a^3,
+    // a^5, ... are computed first, then each window of up to w bits
+    // with a set lowest bit costs one multiplication.
+    public void modPow(int[] r, int[] a, int[] e, int[] m) {
+        int bits = bitLength(e);
+        if (bits == 0) {
+            set(r, 1);
+            return;
+        }
+        int w = windowBits(bits);
+        int tmp[] = acquireDoubleVar();
+
+        // table[k] = a^(2k+1) (mod m)
+        int[][] table = acquireTable(w);
+        copy(table[0], a);
+        mod(table[0], m);
+        if (table.length > 1) {
+            int[] a2 = acquireVar();
+            sqr(tmp, table[0]);
+            mod(tmp, m);
+            copy(a2, tmp);
+            for (int k = 1; k < table.length; k++) {
+                mul(tmp, table[k - 1], a2);
+                mod(tmp, m);
+                copy(table[k], tmp);
+            }
+            releaseVar(a2);
+        }
+
+        // the first window sets r, bit bits-1 is set
+        int i = bits - 1;
+        int j = windowEnd(e, i, w);
+        copy(r, table[windowValue(e, i, j) >> 1]);
+        for (i = j - 1; i >= 0; ) {
+            if (!testBit(e, i)) {
+                sqr(tmp, r);
+                mod(tmp, m);
+                copy(r, tmp);
+                i--;
+                continue;
+            }
+            j = windowEnd(e, i, w);
+            for (int k = i; k >= j; k--) {
+                sqr(tmp, r);
+                mod(tmp, m);
+                copy(r, tmp);
+            }
+            mul(tmp, r, table[windowValue(e, i, j) >> 1]);
+            mod(tmp, m);
+            copy(r, tmp);
+            i = j - 1;
+        }
+
+        releaseTable(table);
+        releaseVar(tmp);
     }
-    
 
 }
 
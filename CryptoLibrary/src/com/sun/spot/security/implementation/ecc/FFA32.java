@@ -0,0 +1,360 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+/**
+ * FFA with 32 bit words, for JVMs with fast 64 bit arithmetic.
+ *<p>
+ * The API and the conventions are those of FFA. Big integers are
+ * int-arrays in little endian word order using all 32 bits of each
+ * word, so that fewer words and fewer carries are needed:<br><ul>
+ *   <li>a[0] ... bits 31 ~  0</li>
+ *   <li>a[1] ... bits 63 ~ 32</li>
+ *   <li>etc.</li></ul>
+ * Words are unsigned. Products and sums are accumulated in longs and
+ * the carry is taken from the upper half.
+ */
+public final class FFA32 extends FFA {
+
+    private static final long LMASK = 0xffffffffL;
+
+    // create a new instance of FFA32. variables acquired thru this
+    // instance are big enough for the given bit length.
+    public FFA32(int bitLength) {
+        super(bitLength, 32);
+    }
+
+    // converts an integer array to a string
+    public String toString(int[] a) {
+        StringBuffer res = new StringBuffer(a.length * 8);
+        for (int i = a.length - 1; i >= 0; i--) {
+            int ai = a[i];
+            for (int j = 28; j >= 0; j -= 4) {
+                res.append(hex[(ai >>> j) & 0x0000000f]);
+            }
+        }
+        return res.toString();
+    }
+
+    // converts a string to an integer array
+    public int[] from(int[] r, String a) {
+        int len = r.length;
+        for (int i = 0; i < len; i++) {
+            r[i] = 0;
+        }
+        int nibble = 0;
+        for (int i = a.length() - 1; (i >= 0) && (nibble < 8 * len); i--) {
+            int digit = Character.digit(a.charAt(i), 16);
+            if (digit < 0) {
+                digit = 0;
+            }
+            r[nibble >> 3] |= digit << ((nibble & 7) << 2);
+            nibble++;
+        }
+        return r;
+    }
+
+    // converts from a big-endian int array to the internal representation
+    public int[] from(int[] r, int[] a) {
+        int len = r.length;
+        int aLen = a.length;
+        for (int i = 0; i < len; i++) {
+            r[i] = (i < aLen) ? a[aLen - 1 - i] : 0;
+        }
+        return r;
+    }
+
+    // converts from a right aligned big-endian byte array to the internal
+    // representation
+    public int[] from(int[] r, byte[] a, int ofs, int len) {
+        int rLen = r.length;
+        int srcPos = ofs + len;
+        for (int i = 0; i < rLen; i++) {
+            int w = 0;
+            for (int shift = 0; (shift < 32) && (--srcPos >= ofs); shift += 8) {
+                w |= (a[srcPos] & 0xff) << shift;
+            }
+            r[i] = w;
+        }
+        return r;
+    }
+
+    public void toByteArray(byte[] dst, int ofs, int len, int[] a) {
+        int dstPos = ofs + len - 1;
+        int aLen = a.length;
+        for (int i = 0; (i < aLen) && (dstPos >= ofs); i++) {
+            int w = a[i];
+            for (int k = 0; (k < 4) && (dstPos >= ofs); k++) {
+                dst[dstPos--] = (byte)w;
+                w >>>= 8;
+            }
+        }
+        while (dstPos >= ofs) {
+            dst[dstPos--] = 0;
+        }
+    }
+
+    // r = a + b;
+    public int add(int[] r, int[] a, int[] b) {
+        int len = a.length;
+        long m = 0;
+
+        for (int i = 0; i < len; i++) {
+            m += (a[i] & LMASK) + (b[i] & LMASK);
+            r[i] = (int)m; m >>>= 32;
+        }
+
+        return (int)m;
+    }
+
+    // r = a - b;
+    public int sub(int[] r, int[] a, int[] b) {
+        int len = a.length;
+        long m = 0;
+
+        for (int i = 0; i < len; i++) {
+            m += (a[i] & LMASK) - (b[i] & LMASK);
+            r[i] = (int)m; m >>= 32;
+        }
+
+        return (int)-m; // return borrow (0 or 1).
+    }
+
+    // r = a * b;
+    // 'r' must be at least twice as big as 'a'.
+    public void mul(int[] r, int[] a, int[] b) {
+        int len = a.length;
+        long ai = a[0] & LMASK;
+        long acc = 0;
+
+        // the first row sets r, the others add to it. no sum overflows
+        // a long: (2^32 - 1)^2 + 2 * (2^32 - 1) = 2^64 - 1.
+        for (int j = 0; j < len; j++) {
+            acc += ai * (b[j] & LMASK);
+            r[j] = (int)acc; acc >>>= 32;
+        }
+        r[len] = (int)acc;
+
+        for (int i = 1; i < len; i++) {
+            ai = a[i] & LMASK;
+            acc = 0;
+            for (int j = 0, k = i; j < len; j++, k++) {
+                acc += ai * (b[j] & LMASK) + (r[k] & LMASK);
+                r[k] = (int)acc; acc >>>= 32;
+            }
+            r[i + len] = (int)acc;
+        }
+    }
+
+    public void sqr(int[] r, int[] a) {
+        sqr(r, a, a.length - 1);
+    }
+
+    // r = a^2;
+    // 'r' must be at least twice as big as 'a'.
+    public void sqr(int[] r, int[] a, int len) {
+        int n = len + 1;
+        int n2 = n + n;
+        long acc;
+
+        // the products a[i] * a[j] with i < j, each once
+        for (int k = 0; k < n2; k++) {
+            r[k] = 0;
+        }
+        for (int i = 0; i < n - 1; i++) {
+            long ai = a[i] & LMASK;
+            acc = 0;
+            for (int j = i + 1, k = i + i + 1; j < n; j++, k++) {
+                acc += ai * (a[j] & LMASK) + (r[k] & LMASK);
+                r[k] = (int)acc; acc >>>= 32;
+            }
+            r[i + n] = (int)acc;
+        }
+
+        // double them and add the squares a[i] * a[i]
+        int hi = 0;
+        acc = 0;
+        for (int i = 0; i < n; i++) {
+            long sq = (a[i] & LMASK) * (a[i] & LMASK);
+            int lo = r[2 * i];
+            int up = r[2 * i + 1];
+            acc += (((lo << 1) | hi) & LMASK) + (sq & LMASK);
+            r[2 * i] = (int)acc; acc >>>= 32;
+            acc += (((up << 1) | (lo >>> 31)) & LMASK) + (sq >>> 32);
+            r[2 * i + 1] = (int)acc; acc >>>= 32;
+            hi = up >>> 31;
+        }
+    }
+
+    // r = a << n;
+    // returns carry out
+    public int shl(int[] r, int[] a, int n) {
+        int len = a.length;
+        if (n == 0) {
+            copy(r, a);
+            return 0;
+        }
+        int m = 32 - n;
+        int res = 0;
+
+        for (int i = 0; i < len; i++) {
+            int tmp = a[i];
+            r[i] = res | (tmp << n);
+            res = tmp >>> m;
+        }
+
+        return res;
+    }
+
+    // r = a >>> n;
+    // returns carry out
+    public int shr(int[] r, int[] a, int n) {
+        int i = a.length;
+        if (n == 0) {
+            copy(r, a);
+            return 0;
+        }
+        int m = 32 - n;
+        int res = 0;
+
+        while (--i >= 0) {
+            int tmp = a[i];
+            r[i] = res | (tmp >>> n);
+            res = tmp << m;
+        }
+
+        return res >>> m;
+    }
+
+    // a < b: -1
+    // a == b: 0
+    // a > b:  1
+    public int cmp(int[] a, int[] b) {
+        int aLen = a.length;
+        int bLen = b.length;
+
+        while (aLen > bLen) {
+            if (a[--aLen] != 0) return 1;
+        }
+        while (bLen > aLen) {
+            if (b[--bLen] != 0) return -1;
+        }
+
+        // flipping the sign bit makes the signed comparison unsigned
+        while (--aLen >= 0) {
+            int ai = a[aLen] ^ 0x80000000;
+            int bi = b[aLen] ^ 0x80000000;
+            if (ai < bi) return -1;
+            if (ai > bi) return 1;
+        }
+
+        return 0;
+    }
+
+    // returns the number of bits needed to represent 'a'.
+    public int bitLength(int[] a) {
+        int len = a.length - 1;
+        while (a[len] == 0) {
+            if (len-- <= 0) return 0;
+        }
+        int bpos = 31;
+        int tmp = a[len];
+        while (((tmp >>> bpos) & 0x01) == 0) {
+            bpos--;
+        }
+        return (len * 32) + bpos + 1;
+    }
+
+    // checks if the bit on position 'bit' is set in 'a'
+    public boolean testBit(int[] a, int bit) {
+        return ((a[bit >>> 5] & (1 << (bit & 31))) != 0);
+    }
+
+    // a = a mod b;
+    public void mod(int[] a, int[] b) {
+        int bBits = bitLength(b);
+
+        while (cmp(a, b) >= 0) {
+            int aBits = bitLength(a);
+            int aLen = (aBits + 31) / 32;
+
+            if (subShifted(a, b, aBits - bBits, aLen) == 1) {
+                addShifted(a, b, aBits - bBits - 1, aLen);
+            }
+        }
+    }
+
+    // r -= (b << n);
+    // length of 'b' can differ from length of 'r'
+    private int subShifted(int[] r, int[] b, int n, int len) {
+        int wordOfs = n >>> 5;
+        int bitOfs = n & 31;
+        int bLen = b.length;
+        long tmp = 0;
+        long m = 0;
+        int i;
+
+        for (i = wordOfs; (i < (wordOfs + bLen)) & (i < len); i++) {
+            tmp |= (b[i - wordOfs] & LMASK) << bitOfs;
+            m += (r[i] & LMASK) - (tmp & LMASK);
+            r[i] = (int)m; m >>= 32;
+            tmp >>>= 32;
+        }
+
+        while ((i < len) && ((tmp != 0) || (m != 0))) {
+            m += (r[i] & LMASK) - (tmp & LMASK);
+            r[i++] = (int)m; m >>= 32;
+            tmp >>>= 32;
+        }
+
+        return (int)-m; // return borrow (0 or 1).
+    }
+
+    // r += (b << n);
+    // length of 'b' can differ from length of 'r'
+    private int addShifted(int[] r, int[] b, int n, int len) {
+        int wordOfs = n >>> 5;
+        int bitOfs = n & 31;
+        int bLen = b.length;
+        long tmp = 0;
+        long m = 0;
+        int i;
+
+        for (i = wordOfs; (i < (wordOfs + bLen)) & (i < len); i++) {
+            tmp |= (b[i - wordOfs] & LMASK) << bitOfs;
+            m += (r[i] & LMASK) + (tmp & LMASK);
+            r[i] = (int)m; m >>>= 32;
+            tmp >>>= 32;
+        }
+
+        while ((i < len) && ((tmp != 0) || (m != 0))) {
+            m += (r[i] & LMASK) + (tmp & LMASK);
+            r[i++] = (int)m; m >>>= 32;
+            tmp >>>= 32;
+        }
+
+        return (int)m;
+    }
+}
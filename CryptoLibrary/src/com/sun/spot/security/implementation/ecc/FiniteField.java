@@ -69,6 +69,13 @@ public abstract class FiniteField {
     public abstract void negate(int[] r, int[] a);
     public abstract void invert(int[] r, int[] a);
     
+    // r = a^-1 with the same field operations for every 'a', see
+    // PrimeField.invertConstantTime()
+    public abstract void invertConstantTime(int[] r, int[] a);
+    
+    // r = a square root of 'a', false if there is none
+    public abstract boolean sqrt(int[] r, int[] a);
+    
     // makes 'a' fit into the field by doing a general reduction
     // 'a' can be any size but will be modified.
     public abstract void trim(int[] r, int[] a);
@@ -34,21 +34,91 @@ package com.sun.spot.security.implementation.ecc;
 public final class NIST160PrimeField extends PrimeField {
     
     private static final int BMASK = 0x0fffffff;
+    private static final long LMASK = 0xffffffffL;
     
     private static final int[] p_const =
         {0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFFF,0x7FFFFFFF};
     
     
+    // true if the FFA has 32 bit words, see FFA32
+    private final boolean words32;
+
     public NIST160PrimeField(FFA ffa) {
         super(ffa, ffa.from(p_const));
+        words32 = (ffa.getBitsPerWord() == 32);
     }
     
+    /**
+     * Inversion by Fermat's little theorem, r = a^(p-2), with an addition
+     * chain for p - 2 = 2^160 - 2^31 - 3. x_k stands for a^(2^k - 1).
+     */
+    public void invertConstantTime(int[] r, int[] a) {
+        int[] x29 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        pow128(t, x29, a);
+
+        // p - 2 = x128 0 x29 01 in binary
+        squareMultiply(t, t, 30, x29);
+        square(t, t);
+        square(t, t);
+        multiply(r, t, a);
+
+        ffa.releaseVar(x29);
+        ffa.releaseVar(t);
+    }
+
+    /**
+     * Square root r = a^((p+1)/4), as p = 3 (mod 4), with an addition
+     * chain for (p+1)/4 = 2^158 - 2^29 = x129 0^29 in binary.
+     */
+    public boolean sqrt(int[] r, int[] a) {
+        int[] x29 = ffa.acquireVar();
+
+        pow128(r, x29, a);
+        squareMultiply(r, r, 1, a);       // x129
+        squareRepeat(r, r, 29);
+
+        ffa.releaseVar(x29);
+        return isSquareRoot(r, a);
+    }
+
+    /*
+     * x128 and x29, the common part of the chains of invertConstantTime() and sqrt().
+     */
+    private void pow128(int[] x128, int[] x29, int[] a) {
+        int[] x2 = ffa.acquireVar();
+        int[] x3 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+        int[] u = ffa.acquireVar();
+
+        squareMultiply(x2, a, 1, a);
+        squareMultiply(x3, x2, 1, a);
+        squareMultiply(t, x3, 3, x3);     // x6
+        squareMultiply(u, t, 6, t);       // x12
+        squareMultiply(t, u, 12, u);      // x24
+        squareMultiply(t, t, 3, x3);      // x27
+        squareMultiply(x29, t, 2, x2);
+        squareMultiply(t, x29, 3, x3);    // x32
+        squareMultiply(u, t, 32, t);      // x64
+        squareMultiply(x128, u, 64, u);
+
+        ffa.releaseVar(x2);
+        ffa.releaseVar(x3);
+        ffa.releaseVar(t);
+        ffa.releaseVar(u);
+    }
+
     /**
      * Note that this function is FFA implementation specific and expects
      * that only the 28 LS-bits of each integer are used.
      *  p = 2^160-2^31-1
      */
     protected void reduce(int[] r, int[] a) {
+        if (words32) {
+            reduce32(r, a);
+            return;
+        }
         int m;
         int h0, h1, h2, h3, h4, h5;
         
@@ -92,8 +162,44 @@ public final class NIST160PrimeField extends PrimeField {
                 m += r[2]; r[2] = m & BMASK; m >>= 28;
                 m += r[3]; r[3] = m & BMASK; m >>= 28;
                 m += r[4]; r[4] = m & BMASK; m >>= 28;
-                m += r[5]; r[5] = m & 0x000fffff;
+                r[5] += m;
             }
+            // drop 2^160, also if there was no carry into r[5]
+            r[5] &= 0x000fffff;
+        }
+    }
+
+    /**
+     * Reduction for FFA32 variables, where a holds 10 words:
+     * a = lo + hi * 2^160 and 2^160 = 2^31 + 1 (mod p), so
+     * a = lo + hi + hi * 2^31 (mod p).
+     */
+    private void reduce32(int[] r, int[] a) {
+        long m = 0;
+        long hi;
+        long prev = 0;
+
+        for (int i = 0; i < 5; i++) {
+            hi = a[i + 5] & LMASK;
+            m += (a[i] & LMASK) + hi + ((hi & 1) << 31) + (prev >>> 1);
+            r[i] = (int)m; m >>>= 32;
+            prev = hi;
+        }
+
+        // fold the multiple of 2^160 back until there is none
+        long t = m + (prev >>> 1);
+        while (t != 0) {
+            long x = t << 31;
+            m  = (r[0] & LMASK) + t + (x & LMASK); r[0] = (int)m; m >>>= 32;
+            m += (r[1] & LMASK) + (x >>> 32);      r[1] = (int)m; m >>>= 32;
+            m += (r[2] & LMASK);                   r[2] = (int)m; m >>>= 32;
+            m += (r[3] & LMASK);                   r[3] = (int)m; m >>>= 32;
+            m += (r[4] & LMASK);                   r[4] = (int)m; m >>>= 32;
+            t = m;
+        }
+
+        while (ffa.cmp(r, p) >= 0) {
+            ffa.sub(r, r, p);
         }
     }
 }
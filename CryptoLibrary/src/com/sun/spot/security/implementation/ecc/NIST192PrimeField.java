@@ -34,22 +34,92 @@ package com.sun.spot.security.implementation.ecc;
 public final class NIST192PrimeField extends PrimeField {
     
     private static final int BMASK = 0x0fffffff;
+    private static final long LMASK = 0xffffffffL;
     
     private static final int[] p_const =
 	{0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFE, 0xFFFFFFFF, 0xFFFFFFFF};
     
     
     
+    // true if the FFA has 32 bit words, see FFA32
+    private final boolean words32;
+
     public NIST192PrimeField(FFA ffa) {
         super(ffa, ffa.from(p_const));
+        words32 = (ffa.getBitsPerWord() == 32);
     }
     
+    /**
+     * Inversion by Fermat's little theorem, r = a^(p-2), with an addition
+     * chain for p - 2 = 2^192 - 2^64 - 3. x_k stands for a^(2^k - 1).
+     */
+    public void invertConstantTime(int[] r, int[] a) {
+        int[] x62 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        pow127(t, x62, a);
+
+        // p - 2 = x127 0 x62 01 in binary
+        squareMultiply(t, t, 63, x62);
+        square(t, t);
+        square(t, t);
+        multiply(r, t, a);
+
+        ffa.releaseVar(x62);
+        ffa.releaseVar(t);
+    }
+
+    /**
+     * Square root r = a^((p+1)/4), as p = 3 (mod 4), with an addition
+     * chain for (p+1)/4 = 2^190 - 2^62 = x128 0^62 in binary.
+     */
+    public boolean sqrt(int[] r, int[] a) {
+        int[] x62 = ffa.acquireVar();
+
+        pow127(r, x62, a);
+        squareMultiply(r, r, 1, a);       // x128
+        squareRepeat(r, r, 62);
+
+        ffa.releaseVar(x62);
+        return isSquareRoot(r, a);
+    }
+
+    /*
+     * x127 and x62, the common part of the chains of invertConstantTime() and sqrt().
+     */
+    private void pow127(int[] x127, int[] x62, int[] a) {
+        int[] x3 = ffa.acquireVar();
+        int[] x6 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+        int[] u = ffa.acquireVar();
+
+        squareMultiply(t, a, 1, a);       // x2
+        squareMultiply(x3, t, 1, a);
+        squareMultiply(x6, x3, 3, x3);
+        squareMultiply(t, x6, 6, x6);     // x12
+        squareMultiply(u, t, 12, t);      // x24
+        squareMultiply(u, u, 6, x6);      // x30
+        squareMultiply(u, u, 1, a);       // x31
+        squareMultiply(x62, u, 31, u);
+        squareMultiply(t, x62, 62, x62);  // x124
+        squareMultiply(x127, t, 3, x3);
+
+        ffa.releaseVar(x3);
+        ffa.releaseVar(x6);
+        ffa.releaseVar(t);
+        ffa.releaseVar(u);
+    }
+
     /**
      * Note that this function is FFA implementation specific and expects
      * that only the 28 LS-bits of each integer are used.
      * p = 2^192 - 2^64 - 1
      */
     protected void reduce(int[] r, int[] a) {
+        if (words32) {
+            reduce32(r, a);
+            return;
+        }
         int m;
         int h0, h1, h2, h3, h4, h5, h6;
         int s2, s3, s4, s5, s6, s7, s8, s9;
@@ -117,8 +187,45 @@ public final class NIST192PrimeField extends PrimeField {
                 m += r[3]; r[3] = m & BMASK; m >>= 28;
                 m += r[4]; r[4] = m & BMASK; m >>= 28;
                 m += r[5]; r[5] = m & BMASK; m >>= 28;
-                m += r[6]; r[6] = m & 0x00ffffff;
+                r[6] += m;
             }
+            // drop 2^192, also if there was no carry into r[6]
+            r[6] &= 0x00ffffff;
+        }
+    }
+
+    /**
+     * Reduction for FFA32 variables, where a holds 12 words c0 ... c11:
+     * with 2^192 = 2^64 + 1 (mod p) the upper half is added at three
+     * positions (FIPS 186-3, D.2.1).
+     */
+    private void reduce32(int[] r, int[] a) {
+        long c6 = a[6] & LMASK, c7 = a[7] & LMASK;
+        long c8 = a[8] & LMASK, c9 = a[9] & LMASK;
+        long c10 = a[10] & LMASK, c11 = a[11] & LMASK;
+        long m;
+
+        m  = (a[0] & LMASK) + c6 + c10;       r[0] = (int)m; m >>>= 32;
+        m += (a[1] & LMASK) + c7 + c11;       r[1] = (int)m; m >>>= 32;
+        m += (a[2] & LMASK) + c6 + c8 + c10;  r[2] = (int)m; m >>>= 32;
+        m += (a[3] & LMASK) + c7 + c9 + c11;  r[3] = (int)m; m >>>= 32;
+        m += (a[4] & LMASK) + c8 + c10;       r[4] = (int)m; m >>>= 32;
+        m += (a[5] & LMASK) + c9 + c11;       r[5] = (int)m; m >>>= 32;
+
+        // fold the multiple of 2^192 back until there is none
+        long t = m;
+        while (t != 0) {
+            m  = (r[0] & LMASK) + t; r[0] = (int)m; m >>>= 32;
+            m += (r[1] & LMASK);     r[1] = (int)m; m >>>= 32;
+            m += (r[2] & LMASK) + t; r[2] = (int)m; m >>>= 32;
+            m += (r[3] & LMASK);     r[3] = (int)m; m >>>= 32;
+            m += (r[4] & LMASK);     r[4] = (int)m; m >>>= 32;
+            m += (r[5] & LMASK);     r[5] = (int)m; m >>>= 32;
+            t = m;
+        }
+
+        while (ffa.cmp(r, p) >= 0) {
+            ffa.sub(r, r, p);
         }
     }
 }
@@ -34,14 +34,107 @@ package com.sun.spot.security.implementation.ecc;
 public final class NIST224PrimeField extends PrimeField {
 
     private static final int BMASK = 0x0fffffff;
+    private static final long LMASK = 0xffffffffL;
 
     private static final int[] p_const =
 	{0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0x00000000, 0x00000000, 0x00000001};
 
 
 
+    // true if the FFA has 32 bit words, see FFA32
+    private final boolean words32;
+
+    // the roots of unity of sqrt(), created on first use
+    private int[][] roots;
+
     public NIST224PrimeField(FFA ffa) {
         super(ffa, ffa.from(p_const));
+        words32 = (ffa.getBitsPerWord() == 32);
+    }
+
+    /**
+     * Inversion by Fermat's little theorem, r = a^(p-2), with an addition
+     * chain for p - 2 = 2^224 - 2^96 - 1. x_k stands for a^(2^k - 1).
+     */
+    public void invertConstantTime(int[] r, int[] a) {
+        int[] x96 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        pow127(t, x96, a);
+
+        // p - 2 = x127 0 x96 in binary
+        squareMultiply(r, t, 97, x96);
+
+        ffa.releaseVar(x96);
+        ffa.releaseVar(t);
+    }
+
+    /**
+     * Square root by the Tonelli-Shanks algorithm, as p = 1 (mod 4). With
+     * p - 1 = 2^96 q for q = 2^128 - 1, the start values a^((q-1)/2) = x127
+     * and a^q need an addition chain only. The powers of 2 of z^q for the
+     * non-residue z = 11 are computed at the first call.
+     */
+    public boolean sqrt(int[] r, int[] a) {
+        int[][] roots = getRoots();
+        int[] x96 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        // r = a^((q+1)/2) = a * x127, t = a^q = r * x127
+        pow127(t, x96, a);
+        multiply(r, t, a);
+        multiply(t, t, r);
+        boolean ok = shanks(r, t, roots, 96);
+
+        ffa.releaseVar(x96);
+        ffa.releaseVar(t);
+        return ok;
+    }
+
+    // roots[j] = z^(q * 2^j) for 0 <= j < 96, see sqrt()
+    private synchronized int[][] getRoots() {
+        if (roots != null) {
+            return roots;
+        }
+        int[][] table = new int[96][];
+        int[] z = ffa.acquireVar();
+        int[] x96 = ffa.acquireVar();
+        ffa.set(z, 11);
+        table[0] = ffa.acquireVar();
+        pow127(table[0], x96, z);
+        squareMultiply(table[0], table[0], 1, z);   // z^q = x128
+        for (int j = 1; j < 96; j++) {
+            table[j] = ffa.acquireVar();
+            square(table[j], table[j - 1]);
+        }
+        ffa.releaseVar(z);
+        ffa.releaseVar(x96);
+        roots = table;
+        return roots;
+    }
+
+    /*
+     * x127 and x96, the common part of the chains of invertConstantTime() and sqrt().
+     */
+    private void pow127(int[] x127, int[] x96, int[] a) {
+        int[] x6 = ffa.acquireVar();
+        int[] x24 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        squareMultiply(t, a, 1, a);       // x2
+        squareMultiply(t, t, 1, a);       // x3
+        squareMultiply(x6, t, 3, t);
+        squareMultiply(t, x6, 6, x6);     // x12
+        squareMultiply(x24, t, 12, t);
+        squareMultiply(t, x24, 24, x24);  // x48
+        squareMultiply(x96, t, 48, t);
+        squareMultiply(t, x96, 24, x24);  // x120
+        squareMultiply(t, t, 6, x6);      // x126
+        squareMultiply(x127, t, 1, a);
+
+        ffa.releaseVar(x6);
+        ffa.releaseVar(x24);
+        ffa.releaseVar(t);
     }
 
     /**
@@ -50,6 +143,10 @@ public final class NIST224PrimeField extends PrimeField {
      * p = 2^224 - 2^96 + 1
      */
     protected void reduce(int[] r, int[] a) {
+        if (words32) {
+            reduce32(r, a);
+            return;
+        }
         int m;
         int h0, h1, h2, h3;
         int s3, s4, s5, s6, s7, s8, s9, s10, s11;
@@ -104,12 +201,62 @@ public final class NIST224PrimeField extends PrimeField {
         m += r[4] + BMASK + s4;        r[4] = m & BMASK; m >>>= 28;
         m += r[5] + BMASK + s5;        r[5] = m & BMASK; m >>>= 28;
         m += r[6] + BMASK + s6;        r[6] = m & BMASK; m >>>= 28;
-        m += r[7] + BMASK;             r[7] = m & BMASK;
-        
+        m += r[7] + BMASK;             r[7] = m & BMASK; m >>>= 28;
+
+        // the carry includes the 1 of the two's complement of hi, any
+        // more is 2^224 = 2^96 - 1 (mod p). The rest is below 2^208 then.
+        if (m > 1) {
+            m  = r[0] + BMASK; r[0] = m & BMASK; m >>>= 28;
+            m += r[1] + BMASK; r[1] = m & BMASK; m >>>= 28;
+            m += r[2] + BMASK; r[2] = m & BMASK; m >>>= 28;
+            m += r[3] + 0xfff; r[3] = m & BMASK; m >>>= 28;
+            m += r[4];         r[4] = m & BMASK; m >>>= 28;
+            m += r[5];         r[5] = m & BMASK; m >>>= 28;
+            m += r[6];         r[6] = m & BMASK; m >>>= 28;
+            m += r[7];         r[7] = m & BMASK;
+        }
+
         if (ffa.cmp(r, p) >= 0) {
-            int[] tmp2 = ffa.acquireVar();
-            System.arraycopy(r, 0, tmp2, 0, r.length);
-            ffa.sub(r, tmp2, p);
+            ffa.sub(r, r, p);
+        }
+    }
+
+    /**
+     * Reduction for FFA32 variables, where a holds 14 words c0 ... c13:
+     * r = T + S1 + S2 - D1 - D2 (mod p) as in FIPS 186-3, D.2.2. The
+     * word sums are signed, the carry is propagated with an arithmetic
+     * shift.
+     */
+    private void reduce32(int[] r, int[] a) {
+        long c7 = a[7] & LMASK, c8 = a[8] & LMASK, c9 = a[9] & LMASK;
+        long c10 = a[10] & LMASK, c11 = a[11] & LMASK;
+        long c12 = a[12] & LMASK, c13 = a[13] & LMASK;
+        long m;
+
+        m  = (a[0] & LMASK) - c7 - c11;        r[0] = (int)m; m >>= 32;
+        m += (a[1] & LMASK) - c8 - c12;        r[1] = (int)m; m >>= 32;
+        m += (a[2] & LMASK) - c9 - c13;        r[2] = (int)m; m >>= 32;
+        m += (a[3] & LMASK) + c7 + c11 - c10;  r[3] = (int)m; m >>= 32;
+        m += (a[4] & LMASK) + c8 + c12 - c11;  r[4] = (int)m; m >>= 32;
+        m += (a[5] & LMASK) + c9 + c13 - c12;  r[5] = (int)m; m >>= 32;
+        m += (a[6] & LMASK) + c10 - c13;       r[6] = (int)m; m >>= 32;
+
+        // fold the (possibly negative) multiple of 2^224 back with
+        // 2^224 = 2^96 - 1 (mod p) until there is none
+        long t = m;
+        while (t != 0) {
+            m  = (r[0] & LMASK) - t; r[0] = (int)m; m >>= 32;
+            m += (r[1] & LMASK);     r[1] = (int)m; m >>= 32;
+            m += (r[2] & LMASK);     r[2] = (int)m; m >>= 32;
+            m += (r[3] & LMASK) + t; r[3] = (int)m; m >>= 32;
+            m += (r[4] & LMASK);     r[4] = (int)m; m >>= 32;
+            m += (r[5] & LMASK);     r[5] = (int)m; m >>= 32;
+            m += (r[6] & LMASK);     r[6] = (int)m; m >>= 32;
+            t = m;
+        }
+
+        while (ffa.cmp(r, p) >= 0) {
+            ffa.sub(r, r, p);
         }
     }
 }
\ No newline at end of file
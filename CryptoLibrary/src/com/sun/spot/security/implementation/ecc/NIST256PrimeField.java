@@ -34,23 +34,99 @@ package com.sun.spot.security.implementation.ecc;
 public final class NIST256PrimeField extends PrimeField {
     
     private static final int BMASK = 0x0fffffff;
+    private static final long LMASK = 0xffffffffL;
     
     private static final int[] p_const =
     	{0xFFFFFFFF,0x00000001,0x00000000,0x00000000,0x00000000,0xFFFFFFFF,0xFFFFFFFF, 0xFFFFFFFF};
     
     
+    // true if the FFA has 32 bit words, see FFA32
+    private final boolean words32;
+
     public NIST256PrimeField(FFA ffa) {
         super(ffa, ffa.from(p_const));
+        words32 = (ffa.getBitsPerWord() == 32);
     }
     
+    /**
+     * Inversion by Fermat's little theorem, r = a^(p-2), with an addition
+     * chain for p - 2 = 2^256 - 2^224 + 2^192 + 2^96 - 3. x_k stands for
+     * a^(2^k - 1).
+     */
+    public void invertConstantTime(int[] r, int[] a) {
+        int[] x30 = ffa.acquireVar();
+        int[] x32 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        pow32(x32, x30, a);
+
+        // p - 2 = x32 0^31 1 0^96 x32 x32 x30 01 in binary
+        squareMultiply(t, x32, 32, a);
+        squareMultiply(t, t, 128, x32);
+        squareMultiply(t, t, 32, x32);
+        squareMultiply(t, t, 30, x30);
+        square(t, t);
+        square(t, t);
+        multiply(r, t, a);
+
+        ffa.releaseVar(x30);
+        ffa.releaseVar(x32);
+        ffa.releaseVar(t);
+    }
+
+    /**
+     * Square root r = a^((p+1)/4), as p = 3 (mod 4), with an addition
+     * chain for (p+1)/4 = 2^254 - 2^222 + 2^190 + 2^94 = x32 0^31 1 0^95 1
+     * 0^94 in binary.
+     */
+    public boolean sqrt(int[] r, int[] a) {
+        int[] x30 = ffa.acquireVar();
+
+        pow32(r, x30, a);
+        squareMultiply(r, r, 32, a);
+        squareMultiply(r, r, 96, a);
+        squareRepeat(r, r, 94);
+
+        ffa.releaseVar(x30);
+        return isSquareRoot(r, a);
+    }
+
+    /*
+     * x32 and x30, the common part of the chains of invertConstantTime() and sqrt().
+     */
+    private void pow32(int[] x32, int[] x30, int[] a) {
+        int[] x2 = ffa.acquireVar();
+        int[] x3 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+        int[] u = ffa.acquireVar();
+
+        squareMultiply(x2, a, 1, a);
+        squareMultiply(x3, x2, 1, a);
+        squareMultiply(t, x3, 3, x3);     // x6
+        squareMultiply(u, t, 6, t);       // x12
+        squareMultiply(u, u, 3, x3);      // x15
+        squareMultiply(x30, u, 15, u);
+        squareMultiply(x32, x30, 2, x2);
+
+        ffa.releaseVar(x2);
+        ffa.releaseVar(x3);
+        ffa.releaseVar(t);
+        ffa.releaseVar(u);
+    }
+
     /**
      * Note that this function is FFA implementation specific and expects
      * that only the 28 LS-bits of each integer are used.
-     * TODO: Implement fast reduction
+     * TODO: Implement fast reduction for 28 bit words, FFA32 variables
+     * already use reduce32
      * p = 2^256 - 2^224 + 2^192 + 2^96 -1 
      * 
      */
     protected void reduce(int[] r, int[] a) {
+        if (words32) {
+            reduce32(r, a);
+            return;
+        }
 	super.reduce(r, a);
         /*
 	int m;
@@ -107,4 +183,54 @@ public final class NIST256PrimeField extends PrimeField {
         }*/
     }
     
+
+    /**
+     * Reduction for FFA32 variables, where a holds 16 words c0 ... c15:
+     * r = T + 2 S1 + 2 S2 + S3 + S4 - D1 - D2 - D3 - D4 (mod p) as in
+     * FIPS 186-3, D.2.3. The word sums are signed, the carry is
+     * propagated with an arithmetic shift.
+     */
+    private void reduce32(int[] r, int[] a) {
+        long c8 = a[8] & LMASK, c9 = a[9] & LMASK;
+        long c10 = a[10] & LMASK, c11 = a[11] & LMASK;
+        long c12 = a[12] & LMASK, c13 = a[13] & LMASK;
+        long c14 = a[14] & LMASK, c15 = a[15] & LMASK;
+        long m;
+
+        m  = (a[0] & LMASK) + c8 + c9 - c11 - c12 - c13 - c14;
+        r[0] = (int)m; m >>= 32;
+        m += (a[1] & LMASK) + c9 + c10 - c12 - c13 - c14 - c15;
+        r[1] = (int)m; m >>= 32;
+        m += (a[2] & LMASK) + c10 + c11 - c13 - c14 - c15;
+        r[2] = (int)m; m >>= 32;
+        m += (a[3] & LMASK) + 2 * (c11 + c12) + c13 - c15 - c8 - c9;
+        r[3] = (int)m; m >>= 32;
+        m += (a[4] & LMASK) + 2 * (c12 + c13) + c14 - c9 - c10;
+        r[4] = (int)m; m >>= 32;
+        m += (a[5] & LMASK) + 2 * (c13 + c14) + c15 - c10 - c11;
+        r[5] = (int)m; m >>= 32;
+        m += (a[6] & LMASK) + 3 * c14 + 2 * c15 + c13 - c8 - c9;
+        r[6] = (int)m; m >>= 32;
+        m += (a[7] & LMASK) + 3 * c15 + c8 - c10 - c11 - c12 - c13;
+        r[7] = (int)m; m >>= 32;
+
+        // fold the (possibly negative) multiple of 2^256 back with
+        // 2^256 = 2^224 - 2^192 - 2^96 + 1 (mod p) until there is none
+        long t = m;
+        while (t != 0) {
+            m  = (r[0] & LMASK) + t; r[0] = (int)m; m >>= 32;
+            m += (r[1] & LMASK);     r[1] = (int)m; m >>= 32;
+            m += (r[2] & LMASK);     r[2] = (int)m; m >>= 32;
+            m += (r[3] & LMASK) - t; r[3] = (int)m; m >>= 32;
+            m += (r[4] & LMASK);     r[4] = (int)m; m >>= 32;
+            m += (r[5] & LMASK);     r[5] = (int)m; m >>= 32;
+            m += (r[6] & LMASK) - t; r[6] = (int)m; m >>= 32;
+            m += (r[7] & LMASK) + t; r[7] = (int)m; m >>= 32;
+            t = m;
+        }
+
+        while (ffa.cmp(r, p) >= 0) {
+            ffa.sub(r, r, p);
+        }
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package com.sun.spot.security.implementation.ecc;
+
+
+/**
+ * This NIST384PrimeField class implements efficient reduction for 
+ * the prime field with NIST 384-bit reduction modulus. It is used
+ * in the SECP384R1 elliptic curve.    
+ *
+ */
+public final class NIST384PrimeField extends PrimeField {
+    
+    private static final int BMASK = 0x0fffffff;
+    private static final long LMASK = 0xffffffffL;
+    
+    private static final int[] p_const =
+        {0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFFF,0xFFFFFFFF,
+         0xFFFFFFFF,0xFFFFFFFE,0xFFFFFFFF,0x00000000,0x00000000,0xFFFFFFFF};
+    
+    
+    // true if the FFA has 32 bit words, see FFA32
+    private final boolean words32;
+
+    public NIST384PrimeField(FFA ffa) {
+        super(ffa, ffa.from(p_const));
+        words32 = (ffa.getBitsPerWord() == 32);
+    }
+    
+    /**
+     * Inversion by Fermat's little theorem, r = a^(p-2), with an addition
+     * chain for p - 2 = 2^384 - 2^128 - 2^96 + 2^32 - 3. x_k stands for
+     * a^(2^k - 1).
+     */
+    public void invertConstantTime(int[] r, int[] a) {
+        int[] x30 = ffa.acquireVar();
+        int[] x32 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+
+        pow255(t, x32, x30, a);
+
+        // p - 2 = x255 0 x32 0^64 x30 01 in binary
+        squareMultiply(t, t, 33, x32);
+        squareMultiply(t, t, 94, x30);
+        square(t, t);
+        square(t, t);
+        multiply(r, t, a);
+
+        ffa.releaseVar(x30);
+        ffa.releaseVar(x32);
+        ffa.releaseVar(t);
+    }
+
+    /**
+     * Square root r = a^((p+1)/4), as p = 3 (mod 4), with an addition
+     * chain for (p+1)/4 = 2^382 - 2^126 - 2^94 + 2^30 = x255 0 x32 0^63 1
+     * 0^30 in binary.
+     */
+    public boolean sqrt(int[] r, int[] a) {
+        int[] x30 = ffa.acquireVar();
+        int[] x32 = ffa.acquireVar();
+
+        pow255(r, x32, x30, a);
+        squareMultiply(r, r, 33, x32);
+        squareMultiply(r, r, 64, a);
+        squareRepeat(r, r, 30);
+
+        ffa.releaseVar(x30);
+        ffa.releaseVar(x32);
+        return isSquareRoot(r, a);
+    }
+
+    /*
+     * x255, x32 and x30, the common part of the chains of invertConstantTime() and
+     * sqrt().
+     */
+    private void pow255(int[] x255, int[] x32, int[] x30, int[] a) {
+        int[] x2 = ffa.acquireVar();
+        int[] x3 = ffa.acquireVar();
+        int[] x15 = ffa.acquireVar();
+        int[] t = ffa.acquireVar();
+        int[] u = ffa.acquireVar();
+
+        squareMultiply(x2, a, 1, a);
+        squareMultiply(x3, x2, 1, a);
+        squareMultiply(t, x3, 3, x3);     // x6
+        squareMultiply(u, t, 6, t);       // x12
+        squareMultiply(x15, u, 3, x3);
+        squareMultiply(x30, x15, 15, x15);
+        squareMultiply(t, x30, 30, x30);  // x60
+        squareMultiply(u, t, 60, t);      // x120
+        squareMultiply(t, u, 120, u);     // x240
+        squareMultiply(x255, t, 15, x15);
+        squareMultiply(x32, x30, 2, x2);
+
+        ffa.releaseVar(x2);
+        ffa.releaseVar(x3);
+        ffa.releaseVar(x15);
+        ffa.releaseVar(t);
+        ffa.releaseVar(u);
+    }
+
+    /**
+     * p = 2^384 - 2^128 - 2^96 + 2^32 - 1
+     * The reduction works on 32 bit words. Variables with 28 bit words
+     * are regrouped into 32 bit words before and after, which is cheap
+     * compared to the generic reduction.
+     */
+    protected void reduce(int[] r, int[] a) {
+        if (words32) {
+            reduce32(r, a);
+        } else {
+            int[] c = ffa.acquireDoubleVar();
+
+            // regroup the 28 bit words of a into the 32 bit words of c
+            long acc = 0;
+            int bits = 0;
+            int j = 0;
+            for (int i = 0; j < 24; i++) {
+                acc |= ((long)a[i]) << bits;
+                bits += 28;
+                if (bits >= 32) {
+                    c[j++] = (int)acc;
+                    acc >>>= 32;
+                    bits -= 32;
+                }
+            }
+
+            reduce32(c, c);
+
+            // and the 32 bit words of the result back into 28 bit words
+            acc = 0;
+            bits = 0;
+            j = 0;
+            for (int i = 0; i < r.length; i++) {
+                if ((bits < 28) && (j < 12)) {
+                    acc |= (c[j++] & LMASK) << bits;
+                    bits += 32;
+                }
+                r[i] = (int)acc & BMASK;
+                acc >>>= 28;
+                bits -= 28;
+            }
+            ffa.releaseVar(c);
+        }
+
+        while (ffa.cmp(r, p) >= 0) {
+            ffa.sub(r, r, p);
+        }
+    }
+
+    /**
+     * Reduction of 24 words c0 ... c23 of 32 bits into r[0..11]:
+     * r = T + 2 S1 + S2 + S3 + S4 + S5 + S6 - D1 - D2 - D3 (mod p) as in
+     * FIPS 186-3, D.2.4. Word i of the sum only needs c_i and the upper
+     * half, so r may be a. The result is below 2^384, but may be above p.
+     */
+    private void reduce32(int[] r, int[] a) {
+        long c12 = a[12] & LMASK, c13 = a[13] & LMASK, c14 = a[14] & LMASK;
+        long c15 = a[15] & LMASK, c16 = a[16] & LMASK, c17 = a[17] & LMASK;
+        long c18 = a[18] & LMASK, c19 = a[19] & LMASK, c20 = a[20] & LMASK;
+        long c21 = a[21] & LMASK, c22 = a[22] & LMASK, c23 = a[23] & LMASK;
+        long m;
+
+        m  = (a[0] & LMASK) + c12 + c20 + c21 - c23;
+        r[0] = (int)m; m >>= 32;
+        m += (a[1] & LMASK) + c13 + c22 + c23 - c12 - c20;
+        r[1] = (int)m; m >>= 32;
+        m += (a[2] & LMASK) + c14 + c23 - c13 - c21;
+        r[2] = (int)m; m >>= 32;
+        m += (a[3] & LMASK) + c12 + c15 + c20 + c21 - c14 - c22 - c23;
+        r[3] = (int)m; m >>= 32;
+        m += (a[4] & LMASK) + c12 + c13 + c16 + c20 + 2 * c21 + c22 - c15 - 2 * c23;
+        r[4] = (int)m; m >>= 32;
+        m += (a[5] & LMASK) + c13 + c14 + c17 + c21 + 2 * c22 + c23 - c16;
+        r[5] = (int)m; m >>= 32;
+        m += (a[6] & LMASK) + c14 + c15 + c18 + c22 + 2 * c23 - c17;
+        r[6] = (int)m; m >>= 32;
+        m += (a[7] & LMASK) + c15 + c16 + c19 + c23 - c18;
+        r[7] = (int)m; m >>= 32;
+        m += (a[8] & LMASK) + c16 + c17 + c20 - c19;
+        r[8] = (int)m; m >>= 32;
+        m += (a[9] & LMASK) + c17 + c18 + c21 - c20;
+        r[9] = (int)m; m >>= 32;
+        m += (a[10] & LMASK) + c18 + c19 + c22 - c21;
+        r[10] = (int)m; m >>= 32;
+        m += (a[11] & LMASK) + c19 + c20 + c23 - c22;
+        r[11] = (int)m; m >>= 32;
+
+        // fold the (possibly negative) multiple of 2^384 back with
+        // 2^384 = 2^128 + 2^96 - 2^32 + 1 (mod p) until there is none
+        long t = m;
+        while (t != 0) {
+            m  = (r[0] & LMASK) + t; r[0] = (int)m; m >>= 32;
+            m += (r[1] & LMASK) - t; r[1] = (int)m; m >>= 32;
+            m += (r[2] & LMASK);     r[2] = (int)m; m >>= 32;
+            m += (r[3] & LMASK) + t; r[3] = (int)m; m >>= 32;
+            m += (r[4] & LMASK) + t; r[4] = (int)m; m >>= 32;
+            for (int i = 5; i < 12; i++) {
+                m += (r[i] & LMASK); r[i] = (int)m; m >>= 32;
+            }
+            t = m;
+        }
+    }
+}
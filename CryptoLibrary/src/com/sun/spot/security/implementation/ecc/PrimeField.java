@@ -31,11 +31,8 @@ package com.sun.spot.security.implementation.ecc;
  */
 public class PrimeField extends FiniteField {
     
-    private int[] tmp;
-    
     public PrimeField(FFA ffa, int[] p) {
         super(ffa, p);
-        tmp = ffa.acquireDoubleVar();
     }
     
     // r = a + b (mod p)
@@ -54,14 +51,20 @@ public class PrimeField extends FiniteField {
         }
     }
     
-    synchronized public void multiply(int[] r, int[] a, int[] b) {
+    // the double length product is acquired per call, so that
+    // several threads can use the same field without locking
+    public void multiply(int[] r, int[] a, int[] b) {
+        int[] tmp = ffa.acquireDoubleVar();
         ffa.mul(tmp, a, b);
         reduce(r, tmp);
+        ffa.releaseVar(tmp);
     }
     
-    synchronized public void square(int[] r, int[] a) {
+    public void square(int[] r, int[] a) {
+        int[] tmp = ffa.acquireDoubleVar();
         ffa.sqr(tmp, a);
         reduce(r, tmp);
+        ffa.releaseVar(tmp);
     }
     
     public void multiply2(int[] r, int[] a) {
@@ -74,7 +77,7 @@ public class PrimeField extends FiniteField {
             // even. after that, we can shift it right by 1.
             int xhi = ffa.add(r, a, p);
             ffa.shr(r, r, 1);
-            r[a.length - 1] |= (xhi << (FFA.BITS_PER_WORD - 1));
+            r[a.length - 1] |= (xhi << (ffa.getBitsPerWord() - 1));
         } else {
             ffa.shr(r, a, 1);
         }
@@ -131,6 +134,203 @@ public class PrimeField extends FiniteField {
     	ffa.releaseVar(x2);
     }
 
+    /**
+     * Sets r to a^-1 (mod p) by Fermat's little theorem, r = a^(p-2). The
+     * field operations are the same for every a, as the exponent is
+     * fixed, so the time depends less on a than that of invert(). It is
+     * slower though, so callers opt into it where this matters. Special
+     * prime fields override it with addition chains.
+     */
+    public void invertConstantTime(int[] r, int[] a) {
+        int[] e = ffa.acquireVar();
+        ffa.set(e, 2);
+        ffa.sub(e, p, e);
+        pow(r, a, e);
+        ffa.releaseVar(e);
+    }
+
+    // r = a^(2^n) * b (mod p) for n >= 1, a step of the addition chains
+    // that special prime fields use for Fermat inversion. r may be a, but
+    // not b.
+    protected void squareMultiply(int[] r, int[] a, int n, int[] b) {
+        int[] tmp = ffa.acquireDoubleVar();
+        ffa.sqr(tmp, a);
+        reduce(r, tmp);
+        for (int i = 1; i < n; i++) {
+            ffa.sqr(tmp, r);
+            reduce(r, tmp);
+        }
+        ffa.mul(tmp, r, b);
+        reduce(r, tmp);
+        ffa.releaseVar(tmp);
+    }
+
+    // r = a^(2^n) (mod p) for n >= 1
+    protected void squareRepeat(int[] r, int[] a, int n) {
+        int[] tmp = ffa.acquireDoubleVar();
+        ffa.sqr(tmp, a);
+        reduce(r, tmp);
+        for (int i = 1; i < n; i++) {
+            ffa.sqr(tmp, r);
+            reduce(r, tmp);
+        }
+        ffa.releaseVar(tmp);
+    }
+
+    /**
+     * Sets r to a square root of a (mod p), the point decompression of
+     * prime curves needs it. a must be reduced, r may not be a. Returns
+     * false, leaving r undefined, if a is not a square.
+     * <p>
+     * For p = 3 (mod 4) the root is a^((p+1)/4), otherwise it is found
+     * with the Tonelli-Shanks algorithm. Special prime fields override
+     * this with addition chains.
+     */
+    public boolean sqrt(int[] r, int[] a) {
+        int[] e = ffa.acquireVar();
+        boolean ok;
+        if ((p[0] & 3) == 3) {
+            // (p+1)/4 = (p >> 2) + 1 for p = 3 (mod 4)
+            int[] one = ffa.acquireVar();
+            ffa.set(one, 1);
+            ffa.shr(e, p, 2);
+            ffa.add(e, e, one);
+            ffa.releaseVar(one);
+            pow(r, a, e);
+            ok = isSquareRoot(r, a);
+        } else {
+            // p - 1 = 2^s * q with q odd
+            int s = 1;
+            while (!ffa.testBit(p, s)) {
+                s++;
+            }
+            int[] q = ffa.acquireVar();
+            ffa.copy(q, p);
+            for (int i = 0; i < s; i++) {
+                ffa.shr(q, q, 1);
+            }
+
+            // roots[j] = z^(q * 2^j) for the least non-residue z. z is a
+            // non-residue iff z^((p-1)/2) = -1.
+            int[] z = ffa.acquireVar();
+            int[] one = ffa.acquireVar();
+            int[] m1 = ffa.acquireVar();
+            int[] t = ffa.acquireVar();
+            ffa.set(one, 1);
+            ffa.copy(z, one);
+            negate(m1, one);
+            ffa.shr(e, p, 1);
+            do {
+                add(z, z, one);
+                pow(t, z, e);
+            } while (ffa.cmp(t, m1) != 0);
+            int[][] roots = new int[s][];
+            roots[0] = ffa.acquireVar();
+            pow(roots[0], z, q);
+            for (int j = 1; j < s; j++) {
+                roots[j] = ffa.acquireVar();
+                square(roots[j], roots[j - 1]);
+            }
+
+            // r = a^((q+1)/2), t = a^q
+            ffa.shr(e, q, 1);
+            pow(t, a, e);
+            multiply(r, t, a);
+            multiply(t, t, r);
+            ok = shanks(r, t, roots, s);
+
+            for (int j = 0; j < s; j++) {
+                ffa.releaseVar(roots[j]);
+            }
+            ffa.releaseVar(q);
+            ffa.releaseVar(z);
+            ffa.releaseVar(one);
+            ffa.releaseVar(m1);
+            ffa.releaseVar(t);
+        }
+        ffa.releaseVar(e);
+        return ok;
+    }
+
+    // true if r^2 = a (mod p)
+    protected boolean isSquareRoot(int[] r, int[] a) {
+        int[] t = ffa.acquireVar();
+        square(t, r);
+        boolean ok = (ffa.cmp(t, a) == 0);
+        ffa.releaseVar(t);
+        return ok;
+    }
+
+    /*
+     * The main loop of the Tonelli-Shanks algorithm for p - 1 = 2^s * q
+     * with q odd, see Cohen, A Course in Computational Algebraic Number
+     * Theory, Algorithm 1.5.1. On entry r = a^((q+1)/2) and t = a^q, and
+     * roots[j] = z^(q * 2^j) for a non-residue z. On return r is the root
+     * of a, unless a is not a square. t is destroyed.
+     */
+    protected boolean shanks(int[] r, int[] t, int[][] roots, int s) {
+        if (ffa.is(t, 0)) {
+            // a = 0
+            ffa.set(r, 0);
+            return true;
+        }
+        int[] u = ffa.acquireVar();
+        int m = s;
+        boolean ok = true;
+        while (!ffa.is(t, 1)) {
+            // the least i with t^(2^i) = 1, which is below m for squares
+            int i = 0;
+            ffa.copy(u, t);
+            do {
+                square(u, u);
+                i++;
+            } while (!ffa.is(u, 1) && (i < m));
+            if (i == m) {
+                ok = false;
+                break;
+            }
+            // the root of unity of order 2^(i+1) is roots[s-i-1]
+            multiply(r, r, roots[s - i - 1]);
+            multiply(t, t, roots[s - i]);
+            m = i;
+        }
+        ffa.releaseVar(u);
+        return ok;
+    }
+
+    // a[i] = a[i]^-1 for offset <= i < offset + count. Montgomery's trick
+    // needs a single inversion for all values. None of them may be zero.
+    public void invert(int[][] a, int offset, int count) {
+        if (count == 0) {
+            return;
+        }
+        
+        // c[i] = a[0] * a[1] * ... * a[i]
+        int[][] c = new int[count][];
+        c[0] = ffa.acquireVar();
+        ffa.copy(c[0], a[offset]);
+        for (int i = 1; i < count; i++) {
+            c[i] = ffa.acquireVar();
+            multiply(c[i], c[i - 1], a[offset + i]);
+        }
+        
+        int[] inv = ffa.acquireVar();
+        int[] tmp = ffa.acquireVar();
+        invert(inv, c[count - 1]);
+        
+        for (int i = count - 1; i > 0; i--) {
+            multiply(tmp, inv, c[i - 1]);
+            multiply(inv, inv, a[offset + i]);
+            ffa.copy(a[offset + i], tmp);
+            ffa.releaseVar(c[i]);
+        }
+        ffa.copy(a[offset], inv);
+        
+        ffa.releaseVar(c[0]);
+        ffa.releaseVar(inv);
+        ffa.releaseVar(tmp);
+    }
+
     public void trim(int[] r, int[] a) {
         ffa.mod(a, p);
         if (r != a) {
@@ -148,19 +348,47 @@ public class PrimeField extends FiniteField {
     }
     
     
+    // r = a^e (mod p), with a sliding window over the exponent like
+    // FFA.modPow.
     public void pow(int[] r, int[] a, int[] e) {
-	
-	r[0]=1;
-	for (int i=1;i<r.length;i++) {
-	    r[i]=0;
-	}
-	int i;
-	for (i=getBitSize()-1;i>=0;i--) {
-		square(r, r);
-		if (ffa.testBit(e,i)) {
-		    multiply(r, a, r);
-		}
-	}
+        int bits = ffa.bitLength(e);
+        if (bits == 0) {
+            ffa.set(r, 1);
+            return;
+        }
+        int w = FFA.windowBits(bits);
+
+        // table[k] = a^(2k+1) (mod p)
+        int[][] table = ffa.acquireTable(w);
+        ffa.copy(table[0], a);
+        trim(table[0], table[0]);
+        if (table.length > 1) {
+            int[] a2 = ffa.acquireVar();
+            square(a2, table[0]);
+            for (int k = 1; k < table.length; k++) {
+                multiply(table[k], table[k - 1], a2);
+            }
+            ffa.releaseVar(a2);
+        }
+
+        int i = bits - 1;
+        int j = ffa.windowEnd(e, i, w);
+        ffa.copy(r, table[ffa.windowValue(e, i, j) >> 1]);
+        for (i = j - 1; i >= 0; ) {
+            if (!ffa.testBit(e, i)) {
+                square(r, r);
+                i--;
+                continue;
+            }
+            j = ffa.windowEnd(e, i, w);
+            for (int k = i; k >= j; k--) {
+                square(r, r);
+            }
+            multiply(r, r, table[ffa.windowValue(e, i, j) >> 1]);
+            i = j - 1;
+        }
+
+        ffa.releaseTable(table);
     }
     
 }
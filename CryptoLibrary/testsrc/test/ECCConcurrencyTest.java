@@ -0,0 +1,218 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package test;
+
+import junit.framework.TestCase;
+
+import com.sun.spot.security.Signature;
+import com.sun.spot.security.implementation.ECKeyImpl;
+import com.sun.spot.security.implementation.ECPrecomputationCache;
+import com.sun.spot.security.implementation.ECPrivateKeyImpl;
+import com.sun.spot.security.implementation.ECPublicKeyImpl;
+import com.sun.spot.security.implementation.ecc.ECCurve;
+import com.sun.spot.security.implementation.ecc.ECPoint;
+import com.sun.spot.security.implementation.ecc.FFA;
+
+/*
+ * Runs point multiplications and ECDSA signatures on one shared curve from
+ * several threads. Checks the results against a single-threaded run and
+ * prints the throughput for each number of threads.
+ */
+
+public class ECCConcurrencyTest extends TestCase {
+
+    private static final int OPERATIONS = 40;
+
+    public void testConcurrentSECP160() throws Exception {
+	testConcurrent(ECCurve.SECP160R1);
+    }
+
+    public void testConcurrentSECP224() throws Exception {
+	testConcurrent(ECCurve.SECP224R1);
+    }
+
+    /*
+     * Verifies with one shared key from several threads while the
+     * precomputation cache is enabled. The threads may build the table
+     * concurrently, but only one of them is kept.
+     */
+    public void testConcurrentCache() throws Exception {
+	int curveId = ECCurve.SECP160R1;
+	ECPublicKeyImpl publicKey = new ECPublicKeyImpl(curveId);
+	ECPrivateKeyImpl privateKey = new ECPrivateKeyImpl(curveId);
+	ECKeyImpl.genKeyPair(publicKey, privateKey);
+	final byte[] message = "SunSPOT".getBytes();
+	Signature sig = Signature.getInstance("SHA1WITHECDSA");
+	sig.initSign(privateKey);
+	sig.update(message, 0, message.length);
+	final byte[] signature = new byte[200];
+	final int sigLen = sig.sign(signature, 0, signature.length);
+	try {
+	    ECPrecomputationCache.enable(1, 1 << 20);
+	    Verifier[] verifiers = new Verifier[4];
+	    for (int i = 0; i < verifiers.length; i++) {
+		verifiers[i] = new Verifier(publicKey, message, signature, sigLen);
+		verifiers[i].start();
+	    }
+	    for (int i = 0; i < verifiers.length; i++) {
+		verifiers[i].join();
+		if (verifiers[i].error != null) {
+		    throw verifiers[i].error;
+		}
+	    }
+	    assertEquals(1, ECPrecomputationCache.getKeyCount());
+	    int size = ECPrecomputationCache.getUsedBytes();
+	    publicKey.clearKey();
+	    assertTrue(size > 0);
+	    assertEquals(0, ECPrecomputationCache.getUsedBytes());
+	} finally {
+	    ECPrecomputationCache.disable();
+	}
+    }
+
+    private void testConcurrent(int curveId) throws Exception {
+	ECCurve curve = ECCurve.getInstance(curveId);
+	int processors = Runtime.getRuntime().availableProcessors();
+	System.out.println("Curve " + curveId + ", " + processors + " processors");
+	// warm up
+	run(curve, curveId, 1);
+	double single = 0;
+	FFA ffa = curve.getField().getFFA();
+	for (int threads = 1; threads <= 4; threads *= 2) {
+	    ffa.resetPoolStatistics();
+	    double opsPerSecond = run(curve, curveId, threads);
+	    if (threads == 1) {
+		single = opsPerSecond;
+	    }
+	    long hits = ffa.getPoolHits();
+	    long misses = ffa.getPoolMisses();
+	    System.out.println("  " + threads + " threads: "
+		    + (int)opsPerSecond + " ops/s, speedup "
+		    + ((int)(100 * opsPerSecond / single) / 100.0)
+		    + ", pool hits " + hits + ", misses " + misses);
+	}
+    }
+
+    private double run(ECCurve curve, int curveId, int threads) throws Exception {
+	Worker[] workers = new Worker[threads];
+	for (int i = 0; i < threads; i++) {
+	    workers[i] = new Worker(curve, curveId);
+	}
+	long start = System.currentTimeMillis();
+	for (int i = 0; i < threads; i++) {
+	    workers[i].start();
+	}
+	for (int i = 0; i < threads; i++) {
+	    workers[i].join();
+	}
+	long time = Math.max(1, System.currentTimeMillis() - start);
+	for (int i = 0; i < threads; i++) {
+	    if (workers[i].error != null) {
+		throw workers[i].error;
+	    }
+	}
+	return threads * OPERATIONS * 1000.0 / time;
+    }
+
+    private static class Worker extends Thread {
+	private final ECCurve curve;
+	private final ECPublicKeyImpl publicKey;
+	private final ECPrivateKeyImpl privateKey;
+	private final String expectedX;
+	private final String expectedY;
+	private Exception error;
+
+	Worker(ECCurve curve, int curveId) throws Exception {
+	    this.curve = curve;
+	    publicKey = new ECPublicKeyImpl(curveId);
+	    privateKey = new ECPrivateKeyImpl(curveId);
+	    ECKeyImpl.genKeyPair(publicKey, privateKey);
+	    ECPoint Q = publicKey.getECPoint();
+	    FFA ffa = curve.getField().getFFA();
+	    expectedX = ffa.toString(Q.x);
+	    expectedY = ffa.toString(Q.y);
+	    Q.release();
+	}
+
+	public void run() {
+	    try {
+		FFA ffa = curve.getField().getFFA();
+		Signature sig = Signature.getInstance("SHA1WITHECDSA");
+		byte[] message = getName().getBytes();
+		byte[] signature = new byte[200];
+		for (int i = 0; i < OPERATIONS; i++) {
+		    // every operation is one variable-base multiplication and
+		    // one signature with its verification
+		    ECPoint P = curve.getGenerator().clonePoint();
+		    curve.multiply(P, privateKey.getKeyData());
+		    assertEquals(expectedX, ffa.toString(P.x));
+		    assertEquals(expectedY, ffa.toString(P.y));
+		    P.release();
+
+		    sig.initSign(privateKey);
+		    sig.update(message, 0, message.length);
+		    int sigLen = sig.sign(signature, 0, signature.length);
+		    sig.initVerify(publicKey);
+		    sig.update(message, 0, message.length);
+		    assertTrue(sig.verify(signature, 0, sigLen));
+		}
+	    } catch (Exception e) {
+		error = e;
+	    } catch (Error e) {
+		error = new Exception(e.toString());
+	    }
+	}
+    }
+
+    private static class Verifier extends Thread {
+	private final ECPublicKeyImpl publicKey;
+	private final byte[] message;
+	private final byte[] signature;
+	private final int sigLen;
+	private Exception error;
+
+	Verifier(ECPublicKeyImpl publicKey, byte[] message, byte[] signature, int sigLen) {
+	    this.publicKey = publicKey;
+	    this.message = message;
+	    this.signature = signature;
+	    this.sigLen = sigLen;
+	}
+
+	public void run() {
+	    try {
+		Signature sig = Signature.getInstance("SHA1WITHECDSA");
+		for (int i = 0; i < OPERATIONS; i++) {
+		    sig.initVerify(publicKey);
+		    sig.update(message, 0, message.length);
+		    assertTrue(sig.verify(signature, 0, sigLen));
+		}
+	    } catch (Exception e) {
+		error = e;
+	    } catch (Error e) {
+		error = new Exception(e.toString());
+	    }
+	}
+    }
+}
@@ -27,20 +27,31 @@ package test;
 
 
 import java.awt.event.KeyListener;
+import java.lang.management.ManagementFactory;
 import java.util.Random;
 
 import junit.framework.TestCase;
 
 import com.sun.spot.security.InvalidKeyException;
+import com.sun.spot.security.MessageDigest;
 import com.sun.spot.security.NoSuchAlgorithmException;
 import com.sun.spot.security.Signature;
 import com.sun.spot.security.SignatureException;
+import com.sun.spot.security.implementation.ECDSABatchVerifier;
 import com.sun.spot.security.implementation.ECKeyImpl;
+import com.sun.spot.security.implementation.ECPrecomputationCache;
+import com.sun.spot.security.implementation.ECPresignaturePool;
 import com.sun.spot.security.implementation.ECPrivateKeyImpl;
 import com.sun.spot.security.implementation.ECPublicKeyImpl;
 import com.sun.spot.security.implementation.SecureRandom;
 import com.sun.spot.security.implementation.Util;
+import com.sun.spot.security.implementation.ecc.ECCurve;
+import com.sun.spot.security.implementation.ecc.ECCurveFp;
+import com.sun.spot.security.implementation.ecc.ECPoint;
+import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.PrimeField;
 import com.sun.spotx.crypto.KeyAgreement;
+import com.sun.spotx.crypto.implementation.ECDHKeyAgreement;
 
 
 
@@ -189,6 +200,35 @@ public abstract class ECCTest extends TestCase {
         assertTrue(equal);
         debug("Match: " + equal);
     }
+    
+    public void testKeyAgreementConstantTime() throws Exception {
+        ECPublicKeyImpl publicKeyAlice = new ECPublicKeyImpl(curveId);
+        ECPrivateKeyImpl privateKeyAlice = new ECPrivateKeyImpl(curveId);
+        ECPublicKeyImpl publicKeyBob = new ECPublicKeyImpl(curveId);
+        ECPrivateKeyImpl privateKeyBob = new ECPrivateKeyImpl(curveId);
+        ECKeyImpl.genKeyPair(publicKeyAlice, privateKeyAlice);
+        ECKeyImpl.genKeyPair(publicKeyBob, privateKeyBob);
+        
+        byte[] public2 = new byte[256*2];
+        int bobPublicKeyLength = publicKeyBob.getW(public2, 0);
+        
+        // the ladder must give the same secret as the default wNAF method
+        ECDHKeyAgreement agr1 = (ECDHKeyAgreement)KeyAgreement.getInstance(KeyAgreement.ALG_EC_SVDP_DH);
+        ECDHKeyAgreement agr2 = (ECDHKeyAgreement)KeyAgreement.getInstance(KeyAgreement.ALG_EC_SVDP_DH);
+        agr2.setConstantTime(true);
+        agr1.init(privateKeyAlice);
+        agr2.init(privateKeyAlice);
+        
+        byte[] secret1 = new byte[60];
+        byte[] secret2 = new byte[60];
+        int length1 = agr1.generateSecret(public2, 0, bobPublicKeyLength, secret1, 0);
+        int length2 = agr2.generateSecret(public2, 0, bobPublicKeyLength, secret2, 0);
+        assertEquals(length1, length2);
+        assertFalse(length1 == 0);
+        for (int i = 0; i < length1; i++) {
+            assertEquals(secret1[i], secret2[i]);
+        }
+    }
 
 
 
@@ -259,6 +299,618 @@ private int sigLen;
 	assertFalse(equals);
 	
     }
+    
+    public void testGeneratorMultiplication() throws Exception {
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA orderFFA = curve.getOrder().getFFA();
+	int[] k = orderFFA.acquireVar();
+	
+	// k = 1 and k = n - 1 exercise the lowest and highest comb columns
+	orderFFA.set(k, 1);
+	assertGeneratorMultiple(curve, k);
+	orderFFA.sub(k, curve.getOrder().getP(), k);
+	assertGeneratorMultiple(curve, k);
+	orderFFA.releaseVar(k);
+	
+	for (int i = 0; i < 10; i++) {
+	    createNewKeyPair();
+	    assertGeneratorMultiple(curve, privateKey.getKeyData());
+	}
+    }
+    
+    public void testBatchKeyGeneration() throws Exception {
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA ffa = curve.getField().getFFA();
+	ECPublicKeyImpl[] publicKeys = new ECPublicKeyImpl[5];
+	ECPrivateKeyImpl[] privateKeys = new ECPrivateKeyImpl[5];
+	for (int i = 0; i < publicKeys.length; i++) {
+	    publicKeys[i] = new ECPublicKeyImpl(curveId);
+	    privateKeys[i] = new ECPrivateKeyImpl(curveId);
+	}
+	ECKeyImpl.genKeyPairs(publicKeys, privateKeys);
+	for (int i = 0; i < publicKeys.length; i++) {
+	    assertTrue(publicKeys[i].isInitialized());
+	    assertTrue(privateKeys[i].isInitialized());
+	    ECPoint expected = curve.getGenerator().clonePoint();
+	    curve.multiply(expected, privateKeys[i].getKeyData());
+	    ECPoint actual = publicKeys[i].getECPoint();
+	    assertEquals(ffa.toString(expected.x), ffa.toString(actual.x));
+	    assertEquals(ffa.toString(expected.y), ffa.toString(actual.y));
+	    assertTrue(curve.isOnCurve(actual));
+	    expected.release();
+	    actual.release();
+	}
+    }
+    
+    public void testBatchVerify() throws Exception {
+	ECPublicKeyImpl[] keys = new ECPublicKeyImpl[2];
+	byte[][] messages = new byte[7][];
+	byte[][] signatures = new byte[7][];
+	ECPublicKeyImpl[] signers = new ECPublicKeyImpl[7];
+	sig = Signature.getInstance("SHA1WITHECDSA");
+	for (int i = 0; i < messages.length; i++) {
+	    if (i < keys.length) {
+		createNewKeyPair();
+		keys[i] = publicKey;
+	    }
+	    message = ("Record " + i).getBytes();
+	    sign();
+	    messages[i] = message;
+	    signatures[i] = new byte[sigLen];
+	    System.arraycopy(signature, 0, signatures[i], 0, sigLen);
+	    signers[i] = publicKey;
+	}
+	// a modified signature, a modified message and a wrong key
+	signatures[2][signatures[2].length - 1]++;
+	messages[4][0]++;
+	signers[5] = keys[0];
+	
+	boolean[] expected = new boolean[messages.length];
+	for (int i = 0; i < messages.length; i++) {
+	    sig.initVerify(signers[i]);
+	    sig.update(messages[i], 0, messages[i].length);
+	    expected[i] = sig.verify(signatures[i], 0, signatures[i].length);
+	}
+	assertFalse(expected[2]);
+	assertFalse(expected[4]);
+	assertFalse(expected[5]);
+	assertTrue(expected[6]);
+	
+	ECDSABatchVerifier verifier = new ECDSABatchVerifier("SHA1WITHECDSA");
+	for (int threads = 1; threads <= 4; threads++) {
+	    for (int i = 0; i < messages.length; i++) {
+		verifier.add(signers[i], messages[i], 0, messages[i].length,
+			signatures[i], 0, signatures[i].length);
+	    }
+	    assertEquals(messages.length, verifier.size());
+	    boolean[] results = verifier.verify(threads);
+	    assertEquals(0, verifier.size());
+	    for (int i = 0; i < messages.length; i++) {
+		assertEquals("threads=" + threads + ", item " + i, expected[i], results[i]);
+	    }
+	}
+	
+	// once the pools are filled, a batch returns all its variables and
+	// points to them
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA orderFFA = curve.getOrder().getFFA();
+	for (int round = 0; round < 2; round++) {
+	    orderFFA.resetPoolStatistics();
+	    curve.resetPoolStatistics();
+	    for (int i = 0; i < messages.length; i++) {
+		verifier.add(signers[i], messages[i], 0, messages[i].length,
+			signatures[i], 0, signatures[i].length);
+	    }
+	    verifier.verify();
+	}
+	assertEquals(0, orderFFA.getPoolMisses());
+	assertEquals(0, curve.getPoolMisses());
+	verifier.close();
+    }
+    
+    public void testBatchVerifyOneBad() throws Exception {
+	// one key signs all records, the signature of one of them is broken
+	createNewKeyPair();
+	sig = Signature.getInstance("SHA1WITHECDSA");
+	byte[][] messages = new byte[9][];
+	byte[][] signatures = new byte[9][];
+	for (int i = 0; i < messages.length; i++) {
+	    message = ("Record " + i).getBytes();
+	    sign();
+	    messages[i] = message;
+	    signatures[i] = new byte[sigLen];
+	    System.arraycopy(signature, 0, signatures[i], 0, sigLen);
+	}
+	int bad = 5;
+	signatures[bad][signatures[bad].length - 2] ^= 0x10;
+	
+	// the workers are reused from one batch to the next
+	ECDSABatchVerifier verifier = new ECDSABatchVerifier("SHA1WITHECDSA");
+	for (int round = 0; round < 3; round++) {
+	    for (int threads = 1; threads <= 3; threads++) {
+		for (int i = 0; i < messages.length; i++) {
+		    verifier.add(publicKey, messages[i], 0, messages[i].length,
+			    signatures[i], 0, signatures[i].length);
+		}
+		boolean[] results = verifier.verify(threads);
+		for (int i = 0; i < messages.length; i++) {
+		    assertEquals("threads=" + threads + ", item " + i, i != bad, results[i]);
+		}
+	    }
+	}
+	verifier.close();
+    }
+    
+    public void testWindowWidths() throws Exception {
+	ECCurveFp curve = (ECCurveFp)ECCurve.getInstance(curveId);
+	FFA ffa = curve.getField().getFFA();
+	for (int i = 0; i < 5; i++) {
+	    createNewKeyPair();
+	    int[] k = privateKey.getKeyData();
+	    ECPoint expected = new ECPoint(curve);
+	    curve.multiplyGenerator(expected, k);
+	    for (int w = 2; w <= ECCurveFp.MAX_WNAF_WIDTH; w++) {
+		ECPoint actual = curve.getGenerator().clonePoint();
+		curve.multiply(actual, k, w);
+		assertEquals("w=" + w, ffa.toString(expected.x), ffa.toString(actual.x));
+		assertEquals("w=" + w, ffa.toString(expected.y), ffa.toString(actual.y));
+		actual.release();
+	    }
+	    expected.release();
+	}
+    }
+    
+    public void testLadder() throws Exception {
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA ffa = curve.getField().getFFA();
+	FFA orderFFA = curve.getOrder().getFFA();
+	int[] k = orderFFA.acquireVar();
+	ECPoint expected = new ECPoint(curve);
+	ECPoint actual = new ECPoint(curve);
+	for (int i = 0; i < 10; i++) {
+	    if (i < 2) {
+		// next to 0 and n, the ladder can meet the point at infinity
+		orderFFA.set(k, i + 1);
+	    } else if (i < 4) {
+		orderFFA.set(k, i - 1);
+		orderFFA.sub(k, curve.getN(), k);
+	    } else {
+		createNewKeyPair();
+		privateKey.getKeyData(k);
+	    }
+	    curve.copy(expected, curve.getGenerator());
+	    curve.multiply(expected, k);
+	    curve.copy(actual, curve.getGenerator());
+	    curve.multiplyLadder(actual, k);
+	    assertEquals(ffa.toString(expected.x), ffa.toString(actual.x));
+	    assertEquals(ffa.toString(expected.y), ffa.toString(actual.y));
+	    assertTrue(ffa.is(actual.z, 1));
+	}
+	orderFFA.releaseVar(k);
+	expected.release();
+	actual.release();
+    }
+    
+    public void testGeneratorSum() throws Exception {
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA ffa = curve.getField().getFFA();
+	for (int i = 0; i < 5; i++) {
+	    createNewKeyPair();
+	    int[] k1 = privateKey.getKeyData();
+	    ECPoint Q = publicKey.getECPoint();
+	    createNewKeyPair();
+	    int[] k2 = privateKey.getKeyData();
+	    
+	    ECPoint expected = curve.getGenerator().clonePoint();
+	    curve.multiplySum(expected, k1, Q, k2);
+	    ECPoint actual = new ECPoint(curve);
+	    curve.multiplyGeneratorSum(actual, k1, Q, k2);
+	    assertEquals(ffa.toString(expected.x), ffa.toString(actual.x));
+	    assertEquals(ffa.toString(expected.y), ffa.toString(actual.y));
+	    expected.release();
+	    actual.release();
+	    Q.release();
+	}
+    }
+
+    public void testGeneratorSumCancellation() throws Exception {
+	// with Q = -G, k1 = 2^m + b and k2 = 2^m + c, the top digits of both
+	// NAFs cancel, so the sum is infinity before b and c are added
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA ffa = curve.getField().getFFA();
+	PrimeField order = curve.getOrder();
+	FFA orderFFA = order.getFFA();
+	ECPoint Q = negatedGenerator(curve);
+	ECPoint[] tableQ = curve.precomputeMultiples(Q);
+	int m = order.getBitSize() - 2;
+	int[][] lows = {{12345, 678}, {678, 12345}, {1, 2}, {0x7fff1, 0x3}};
+	for (int i = 0; i < lows.length; i++) {
+	    int[] k1 = scalar(orderFFA, m, lows[i][0]);
+	    int[] k2 = scalar(orderFFA, m, lows[i][1]);
+	    
+	    // k1 * G + k2 * -G = (k1 - k2) * G
+	    int[] k = orderFFA.acquireVar();
+	    order.subtract(k, k1, k2);
+	    ECPoint expected = new ECPoint(curve);
+	    curve.multiplyGenerator(expected, k);
+	    orderFFA.releaseVar(k);
+	    
+	    ECPoint actual = new ECPoint(curve);
+	    curve.multiplyGeneratorSum(actual, k1, Q, k2);
+	    assertEquals("pair " + i, ffa.toString(expected.x), ffa.toString(actual.x));
+	    assertEquals("pair " + i, ffa.toString(expected.y), ffa.toString(actual.y));
+	    curve.multiplyGeneratorSum(actual, k1, tableQ, k2);
+	    assertEquals("pair " + i, ffa.toString(expected.x), ffa.toString(actual.x));
+	    assertEquals("pair " + i, ffa.toString(expected.y), ffa.toString(actual.y));
+	    
+	    expected.release();
+	    actual.release();
+	    orderFFA.releaseVar(k1);
+	    orderFFA.releaseVar(k2);
+	}
+	Q.release();
+    }
+    
+    public void testVerifyCancellation() throws Exception {
+	// with d = n - 1 and a small nonce k, u1 = u2 + k, so the partial sums
+	// of u1 * G + u2 * -G cancel in the middle of the interleaving
+	createNegatedGeneratorKeyPair();
+	ECCurve curve = ECCurve.getInstance(curveId);
+	message = "SunSPOT".getBytes();
+	MessageDigest md = MessageDigest.getInstance("SHA-1");
+	byte[] digest = new byte[md.getDigestLength()];
+	md.update(message, 0, message.length);
+	md.digest(digest, 0, digest.length);
+	
+	sig = Signature.getInstance("SHA1WITHECDSA");
+	ECDSABatchVerifier verifier = new ECDSABatchVerifier("SHA1WITHECDSA");
+	for (int k = 1; k <= 8; k++) {
+	    sigLen = signWithNonce(curve, privateKey.getKeyData(), k, digest, signature);
+	    assertTrue("k=" + k, verify());
+	    verifier.add(publicKey, message, 0, message.length, signature, 0, sigLen);
+	}
+	boolean[] results = verifier.verify();
+	for (int i = 0; i < results.length; i++) {
+	    assertTrue("k=" + (i + 1), results[i]);
+	}
+    }
+    
+    public void testSumCancellation() throws Exception {
+	// with Q = -G, k1 = 2^m + b and k2 = 2^m + c, the top digits select
+	// G + Q, which is infinity. With Q = -2G, k1 = 2^(m+1) + b and
+	// k2 = 2^m + c, the sum becomes infinity after adding Q.
+	ECCurveFp curve = (ECCurveFp)ECCurve.getInstance(curveId);
+	PrimeField order = curve.getOrder();
+	FFA orderFFA = order.getFFA();
+	int m = order.getBitSize() - 3;
+	ECPoint Q1 = negatedGenerator(curve);
+	ECPoint Q2 = negatedGenerator(curve);
+	curve.twice(Q2);
+	curve.makeAffine(Q2);
+	
+	assertSum(curve, scalar(orderFFA, m, 12345), Q1, 1, scalar(orderFFA, m, 678));
+	assertSum(curve, scalar(orderFFA, m, 678), Q1, 1, scalar(orderFFA, m, 12345));
+	assertSum(curve, scalar(orderFFA, m + 1, 12345), Q2, 2, scalar(orderFFA, m, 678));
+	assertSum(curve, scalar(orderFFA, m + 1, 3), Q2, 2, scalar(orderFFA, m, 0x7fff1));
+	
+	// k1 * G + k1 * -G is infinity
+	int[] k = scalar(orderFFA, m, 12345);
+	ECPoint R = curve.getGenerator().clonePoint();
+	try {
+	    curve.multiplySum(R, k, Q1, k);
+	    fail("infinity expected");
+	} catch (IllegalArgumentException e) {
+	    // expected
+	}
+	orderFFA.releaseVar(k);
+	R.release();
+	Q1.release();
+	Q2.release();
+    }
+    
+    public void testBackends() throws Exception {
+	ECCurve curve28 = ECCurve.getInstance(curveId, ECCurve.FFA_28);
+	ECCurve curve32 = ECCurve.getInstance(curveId, ECCurve.FFA_32);
+	FFA order28 = curve28.getOrder().getFFA();
+	FFA order32 = curve32.getOrder().getFFA();
+	byte[] kBytes = new byte[order28.getByteSize()];
+	byte[] expected = new byte[1 + 2 * curve28.getField().getFFA().getByteSize()];
+	byte[] actual = new byte[expected.length];
+	for (int i = 0; i < 5; i++) {
+	    createNewKeyPair();
+	    order28.toByteArray(kBytes, 0, kBytes.length, privateKey.getKeyData());
+	    int[] k28 = order28.from(kBytes, 0, kBytes.length);
+	    int[] k32 = order32.from(kBytes, 0, kBytes.length);
+
+	    ECPoint p28 = new ECPoint(curve28);
+	    ECPoint p32 = new ECPoint(curve32);
+	    curve28.multiplyGenerator(p28, k28);
+	    curve32.multiplyGenerator(p32, k32);
+	    curve28.encodePoint(p28, expected, 0);
+	    curve32.encodePoint(p32, actual, 0);
+	    assertEquals(Util.hexEncode(expected), Util.hexEncode(actual));
+
+	    // an arbitrary point, k * (k * G)
+	    curve28.multiply(p28, k28);
+	    curve32.multiply(p32, k32);
+	    curve28.encodePoint(p28, expected, 0);
+	    curve32.encodePoint(p32, actual, 0);
+	    assertEquals(Util.hexEncode(expected), Util.hexEncode(actual));
+	    p28.release();
+	    p32.release();
+	    order28.releaseVar(k28);
+	    order32.releaseVar(k32);
+	}
+    }
+
+    public void testPrecomputationCache() throws Exception {
+	try {
+	    ECPrecomputationCache.enable(2, 1 << 20);
+	    createNewKeyPair();
+	    sig = Signature.getInstance("SHA1WITHECDSA");
+	    message = "SunSPOT".getBytes();
+	    sign();
+	    assertTrue(verify());
+	    assertEquals(0, ECPrecomputationCache.getKeyCount());
+	    for (int i = 0; i < 3; i++) {
+		assertTrue(verify());
+	    }
+	    assertEquals(1, ECPrecomputationCache.getKeyCount());
+	    int size = ECPrecomputationCache.getUsedBytes();
+	    assertTrue(size > 0);
+	    message = "SunSPoT".getBytes();
+	    assertFalse(verify());
+	    
+	    // with a budget of one table the older key is dropped
+	    ECPrecomputationCache.enable(1, size);
+	    createNewKeyPair();
+	    message = "SunSPOT".getBytes();
+	    sign();
+	    assertTrue(verify());
+	    assertTrue(verify());
+	    assertEquals(1, ECPrecomputationCache.getKeyCount());
+	    assertEquals(size, ECPrecomputationCache.getUsedBytes());
+	    
+	    // changing the key drops its table
+	    publicKey.clearKey();
+	    assertEquals(0, ECPrecomputationCache.getKeyCount());
+	    assertEquals(0, ECPrecomputationCache.getUsedBytes());
+	} finally {
+	    ECPrecomputationCache.disable();
+	}
+    }
+    
+    public void testPreload() throws Exception {
+	// preloading in the background and using the curve at the same time
+	// gives the same instance
+	Thread loader = new Thread() {
+	    public void run() {
+		ECCurve.preload(curveId);
+	    }
+	};
+	loader.start();
+	ECCurve curve = ECCurve.getInstance(curveId);
+	loader.join();
+	assertSame(curve, ECCurve.getInstance(curveId));
+	
+	FFA ffa = curve.getOrder().getFFA();
+	Random rnd = new Random(7);
+	int[] k = ffa.acquireVar();
+	for (int i = 0; i < 4; i++) {
+	    byte[] kBytes = new byte[ffa.getByteSize()];
+	    rnd.nextBytes(kBytes);
+	    kBytes[0] = 0;
+	    ffa.from(k, kBytes, 0, kBytes.length);
+	    assertGeneratorMultiple(curve, k);
+	}
+	ffa.releaseVar(k);
+    }
+    
+    public void testGeneratorTableConstants() throws Exception {
+	// the tables of ECCurveConstants, entry by entry, against tables that
+	// a curve without constants computes from the domain parameters
+	int[] backends = { ECCurve.FFA_28, ECCurve.FFA_32 };
+	for (int i = 0; i < backends.length; i++) {
+	    ECCurve curve = ECCurve.getInstance(curveId, backends[i]);
+	    ECPoint G = curve.getGenerator();
+	    ECCurveFp computed = new ECCurveFp((PrimeField) curve.getField(),
+		    curve.getA(), curve.getB(), G.x, G.y, curve.getOrder(), curve.getH());
+	    int[][] expected = computed.getGeneratorTableWords();
+	    int[][] actual = ((ECCurveFp) curve).getGeneratorTableWords();
+	    assertEquals(expected.length, actual.length);
+	    for (int t = 0; t < expected.length; t++) {
+		assertEquals(expected[t].length, actual[t].length);
+		for (int j = 0; j < expected[t].length; j++) {
+		    assertEquals("backend " + backends[i] + ", table " + t + ", word " + j,
+			    expected[t][j], actual[t][j]);
+		}
+	    }
+	}
+    }
+
+    public void testPointCompression() throws Exception {
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA ffa = curve.getField().getFFA();
+	int numLen = ffa.getByteSize();
+	byte[] full = new byte[2 * numLen + 1];
+	byte[] compressed = new byte[numLen + 1];
+	for (int i = 0; i < 8; i++) {
+	    createNewKeyPair();
+	    assertEquals(full.length, publicKey.getW(full, 0));
+	    assertEquals(compressed.length, publicKey.getW(compressed, 0, true));
+	    assertEquals((full[full.length - 1] & 1) + 2, compressed[0]);
+	    
+	    // decoding twice uses the cache the second time
+	    for (int j = 0; j < 2; j++) {
+		ECPublicKeyImpl decoded = new ECPublicKeyImpl(curveId);
+		decoded.setW(compressed, 0, compressed.length);
+		byte[] encoded = new byte[full.length];
+		decoded.getW(encoded, 0);
+		assertEquals(Util.hexEncode(full, full.length),
+			Util.hexEncode(encoded, encoded.length));
+	    }
+	    
+	    // the other parity is the negated point
+	    compressed[0] ^= 1;
+	    ECPoint P = new ECPoint(curve);
+	    assertTrue(curve.decodePoint(P, compressed, 0, compressed.length));
+	    assertTrue(curve.isOnCurve(P));
+	    ECPoint Q = publicKey.getECPoint();
+	    assertEquals(ffa.toString(Q.x), ffa.toString(P.x));
+	    assertFalse(ffa.toString(Q.y).equals(ffa.toString(P.y)));
+	    P.release();
+	    Q.release();
+	}
+	
+	// about half of all x have no point
+	ECPoint P = new ECPoint(curve);
+	int rejected = 0;
+	Random rnd = new Random(5);
+	for (int i = 0; i < 32; i++) {
+	    rnd.nextBytes(compressed);
+	    compressed[0] = 2;
+	    compressed[1] &= 0x7f;
+	    if (!curve.decodePoint(P, compressed, 0, compressed.length)) {
+		rejected++;
+	    } else {
+		assertTrue(curve.isOnCurve(P));
+	    }
+	}
+	assertTrue(rejected > 0);
+	assertTrue(rejected < 32);
+	
+	// x >= p
+	for (int i = 1; i < compressed.length; i++) {
+	    compressed[i] = (byte) 0xff;
+	}
+	assertFalse(curve.decodePoint(P, compressed, 0, compressed.length));
+	P.release();
+    }
+    
+    public void testPresignaturePool() throws Exception {
+	try {
+	    ECPresignaturePool.enable(8, 4);
+	    createNewKeyPair();
+	    ECPresignaturePool.fill(privateKey);
+	    assertEquals(8, ECPresignaturePool.getCount(privateKey));
+	    sig = Signature.getInstance("SHA1WITHECDSA");
+	    message = "SunSPOT".getBytes();
+	    
+	    // each presignature is used once, so the signatures differ
+	    byte[] last = null;
+	    for (int i = 0; i < 3; i++) {
+		sign();
+		assertEquals(7 - i, ECPresignaturePool.getCount(privateKey));
+		assertTrue(verify());
+		byte[] current = new byte[sigLen];
+		System.arraycopy(signature, 0, current, 0, sigLen);
+		if (last != null) {
+		    assertFalse(Util.hexEncode(last, last.length).equals(
+			    Util.hexEncode(current, current.length)));
+		}
+		last = current;
+	    }
+	    
+	    // the background thread refills the pool at the refill level
+	    sign();
+	    assertTrue(verify());
+	    for (int i = 0; (i < 500) && (ECPresignaturePool.getCount(privateKey) < 8); i++) {
+		Thread.sleep(10);
+	    }
+	    assertEquals(8, ECPresignaturePool.getCount(privateKey));
+	    
+	    // changing the key wipes its presignatures
+	    assertEquals(1, ECPresignaturePool.getKeyCount());
+	    privateKey.clearKey();
+	    assertEquals(0, ECPresignaturePool.getCount(privateKey));
+	    assertEquals(0, ECPresignaturePool.getKeyCount());
+	    
+	    // signing alone does not give a key a pool
+	    createNewKeyPair();
+	    sign();
+	    assertTrue(verify());
+	    assertEquals(0, ECPresignaturePool.getCount(privateKey));
+	    assertEquals(0, ECPresignaturePool.getKeyCount());
+	} finally {
+	    ECPresignaturePool.disable();
+	}
+	assertEquals(0, ECPresignaturePool.getCount(privateKey));
+	sign();
+	assertTrue(verify());
+    }
+    
+    public void testSteadyStateAllocation() throws Exception {
+	createNewKeyPair();
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA fieldFFA = curve.getField().getFFA();
+	FFA orderFFA = curve.getOrder().getFFA();
+	Signature signer = Signature.getInstance("SHA1WITHECDSA");
+	KeyAgreement agreement = KeyAgreement.getInstance(KeyAgreement.ALG_EC_SVDP_DH);
+	agreement.init(privateKey);
+	byte[] msg = "SunSPOT".getBytes();
+	byte[] w = new byte[256];
+	int wLen = publicKey.getW(w, 0);
+	byte[] secret = new byte[60];
+	com.sun.management.ThreadMXBean counter = allocationCounter();
+	long thread = Thread.currentThread().getId();
+	
+	// the first round fills the pools, the second one must neither
+	// create variables, points or workspaces nor allocate anything else
+	long start = 0;
+	for (int round = 0; round < 2; round++) {
+	    fieldFFA.resetPoolStatistics();
+	    orderFFA.resetPoolStatistics();
+	    curve.resetPoolStatistics();
+	    if (counter != null) {
+		start = counter.getThreadAllocatedBytes(thread);
+	    }
+	    for (int i = 0; i < 10; i++) {
+		signer.initSign(privateKey);
+		signer.update(msg, 0, msg.length);
+		int len = signer.sign(signature, 0, signature.length);
+		signer.initVerify(publicKey);
+		signer.update(msg, 0, msg.length);
+		assertTrue(signer.verify(signature, 0, len));
+		agreement.generateSecret(w, 0, wLen, secret, 0);
+	    }
+	}
+	long bytes = 0;
+	if (counter != null) {
+	    bytes = counter.getThreadAllocatedBytes(thread) - start;
+	}
+	
+	assertEquals(0, fieldFFA.getPoolMisses());
+	assertEquals(0, orderFFA.getPoolMisses());
+	assertEquals(0, curve.getPoolMisses());
+	assertEquals(0, bytes);
+    }
+    
+    // returns the bean that counts the bytes allocated by each thread, or
+    // null if the VM does not count them. Looking it up allocates, so it
+    // is done once before the measurement.
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+	java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+	if (mx instanceof com.sun.management.ThreadMXBean) {
+	    com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)mx;
+	    if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+		return counter;
+	    }
+	}
+	return null;
+    }
+    
+    private void assertGeneratorMultiple(ECCurve curve, int[] k) {
+	FFA ffa = curve.getField().getFFA();
+	ECPoint expected = curve.getGenerator().clonePoint();
+	curve.multiply(expected, k);
+	ECPoint actual = new ECPoint(curve);
+	curve.multiplyGenerator(actual, k);
+	assertEquals(ffa.toString(expected.x), ffa.toString(actual.x));
+	assertEquals(ffa.toString(expected.y), ffa.toString(actual.y));
+	expected.release();
+	actual.release();
+    }
+    
     private void testSignatureMessageLength(String alg,int length) throws InvalidKeyException, NoSuchAlgorithmException, InterruptedException, SignatureException, java.security.NoSuchAlgorithmException {
 	boolean match;
 	SecureRandom r = SecureRandom.getInstance(SecureRandom.ALG_SECURE_RANDOM);
@@ -353,6 +1005,109 @@ private int sigLen;
         
     }
     
+    // checks k1 * G + k2 * Q against (k1 - c * k2) * G for Q = -c * G
+    private static void assertSum(ECCurve curve, int[] k1, ECPoint Q, int c, int[] k2) {
+	FFA ffa = curve.getField().getFFA();
+	PrimeField order = curve.getOrder();
+	FFA orderFFA = order.getFFA();
+	int[] k = orderFFA.acquireVar();
+	orderFFA.copy(k, k1);
+	for (int i = 0; i < c; i++) {
+	    order.subtract(k, k, k2);
+	}
+	ECPoint expected = new ECPoint(curve);
+	curve.multiplyGenerator(expected, k);
+	ECPoint actual = curve.getGenerator().clonePoint();
+	curve.multiplySum(actual, k1, Q, k2);
+	assertEquals(ffa.toString(expected.x), ffa.toString(actual.x));
+	assertEquals(ffa.toString(expected.y), ffa.toString(actual.y));
+	orderFFA.releaseVar(k);
+	orderFFA.releaseVar(k1);
+	orderFFA.releaseVar(k2);
+	expected.release();
+	actual.release();
+    }
+    
+    // sets the key pair to d = n - 1 and Q = -G
+    private void createNegatedGeneratorKeyPair() throws Exception {
+	ECCurve curve = ECCurve.getInstance(curveId);
+	FFA orderFFA = curve.getOrder().getFFA();
+	int[] d = orderFFA.acquireVar();
+	orderFFA.set(d, 1);
+	orderFFA.sub(d, curve.getOrder().getP(), d);
+	byte[] buffer = new byte[(orderFFA.bitLength(d) + 7) >>> 3];
+	orderFFA.toByteArray(buffer, 0, buffer.length, d);
+	orderFFA.releaseVar(d);
+	privateKey = new ECPrivateKeyImpl(curveId);
+	privateKey.setS(buffer, 0, buffer.length);
+	
+	ECPoint Q = negatedGenerator(curve);
+	buffer = new byte[256 * 2];
+	int length = curve.encodePoint(Q, buffer, 0);
+	Q.release();
+	publicKey = new ECPublicKeyImpl(curveId);
+	publicKey.setW(buffer, 0, length);
+    }
+    
+    private static ECPoint negatedGenerator(ECCurve curve) {
+	ECPoint Q = curve.getGenerator().clonePoint();
+	curve.getField().negate(Q.y, Q.y);
+	return Q;
+    }
+    
+    // returns 2^m + low
+    private static int[] scalar(FFA ffa, int m, int low) {
+	byte[] buffer = new byte[m / 8 + 1];
+	buffer[0] = (byte)(1 << (m % 8));
+	for (int i = 0; i < 4; i++) {
+	    buffer[buffer.length - 1 - i] |= (byte)(low >>> (8 * i));
+	}
+	return ffa.from(buffer, 0, buffer.length);
+    }
+    
+    // writes the DER encoded ECDSA signature of 'digest' with the private
+    // key 'd' and the given nonce to 'out' and returns its length
+    private static int signWithNonce(ECCurve curve, int[] d, int nonce, byte[] digest, byte[] out) {
+	PrimeField order = curve.getOrder();
+	FFA ffa = order.getFFA();
+	int[] k = ffa.acquireVar();
+	int[] r = ffa.acquireVar();
+	int[] s = ffa.acquireVar();
+	int[] e = ffa.acquireVar();
+	
+	ffa.set(k, nonce);
+	ECPoint R = new ECPoint(curve);
+	curve.multiplyGenerator(R, k);
+	order.trim(r, R.x);
+	R.release();
+	order.trim(e, ffa.from(ffa.acquireVar(digest.length * 8), digest, 0, digest.length));
+	
+	order.multiply(s, d, r);
+	order.add(s, s, e);
+	order.invert(k, k);
+	order.multiply(s, s, k);    // s = k^-1 * (e + d*r) (mod n)
+	
+	int rLen = (ffa.bitLength(r) >> 3) + 1;
+	int sLen = (ffa.bitLength(s) >> 3) + 1;
+	int offset = 0;
+	out[offset++] = 0x30;
+	out[offset++] = (byte)(4 + rLen + sLen);
+	out[offset++] = 2;
+	out[offset++] = (byte)rLen;
+	ffa.toByteArray(out, offset, rLen, r);
+	offset += rLen;
+	out[offset++] = 2;
+	out[offset++] = (byte)sLen;
+	ffa.toByteArray(out, offset, sLen, s);
+	offset += sLen;
+	
+	ffa.releaseVar(k);
+	ffa.releaseVar(r);
+	ffa.releaseVar(s);
+	ffa.releaseVar(e);
+	return offset;
+    }
+    
     private void sign() throws SignatureException, InvalidKeyException {
 	sig.initSign(privateKey);
 	debug("Signing");
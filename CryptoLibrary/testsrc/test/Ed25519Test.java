@@ -0,0 +1,318 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+package test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.sun.midp.pki.KeySerializer;
+import com.sun.spot.security.GeneralSecurityException;
+import com.sun.spot.security.MessageDigest;
+import com.sun.spot.security.Signature;
+import com.sun.spot.security.implementation.Ed25519BatchVerifier;
+import com.sun.spot.security.implementation.Ed25519KeyImpl;
+import com.sun.spot.security.implementation.Ed25519PrivateKeyImpl;
+import com.sun.spot.security.implementation.Ed25519PublicKeyImpl;
+import com.sun.spot.security.implementation.Util;
+import com.sun.spot.security.implementation.ecc.ECCurve;
+import com.sun.spot.security.implementation.ecc.Ed25519;
+import com.sun.spot.security.implementation.ecc.EdPoint;
+import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.PrimeField;
+
+/**
+ * Tests Ed25519 with the test vectors of RFC 8032, Section 7.1.
+ */
+public class Ed25519Test extends TestCase {
+
+    private static final int[] BACKENDS = { ECCurve.FFA_28, ECCurve.FFA_32 };
+
+    // secret key, public key, message, signature
+    private static final String[][] VECTORS = {
+	{ "9d61b19deffd5a60ba844af492ec2cc44449c5697b326919703bac031cae7f60",
+	  "d75a980182b10ab7d54bfed3c964073a0ee172f3daa62325af021a68f707511a",
+	  "",
+	  "e5564300c360ac729086e2cc806e828a84877f1eb8e5d974d873e06522490155"
+	  + "5fb8821590a33bacc61e39701cf9b46bd25bf5f0595bbe24655141438e7a100b" },
+	{ "4ccd089b28ff96da9db6c346ec114e0f5b8a319f35aba624da8cf6ed4fb8a6fb",
+	  "3d4017c3e843895a92b70aa74d1b7ebc9c982ccf2ec4968cc0cd55f12af4660c",
+	  "72",
+	  "92a009a9f0d4cab8720e820b5f642540a2b27b5416503f8fb3762223ebdb69da"
+	  + "085ac1e43e15996e458f3613d0f11d8c387b2eaeb4302aeeb00d291612bb0c00" },
+	{ "c5aa8df43f9f837bedb7442f31dcb7b166d38535076f094b85ce3a2e0b4458f7",
+	  "fc51cd8e6218a1a38da47ed00230f0580816ed13ba3303ac5deb911548908025",
+	  "af82",
+	  "6291d657deec24024827e69c3abe01a30ce548a284743a445e3680d7db5ac3ac"
+	  + "18ff9b538d16f290ae67f760984dc6594a7c15e9716ed28dc027beceea1ec40a" },
+    };
+
+    private static byte[] sha512(byte[] a, byte[] b, byte[] c) throws Exception {
+	MessageDigest md = MessageDigest.getInstance("SHA-512");
+	md.update(a, 0, a.length);
+	md.update(b, 0, b.length);
+	md.update(c, 0, c.length);
+	byte[] h = new byte[64];
+	md.digest(h, 0, h.length);
+	return h;
+    }
+
+    public void testCurve() throws Exception {
+	for (int i = 0; i < BACKENDS.length; i++) {
+	    Ed25519 curve = Ed25519.getInstance(BACKENDS[i]);
+	    PrimeField order = curve.getOrder();
+	    FFA ffa = order.getFFA();
+	    for (int j = 0; j < VECTORS.length; j++) {
+		byte[] seed = Util.hexDecode(VECTORS[j][0]);
+		byte[] pub = Util.hexDecode(VECTORS[j][1]);
+		byte[] msg = Util.hexDecode(VECTORS[j][2]);
+		byte[] sig = Util.hexDecode(VECTORS[j][3]);
+		byte[] b = new byte[Ed25519.KEY_SIZE];
+
+		// A = s * B for the clamped hash of the seed
+		byte[] h = sha512(seed, new byte[0], new byte[0]);
+		h[0] &= (byte)0xf8;
+		h[31] &= (byte)0x7f;
+		h[31] |= (byte)0x40;
+		int[] s = curve.reduceScalar(h, 0, 32);
+		EdPoint A = new EdPoint(curve);
+		curve.multiplyBase(A, s);
+		curve.encodePoint(b, 0, A);
+		assertEquals(VECTORS[j][1], Util.hexEncode(b));
+
+		// decoding and encoding gives the same bytes
+		assertTrue(curve.decodePoint(A, pub, 0));
+		curve.encodePoint(b, 0, A);
+		assertEquals(VECTORS[j][1], Util.hexEncode(b));
+
+		// S * B - k * A = R
+		int[] S = curve.decodeScalar(sig, 32);
+		int[] k = curve.reduceScalar(sha512(Util.hexDecode(VECTORS[j][3].substring(0, 64)),
+			pub, msg), 0, 64);
+		order.negate(k, k);
+		EdPoint R = new EdPoint(curve);
+		curve.multiplySum(R, S, new EdPoint[] { A }, new int[][] { k }, 1);
+		curve.encodePoint(b, 0, R);
+		assertEquals(VECTORS[j][3].substring(0, 64), Util.hexEncode(b));
+
+		// the same with the generic addition and doubling
+		EdPoint T = new EdPoint(curve);
+		curve.setIdentity(T);
+		curve.multiplyBase(R, S);
+		curve.multiplySum(T, null, new EdPoint[] { A }, new int[][] { k }, 1);
+		curve.add(R, T);
+		curve.encodePoint(b, 0, R);
+		assertEquals(VECTORS[j][3].substring(0, 64), Util.hexEncode(b));
+
+		A.release();
+		R.release();
+		T.release();
+		ffa.releaseVar(s);
+		ffa.releaseVar(S);
+		ffa.releaseVar(k);
+	    }
+
+	    // 2 * B = B + B, and L * B is the identity
+	    EdPoint P = new EdPoint(curve);
+	    EdPoint Q = new EdPoint(curve);
+	    int[] two = ffa.acquireVar();
+	    ffa.set(two, 2);
+	    curve.multiplyBase(P, two);
+	    ffa.set(two, 1);
+	    curve.multiplyBase(Q, two);
+	    curve.twice(Q);
+	    byte[] b1 = new byte[Ed25519.KEY_SIZE];
+	    byte[] b2 = new byte[Ed25519.KEY_SIZE];
+	    curve.encodePoint(b1, 0, P);
+	    curve.encodePoint(b2, 0, Q);
+	    assertEquals(Util.hexEncode(b1), Util.hexEncode(b2));
+	    curve.multiplySum(P, null, new EdPoint[] { Q }, new int[][] { order.getP() }, 1);
+	    assertTrue(curve.isIdentity(P));
+	    P.release();
+	    Q.release();
+	    ffa.releaseVar(two);
+	}
+    }
+
+    public void testSignature() throws Exception {
+	Signature sig = Signature.getInstance("Ed25519");
+	assertEquals("Ed25519", sig.getAlgorithm());
+	for (int j = 0; j < VECTORS.length; j++) {
+	    Ed25519PrivateKeyImpl priv = new Ed25519PrivateKeyImpl();
+	    Ed25519PublicKeyImpl pub = new Ed25519PublicKeyImpl();
+	    byte[] b = Util.hexDecode(VECTORS[j][0]);
+	    priv.setKey(b, 0, b.length);
+	    b = Util.hexDecode(VECTORS[j][1]);
+	    pub.setKey(b, 0, b.length);
+	    byte[] msg = Util.hexDecode(VECTORS[j][2]);
+
+	    sig.initSign(priv);
+	    assertEquals(64, sig.getLength());
+	    // in two pieces, the message is buffered
+	    sig.update(msg, 0, msg.length / 2);
+	    sig.update(msg, msg.length / 2, msg.length - msg.length / 2);
+	    byte[] s = new byte[64];
+	    assertEquals(64, sig.sign(s));
+	    assertEquals(VECTORS[j][3], Util.hexEncode(s));
+
+	    sig.initVerify(pub);
+	    sig.update(msg, 0, msg.length);
+	    assertTrue(sig.verify(s));
+
+	    // another message, a modified R or S and S + L fail
+	    sig.update(new byte[1], 0, 1);
+	    assertFalse(sig.verify(s));
+	    for (int i = 0; i < 64; i += 32) {
+		byte[] t = (byte[])s.clone();
+		t[i + 1] ^= 1;
+		sig.update(msg, 0, msg.length);
+		assertFalse(sig.verify(t));
+	    }
+	    byte[] t = (byte[])s.clone();
+	    int c = 0;
+	    byte[] l = Util.hexDecode("edd3f55c1a631258d69cf7a2def9de1400000000000000000000000000000010");
+	    for (int i = 0; i < 32; i++) {
+		c += (t[32 + i] & 0xff) + (l[i] & 0xff);
+		t[32 + i] = (byte)c;
+		c >>= 8;
+	    }
+	    sig.update(msg, 0, msg.length);
+	    assertFalse(sig.verify(t));
+	}
+    }
+
+    public void testGeneratedKeys() throws Exception {
+	Signature sig = Signature.getInstance("Ed25519");
+	Random rnd = new Random(8032);
+	for (int j = 0; j < 5; j++) {
+	    Ed25519PublicKeyImpl pub = new Ed25519PublicKeyImpl();
+	    Ed25519PrivateKeyImpl priv = new Ed25519PrivateKeyImpl();
+	    Ed25519KeyImpl.genKeyPair(pub, priv);
+	    byte[] msg = new byte[rnd.nextInt(300)];
+	    rnd.nextBytes(msg);
+
+	    sig.initSign(priv);
+	    sig.update(msg, 0, msg.length);
+	    byte[] s = new byte[64];
+	    sig.sign(s);
+
+	    // deterministic: the same message gives the same signature
+	    sig.update(msg, 0, msg.length);
+	    byte[] s2 = new byte[64];
+	    sig.sign(s2);
+	    assertEquals(Util.hexEncode(s), Util.hexEncode(s2));
+
+	    sig.initVerify(pub);
+	    sig.update(msg, 0, msg.length);
+	    assertTrue(sig.verify(s));
+	}
+
+	// encodings that are not on the curve are refused
+	Ed25519PublicKeyImpl pub = new Ed25519PublicKeyImpl();
+	byte[] b = Util.hexDecode("0200000000000000000000000000000000000000000000000000000000000000");
+	try {
+	    pub.setKey(b, 0, b.length);
+	    fail("invalid point accepted");
+	} catch (GeneralSecurityException e) {
+	}
+	assertFalse(pub.isInitialized());
+    }
+
+    public void testBatchVerifier() throws Exception {
+	Ed25519BatchVerifier batch = new Ed25519BatchVerifier();
+	Signature sig = Signature.getInstance("Ed25519");
+	Random rnd = new Random(25519);
+
+	// three keys, the first one is used for several signatures
+	Ed25519PublicKeyImpl[] pub = new Ed25519PublicKeyImpl[3];
+	Ed25519PrivateKeyImpl[] priv = new Ed25519PrivateKeyImpl[3];
+	for (int i = 0; i < pub.length; i++) {
+	    pub[i] = new Ed25519PublicKeyImpl();
+	    priv[i] = new Ed25519PrivateKeyImpl();
+	    Ed25519KeyImpl.genKeyPair(pub[i], priv[i]);
+	}
+
+	int n = 8;
+	byte[][] msgs = new byte[n][];
+	byte[][] sigs = new byte[n][];
+	for (int i = 0; i < n; i++) {
+	    msgs[i] = new byte[rnd.nextInt(100)];
+	    rnd.nextBytes(msgs[i]);
+	    sig.initSign(priv[i % 2 == 0 ? 0 : (i % 3)]);
+	    sig.update(msgs[i], 0, msgs[i].length);
+	    sigs[i] = new byte[64];
+	    sig.sign(sigs[i]);
+	}
+
+	for (int i = 0; i < n; i++) {
+	    batch.add(pub[i % 2 == 0 ? 0 : (i % 3)], msgs[i], 0, msgs[i].length,
+		    sigs[i], 0, sigs[i].length);
+	}
+	assertEquals(n, batch.size());
+	boolean[] results = batch.verify();
+	assertEquals(0, batch.size());
+	for (int i = 0; i < n; i++) {
+	    assertTrue("signature " + i, results[i]);
+	}
+
+	// a tampered signature, a wrong key and a short signature are found
+	for (int i = 0; i < n; i++) {
+	    byte[] s = (byte[])sigs[i].clone();
+	    if (i == 3) {
+		s[40] ^= 4;
+	    }
+	    int k = (i == 5) ? 1 : (i % 2 == 0 ? 0 : (i % 3));
+	    batch.add(pub[k], msgs[i], 0, msgs[i].length, s, 0, (i == 6) ? 63 : 64);
+	}
+	results = batch.verify();
+	for (int i = 0; i < n; i++) {
+	    assertEquals("signature " + i, (i != 3) && (i != 5) && (i != 6), results[i]);
+	}
+    }
+
+    public void testKeySerializer() throws Exception {
+	Ed25519PublicKeyImpl pub = new Ed25519PublicKeyImpl();
+	Ed25519PrivateKeyImpl priv = new Ed25519PrivateKeyImpl();
+	Ed25519KeyImpl.genKeyPair(pub, priv);
+
+	Ed25519PublicKeyImpl pub2 = (Ed25519PublicKeyImpl)KeySerializer.deserialize(
+		KeySerializer.serialize(pub), 0);
+	Ed25519PrivateKeyImpl priv2 = (Ed25519PrivateKeyImpl)KeySerializer.deserialize(
+		KeySerializer.serialize(priv), 0);
+	assertEquals(pub.toString(), pub2.toString());
+	assertEquals(priv.toString(), priv2.toString());
+
+	// the restored keys sign and verify
+	Signature sig = Signature.getInstance("Ed25519");
+	byte[] msg = "restored".getBytes();
+	sig.initSign(priv2);
+	sig.update(msg, 0, msg.length);
+	byte[] s = new byte[64];
+	sig.sign(s);
+	sig.initVerify(pub);
+	sig.update(msg, 0, msg.length);
+	assertTrue(sig.verify(s));
+    }
+}
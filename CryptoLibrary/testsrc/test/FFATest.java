@@ -26,10 +26,13 @@ package test;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
+import com.sun.spot.security.implementation.ecc.ECCurve;
 import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.FFA32;
 
 /*
  * The main method of this class is called by the bootstrap to start the
@@ -41,11 +44,43 @@ import com.sun.spot.security.implementation.ecc.FFA;
 
 public class FFATest extends TestCase {
 
+    /** The FFA backend under test, see ECCurve.FFA_28 and FFA_32. */
+    protected int backend = ECCurve.FFA_28;
+
+    private FFA newFFA(int bits) {
+	return (backend == ECCurve.FFA_32) ? new FFA32(bits) : new FFA(bits);
+    }
+
     public void testSquare() throws Exception {
 	testSquare(161, 100);
 	testSquare(1024, 100);
     }
 
+    public void testPool() throws Exception {
+	FFA ffa = newFFA(160);
+	int[] a = ffa.acquireVar();
+	int[] b = ffa.acquireDoubleVar();
+	assertEquals(0, ffa.getPoolHits());
+	assertEquals(2, ffa.getPoolMisses());
+	
+	// released variables are reused
+	ffa.releaseVar(a);
+	ffa.releaseVar(b);
+	assertSame(b, ffa.acquireDoubleVar());
+	assertSame(a, ffa.acquireVar());
+	assertEquals(2, ffa.getPoolHits());
+	
+	// other sizes are not pooled
+	ffa.releaseVar(ffa.acquireVar(1024));
+	ffa.acquireVar(1024);
+	assertEquals(2, ffa.getPoolHits());
+	assertEquals(4, ffa.getPoolMisses());
+	
+	ffa.resetPoolStatistics();
+	assertEquals(0, ffa.getPoolHits());
+	assertEquals(0, ffa.getPoolMisses());
+    }
+
     public void testMod() throws Exception {
 	int n = 1000;
 	int m = 1;
@@ -56,9 +91,41 @@ public class FFATest extends TestCase {
 	testModPow(1024, m);
     }
 
+    public void testModPowWindows() throws Exception {
+	// exponent lengths around each window size change, and exponents
+	// with long runs of zero bits
+	int[] sizes = { 1, 2, 7, 8, 25, 26, 81, 82, 241, 242, 673, 674, 1024 };
+	FFA ffa = newFFA(1024);
+	Random rnd = new Random(1024);
+	BigInteger m = new BigInteger(1024, rnd);
+	BigInteger a = new BigInteger(1024, rnd);
+	int[] aFFA = ffa.from(a.toString(16));
+	int[] mFFA = ffa.from(m.toString(16));
+	int[] rFFA = ffa.acquireVar();
+	for (int i = 0; i < sizes.length; i++) {
+	    BigInteger[] exponents = {
+		    new BigInteger(sizes[i], rnd).setBit(sizes[i] - 1),
+		    BigInteger.ONE.shiftLeft(sizes[i] - 1),
+		    BigInteger.ONE.shiftLeft(sizes[i] - 1).add(BigInteger.ONE) };
+	    for (int j = 0; j < exponents.length; j++) {
+		BigInteger e = exponents[j];
+		ffa.modPow(rFFA, aFFA, ffa.from(e.toString(16)), mFFA);
+		assertEquals("exponent " + e.toString(16), a.modPow(e, m),
+			new BigInteger(ffa.toString(rFFA), 16).mod(m));
+	    }
+	}
+
+	// the window table and temporaries of the last call are reused
+	int[] eFFA = ffa.from(m.subtract(BigInteger.ONE).toString(16));
+	ffa.modPow(rFFA, aFFA, eFFA, mFFA);
+	ffa.resetPoolStatistics();
+	ffa.modPow(rFFA, aFFA, eFFA, mFFA);
+	assertEquals(0, ffa.getPoolMisses());
+    }
+
     private void testModPow(int bits, int n) throws Exception {
 
-	FFA ffa = new FFA(bits);
+	FFA ffa = newFFA(bits);
 	for (int i = 0; i < n; i++) {
 	    SecureRandom se = new SecureRandom();
 	    BigInteger a = new BigInteger(bits, se);
@@ -91,7 +158,7 @@ public class FFATest extends TestCase {
 
     private void testMod(int bits, int n) throws Exception {
 
-	FFA ffa = new FFA(bits);
+	FFA ffa = newFFA(bits);
 	for (int i = 0; i < n; i++) {
 	    SecureRandom se = new SecureRandom();
 	    BigInteger a = new BigInteger(bits, se);
@@ -118,7 +185,7 @@ public class FFATest extends TestCase {
 
     private void testSquare(int bits, int n) throws Exception {
 
-	FFA ffa = new FFA(bits);
+	FFA ffa = newFFA(bits);
 	for (int i = 0; i < n; i++) {
 	    SecureRandom se = new SecureRandom();
 	    BigInteger a = new BigInteger(bits, se);
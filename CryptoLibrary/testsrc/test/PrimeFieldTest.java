@@ -26,10 +26,13 @@ package test;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
+import com.sun.spot.security.implementation.ecc.ECCurve;
 import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.FFA32;
 import com.sun.spot.security.implementation.ecc.PrimeField;
 
 /*
@@ -42,6 +45,13 @@ import com.sun.spot.security.implementation.ecc.PrimeField;
 
 public class PrimeFieldTest extends TestCase {
 
+    /** The FFA backend under test, see ECCurve.FFA_28 and FFA_32. */
+    protected int backend = ECCurve.FFA_28;
+
+    private FFA newFFA(int bits) {
+	return (backend == ECCurve.FFA_32) ? new FFA32(bits) : new FFA(bits);
+    }
+
     public void testSquare() throws Exception {
 	testSquare(161, 100);
 	testSquare(1024, 100);
@@ -76,7 +86,7 @@ public class PrimeFieldTest extends TestCase {
 
 
     private void testMul(int bits, int n) throws Exception {
-	FFA ffa = new FFA(bits);
+	FFA ffa = newFFA(bits);
 	for (int i = 0; i < n; i++) {
 	    SecureRandom se = new SecureRandom();
 	    BigInteger a = new BigInteger(bits, se);
@@ -107,9 +117,181 @@ public class PrimeFieldTest extends TestCase {
 	}
     }
 
+    public void testNistReduction() throws Exception {
+	// squares of values just below p sum to slightly more than 2^k in
+	// the reduction, which needs the final subtraction of p
+	int[] curves = { ECCurve.SECP160R1, ECCurve.SECP192R1,
+		ECCurve.SECP224R1, ECCurve.SECP256R1, ECCurve.SECP384R1 };
+	Random rnd = new Random(1);
+	for (int i = 0; i < curves.length; i++) {
+	    PrimeField field = (PrimeField) ECCurve.getInstance(curves[i], backend).getField();
+	    FFA ffa = field.getFFA();
+	    BigInteger p = new BigInteger(ffa.toString(field.getP()), 16);
+	    int[] aFFA = ffa.acquireVar();
+	    int[] rFFA = ffa.acquireVar();
+	    for (int j = 0; j < 1000; j++) {
+		BigInteger a = p.subtract(BigInteger.valueOf(rnd.nextInt(1 << 20) + 1));
+		ffa.from(aFFA, a.toString(16));
+		field.multiply(rFFA, aFFA, aFFA);
+		assertEquals("p = " + p.toString(16) + ", a = " + a.toString(16),
+			a.multiply(a).mod(p), new BigInteger(ffa.toString(rFFA), 16));
+	    }
+	}
+    }
+
+    public void testNistFinalSubtraction() throws Exception {
+	// products that leave a value of 2^k or more for the final
+	// subtraction of p, without a carry into the top word when p is
+	// subtracted. The 2^k bit then has to be cleared separately.
+	PrimeField field = (PrimeField) ECCurve.getInstance(ECCurve.SECP160R1, backend).getField();
+	BigInteger p160 = new BigInteger(field.getFFA().toString(field.getP()), 16);
+	BigInteger a = p160.subtract(BigInteger.valueOf(46341));
+	assertProduct(ECCurve.SECP160R1, a, a);
+	assertProduct(ECCurve.SECP192R1,
+		new BigInteger("f93a78198c6fbf9c36c179daabf3d0964f44adbe622d761d", 16),
+		new BigInteger("13bfd1d338d0038ec42650644781f9c59", 16));
+    }
+
+    public void testNist224Carry() throws Exception {
+	// products whose first folding step gives 2^225 - t. The second
+	// step then carries out of bit 224, which must be folded back in.
+	assertProduct(ECCurve.SECP224R1,
+		new BigInteger("f2848309f5be83c4806725030a9a3e2def239f5aa5286d58b8dd5892", 16),
+		new BigInteger("1d7210dff076ce2ef87b0b125ec1d7da1", 16));
+	assertProduct(ECCurve.SECP224R1,
+		new BigInteger("b156fabd99b8e134cca594f5576f5b4d8c41c149947160ad684efeb2", 16),
+		new BigInteger("185ae8770f9dba1db2b56955dda2d3b3d", 16));
+    }
+
+    private void assertProduct(int curve, BigInteger a, BigInteger b) {
+	PrimeField field = (PrimeField) ECCurve.getInstance(curve, backend).getField();
+	FFA ffa = field.getFFA();
+	BigInteger p = new BigInteger(ffa.toString(field.getP()), 16);
+	int[] aFFA = ffa.acquireVar();
+	int[] bFFA = ffa.acquireVar();
+	int[] rFFA = ffa.acquireVar();
+	ffa.from(aFFA, a.toString(16));
+	ffa.from(bFFA, b.toString(16));
+	field.multiply(rFFA, aFFA, bFFA);
+	assertEquals("p = " + p.toString(16) + ", a = " + a.toString(16) + ", b = " + b.toString(16),
+		a.multiply(b).mod(p), new BigInteger(ffa.toString(rFFA), 16));
+	ffa.releaseVar(aFFA);
+	ffa.releaseVar(bFFA);
+	ffa.releaseVar(rFFA);
+    }
+
+    public void testNistInversion() throws Exception {
+	int[] curves = { ECCurve.SECP160R1, ECCurve.SECP192R1,
+		ECCurve.SECP224R1, ECCurve.SECP256R1, ECCurve.SECP384R1 };
+	Random rnd = new Random(2);
+	for (int i = 0; i < curves.length; i++) {
+	    testInversion((PrimeField) ECCurve.getInstance(curves[i], backend).getField(), rnd);
+	}
+	// the generic field inverts in constant time with pow()
+	FFA ffa = newFFA(256);
+	BigInteger p = BigInteger.probablePrime(256, rnd);
+	testInversion(new PrimeField(ffa, ffa.from(p.toString(16))), rnd);
+    }
+
+    private void testInversion(PrimeField field, Random rnd) {
+	FFA ffa = field.getFFA();
+	BigInteger p = new BigInteger(ffa.toString(field.getP()), 16);
+	int[] aFFA = ffa.acquireVar();
+	int[] rFFA = ffa.acquireVar();
+	for (int j = 0; j < 100; j++) {
+	    BigInteger a = (j < 2) ? p.subtract(BigInteger.valueOf(j + 1))
+		    : new BigInteger(p.bitLength(), rnd).mod(p.subtract(BigInteger.ONE)).add(BigInteger.ONE);
+	    ffa.from(aFFA, a.toString(16));
+	    field.invert(rFFA, aFFA);
+	    assertEquals("p = " + p.toString(16) + ", a = " + a.toString(16),
+		    a.modInverse(p), new BigInteger(ffa.toString(rFFA), 16));
+	    field.invertConstantTime(rFFA, aFFA);
+	    assertEquals("p = " + p.toString(16) + ", a = " + a.toString(16),
+		    a.modInverse(p), new BigInteger(ffa.toString(rFFA), 16));
+
+	    // in place
+	    field.invertConstantTime(aFFA, aFFA);
+	    assertEquals(a.modInverse(p), new BigInteger(ffa.toString(aFFA), 16));
+	    field.invert(aFFA, aFFA);
+	    assertEquals(a, new BigInteger(ffa.toString(aFFA), 16));
+	}
+	ffa.releaseVar(aFFA);
+	ffa.releaseVar(rFFA);
+    }
+
+    public void testSqrt() throws Exception {
+	int[] curves = { ECCurve.SECP160R1, ECCurve.SECP192R1,
+		ECCurve.SECP224R1, ECCurve.SECP256R1, ECCurve.SECP384R1 };
+	Random rnd = new Random(3);
+	for (int i = 0; i < curves.length; i++) {
+	    testSqrt((PrimeField) ECCurve.getInstance(curves[i], backend).getField(), rnd);
+	}
+
+	// the generic Tonelli-Shanks code, p = 1 (mod 16)
+	BigInteger p;
+	do {
+	    p = BigInteger.probablePrime(192, rnd);
+	} while (p.intValue() % 16 != 1);
+	FFA ffa = newFFA(192);
+	testSqrt(new PrimeField(ffa, ffa.from(p.toString(16))), rnd);
+    }
+
+    private void testSqrt(PrimeField field, Random rnd) {
+	FFA ffa = field.getFFA();
+	BigInteger p = new BigInteger(ffa.toString(field.getP()), 16);
+	int[] aFFA = ffa.acquireVar();
+	int[] rFFA = ffa.acquireVar();
+	int squares = 0;
+	for (int j = 0; j < 40; j++) {
+	    BigInteger a = (j == 0) ? BigInteger.ZERO : new BigInteger(p.bitLength(), rnd).mod(p);
+	    boolean isSquare = a.signum() == 0
+		    || a.modPow(p.shiftRight(1), p).equals(BigInteger.ONE);
+	    ffa.from(aFFA, a.toString(16));
+	    assertEquals("p = " + p.toString(16) + ", a = " + a.toString(16),
+		    isSquare, field.sqrt(rFFA, aFFA));
+	    if (isSquare) {
+		BigInteger r = new BigInteger(ffa.toString(rFFA), 16);
+		assertEquals(a, r.multiply(r).mod(p));
+		squares++;
+	    }
+	}
+	assertTrue(squares > 5);
+	ffa.releaseVar(aFFA);
+	ffa.releaseVar(rFFA);
+    }
+
+    public void testPowWindows() throws Exception {
+	// exponent lengths around each window size change
+	int[] sizes = { 1, 2, 7, 8, 25, 26, 81, 82, 241, 242, 256 };
+	FFA ffa = newFFA(256);
+	Random rnd = new Random(256);
+	BigInteger p = BigInteger.probablePrime(256, rnd);
+	BigInteger a = new BigInteger(255, rnd);
+	PrimeField field = new PrimeField(ffa, ffa.from(p.toString(16)));
+	int[] aFFA = ffa.from(a.toString(16));
+	int[] rFFA = ffa.acquireVar();
+	for (int i = 0; i < sizes.length; i++) {
+	    BigInteger e = new BigInteger(sizes[i], rnd).setBit(sizes[i] - 1);
+	    field.pow(rFFA, aFFA, ffa.from(e.toString(16)));
+	    assertEquals("exponent " + e.toString(16), a.modPow(e, p),
+		    new BigInteger(ffa.toString(rFFA), 16));
+	}
+
+	// p - 2 is the exponent of Fermat inversion
+	BigInteger e = p.subtract(BigInteger.valueOf(2));
+	int[] eFFA = ffa.from(e.toString(16));
+	field.pow(rFFA, aFFA, eFFA);
+	assertEquals(a.modInverse(p), new BigInteger(ffa.toString(rFFA), 16));
+
+	// a second call reuses the window table of the first one
+	ffa.resetPoolStatistics();
+	field.pow(rFFA, aFFA, eFFA);
+	assertEquals(0, ffa.getPoolMisses());
+    }
+
     private void testPow(int bits, int n) throws Exception {
 
-	FFA ffa = new FFA(bits);
+	FFA ffa = newFFA(bits);
 
 	for (int i = 0; i < n; i++) {
 	    SecureRandom se = new SecureRandom();
@@ -146,7 +328,7 @@ public class PrimeFieldTest extends TestCase {
 
     private void testSquare(int bits, int n) throws Exception {
 
-	FFA ffa = new FFA(bits);
+	FFA ffa = newFFA(bits);
 	for (int i = 0; i < n; i++) {
 	    SecureRandom se = new SecureRandom();
 	    BigInteger a = new BigInteger(bits, se);
@@ -24,6 +24,7 @@
 
 package test;
 
+import java.lang.management.ManagementFactory;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.Random;
@@ -31,6 +32,9 @@ import java.util.Random;
 import junit.framework.TestCase;
 
 import com.sun.spot.security.Signature;
+import com.sun.spot.security.implementation.ModuloExponentiation;
+import com.sun.spot.security.implementation.RSAKey;
+import com.sun.spot.security.implementation.RSAPrivateCrtKey;
 import com.sun.spot.security.implementation.RSAPrivateKey;
 import com.sun.spot.security.implementation.RSAPublicKey;
 import com.sun.spot.security.implementation.Util;
@@ -51,6 +55,8 @@ public class RSATest extends TestCase {
 
     private RSAPublicKey publicKey;
 
+    private RSAPrivateCrtKey crtKey;
+
     public void testSigSHA1() throws Exception {
         System.out.println("Testing SHA1withRSA .... ");
 	testSig(1024, "SHA1withRSA");	
@@ -161,6 +167,12 @@ public class RSATest extends TestCase {
 
 	privateKey = new RSAPrivateKey(mByte, dByte);
 
+	crtKey = new RSAPrivateCrtKey(mByte, eByte, dByte, p.toByteArray(),
+		q.toByteArray(),
+		d.mod(p.subtract(BigInteger.ONE)).toByteArray(),
+		d.mod(q.subtract(BigInteger.ONE)).toByteArray(),
+		q.modInverse(p).toByteArray());
+
     }
 
     public void testRSACipher() throws Exception {
@@ -199,6 +211,174 @@ public class RSATest extends TestCase {
 
     }
 
+    public void testCrtSig() throws Exception {
+	System.out.println("Testing SHA1withRSA with CRT key .... ");
+	for (int bits = 512; bits <= 2048; bits *= 2) {
+	    generateKeyPair(bits);
+	    byte[] message = "Hello World!".getBytes();
+	    byte[] expected = sign(privateKey, message);
+	    for (int i = 0; i < 2; i++) {
+		crtKey.setParallel(i == 1);
+		byte[] signature = sign(crtKey, message);
+		assertEquals(Util.hexEncode(expected),
+			Util.hexEncode(signature));
+	    }
+
+	    Signature sig = Signature.getInstance("SHA1withRSA");
+	    sig.initVerify(publicKey);
+	    sig.update(message, 0, message.length);
+	    assertTrue(sig.verify(expected, 0, expected.length));
+	}
+    }
+
+    private byte[] sign(RSAPrivateKey key, byte[] message) throws Exception {
+	Signature sig = Signature.getInstance("SHA1withRSA");
+	sig.initSign(key);
+	sig.update(message, 0, message.length);
+	byte[] signature = new byte[key.getModulusLen()];
+	int sigLen = sig.sign(signature, 0, signature.length);
+	assertEquals(signature.length, sigLen);
+	return signature;
+    }
+
+    public void testCrtCipher() throws Exception {
+	generateKeyPair(1024);
+	byte[] plaintext = "This is just an example".getBytes();
+	byte[] ciphertext = new byte[128];
+	byte[] result = new byte[plaintext.length];
+
+	Cipher cipher = Cipher.getInstance("RSA");
+	cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+	cipher.doFinal(plaintext, 0, plaintext.length, ciphertext, 0);
+
+	cipher.init(Cipher.DECRYPT_MODE, crtKey);
+	int count = cipher.doFinal(ciphertext, 0, ciphertext.length, result, 0);
+	assertEquals(plaintext.length, count);
+	assertEquals(Util.hexEncode(plaintext), Util.hexEncode(result));
+    }
+
+    public void testCrtFaultCheck() throws Exception {
+	Random rnd = new Random(1024);
+	BigInteger e = BigInteger.valueOf(65537);
+	BigInteger p, q, phi;
+	do {
+	    p = BigInteger.probablePrime(512, rnd);
+	    q = BigInteger.probablePrime(512, rnd);
+	    phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+	} while (p.equals(q) || !e.gcd(phi).equals(BigInteger.ONE)
+		|| p.multiply(q).bitLength() != 1024);
+	BigInteger n = p.multiply(q);
+	BigInteger d = e.modInverse(phi);
+	// a wrong coefficient gives the same result as a fault in the
+	// recombination, which would reveal a factor of n
+	BigInteger qInv = q.modInverse(p).add(BigInteger.ONE).mod(p);
+	FFA ffa = new FFA(1024);
+	byte[] nByte = new byte[ffa.getByteSize()];
+	ffa.toByteArray(nByte, 0, nByte.length, ffa.from(n.toString(16)));
+	byte[] dByte = new byte[ffa.getByteSize()];
+	ffa.toByteArray(dByte, 0, dByte.length, ffa.from(d.toString(16)));
+	RSAPrivateCrtKey key = new RSAPrivateCrtKey(nByte, e.toByteArray(),
+		dByte, p.toByteArray(),
+		q.toByteArray(),
+		d.mod(p.subtract(BigInteger.ONE)).toByteArray(),
+		d.mod(q.subtract(BigInteger.ONE)).toByteArray(),
+		qInv.toByteArray());
+	byte[] m = new BigInteger(1000, rnd).toByteArray();
+	byte[] result = new byte[128];
+	for (int i = 0; i < 2; i++) {
+	    key.setParallel(i == 1);
+	    try {
+		ModuloExponentiation.crtModPow(result, m, key);
+		fail("Faulty CRT result returned");
+	    } catch (IllegalStateException ex) {
+	    }
+	}
+	for (int i = 0; i < result.length; i++) {
+	    assertEquals(0, result[i]);
+	}
+    }
+
+    public void testKeyModPow() throws Exception {
+	// 3072 bit moduli are long enough for Karatsuba multiplication
+	testKeyModPow(1024);
+	testKeyModPow(3072);
+    }
+
+    private void testKeyModPow(int bits) throws Exception {
+	generateKeyPair(bits);
+	BigInteger n = new BigInteger(1, getModulus(publicKey));
+	BigInteger e = new BigInteger(1, getExponent(publicKey));
+	BigInteger d = new BigInteger(1, getExponent(privateKey));
+	Random rnd = new Random(bits);
+	byte[] result = new byte[publicKey.getModulusLen()];
+	for (int i = 0; i < 4; i++) {
+	    // the key is reused, so later rounds use its cached context
+	    BigInteger m = new BigInteger(bits - 2, rnd);
+	    ModuloExponentiation.oddModPow(result, m.toByteArray(), publicKey);
+	    BigInteger c = new BigInteger(1, result);
+	    assertEquals(m.modPow(e, n), c);
+	    ModuloExponentiation.oddModPow(result, c.toByteArray(), privateKey);
+	    assertEquals(m, new BigInteger(1, result));
+	    assertEquals(c.modPow(d, n), m);
+	}
+    }
+
+    public void testWorkspaceAllocation() throws Exception {
+	if (!(ManagementFactory.getThreadMXBean()
+		instanceof com.sun.management.ThreadMXBean)) {
+	    debug("Allocation counting not supported, skipped");
+	    return;
+	}
+	com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)
+		ManagementFactory.getThreadMXBean();
+	if (!bean.isThreadAllocatedMemorySupported()) {
+	    debug("Allocation counting not supported, skipped");
+	    return;
+	}
+	bean.setThreadAllocatedMemoryEnabled(true);
+
+	// 3072 bits, so the multiplications use the Karatsuba scratch space
+	int bits = 3072;
+	generateKeyPair(bits);
+	BigInteger n = new BigInteger(1, getModulus(publicKey));
+	BigInteger d = new BigInteger(1, getExponent(privateKey));
+	byte[] m = new BigInteger(bits - 2, new Random(bits)).toByteArray();
+	byte[] expected = new BigInteger(1, m).modPow(d, n).toByteArray();
+	byte[] result = new byte[publicKey.getModulusLen()];
+	byte[] crtResult = new byte[publicKey.getModulusLen()];
+	ModuloExponentiation.Workspace ws = new ModuloExponentiation.Workspace();
+
+	// the first operations size the workspace and build the contexts
+	ModuloExponentiation.oddModPow(result, m, privateKey, ws);
+	ModuloExponentiation.crtModPow(crtResult, m, crtKey, ws);
+
+	long thread = Thread.currentThread().getId();
+	long before = bean.getThreadAllocatedBytes(thread);
+	for (int i = 0; i < 20; i++) {
+	    ModuloExponentiation.oddModPow(result, m, privateKey, ws);
+	    ModuloExponentiation.crtModPow(crtResult, m, crtKey, ws);
+	}
+	long allocated = bean.getThreadAllocatedBytes(thread) - before;
+	debug("Allocated " + allocated + " bytes in 40 operations");
+	assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+	assertEquals(new BigInteger(1, expected), new BigInteger(1, result));
+	assertEquals(new BigInteger(1, expected), new BigInteger(1, crtResult));
+    }
+
+    private static byte[] getModulus(RSAPublicKey key) {
+	byte[] buf = new byte[key.getModulusLen()];
+	key.getModulus(buf, (short) 0);
+	return buf;
+    }
+
+    private static byte[] getExponent(RSAKey key) {
+	byte[] buf = new byte[key.getModulusLen()];
+	int len = key.getExponent(buf, (short) 0);
+	byte[] exp = new byte[len];
+	System.arraycopy(buf, 0, exp, 0, len);
+	return exp;
+    }
+
     private static void debug(String s) {
 	System.out.println(s);
     }
@@ -51,6 +51,14 @@ public class SHATest extends TestCase {
         "a9993e364706816aba3e25717850c26c9cd0d89d",
         "32d10c7b8cf96570ca04ce37f2a19d84240d3a89"
     };
+
+    // SHA-512 digests
+    private static final String[] sha512TestVectorHexString = {
+        "cf83e1357eefb8bdf1542850d66d8007d620e4050b5715dc83f4a921d36ce9ce47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e",
+        "1f40fc92da241694750979ee6cf582f2d5d7d28e18335de05abc54d0560e0f5302860c652bf08d560252aa5e74210546f369fbbbce8c12cfc7957b2652fe9a75",
+        "ddaf35a193617abacc417349ae20413112e6fa4e89a97ea20a9eeee64b55d39a2192992a274fc1a836ba3c23a3feebbd454d4423643ce80e2a9ac94fa54ca49f",
+        "4dbff86cc2ca1bae1e16468a05cb9881c97f1753bce3619034898faa1aabe429955a1bf8ec483d7421fe3c1646613a59ed5441fb0f321389f77f48a879c7b1f1"
+    };
        private MessageDigest sha;
 
   
@@ -98,4 +106,36 @@ public class SHATest extends TestCase {
 	
 	}	
     }
+
+    public void testSHA512() throws Exception {
+	MessageDigest sha512 = MessageDigest.getInstance("SHA-512");
+	assertEquals("SHA-512", sha512.getAlgorithm());
+	byte[] digest = new byte[sha512.getDigestLength()];
+	for (int i = 0; i < testVectorHexString.length; i++) {
+	    byte[] testVector = Util.hexDecode(testVectorHexString[i]);
+	    sha512.update(testVector, 0, testVector.length);
+	    sha512.digest(digest, 0, digest.length);
+	    assertEquals(sha512TestVectorHexString[i], Util.hexEncode(digest));
+	}
+	
+	// the padding of 111 and 112 bytes needs one and two blocks, 1000
+	// bytes are hashed in small pieces
+	String[] expected = {
+	    "fa9121c7b32b9e01733d034cfc78cbf67f926c7ed83e82200ef86818196921760b4beff48404df811b953828274461673c68d04e297b0eb7b2b4d60fc6b566a2",
+	    "c01d080efd492776a1c43bd23dd99d0a2e626d481e16782e75d54c2503b5dc32bd05f0f1ba33e568b88fd2d970929b719ecbb152f58f130a407c8830604b70ca",
+	    "67ba5535a46e3f86dbfbed8cbbaf0125c76ed549ff8b0b9e03e0c88cf90fa634fa7b12b47d77b694de488ace8d9a65967dc96df599727d3292a8d9d447709c97"
+	};
+	int[] lengths = { 111, 112, 1000 };
+	for (int i = 0; i < lengths.length; i++) {
+	    byte[] a = new byte[lengths[i]];
+	    for (int j = 0; j < a.length; j++) {
+		a[j] = 'a';
+	    }
+	    for (int j = 0; j < a.length; j += 7) {
+		sha512.update(a, j, Math.min(7, a.length - j));
+	    }
+	    sha512.digest(digest, 0, digest.length);
+	    assertEquals(expected[i], Util.hexEncode(digest));
+	}
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2004-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+
+package test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.sun.spot.security.GeneralSecurityException;
+import com.sun.spot.security.implementation.Util;
+import com.sun.spot.security.implementation.X25519KeyImpl;
+import com.sun.spot.security.implementation.X25519PrivateKeyImpl;
+import com.sun.spot.security.implementation.X25519PublicKeyImpl;
+import com.sun.spot.security.implementation.ecc.Curve25519;
+import com.sun.spot.security.implementation.ecc.ECCurve;
+import com.sun.spot.security.implementation.ecc.FFA;
+import com.sun.spot.security.implementation.ecc.PrimeField;
+import com.sun.spotx.crypto.KeyAgreement;
+
+/**
+ * Tests X25519 with the test vectors of RFC 7748 on both FFA backends.
+ */
+public class X25519Test extends TestCase {
+
+    private static final int[] BACKENDS = { ECCurve.FFA_28, ECCurve.FFA_32 };
+
+    private static final String NINE =
+	"0900000000000000000000000000000000000000000000000000000000000000";
+
+    private String x25519(Curve25519 curve, String k, String u) {
+	byte[] r = new byte[Curve25519.KEY_SIZE];
+	curve.multiply(r, 0, Util.hexDecode(k), 0, Util.hexDecode(u), 0);
+	return Util.hexEncode(r);
+    }
+
+    public void testVectors() throws Exception {
+	for (int i = 0; i < BACKENDS.length; i++) {
+	    Curve25519 curve = Curve25519.getInstance(BACKENDS[i]);
+	    // RFC 7748, Section 5.2
+	    assertEquals("c3da55379de9c6908e94ea4df28d084f32eccf03491c71f754b4075577a28552",
+		    x25519(curve,
+			    "a546e36bf0527c9d3b16154b82465edd62144c0ac1fc5a18506a2244ba449ac4",
+			    "e6db6867583030db3594c1a424b15f7c726624ec26b3353b10a903a6d0ab1c4c"));
+	    // the most significant bit of u is ignored
+	    assertEquals("95cbde9476e8907d7aade45cb4b873f88b595a68799fa152e6f8f7647aac7957",
+		    x25519(curve,
+			    "4b66e9d4d1b4673c5ad22691957d6af5c11b6421e0ea01d42ca4169e7918ba0d",
+			    "e5210f12786811d3f4b7959d0538ae2c31dbe7106fc03c3efc4cd549c715a493"));
+
+	    // k = u = 9, then k, u = X25519(k, u), k
+	    String k = NINE;
+	    String u = NINE;
+	    for (int j = 0; j < 1000; j++) {
+		String r = x25519(curve, k, u);
+		u = k;
+		k = r;
+		if (j == 0) {
+		    assertEquals("422c8e7a6227d7bca1350b3e2bb7279f7897b87bb6854b783c60e80311ae3079", k);
+		}
+	    }
+	    assertEquals("684cf59ba83309552800ef566f2f4d3c1c3887c49360e3875f2eb94d99532c51", k);
+	}
+    }
+
+    public void testKeyAgreement() throws Exception {
+	// RFC 7748, Section 6.1
+	String alicePriv = "77076d0a7318a57d3c16c17251b26645df4c2f87ebc0992ab177fba51db92c2a";
+	String alicePub = "8520f0098930a754748b7ddcb43ef75a0dbf3a0d26381af4eba4a98eaa9b4e6a";
+	String bobPriv = "5dab087e624a8a4b79e17f8b83800ee66f3bb1292618b6fd1c2f8b27ff88e0eb";
+	String bobPub = "de9edb7d7b7dc1b4d35b61c2ece435373f8343c85b78674dadfc7e146f882b4f";
+	String shared = "4a5d9d5ba4ce2de1728e3bf480350f25e07e21c947d19e3376f09b3c1e161742";
+
+	for (int i = 0; i < BACKENDS.length; i++) {
+	    Curve25519 curve = Curve25519.getInstance(BACKENDS[i]);
+	    assertEquals(alicePub, x25519(curve, alicePriv, NINE));
+	    assertEquals(bobPub, x25519(curve, bobPriv, NINE));
+	}
+
+	X25519PrivateKeyImpl priv = new X25519PrivateKeyImpl();
+	byte[] b = Util.hexDecode(alicePriv);
+	priv.setKey(b, 0, b.length);
+	KeyAgreement agr = KeyAgreement.getInstance(KeyAgreement.ALG_X25519);
+	agr.init(priv);
+	b = Util.hexDecode(bobPub);
+	byte[] secret = new byte[Curve25519.KEY_SIZE];
+	assertEquals(secret.length, agr.generateSecret(b, 0, b.length, secret, 0));
+	assertEquals(shared, Util.hexEncode(secret));
+
+	// generated key pairs agree
+	X25519PublicKeyImpl pub1 = new X25519PublicKeyImpl();
+	X25519PrivateKeyImpl priv1 = new X25519PrivateKeyImpl();
+	X25519PublicKeyImpl pub2 = new X25519PublicKeyImpl();
+	X25519PrivateKeyImpl priv2 = new X25519PrivateKeyImpl();
+	X25519KeyImpl.genKeyPair(pub1, priv1);
+	X25519KeyImpl.genKeyPair(pub2, priv2);
+	byte[] w = new byte[Curve25519.KEY_SIZE];
+	byte[] secret1 = new byte[Curve25519.KEY_SIZE];
+	byte[] secret2 = new byte[Curve25519.KEY_SIZE];
+	agr.init(priv1);
+	pub2.getKey(w, 0);
+	agr.generateSecret(w, 0, w.length, secret1, 0);
+	agr.init(priv2);
+	pub1.getKey(w, 0);
+	agr.generateSecret(w, 0, w.length, secret2, 0);
+	assertEquals(Util.hexEncode(secret1), Util.hexEncode(secret2));
+
+	// points of small order give the all zero secret, which is refused
+	w = new byte[Curve25519.KEY_SIZE];
+	w[0] = 1;
+	try {
+	    agr.generateSecret(w, 0, w.length, secret, 0);
+	    fail("small order point accepted");
+	} catch (GeneralSecurityException e) {
+	}
+    }
+
+    public void testField() throws Exception {
+	Random rnd = new Random(25519);
+	for (int i = 0; i < BACKENDS.length; i++) {
+	    PrimeField field = Curve25519.getInstance(BACKENDS[i]).getField();
+	    FFA ffa = field.getFFA();
+	    BigInteger p = BigInteger.ONE.shiftLeft(255).subtract(BigInteger.valueOf(19));
+	    assertEquals(p, new BigInteger(ffa.toString(field.getP()), 16));
+	    int[] aFFA = ffa.acquireVar();
+	    int[] bFFA = ffa.acquireVar();
+	    int[] rFFA = ffa.acquireVar();
+	    for (int j = 0; j < 1000; j++) {
+		// values just below p as well as random ones
+		BigInteger a = (j < 500) ? p.subtract(BigInteger.valueOf(rnd.nextInt(1 << 20) + 1))
+			: new BigInteger(255, rnd).mod(p);
+		BigInteger b = new BigInteger(255, rnd).mod(p);
+		ffa.from(aFFA, a.toString(16));
+		ffa.from(bFFA, b.toString(16));
+		field.multiply(rFFA, aFFA, bFFA);
+		assertEquals(a.multiply(b).mod(p), new BigInteger(ffa.toString(rFFA), 16));
+		field.square(rFFA, aFFA);
+		assertEquals(a.multiply(a).mod(p), new BigInteger(ffa.toString(rFFA), 16));
+		if ((j % 10 == 0) && (a.signum() != 0)) {
+		    field.invert(rFFA, aFFA);
+		    assertEquals(a.modInverse(p), new BigInteger(ffa.toString(rFFA), 16));
+		}
+	    }
+	    ffa.releaseVar(aFFA);
+	    ffa.releaseVar(bFFA);
+	    ffa.releaseVar(rFFA);
+	}
+    }
+}
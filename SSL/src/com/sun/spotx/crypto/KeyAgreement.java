@@ -29,6 +29,7 @@ import com.sun.spot.security.InvalidKeyException;
 import com.sun.spot.security.NoSuchAlgorithmException;
 import com.sun.spot.security.PrivateKey;
 import com.sun.spotx.crypto.implementation.ECDHKeyAgreement;
+import com.sun.spotx.crypto.implementation.X25519KeyAgreement;
 
 /**
  * The <code>KeyAgreement</code> class is the base class for key agreement
@@ -47,6 +48,12 @@ public abstract class KeyAgreement {
      */
     public static final String ALG_EC_SVDP_DH = "EC_SVDP_DH";
     
+    /**
+     * Diffie-Hellman on Curve25519 as per RFC 7748, with the keys of
+     * <code>X25519KeyImpl</code>. 
+     */
+    public static final String ALG_X25519 = "X25519";
+    
     
     /**
      * Protected constructor.
@@ -127,6 +134,8 @@ public abstract class KeyAgreement {
         
         if (algorithm.equals(KeyAgreement.ALG_EC_SVDP_DH)) {
                 return new ECDHKeyAgreement();
+        } else if (algorithm.equals(KeyAgreement.ALG_X25519)) {
+                return new X25519KeyAgreement();
         } else {
             throw new NoSuchAlgorithmException("algorithm: "+algorithm);
         }
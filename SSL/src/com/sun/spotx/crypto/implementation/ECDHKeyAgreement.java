@@ -39,9 +39,32 @@ public class ECDHKeyAgreement extends KeyAgreement {
     
     private ECPrivateKeyImpl privKey;
     
+    // true if generateSecret() uses the Montgomery ladder
+    private boolean constantTime;
+    
     public ECDHKeyAgreement() {
     }
     
+    /**
+     * Selects the point multiplication of generateSecret(). By default it
+     * is the wNAF method of ECCurve.multiply(), the fastest one. With
+     * <code>constantTime</code> set, the Montgomery ladder of
+     * ECCurve.multiplyLadder() is used instead, which performs the same
+     * operations for every bit of the private key but is about 1.3 to 1.5
+     * times slower.
+     * <p>
+     * The ladder is deliberately not chosen automatically, not even for
+     * the ephemeral keys of an ECDHE handshake. Its extra cost cannot be
+     * removed, as it needs two point additions per bit where the wNAF
+     * method needs one doubling and an addition for about every sixth bit.
+     * <p>
+     * <b>Warning</b>: This method is not part of the Security and Trust
+     * Services API (SATSA) 1.0 specification.
+     */
+    public void setConstantTime(boolean constantTime) {
+        this.constantTime = constantTime;
+    }
+    
     public void init(PrivateKey pKey) throws InvalidKeyException {
 	ECPrivateKeyImpl privKey;
 	if (pKey instanceof ECPrivateKeyImpl) {
@@ -72,13 +95,23 @@ public class ECDHKeyAgreement extends KeyAgreement {
         if ((secret.length - secretOffset) < numLen) {
             return 0;
         }
-        ECPoint point = new ECPoint(curve);
+        ECPoint point = curve.acquirePoint();
         if (!curve.decodePoint(point, publicData, publicOffset, publicLength)) {           
+            curve.releasePoint(point);
             throw new GeneralSecurityException("Illegal value");
         }
-        curve.multiply(point, privKey.getKeyData());
+        FFA orderFFA = curve.getOrder().getFFA();
+        int[] k = orderFFA.acquireVar();
+        privKey.getKeyData(k);
+        if (constantTime) {
+            curve.multiplyLadder(point, k);
+        } else {
+            curve.multiply(point, k);
+        }
+        orderFFA.set(k, 0);
+        orderFFA.releaseVar(k);
         ffa.toByteArray(secret, secretOffset, numLen, point.x);
-        point.release();
+        curve.releasePoint(point);
         return numLen;
     }
     
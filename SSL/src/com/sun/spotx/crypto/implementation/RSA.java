@@ -31,6 +31,7 @@ import com.sun.spot.security.Key;
 import com.sun.spot.security.NoSuchAlgorithmException;
 import com.sun.spot.security.implementation.ModuloExponentiation;
 import com.sun.spot.security.implementation.RSAKey;
+import com.sun.spot.security.implementation.RSAPrivateCrtKey;
 import com.sun.spot.security.implementation.RSAPrivateKey;
 import com.sun.spot.security.implementation.RSAPublicKey;
 import com.sun.spot.security.implementation.SecureRandom;
@@ -65,6 +66,19 @@ public final class RSA extends CipherSpi {
     /** Number of bytes in the message to sign. */
     private int bytesInMessage;
 
+    /** Buffers of the exponentiation, kept between operations. */
+    private final ModuloExponentiation.Workspace workspace =
+            new ModuloExponentiation.Workspace();
+
+    /** Result of the exponentiation, one modulus long. */
+    private byte[] buf;
+
+    /** Padded result, one modulus long. */
+    private byte[] tmp;
+
+    /** Padded or copied input block, one modulus long. */
+    private byte[] block;
+
     
     
     /**
@@ -133,20 +147,11 @@ public final class RSA extends CipherSpi {
      */ 
     private byte[] doIt(byte[] data) {
         int modLen = ckey.getModulusLen();
-        byte[] buf = new byte[modLen];
-        byte[] mod = new byte[modLen];
+        if (buf == null || buf.length != modLen) {
+            buf = new byte[modLen];
+            tmp = new byte[modLen];
+        }
         int bufLen;
-        
-        // Note: Both RSAPublicKey and RSAPrivateKey provide the same
-        // interface
-        short val = ckey.getModulus(mod, (short) 0);
-        
-        byte[] tmp = new byte[modLen];
-        val = ckey.getExponent(tmp, (short) 0);
-        byte[] exp = new byte [val];
-        System.arraycopy(tmp, 0, exp, 0, val);
-        
-        
 
         //bufLen = modExp(data, exp, mod, buf);
         
@@ -156,7 +161,15 @@ public final class RSA extends CipherSpi {
         // RSA performance. 
         
         //bufLen = modExpFFA(data, exp, mod, buf); 
-        bufLen =  ModuloExponentiation.oddModPow(buf, data,exp,mod);
+        if (ckey instanceof RSAPrivateCrtKey) {
+            // two half size exponentiations modulo p and q
+            bufLen = ModuloExponentiation.crtModPow(buf, data,
+                    (RSAPrivateCrtKey) ckey, workspace);
+        } else {
+            // the key keeps its Montgomery parameters between calls
+            bufLen = ModuloExponentiation.oddModPow(buf, data, ckey,
+                    workspace);
+        }
         
         if (bufLen == modLen) {
             return buf;
@@ -259,7 +272,12 @@ public final class RSA extends CipherSpi {
             throw new InvalidKeyException();
         }
 
-        messageToSign = new byte[ckey.getModulusLen()];
+        // the cipher is initialized again after every operation, keep the
+        // buffer if the key has the same size
+        if (messageToSign == null
+                || messageToSign.length != ckey.getModulusLen()) {
+            messageToSign = new byte[ckey.getModulusLen()];
+        }
         bytesInMessage = 0;
     }
     
@@ -333,6 +351,19 @@ public final class RSA extends CipherSpi {
         bytesInMessage += bytesToCopy;
     }
 
+    /**
+     * Gets the buffer for an input block, reusing it between operations.
+     *
+     * @param modLen the modulus length in bytes
+     * @return the buffer
+     */
+    private byte[] block(int modLen) {
+        if (block == null || block.length != modLen) {
+            block = new byte[modLen];
+        }
+        return block;
+    }
+
     /**
      * Performs the crypto process the buffer.
      *
@@ -383,7 +414,7 @@ public final class RSA extends CipherSpi {
              * Add PKCS#1 (ver 1.5) padding
              * 0x00 | 0x02 | <random, non-zero pad bytes> | 0x00 | <data>
              */ 
-            tmp = new byte[modLen];
+            tmp = block(modLen);
             tmp[0] = (byte) 0x00;
 
             padLen = modLen - inLen - 3;
@@ -433,7 +464,7 @@ public final class RSA extends CipherSpi {
             }
 
             if (inOff != 0) {
-                tmp = new byte[modLen];
+                tmp = block(modLen);
                 System.arraycopy(inBuf, inOff, tmp, 0, modLen);
                 res = doIt(tmp);
             } else {
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2006-2008 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * 
+ * This code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * only, as published by the Free Software Foundation.
+ * 
+ * This code is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License version 2 for more details (a copy is
+ * included in the LICENSE file that accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License
+ * version 2 along with this work; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ * 
+ * Please contact Sun Microsystems, Inc., 16 Network Circle, Menlo
+ * Park, CA 94025 or visit www.sun.com if you need additional
+ * information or have any questions.
+ */
+
+
+package com.sun.spotx.crypto.implementation;
+
+
+import com.sun.spot.security.GeneralSecurityException;
+import com.sun.spot.security.InvalidKeyException;
+import com.sun.spot.security.PrivateKey;
+import com.sun.spot.security.implementation.X25519PrivateKeyImpl;
+import com.sun.spot.security.implementation.ecc.Curve25519;
+import com.sun.spotx.crypto.KeyAgreement;
+
+
+/**
+ * X25519 key agreement (RFC 7748). The public data of the other party is
+ * its 32 byte u-coordinate, the secret is the 32 byte shared
+ * u-coordinate. A result of zero, from a public key of small order, is
+ * rejected as required by RFC 8422.
+ */
+public class X25519KeyAgreement extends KeyAgreement {
+    
+    private X25519PrivateKeyImpl privKey;
+    
+    public X25519KeyAgreement() {
+    }
+    
+    public void init(PrivateKey pKey) throws InvalidKeyException {
+        if (!(pKey instanceof X25519PrivateKeyImpl)) {
+            throw new InvalidKeyException("Invalid key");
+        }
+        X25519PrivateKeyImpl privKey = (X25519PrivateKeyImpl)pKey;
+        if (!privKey.isInitialized()) {
+            throw new InvalidKeyException("Uninitialized key");
+        }
+        this.privKey = privKey;
+    }
+
+    public int generateSecret(byte[] publicData, int publicOffset,
+            int publicLength, byte[] secret, int secretOffset)
+            throws GeneralSecurityException {
+
+        if (privKey == null) {
+            throw new GeneralSecurityException("Not initialized");            
+        }
+        if ((secret.length - secretOffset) < Curve25519.KEY_SIZE) {
+            return 0;
+        }
+        if (publicLength != Curve25519.KEY_SIZE) {
+            throw new GeneralSecurityException("Illegal value");
+        }
+        byte[] k = new byte[Curve25519.KEY_SIZE];
+        privKey.getKey(k, 0);
+        byte[] r = new byte[Curve25519.KEY_SIZE];
+        boolean ok = privKey.getCurve25519().multiply(r, 0, k, 0,
+                publicData, publicOffset);
+        for (int i = 0; i < k.length; i++) {
+            k[i] = 0;
+        }
+        if (!ok) {
+            throw new GeneralSecurityException("Illegal value");
+        }
+        System.arraycopy(r, 0, secret, secretOffset, r.length);
+        return r.length;
+    }
+    
+    public String getAlgorithm() {
+        return KeyAgreement.ALG_X25519;        
+    }
+    
+}
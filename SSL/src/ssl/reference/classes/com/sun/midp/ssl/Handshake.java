@@ -41,6 +41,7 @@ import com.sun.spot.security.MessageDigest;
 import com.sun.spot.security.NoSuchAlgorithmException;
 import com.sun.spot.security.PrivateKey;
 import com.sun.spot.security.PublicKey;
+import com.sun.spot.security.Signature;
 import com.sun.spot.security.implementation.RSAPublicKey;
 import com.sun.spot.security.implementation.RSAPrivateKey;
 import com.sun.spot.security.implementation.SecureRandom;
@@ -48,6 +49,9 @@ import com.sun.spot.security.implementation.ecc.ECCurve;
 import com.sun.spot.security.implementation.ECPrivateKeyImpl;
 import com.sun.spot.security.implementation.ECPublicKeyImpl;
 import com.sun.spot.security.implementation.ECKeyImpl;
+import com.sun.spot.security.implementation.X25519KeyImpl;
+import com.sun.spot.security.implementation.X25519PrivateKeyImpl;
+import com.sun.spot.security.implementation.X25519PublicKeyImpl;
 import com.sun.spotx.crypto.KeyAgreement;
 import com.sun.spotx.crypto.Cipher;
 
@@ -95,15 +99,22 @@ class Handshake {
      * TODO: Adjust this when we support additional ECC ciphers or curves.
      */
     private static final byte[] TLS_SUITES_COMP_EXT = {
-        0x00, 0x06, // Cipher list len followed by cipher list
+        0x00, 0x0a, // Cipher list len followed by cipher list
+        (byte) 0xc0, 0x07, // ECDHE_ECDSA_RC4_128_SHA
+        (byte) 0xc0, 0x11, // ECDHE_RSA_RC4_128_SHA
         (byte) 0xc0, 0x02, // ECDH_ECDSA_RC4_128_SHA
         0x00, (byte) ARCFOUR_128_SHA, 
         0x00, (byte) ARCFOUR_128_MD5,
         0x01, 0x00,  // Compression
-        0x00, 0x0e,  // Extensions length
+        0x00, 0x18,  // Extensions length
         0x00, 0x0a,  // Supported curves extension
-        0x00, 0x04,  // extension data len
-        0x00, 0x02,  // curve list len
+        0x00, 0x0e,  // extension data len
+        0x00, 0x0c,  // curve list len
+        0x00, 0x1d,  // x25519
+        0x00, 0x18,  // secp384r1
+        0x00, 0x17,  // secp256r1
+        0x00, 0x15,  // secp224r1
+        0x00, 0x13,  // secp192r1
         0x00, 0x10,  // secp160r1
         0x00, 0x0b,  // Supported point formats extension
         0x00, 0x02,  // extension data len
@@ -221,6 +232,13 @@ class Handshake {
      */
     private PublicKey cPubKey = null;
     private PrivateKey cPrivKey = null;
+
+    /**
+     * Server's ephemeral public key, received in the server key
+     * exchange of the ECDHE cipher suites. An ECPublicKeyImpl or, for
+     * the x25519 group, an X25519PublicKeyImpl.
+     */
+    private PublicKey sEphKey = null;
     private int curveType = -1;
 
     // we also need a temporary place to store the server certificate
@@ -386,6 +404,36 @@ class Handshake {
         return ("Unknown");
     };
     
+    /**
+     * The named curve of X25519 (RFC 8422). It has no ECCurve id, the
+     * ECDHE key exchange uses X25519KeyAgreement for it.
+     */
+    static final int X25519 = 0x1d;
+    private static final int X25519_KEY_SIZE = 32;
+    
+    /**
+     * Converts a named curve of the TLS supported curves extension
+     * (RFC 4492) to an ECCurve id.
+     *
+     * @param namedCurve the TLS identifier of the curve
+     * @return the ECCurve id, or -1 if the curve is not supported
+     */
+    static int getCurveId(int namedCurve) {
+        switch (namedCurve) {
+        case 0x10:
+            return ECCurve.SECP160R1;
+        case 0x13:
+            return ECCurve.SECP192R1;
+        case 0x15:
+            return ECCurve.SECP224R1;
+        case 0x17:
+            return ECCurve.SECP256R1;
+        case 0x18:
+            return ECCurve.SECP384R1;
+        }
+        return -1;
+    }
+    
     /**
      * Validates a chain of certificates and returns the RSA public
      * key from the first certificate in that chain. The format of
@@ -724,10 +772,11 @@ class Handshake {
     }
     
     /**
-     * Receives a Server key exchange message. For now only RSA key
-     * exchange is supported and this message includes temporary
-     * RSA public key parameters signed by the server's long-term
-     * private key. This message is optional.
+     * Receives a Server key exchange message. For RSA key exchange
+     * this message includes temporary RSA public key parameters signed
+     * by the server's long-term private key and is optional. For ECDHE
+     * it carries the server's ephemeral ECDH public key, see
+     * rcvECDHParams().
      * <P />
      * @return 0 on success, -1 on failure
      * @exception IOException if there is a problem reading the
@@ -749,7 +798,10 @@ class Handshake {
 
         case ECDHE_ECDSA_RC4_128_SHA:
         case ECDHE_RSA_RC4_128_SHA:
-            throw new IOException("Not supported");
+            if (rcvECDHParams(idx, endOfMsg) < 0) {
+                return -1;
+            }
+            break;
 
         default: 
             /* RSA key exchange:
@@ -898,6 +950,105 @@ class Handshake {
         return 0;
     }
     
+    /**
+     * Reads the ServerECDHParams of a server key exchange message
+     * (RFC 4492, Section 5.4) into sEphKey and verifies their signature
+     * with the key of the server certificate. Only named curves are
+     * supported.
+     * <P />
+     * @param idx offset of the parameters in the message
+     * @param endOfMsg end of the message
+     * @return 0 on success, -1 on failure
+     * @exception IOException if the signature check fails to run
+     */
+    private int rcvECDHParams(int idx, int endOfMsg) throws IOException {
+        int paramsStart = idx;
+        
+        // ... the curve, which must be a named_curve (3)
+        if ((endOfMsg < (idx + 4)) || (rec.inputData[idx++] != 0x03)) {
+            return -1;
+        }
+        int namedCurve = ((rec.inputData[idx++] & 0xff) << 8) +
+          (rec.inputData[idx++] & 0xff);
+        int curveId = getCurveId(namedCurve);
+        if ((curveId < 0) && (namedCurve != X25519)) {
+            return -1;
+        }
+        
+        // ... the public point, or the u-coordinate for x25519
+        int len = rec.inputData[idx++] & 0xff;
+        if (endOfMsg < (idx + len + 2)) {
+            return -1;
+        }
+        try {
+            if (namedCurve == X25519) {
+                X25519PublicKeyImpl key = new X25519PublicKeyImpl();
+                key.setKey(rec.inputData, idx, len);
+                sEphKey = key;
+            } else {
+                ECPublicKeyImpl key = new ECPublicKeyImpl(curveId);
+                key.setW(rec.inputData, idx, len);
+                sEphKey = key;
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+        idx += len;
+        int paramsEnd = idx;
+        
+        // ... and the signature
+        len = ((rec.inputData[idx++] & 0xff) << 8) +
+          (rec.inputData[idx++] & 0xff);
+        if (endOfMsg != (idx + len)) {
+            return -1;
+        }
+        
+        boolean verified;
+        try {
+            if (negSuite == ECDHE_ECDSA_RC4_128_SHA) {
+                Signature sig = Signature.getInstance("SHA1WITHECDSA");
+                sig.initVerify(sCert.getPublicKey());
+                sig.update(crand, 0, crand.length);
+                sig.update(srand, 0, srand.length);
+                sig.update(rec.inputData, paramsStart, paramsEnd - paramsStart);
+                verified = sig.verify(rec.inputData, idx, len);
+            } else {
+                // RSA signs the MD5 and SHA-1 hashes like for the
+                // ServerRSAParams
+                byte[] dat = new byte[MD5_SIZE + SHA_SIZE];
+                MessageDigest di = MessageDigest.getInstance("MD5");
+                di.update(crand, 0, crand.length);
+                di.update(srand, 0, srand.length);
+                di.update(rec.inputData, paramsStart, paramsEnd - paramsStart);
+                di.digest(dat, 0, MD5_SIZE);
+                
+                di = MessageDigest.getInstance("SHA-1");
+                di.update(crand, 0, crand.length);
+                di.update(srand, 0, srand.length);
+                di.update(rec.inputData, paramsStart, paramsEnd - paramsStart);
+                di.digest(dat, MD5_SIZE, SHA_SIZE);
+                
+                RSAPublicKey sKey = (RSAPublicKey) sCert.getPublicKey();
+                Cipher rsa = Cipher.getInstance("RSA");
+                rsa.init(Cipher.DECRYPT_MODE, sKey);
+                byte[] res = new byte[sKey.getModulusLen()];
+                rsa.doFinal(rec.inputData, idx, len, res, 0);
+                verified = Utils.byteMatch(res, 0, dat, 0, dat.length);
+            }
+        } catch (Exception e) {
+            throw new IOException("ECDH params verification caught " + e);
+        }
+        
+        if (!verified) {
+            if (Logging.REPORT_LEVEL <= Logging.ERROR) {
+                Logging.report(Logging.ERROR, LogChannels.LC_SECURITY,
+                  "ECDH params failed verification");
+            }
+            return -1;
+        }
+        return 0;
+    }
+    
     /**
      * Receives a Certificate request message. This message is optional.
      * <P />
@@ -949,9 +1100,9 @@ class Handshake {
     }
     
     /**
-     * Sends a Client key exchange message. For now, only RSA key
-     * exchange is supported and this message contains a pre-master
-     * secret encrypted with the RSA public key of the server.
+     * Sends a Client key exchange message. For RSA key exchange this
+     * message contains a pre-master secret encrypted with the RSA public
+     * key of the server, for ECDH and ECDHE our ephemeral public key.
      * <P />
      * @exception IOException if there is a problem writing to the
      * record layer
@@ -974,23 +1125,34 @@ class Handshake {
         switch (negSuite) {
         case ECDHE_ECDSA_RC4_128_SHA:
         case ECDHE_RSA_RC4_128_SHA:
-            throw new IOException("Not supported");
-
         case ECDH_ECDSA_RC4_128_SHA:
         case ECDH_RSA_RC4_128_SHA:
             // generate key pair on the same curve as the server
             // generate the premaster secret using our own private key 
-            // and the server's public key
+            // and the server's public key, which is the ephemeral one
+            // of the server key exchange for ECDHE
             // send our public key
 
             try {
-                ECPublicKeyImpl sKey = (ECPublicKeyImpl) sCert.getPublicKey();
+                if (sEphKey instanceof X25519PublicKeyImpl) {
+                    keyExchPayload = sndX25519KeyExch();
+                    keyExchPayloadLen = keyExchPayload.length;
+                    break;
+                }
+                ECPublicKeyImpl sKey;
+                if ((negSuite == ECDHE_ECDSA_RC4_128_SHA) ||
+                  (negSuite == ECDHE_RSA_RC4_128_SHA)) {
+                    sKey = (ECPublicKeyImpl) sEphKey;
+                } else {
+                    sKey = (ECPublicKeyImpl) sCert.getPublicKey();
+                }
                 int curveId = sKey.getCurve();
+                int wLen = 1 + 2 * ((sKey.getSize() + 7) >>> 3);
                 cPubKey = new ECPublicKeyImpl(curveId);
                 cPrivKey = new ECPrivateKeyImpl(curveId);
                 ECKeyImpl.genKeyPair((ECPublicKeyImpl) cPubKey, 
                   (ECPrivateKeyImpl) cPrivKey);
-                keyExchPayload = new byte[100];
+                keyExchPayload = new byte[wLen + 1];
                 keyExchPayloadLen = 
                   ((ECPublicKeyImpl) cPubKey).getW(keyExchPayload, 1);
                 keyExchPayload[0] = (byte) (keyExchPayloadLen++);
@@ -1000,9 +1162,9 @@ class Handshake {
                 KeyAgreement agr1 = 
                   KeyAgreement.getInstance(KeyAgreement.ALG_EC_SVDP_DH);
                 agr1.init((ECPrivateKeyImpl) cPrivKey);
-                byte[] tmp = new byte[100];
-                byte[] tmp2 = new byte[100];
-                int len = ((ECPublicKeyImpl) sCert.getPublicKey()).getW(tmp, 0);
+                byte[] tmp = new byte[wLen];
+                byte[] tmp2 = new byte[wLen];
+                int len = sKey.getW(tmp, 0);
                 int len2 = agr1.generateSecret(tmp, 0, len, tmp2, 0);
                 preMaster = new byte[len2];
                 System.arraycopy(tmp2, 0, preMaster, 0, len2);
@@ -1085,6 +1247,34 @@ class Handshake {
         rec.wrRec(Record.HNDSHK, msg, 0, msg.length);
     }
     
+    /**
+     * Generates our ephemeral X25519 key pair for the x25519 group and
+     * computes the pre-master secret with the ephemeral key of the
+     * server (RFC 8422, Section 5.11).
+     * <P />
+     * @return the ClientECDiffieHellmanPublic payload, the length
+     * prefixed u-coordinate of our public key
+     * @exception Exception if the key generation or agreement fails,
+     * e.g. for a server key of small order
+     */
+    private byte[] sndX25519KeyExch() throws Exception {
+        cPubKey = new X25519PublicKeyImpl();
+        cPrivKey = new X25519PrivateKeyImpl();
+        X25519KeyImpl.genKeyPair((X25519PublicKeyImpl) cPubKey,
+          (X25519PrivateKeyImpl) cPrivKey);
+        byte[] payload = new byte[X25519_KEY_SIZE + 1];
+        payload[0] = (byte) X25519_KEY_SIZE;
+        ((X25519PublicKeyImpl) cPubKey).getKey(payload, 1);
+        
+        KeyAgreement agr = KeyAgreement.getInstance(KeyAgreement.ALG_X25519);
+        agr.init(cPrivKey);
+        byte[] sKey = new byte[X25519_KEY_SIZE];
+        ((X25519PublicKeyImpl) sEphKey).getKey(sKey, 0);
+        preMaster = new byte[X25519_KEY_SIZE];
+        agr.generateSecret(sKey, 0, sKey.length, preMaster, 0);
+        return payload;
+    }
+    
     /**
      * Derives the master key based on the pre-master secret and
      * random values exchanged in the client and server hello messages.